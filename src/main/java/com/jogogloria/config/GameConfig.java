@@ -48,4 +48,8 @@ public class GameConfig {
 
     //Definições Gameplay
     public static final int BOT_DELAY = 1000;
+
+    //Histórico do undo: registos em memória (16 bytes cada) e despejo dos mais antigos em disco
+    public static final int UNDO_MEMORY_RECORDS = 65_536;
+    public static final boolean UNDO_SPILL_TO_DISK = true;
 }
@@ -4,9 +4,6 @@ import com.jogogloria.model.Labyrinth;
 import com.jogogloria.model.Player;
 import com.jogogloria.model.Room;
 
-import com.example.Biblioteca.lists.ArrayUnorderedList;
-import com.example.Biblioteca.iterators.Iterator;
-
 /**
  * Classe que gere a inteligência do Bot Covarde, bot que evita caminhos que passe por penalidades
  *
@@ -20,7 +17,7 @@ public class CowardBot implements BotStrategy{
         String current = player.getCurrentRoom().getId();
         String treasure = labyrinth.getTreasureRoom();
 
-        String idealStep = getNextStep(labyrinth, current, treasure);
+        String idealStep = labyrinth.getNextStep(current, treasure);
 
         if (idealStep == null) return null; // Sem caminho
 
@@ -59,39 +56,24 @@ public class CowardBot implements BotStrategy{
      * @return
      */
     private String findSafeNeighbor(Labyrinth labyrinth, String current, String target) {
-        try {
-            ArrayUnorderedList<String> neighbors = labyrinth.getNeighbors(current);
-            Iterator<String> it = neighbors.iterator();
-
-            String bestAlternative = null;
-            double bestDist = Double.POSITIVE_INFINITY;
+        int index = labyrinth.getRoomIndex(current);
 
-            while (it.hasNext()) {
-                String neighbor = it.next();
+        String bestAlternative = null;
+        double bestDist = Double.POSITIVE_INFINITY;
 
+        for (int k = 0; k < labyrinth.getNeighborCount(index); k++) {
+            int neighbor = labyrinth.getNeighbor(index, k);
 
-                if (labyrinth.isValidMove(current, neighbor) && !isDangerous(labyrinth, neighbor)) {
-                    double dist = labyrinth.graphStructure.shortestPathWeight(neighbor, target);
+            if (labyrinth.isNeighborOpen(index, k) && labyrinth.getRoomType(neighbor) != Room.RoomType.PENALTY) {
+                String neighborId = labyrinth.getRoomId(neighbor);
+                double dist = labyrinth.shortestPathWeight(neighborId, target);
 
-                    if (dist < bestDist) {
-                        bestDist = dist;
-                        bestAlternative = neighbor;
-                    }
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    bestAlternative = neighborId;
                 }
             }
-            return bestAlternative;
-        } catch (Exception e) { return null; }
-    }
-
-    /**
-     * Calcula o primeiro passo do caminho mais curto para um destino.
-     */
-    private String getNextStep(Labyrinth lab, String start, String target) {
-        Iterator<String> path = lab.getShortestPath(start, target);
-        if (path != null && path.hasNext()) {
-            path.next(); // Ignora atual
-            if (path.hasNext()) return path.next();
         }
-        return null;
+        return bestAlternative;
     }
 }
@@ -23,12 +23,12 @@ public class ExplorerBot implements BotStrategy {
         if (nearestBoostId != null) {
             System.out.println("ExplorerBot: Vi um Boost em " + nearestBoostId + "! Vou buscá-lo.");
             // Usa o caminho mais curto para chegar ao item
-            return getNextStep(labyrinth, currentId, nearestBoostId);
+            return labyrinth.getNextStep(currentId, nearestBoostId);
         }
 
         // 2. Se não houver boosts, vai para o tesouro
         System.out.println("ExplorerBot: Sem boosts. A ir para o tesouro.");
-        return getNextStep(labyrinth, currentId, labyrinth.getTreasureRoom());
+        return labyrinth.getNextStep(currentId, labyrinth.getTreasureRoom());
     }
 
     /**
@@ -47,7 +47,7 @@ public class ExplorerBot implements BotStrategy {
                 // Se for Boost e não for a sala onde já estou
                 if (r != null && r.getType() == Room.RoomType.LEVER && !roomId.equals(startId)) {
                     // Verifica se consigo lá chegar
-                    if (isPathClear(labyrinth, startId, roomId)) {
+                    if (labyrinth.canReach(startId, roomId)) {
                         return roomId;
                     }
                 }
@@ -56,36 +56,4 @@ public class ExplorerBot implements BotStrategy {
         }
         return null;
     }
-
-    /**
-     * Verifica se o caminho completo entre duas salas está livre de portas trancadas.
-     */
-    private boolean isPathClear(Labyrinth lab, String start, String target) {
-        Iterator<String> path = lab.getShortestPath(start, target);
-
-        if (path == null || !path.hasNext()) return false;
-
-        String current = path.next();
-
-        while(path.hasNext()) {
-            String next = path.next();
-            if (!lab.isValidMove(current, next)) {
-                return false;
-            }
-            current = next;
-        }
-        return true;
-    }
-
-    /**
-     * Calcula o primeiro passo do caminho mais curto para um destino.
-     */
-    private String getNextStep(Labyrinth lab, String start, String target) {
-        Iterator<String> path = lab.getShortestPath(start, target);
-        if (path != null && path.hasNext()) {
-            path.next(); // Ignora atual
-            if (path.hasNext()) return path.next();
-        }
-        return null;
-    }
 }
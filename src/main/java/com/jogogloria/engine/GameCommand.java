@@ -0,0 +1,239 @@
+package com.jogogloria.engine;
+
+import com.jogogloria.model.Labyrinth;
+import com.jogogloria.model.Lever;
+import com.jogogloria.model.Player;
+import com.jogogloria.model.Room;
+
+/**
+ * Alteração reversível do estado do jogo, guardada no histórico do undo do {@link GameEngine}.
+ * <p>
+ * Cada comando guarda só o que mudou (o valor antes e depois), por isso desfazer um passo custa
+ * o número de alterações desse passo e a memória do histórico cresce com o que mudou, e não com o
+ * número de jogadores ou o tamanho do mapa. Os passos são separados por {@link Checkpoint}.
+ * </p>
+ * <p>
+ * No histórico ({@link UndoHistory}) cada comando é guardado como um registo de
+ * {@link #RECORD_INTS} inteiros (tipo e três valores), com jogadores, salas e alavancas
+ * pelo seu índice; {@link #decode} volta a criar o comando quando é preciso desfazê-lo.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+public interface GameCommand {
+
+    /** Inteiros por registo codificado */
+    int RECORD_INTS = 4;
+
+    // Tipos de registo
+    int CHECKPOINT = 0;
+    int MOVE = 1;
+    int MOVEMENT_POINTS = 2;
+    int SKIP_TURNS = 3;
+    int LEVER_TOGGLE = 4;
+    int TURN_ADVANCE = 5;
+
+    /** Aplica a alteração */
+    void apply(GameEngine engine);
+
+    /** Repõe o estado anterior à alteração */
+    void revert(GameEngine engine);
+
+    /**
+     * Escreve o registo do comando em {@code record[offset .. offset + RECORD_INTS - 1]}
+     */
+    void encode(GameEngine engine, int[] record, int offset);
+
+    /**
+     * Volta a criar um comando a partir do seu registo
+     */
+    static GameCommand decode(GameEngine engine, int[] record, int offset) {
+        int a = record[offset + 1], b = record[offset + 2], c = record[offset + 3];
+        Labyrinth labyrinth = engine.getLabyrinth();
+        switch (record[offset]) {
+            case MOVE:
+                return new Move(engine.getPlayer(a), roomOf(labyrinth, b), roomOf(labyrinth, c));
+            case MOVEMENT_POINTS:
+                return new MovementPoints(engine.getPlayer(a), b, c);
+            case SKIP_TURNS:
+                return new SkipTurns(engine.getPlayer(a), b, c);
+            case LEVER_TOGGLE:
+                return new LeverToggle(labyrinth.getRoomByIndex(a), b == 1);
+            case TURN_ADVANCE:
+                return new TurnAdvance(a);
+            default:
+                return Checkpoint.INSTANCE;
+        }
+    }
+
+    private static Room roomOf(Labyrinth labyrinth, int index) {
+        return index == -1 ? null : labyrinth.getRoomByIndex(index);
+    }
+
+    private static void write(int[] record, int offset, int type, int a, int b, int c) {
+        record[offset] = type;
+        record[offset + 1] = a;
+        record[offset + 2] = b;
+        record[offset + 3] = c;
+    }
+
+    /**
+     * Início de um passo (um movimento e tudo o que acontece até ao movimento seguinte)
+     */
+    final class Checkpoint implements GameCommand {
+        static final Checkpoint INSTANCE = new Checkpoint();
+
+        private Checkpoint() {}
+
+        @Override
+        public void apply(GameEngine engine) {}
+
+        @Override
+        public void revert(GameEngine engine) {}
+
+        @Override
+        public void encode(GameEngine engine, int[] record, int offset) {
+            write(record, offset, CHECKPOINT, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Jogador muda de sala
+     */
+    final class Move implements GameCommand {
+        private final Player player;
+        private final Room from;
+        private final Room to;
+
+        public Move(Player player, Room from, Room to) {
+            this.player = player;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void apply(GameEngine engine) { player.move(to); }
+
+        @Override
+        public void revert(GameEngine engine) { player.move(from); }
+
+        @Override
+        public void encode(GameEngine engine, int[] record, int offset) {
+            Labyrinth labyrinth = engine.getLabyrinth();
+            write(record, offset, MOVE, engine.indexOfPlayer(player),
+                    from == null ? -1 : labyrinth.getRoomIndex(from), to == null ? -1 : labyrinth.getRoomIndex(to));
+        }
+    }
+
+    /**
+     * Pontos de movimento de um jogador mudam
+     */
+    final class MovementPoints implements GameCommand {
+        private final Player player;
+        private final int before;
+        private final int after;
+
+        public MovementPoints(Player player, int before, int after) {
+            this.player = player;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public void apply(GameEngine engine) { player.setMovementPoints(after); }
+
+        @Override
+        public void revert(GameEngine engine) { player.setMovementPoints(before); }
+
+        @Override
+        public void encode(GameEngine engine, int[] record, int offset) {
+            write(record, offset, MOVEMENT_POINTS, engine.indexOfPlayer(player), before, after);
+        }
+    }
+
+    /**
+     * Turnos a saltar de um jogador mudam
+     */
+    final class SkipTurns implements GameCommand {
+        private final Player player;
+        private final int before;
+        private final int after;
+
+        public SkipTurns(Player player, int before, int after) {
+            this.player = player;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public void apply(GameEngine engine) { player.setSkipTurns(after); }
+
+        @Override
+        public void revert(GameEngine engine) { player.setSkipTurns(before); }
+
+        @Override
+        public void encode(GameEngine engine, int[] record, int offset) {
+            write(record, offset, SKIP_TURNS, engine.indexOfPlayer(player), before, after);
+        }
+    }
+
+    /**
+     * Alavanca ativada: abre a porta que controla
+     */
+    final class LeverToggle implements GameCommand {
+        private final Room room;
+        private final Lever lever;
+        private final boolean wasLocked;
+
+        /**
+         * @param room      Sala da alavanca
+         * @param wasLocked Se a porta estava trancada antes de a alavanca ser ativada
+         */
+        public LeverToggle(Room room, boolean wasLocked) {
+            this.room = room;
+            this.lever = room.getLever();
+            this.wasLocked = wasLocked;
+        }
+
+        @Override
+        public void apply(GameEngine engine) {
+            lever.setActivated(true);
+            engine.getLabyrinth().setConnectionLocked(lever.getRoomA().getId(), lever.getRoomB().getId(), false);
+        }
+
+        @Override
+        public void revert(GameEngine engine) {
+            lever.setActivated(false);
+            Labyrinth labyrinth = engine.getLabyrinth();
+            labyrinth.setConnectionLocked(lever.getRoomA().getId(), lever.getRoomB().getId(), wasLocked);
+        }
+
+        @Override
+        public void encode(GameEngine engine, int[] record, int offset) {
+            write(record, offset, LEVER_TOGGLE, engine.getLabyrinth().getRoomIndex(room), wasLocked ? 1 : 0, 0);
+        }
+    }
+
+    /**
+     * A vez passa: a fila de turnos roda {@code rotations} posições e o contador de turnos avança
+     */
+    final class TurnAdvance implements GameCommand {
+        private final int rotations;
+
+        public TurnAdvance(int rotations) {
+            this.rotations = rotations;
+        }
+
+        @Override
+        public void apply(GameEngine engine) { engine.rotateTurns(rotations, 1); }
+
+        @Override
+        public void revert(GameEngine engine) { engine.rotateTurns(-rotations, -1); }
+
+        @Override
+        public void encode(GameEngine engine, int[] record, int offset) {
+            write(record, offset, TURN_ADVANCE, rotations, 0, 0);
+        }
+    }
+}
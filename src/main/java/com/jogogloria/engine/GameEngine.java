@@ -4,27 +4,38 @@ import com.example.Biblioteca.exceptions.EmptyCollectionException;
 import com.example.Biblioteca.queues.LinkedQueue;
 import com.example.Biblioteca.lists.ArrayUnorderedList;
 import com.example.Biblioteca.iterators.Iterator;
-import com.example.Biblioteca.stacks.LinkedStack;
+import com.jogogloria.config.GameConfig;
 import com.jogogloria.model.Labyrinth;
 import com.jogogloria.model.Player;
 import com.jogogloria.model.Room;
 import com.jogogloria.model.Penalty;
 import com.jogogloria.model.Boost;
-import com.jogogloria.model.GameSnapshot;
 import com.jogogloria.model.Lever;
 
+import java.util.Random;
+
 /**
  * Motor Central do Jogo (Game Engine).
+ * <p>
+ * Todas as alterações ao estado do jogo passam por {@link GameCommand}s reversíveis, guardados
+ * num histórico; o undo desfaz os comandos do último passo (desde o último movimento).
+ * O histórico ({@link UndoHistory}) tem memória limitada e, por omissão, despeja os passos
+ * mais antigos em disco. Os passos desfeitos ficam numa árvore de futuros ({@link Timeline}):
+ * podem ser refeitos e jogar depois de um undo abre um ramo novo sem perder os outros.
+ * </p>
  *
  * @author Hugo Gonçalves
- * @version 4.0
+ * @version 5.5
  */
-public class GameEngine {
+public class GameEngine implements AutoCloseable {
 
     private final Labyrinth labyrinth;
     private final LinkedQueue<Player> turnQueue;
     private final ArrayUnorderedList<Player> allPlayers;
-    private final LinkedStack<GameSnapshot> history;
+    private final UndoHistory history;
+    private final int[] record = new int[GameCommand.RECORD_INTS];
+    private final Timeline timeline;
+    private int[] undone = new int[16 * GameCommand.RECORD_INTS];
     private boolean gameRunning;
     private int playerSpawnIndex = 0;
     private int countTurn = 1;
@@ -36,14 +47,31 @@ public class GameEngine {
     private final BoostManager boostManager;
 
     public GameEngine(Labyrinth labyrinth, boolean fogEnabled) {
+        this(labyrinth, fogEnabled, new UndoHistory(GameConfig.UNDO_MEMORY_RECORDS, GameConfig.UNDO_SPILL_TO_DISK));
+    }
+
+    /**
+     * @param history Histórico do undo (capacidade em memória e despejo em disco à escolha)
+     */
+    public GameEngine(Labyrinth labyrinth, boolean fogEnabled, UndoHistory history) {
+        this(labyrinth, fogEnabled, history, new Random());
+    }
+
+    /**
+     * @param history Histórico do undo (capacidade em memória e despejo em disco à escolha)
+     * @param random  Gerador do sorteio das penalidades (com semente, para simulações repetíveis)
+     */
+    public GameEngine(Labyrinth labyrinth, boolean fogEnabled, UndoHistory history, Random random) {
         this.labyrinth = labyrinth;
         this.fogEnabled = fogEnabled;
         this.turnQueue = new LinkedQueue<>();
         this.allPlayers = new ArrayUnorderedList<>();
-        this.history = new LinkedStack<>();
+        this.history = history;
+        // Os futuros do undo contam para o mesmo limite de memória que o histórico
+        this.timeline = new Timeline(history.getCapacity());
         this.gameRunning = true;
 
-        this.penaltyManager = new PenaltyManager();
+        this.penaltyManager = new PenaltyManager(random);
         this.leverManager = new LeverManager();
         this.boostManager = new BoostManager();
 
@@ -98,12 +126,27 @@ public class GameEngine {
         return allPlayers.iterator();
     }
 
+    /**
+     * Jogador pela ordem em que foi adicionado (usado para descodificar o histórico)
+     */
+    Player getPlayer(int index) {
+        return allPlayers.get(index);
+    }
+
+    int indexOfPlayer(Player player) {
+        for (int i = 0; i < allPlayers.size(); i++) {
+            if (allPlayers.get(i) == player) return i;
+        }
+        return -1;
+    }
+
     public void nextTurn() {
         if (!gameRunning || turnQueue.isEmpty()) return;
 
+        int rotations = 1;
         try {
             Player finishedPlayer = turnQueue.dequeue();
-            finishedPlayer.setMovementPoints(0);
+            setMovementPoints(finishedPlayer, 0);
             turnQueue.enqueue(finishedPlayer);
         } catch (EmptyCollectionException e) { return; }
 
@@ -113,15 +156,17 @@ public class GameEngine {
                 Player nextCandidate = turnQueue.first();
 
                 if (nextCandidate.getSkipTurns() > 0) {
-                    nextCandidate.decrementSkipTurn();
+                    setSkipTurns(nextCandidate, nextCandidate.getSkipTurns() - 1);
                     System.out.println(nextCandidate.getName() + " perdeu a vez!");
                     turnQueue.enqueue(turnQueue.dequeue());
+                    rotations++;
                 } else {
                     break;
                 }
             } catch (EmptyCollectionException e) { break; }
         }
         countTurn++;
+        record(new GameCommand.TurnAdvance(rotations));
     }
 
     public boolean isFogEnabled() {
@@ -150,13 +195,13 @@ public class GameEngine {
         //Revela a nova área
         revealArea(targetRoom);
 
-        //Guardar estado ants de mover
-        saveSnapshot();
+        // Início de um novo passo no histórico
+        beginStep();
 
         // Executar Movimento
-        player.move(targetRoom);
+        movePlayer(player, targetRoom);
         player.logEvent(countTurn, "MOVE", "Moveu-se para: " + targetId);
-        player.decrementMovementPoints();
+        setMovementPoints(player, Math.max(0, player.getMovementPoints() - 1));
 
         // Verificar efeitos
         if (player.getMovementPoints() == 0 || targetId.equals(labyrinth.getTreasureRoom())) {
@@ -169,11 +214,7 @@ public class GameEngine {
     private void checkRoomEffects(Player player, Room room) throws EmptyCollectionException {
         String roomId = room.getId();
 
-        if (roomId.equals(labyrinth.getTreasureRoom())) {
-            gameRunning = false;
-            System.out.println("JOGO ACABOU! Vencedor: " + player.getName());
-            return;
-        }
+        if (checkTreasure(player)) return;
 
         switch (room.getType()) {
             case PENALTY:
@@ -182,7 +223,12 @@ public class GameEngine {
             case LEVER:
                 // [CORRIGIDO] Passamos o labyrinth porque o LeverManager precisa dele
                 // para alterar o peso da aresta no grafo.
+                Lever lever = room.getLever();
+                boolean wasActive = lever == null || lever.isActivated();
+                boolean wasLocked = lever != null && lever.getRoomA() != null && lever.getRoomB() != null
+                        && labyrinth.isLocked(lever.getRoomA().getId(), lever.getRoomB().getId());
                 leverManager.checkLever(player, room, labyrinth);
+                if (!wasActive && lever.isActivated()) record(new GameCommand.LeverToggle(room, wasLocked));
                 player.logEvent(countTurn, "LEVER", "Ativou a alavanca no: " + roomId);
                 break;
             case BOOST:
@@ -213,7 +259,7 @@ public class GameEngine {
                 applyAutoMove(victim, -Math.abs(p.getValue()));
                 break;
             case SKIP_TURN:
-                victim.setSkipTurns(p.getValue());
+                setSkipTurns(victim, p.getValue());
                 break;
             case PLAYERS_BENEFITS:
                 Iterator<Player> it = allPlayers.iterator();
@@ -227,6 +273,22 @@ public class GameEngine {
         }
     }
 
+    /**
+     * Acaba o jogo se o jogador estiver na sala do tesouro
+     * @return true se o jogador ganhou
+     */
+    boolean checkTreasure(Player player) {
+        Room room = player.getCurrentRoom();
+        if (!gameRunning || room == null || !room.getId().equals(labyrinth.getTreasureRoom())) return false;
+        gameRunning = false;
+        System.out.println("JOGO ACABOU! Vencedor: " + player.getName());
+        return true;
+    }
+
+    /**
+     * Move um jogador {@code steps} salas em direção ao tesouro (positivo) ou à entrada (negativo),
+     * ou de volta ao início com -99. Não resolve os efeitos da sala onde fica, nem o tesouro.
+     */
     public void applyAutoMove(Player p, int steps) {
         if (steps == 0) return;
 
@@ -237,7 +299,7 @@ public class GameEngine {
                 startRoom = labyrinth.getRoom(labyrinth.getStartRoomId());
             }
             if (startRoom != null) {
-                p.move(startRoom);
+                movePlayer(p, startRoom);
                 System.out.println(p.getName() + " voltou ao início!");
             }
             return;
@@ -262,7 +324,7 @@ public class GameEngine {
         if (nextRoomId != null) {
             Room r = labyrinth.getRoom(nextRoomId);
             if (r != null) {
-                p.move(r);
+                movePlayer(p, r);
                 p.logEvent(countTurn, "AUTO_MOVE", "Movimento para: " + nextRoomId);
             }
         }
@@ -270,11 +332,15 @@ public class GameEngine {
 
     // --- Bots ---
 
-    public void executeBotTurn() throws EmptyCollectionException {
+    /**
+     * Um passo do bot atual, escolhido pela sua estratégia
+     * @return true se o bot se moveu
+     */
+    public boolean executeBotTurn() throws EmptyCollectionException {
         Player bot = getCurrentPlayer();
-        if (bot == null || !bot.isBot() || !gameRunning) return;
+        if (bot == null || !bot.isBot() || !gameRunning) return false;
 
-        if (bot.getBotStrategy() == null || bot.getMovementPoints() <= 0) return;
+        if (bot.getBotStrategy() == null || bot.getMovementPoints() <= 0) return false;
 
         String targetId = bot.getBotStrategy().nextMove(labyrinth, bot, bot.getMovementPoints());
 
@@ -283,139 +349,171 @@ public class GameEngine {
             if (targetRoom != null) {
                 boolean moved = tryMove(bot, targetRoom);
                 if (moved) System.out.println("Bot " + bot.getName() + " moveu para " + targetId);
+                return moved;
             }
         } else {
-            bot.setMovementPoints(0);
+            setMovementPoints(bot, 0);
         }
+        return false;
     }
 
-    //Lógica de UNDO
+    // --- Alterações de estado (guardadas no histórico) ---
 
     /**
-     *Método utilizado para guardar o estado dos jogadores e do jogo
+     * Define os pontos de movimento de um jogador (ex.: lançamento do dado), de forma reversível
      */
-    public void saveSnapshot() {
-        Player current = getCurrentPlayer();
-        GameSnapshot snapshot = new GameSnapshot(current);
-        Iterator<Player> it = allPlayers.iterator();
-        while (it.hasNext()) {
-            Player p = it.next();
-            snapshot.playerState.addToRear(new GameSnapshot.PlayerMoment(p));
+    public void setMovementPoints(Player player, int points) {
+        if (player.getMovementPoints() != points) {
+            perform(new GameCommand.MovementPoints(player, player.getMovementPoints(), points));
         }
+    }
 
-        Iterator<Room> roomIt = labyrinth.getRoomsIterator();
+    /**
+     * Define quantos turnos um jogador deve saltar, de forma reversível
+     */
+    public void setSkipTurns(Player player, int turns) {
+        if (player.getSkipTurns() != turns) {
+            perform(new GameCommand.SkipTurns(player, player.getSkipTurns(), turns));
+        }
+    }
 
-        while ((roomIt.hasNext())) {
-            Room r = roomIt.next();
-            if (r.hasLever()) {
-                Lever l = r.getLever();
-                if (l.isActivated()) {
-                    snapshot.activatedLevers.addToRear(l);
-                }
-            }
+    private void movePlayer(Player player, Room room) {
+        if (player.getCurrentRoom() != room) {
+            perform(new GameCommand.Move(player, player.getCurrentRoom(), room));
         }
-        history.push(snapshot);
-        System.out.println("Snapshot guardado em Stack: " + history.size());
     }
 
     /**
-     * Restaura o estado anterior.
+     * Aplica uma alteração e guarda-a no histórico
      */
-    public boolean undo() {
-        if (history.isEmpty()) return false;
+    private void perform(GameCommand command) {
+        command.apply(this);
+        record(command);
+    }
 
-        try {
-            GameSnapshot snapshot = history.pop();
-            restoreState(snapshot);
-            return true;
-        } catch (EmptyCollectionException e) {
-            return false;
+    /**
+     * Guarda uma alteração já aplicada no passo atual. Antes do primeiro movimento não há passo
+     * para onde voltar, por isso nada é guardado (ex.: carregamento de um jogo gravado).
+     * Depois de um undo é igual: só o próximo movimento abre um passo, e um ramo novo.
+     */
+    private void record(GameCommand command) {
+        if (history.getSteps() == 0) return;
+        command.encode(this, record, 0);
+        history.record(record, 0);
+    }
+
+    /**
+     * Roda a fila de turnos (para trás se {@code rotations} for negativo) e acerta o contador de turnos.
+     * Usado pelo {@link GameCommand.TurnAdvance}.
+     */
+    void rotateTurns(int rotations, int turns) {
+        int size = turnQueue.size();
+        if (size > 0) {
+            int forward = ((rotations % size) + size) % size;
+            try {
+                for (int i = 0; i < forward; i++) turnQueue.enqueue(turnQueue.dequeue());
+            } catch (EmptyCollectionException e) { return; }
         }
+        countTurn += turns;
     }
 
-    private void restoreState(GameSnapshot snapshot) {
-        // 1. Restaurar Jogadores (Usando referências diretas)
-        Iterator<GameSnapshot.PlayerMoment> it = snapshot.playerState.iterator();
-        while (it.hasNext()) {
-            GameSnapshot.PlayerMoment memento = it.next();
+    //Lógica de UNDO
 
-            Player p = memento.playerRef; // Temos o objeto real aqui!
+    /**
+     * Marca o início de um passo no histórico (antes de cada movimento)
+     */
+    private void beginStep() {
+        history.beginStep();
+        timeline.stepStarted();
+    }
 
-            // Restaura posição (Objeto Room)
-            if (memento.roomRef != null) {
-                p.move(memento.roomRef);
+    /**
+     * Desfaz o último passo: reverte, da mais recente para a mais antiga, as alterações feitas desde
+     * o último movimento (inclusive). Custa o número de alterações, não o tamanho do jogo.
+     */
+    public boolean undo() {
+        if (history.getSteps() == 0) return false;
+
+        int count = 0;
+        while (history.pop(record) && record[0] != GameCommand.CHECKPOINT) {
+            GameCommand.decode(this, record, 0).revert(this);
+            if (count == undone.length) {
+                int[] grown = new int[undone.length * 2];
+                System.arraycopy(undone, 0, grown, 0, count);
+                undone = grown;
             }
-
-            p.setMovementPoints(memento.movementPoints);
-            p.setSkipTurns(memento.skipTurns);
-            // p.setBoost(memento.boostCount);
+            System.arraycopy(record, 0, undone, count, GameCommand.RECORD_INTS);
+            count += GameCommand.RECORD_INTS;
         }
+        timeline.stepUndone(undone, count);
 
-        // 2. Restaurar TurnQueue
-        rebuildTurnQueue(snapshot.currentPlayer);
-
-        // 3. Restaurar Alavancas e Grafo
-        // Passo A: Reset total (Trancar tudo)
-        resetAllLevers();
-
-        // Passo B: Ativar apenas o que estava no snapshot
-        Iterator<Lever> leverIt = snapshot.activatedLevers.iterator();
-        while (leverIt.hasNext()) {
-            Lever l = leverIt.next();
+        Player current = getCurrentPlayer();
+        if (current != null) System.out.println("[UNDO] Voltámos para o turno de: " + current.getName());
+        return true;
+    }
 
-            // Ativa o objeto Lever
-            l.setActivated(true);
+    /**
+     * Refaz o último passo desfeito
+     */
+    public boolean redo() {
+        return redo(timeline.getBranchCount() - 1);
+    }
 
-            // Destranca no Grafo (Aqui temos de extrair ID porque o Grafo é de Strings)
-            // Mas a lógica veio toda de objetos
-            labyrinth.setConnectionLocked(l.getRoomA().getId(), l.getRoomB().getId(), false);
+    /**
+     * Refaz um dos passos desfeitos a partir do estado atual (há mais do que um quando se jogou
+     * depois de um undo)
+     * @param branch Ramo, de 0 (o mais antigo) a {@link #getRedoBranches()} - 1 (o último desfeito)
+     */
+    public boolean redo(int branch) {
+        Timeline.Branch step = timeline.enter(branch);
+        if (step == null) return false;
+
+        history.beginStep();
+        int[] records = step.records;
+        for (int i = records.length - GameCommand.RECORD_INTS; i >= 0; i -= GameCommand.RECORD_INTS) {
+            GameCommand.decode(this, records, i).apply(this);
+            history.record(records, i);
         }
 
-        System.out.println("[UNDO] Voltámos para o turno de: " + snapshot.currentPlayer.getName());
+        Player current = getCurrentPlayer();
+        if (current != null) System.out.println("[REDO] Turno de: " + current.getName());
+        return true;
     }
 
-    //Helpers
-
-    private void resetAllLevers() {
-        Iterator<Room> roomIt = labyrinth.getRoomsIterator();
-        while (roomIt.hasNext()) {
-            Room r = roomIt.next();
-            if (r.hasLever()) {
-                Lever l = r.getLever();
-                if (l.isActivated()) {
-                    l.setActivated(false);
-                    // Manda trancar a aresta no grafo
-                    labyrinth.setConnectionLocked(l.getRoomA().getId(), l.getRoomB().getId(), true);
-                }
-            }
-        }
+    /**
+     * Número de passos desfeitos que podem ser refeitos a partir do estado atual
+     */
+    public int getRedoBranches() {
+        return timeline.getBranchCount();
     }
 
-    private void rebuildTurnQueue(Player targetCurrent) {
-        // Limpa a fila
-        while (!turnQueue.isEmpty()) {
-            try { turnQueue.dequeue(); } catch (Exception e) {}
-        }
+    /**
+     * Árvore de futuros (métricas dos ramos guardados)
+     */
+    public Timeline getTimeline() {
+        return timeline;
+    }
 
-        // Reconstrói a fila a começar no jogador certo
-        boolean found = false;
+    /**
+     * Número de passos que podem ser desfeitos
+     */
+    public int getUndoSteps() {
+        return history.getSteps();
+    }
 
-        // 1. Adiciona do atual até ao fim da lista
-        Iterator<Player> it = allPlayers.iterator();
-        while(it.hasNext()) {
-            Player p = it.next();
-            // Comparação de objetos (referências)
-            if (p == targetCurrent) found = true;
-            if (found) turnQueue.enqueue(p);
-        }
+    /**
+     * Histórico do undo (métricas de memória, disco e profundidade)
+     */
+    public UndoHistory getUndoHistory() {
+        return history;
+    }
 
-        // 2. Adiciona do início até ao atual
-        it = allPlayers.iterator();
-        while(it.hasNext()) {
-            Player p = it.next();
-            if (p == targetCurrent) break;
-            turnQueue.enqueue(p);
-        }
+    /**
+     * Fecha o histórico do undo (apaga o ficheiro de despejo). Chamar quando a partida é abandonada.
+     */
+    @Override
+    public void close() {
+        history.close();
     }
 
     /**
@@ -436,15 +534,11 @@ public class GameEngine {
         if (centerRoom == null) return;
 
         centerRoom.setVisible(true); //Revela a própria sala
-        ArrayUnorderedList<String> neighbors = labyrinth.getNeighbors(centerRoom.getId());
-        Iterator<String> it = neighbors.iterator();
 
-        while (it.hasNext()) {
-            String neighborId = it.next();
-            Room neighbor = labyrinth.getRoom(neighborId);
-            if (neighbor != null) {
-                neighbor.setVisible(true);
-            }
+        // Percorre os vizinhos pelo índice (sem criar listas nem IDs)
+        int center = labyrinth.getRoomIndex(centerRoom);
+        for (int k = 0; k < labyrinth.getNeighborCount(center); k++) {
+            labyrinth.setRoomVisible(labyrinth.getNeighbor(center, k), true);
         }
     }
 
@@ -453,4 +547,7 @@ public class GameEngine {
      * @return
      */
     public boolean isGameRunning() { return gameRunning; }
+
+    /** Número do turno atual (o primeiro é o 1) */
+    public int getTurnCount() { return countTurn; }
 }
\ No newline at end of file
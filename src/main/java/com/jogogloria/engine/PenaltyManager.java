@@ -5,21 +5,32 @@ import com.jogogloria.config.GameConfig;
 import com.jogogloria.io.PenaltyLoader;
 import com.jogogloria.model.Penalty;
 
+import java.util.Random;
+
 /**
  * Gestor de Penalidades do jogo
  *
  * @author Hugo Gonçalves
- * @version 1.0
+ * @version 1.1
  */
 public class PenaltyManager {
 
     // Usamos Lista em vez de Queue para permitir acesso aleatório (.get)
     private ArrayUnorderedList<Penalty> penaltyList;
+    private final Random random;
 
     /**
      * Inicia o gestor de penalidades
      */
     public PenaltyManager() {
+        this(new Random());
+    }
+
+    /**
+     * @param random Gerador usado para sortear as penalidades (com semente, para simulações repetíveis)
+     */
+    public PenaltyManager(Random random) {
+        this.random = random;
         this.penaltyList = PenaltyLoader.loadPenalties(GameConfig.PENALTIES_FILE);
 
         // Fallback
@@ -37,7 +48,7 @@ public class PenaltyManager {
 
         // 1. Gera um índice aleatório
         int size = penaltyList.size();
-        int randomIndex = (int) (Math.random() * size);
+        int randomIndex = random.nextInt(size);
 
         // 2. Retorna a penalidade nessa posição
         // Como não a removemos, ela volta a estar disponível (baralho infinito)
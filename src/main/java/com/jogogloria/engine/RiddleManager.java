@@ -7,24 +7,35 @@ import com.jogogloria.io.RiddleLoader;
 import com.example.Biblioteca.lists.ArrayUnorderedList;
 import com.example.Biblioteca.stacks.LinkedStack;
 
+import java.util.Random;
+
 /**
  * Gestor de enigmas do jogo
  *
  * @author Hugo Gonçalves
- * @version 1.0
+ * @version 1.1
  */
 public class RiddleManager {
 
     private final ArrayUnorderedList<Riddle> availableRiddles;
     private final LinkedStack<Riddle> usedRiddles;
+    private final Random random;
 
     /**
      * Inicia o gestor de enigmas, carrega os dados a partir de um ficheiro JSON
      * @param jsonFilePath Caminho para o ficheiro JSON
      */
     public RiddleManager(String jsonFilePath) {
+        this(jsonFilePath, new Random());
+    }
+
+    /**
+     * @param random Gerador usado para sortear os enigmas (com semente, para simulações repetíveis)
+     */
+    public RiddleManager(String jsonFilePath, Random random) {
         this.usedRiddles = new LinkedStack<>();
         this.availableRiddles = RiddleLoader.loadRiddles(jsonFilePath);
+        this.random = random;
     }
 
     /**
@@ -42,7 +53,7 @@ public class RiddleManager {
         }
 
         int size = availableRiddles.size();
-        int randomIndex = (int) (Math.random() * size);
+        int randomIndex = random.nextInt(size);
 
         Riddle r = availableRiddles.get(randomIndex);
 
@@ -2,10 +2,10 @@ package com.jogogloria.engine;
 
 import com.jogogloria.model.Labyrinth;
 import com.jogogloria.model.Lever;
+import com.jogogloria.model.LeverPlan;
 import com.jogogloria.model.Player;
 import com.jogogloria.model.Room;
 import com.example.Biblioteca.iterators.Iterator;
-import com.example.Biblioteca.lists.ArrayUnorderedList;
 
 import java.util.Random;
 
@@ -13,7 +13,7 @@ import java.util.Random;
  * Implementação de uma estratégia de bot inteligente.
  *
  * @author Hugo Gonçalves
- * @version 2.0
+ * @version 2.3
  */
 public class ShortestPathBot implements BotStrategy {
 
@@ -25,8 +25,16 @@ public class ShortestPathBot implements BotStrategy {
      * @param difficulty dificuldade do Bot
      */
     public ShortestPathBot(BotDifficulty difficulty) {
+        this(difficulty, new Random());
+    }
+
+    /**
+     * @param difficulty dificuldade do Bot
+     * @param random     Gerador dos erros do bot (com semente, para simulações repetíveis)
+     */
+    public ShortestPathBot(BotDifficulty difficulty, Random random) {
         this.difficulty = difficulty;
-        this.random = new Random();
+        this.random = random;
     }
 
     //construtor padrão assume o nivel HARD
@@ -54,12 +62,23 @@ public class ShortestPathBot implements BotStrategy {
         }
 
         // --- PLANO A: Tentar ir direto ao Tesouro ---
-        if (isPathClear(labyrinth, currentRoom, treasureRoom)) {
-            String nextStep = getNextStep(labyrinth, currentRoom, treasureRoom);
+        if (labyrinth.canReach(currentRoom, treasureRoom)) {
+            String nextStep = labyrinth.getNextStep(currentRoom, treasureRoom);
             if (nextStep != null) return nextStep;
         }
 
-        // --- PLANO B: Caminho bloqueado? Usar BFS para achar a alavanca mais perto! ---
+        // --- PLANO B: Caminho bloqueado? Seguir o plano das alavancas calculado no carregamento ---
+        LeverPlan plan = labyrinth.getLeverPlan();
+        if (plan != null && plan.isAvailable()) {
+            // A alavanca só dispara se o bot acabar a jogada na sala dela
+            String leverRoom = plan.nextLeverRoom(currentRoom);
+            String planned = leverRoom != null
+                    ? getStepToStop(labyrinth, plan, currentRoom, leverRoom, rollValue)
+                    : plan.nextStep(currentRoom);
+            if (planned != null) return planned;
+        }
+
+        // Sem plano: usar BFS para achar a alavanca mais perto
         System.out.println("Bot " + player.getName() + ": Caminho bloqueado. A usar BFS para encontrar alavancas...");
 
         String nextStepToLever = getMoveToLeverBFS(labyrinth, currentRoom);
@@ -117,9 +136,9 @@ public class ShortestPathBot implements BotStrategy {
                     if (!l.isActivated()) {
                         // Encontrámos a alavanca mais próxima!
                         // Confirma se o caminho até lá está livre
-                        if (isPathClear(labyrinth, currentRoomId, roomId)) {
+                        if (labyrinth.canReach(currentRoomId, roomId)) {
                             System.out.println("-> Alvo encontrado: Alavanca em " + roomId);
-                            return getNextStep(labyrinth, currentRoomId, roomId);
+                            return labyrinth.getNextStep(currentRoomId, roomId);
                         }
                     }
                 }
@@ -132,51 +151,43 @@ public class ShortestPathBot implements BotStrategy {
     }
 
     /**
-     * Verifica se o caminho completo entre duas salas está livre de portas trancadas.
+     * Passo em direção a uma sala onde o bot tem de acabar a jogada.
+     * Com pontos a mais, sai para outra sala e volta: como o mapa é uma grelha, chega lá com o
+     * último ponto sempre que a paridade o permite; senão acaba ao lado e tenta na jogada seguinte.
+     *
+     * @param stopRoomId Sala onde parar (a da próxima alavanca do plano).
+     * @param points     Pontos de movimento que restam, contando com este passo.
+     * @return Id da próxima sala, ou null se o bot não se puder mexer.
      */
-    private boolean isPathClear(Labyrinth lab, String start, String target) {
-        Iterator<String> path = lab.getShortestPath(start, target);
-
-        if (path == null || !path.hasNext()) return false;
-
-        String current = path.next();
-
-        while(path.hasNext()) {
-            String next = path.next();
-            if (!lab.isValidMove(current, next)) {
-                return false;
-            }
-            current = next;
+    private String getStepToStop(Labyrinth labyrinth, LeverPlan plan, String currentRoomId,
+                                 String stopRoomId, int points) {
+        int current = labyrinth.getRoomIndex(currentRoomId);
+        int stop = labyrinth.getRoomIndex(stopRoomId);
+        boolean besideStop = false;
+        String away = null;
+        for (int k = 0; k < labyrinth.getNeighborCount(current); k++) {
+            if (!labyrinth.isNeighborOpen(current, k)) continue;
+            int next = labyrinth.getNeighbor(current, k);
+            if (next == stop) besideStop = true;
+            else if (away == null) away = labyrinth.getRoomId(next);
         }
-        return true;
-    }
 
-    /**
-     * Calcula o primeiro passo do caminho mais curto para um destino.
-     */
-    private String getNextStep(Labyrinth lab, String start, String target) {
-        Iterator<String> path = lab.getShortestPath(start, target);
-        if (path != null && path.hasNext()) {
-            path.next(); // Ignora atual
-            if (path.hasNext()) return path.next();
+        if (current == stop || (besideStop && points > 1)) {
+            return away != null ? away : (besideStop ? stopRoomId : null);
         }
-        return null;
+        return besideStop ? stopRoomId : plan.nextStep(currentRoomId);
     }
 
     /**
      * Obtém um vizinho aleatório válido.
      */
     private String getAnyValidNeighbor(Labyrinth labyrinth, String currentRoomId) {
-        try {
-            ArrayUnorderedList<String> neighbors = labyrinth.getNeighbors(currentRoomId);
-            Iterator<String> it = neighbors.iterator();
-            while (it.hasNext()) {
-                String neighborId = it.next();
-                if (labyrinth.isValidMove(currentRoomId, neighborId)) {
-                    return neighborId;
-                }
+        int current = labyrinth.getRoomIndex(currentRoomId);
+        for (int k = 0; k < labyrinth.getNeighborCount(current); k++) {
+            if (labyrinth.isNeighborOpen(current, k)) {
+                return labyrinth.getRoomId(labyrinth.getNeighbor(current, k));
             }
-        } catch (Exception e) {}
+        }
         return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.jogogloria.engine;
+
+import com.example.Biblioteca.exceptions.EmptyCollectionException;
+import com.example.Biblioteca.exceptions.NoElementFoundException;
+import com.example.Biblioteca.lists.ArrayUnorderedList;
+
+/**
+ * Futuros do undo: passos desfeitos que podem ser refeitos, organizados em árvore.
+ * <p>
+ * O caminho desde o início do jogo até ao estado atual é o {@link UndoHistory}. Cada passo
+ * desfeito passa a ser um {@link Branch}, com os registos desse passo e os futuros que já
+ * existiam depois dele, pendurado na profundidade de onde saiu. Jogar a partir de um ponto com
+ * futuros abre um novo ramo sem apagar os outros; refazer entra num dos ramos.
+ * </p>
+ * <p>
+ * Os ramos partilham tudo o que têm em comum (o caminho até ao ponto onde divergem não é
+ * copiado), por isso muitos pontos de ramificação só ocupam a memória das suas diferenças.
+ * Só as profundidades com futuros ocupam memória: são uma pilha ligada de {@link Level}s.
+ * </p>
+ * <p>
+ * Os registos de um ramo nunca mudam, mas a lista de futuros de cada ramo pertence à Timeline e
+ * é alterada por ela: ao entrar num ramo a lista passa a ser a do novo {@link Level} (e perde os
+ * ramos em que se entra) e a limpeza remove ramos alternativos de listas de ramos já guardados.
+ * Fora da Timeline só se leem os registos de um ramo.
+ * </p>
+ * <p>
+ * Os ramos abandonados têm um limite de registos (o do {@link UndoHistory} do jogo): acima dele
+ * são descartados primeiro os futuros das profundidades mais antigas e depois os ramos alternativos
+ * mais antigos. Os passos que {@link GameEngine#redo()} refaz em sequência (o último ramo de cada
+ * profundidade) ficam sempre: são os que acabaram de ser desfeitos.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.2
+ */
+public class Timeline {
+
+    /**
+     * Passo desfeito: os seus registos (do mais recente para o mais antigo, pela ordem em que foram
+     * desfeitos) e os futuros que existiam depois dele (ou null). A lista de futuros é alterada
+     * pela Timeline (ver {@link Timeline#enter(int)} e a limpeza dos ramos abandonados).
+     */
+    public static final class Branch {
+        final int[] records;
+        private final ArrayUnorderedList<Branch> next;
+
+        private Branch(int[] records, ArrayUnorderedList<Branch> next) {
+            this.records = records;
+            this.next = next;
+        }
+
+        /** Número de registos do passo */
+        public int getRecordCount() {
+            return records.length / GameCommand.RECORD_INTS;
+        }
+    }
+
+    /**
+     * Futuros numa profundidade (a pilha só guarda as profundidades que os têm)
+     */
+    private static final class Level {
+        private final int depth;
+        private final ArrayUnorderedList<Branch> branches;
+        private Level below;
+
+        private Level(int depth, ArrayUnorderedList<Branch> branches, Level below) {
+            this.depth = depth;
+            this.branches = branches;
+            this.below = below;
+        }
+    }
+
+    private final long maxRecords;
+    private Level top;
+    private int depth;
+    private int branchCount;
+    private long storedRecords;
+
+    /** A última limpeza só encontrou a sequência do redo: não vale a pena procurar de novo */
+    private boolean onlyRedoLeft;
+
+    /**
+     * @param maxRecords Máximo de registos guardados em todos os ramos
+     */
+    public Timeline(long maxRecords) {
+        this.maxRecords = maxRecords;
+    }
+
+    /** Número de passos desde o início do jogo até ao estado atual */
+    public int getDepth() { return depth; }
+
+    /** Número de ramos que podem ser refeitos a partir do estado atual */
+    public int getBranchCount() {
+        return top != null && top.depth == depth ? top.branches.size() : 0;
+    }
+
+    /** Total de passos desfeitos guardados em todos os ramos (métrica) */
+    public int getStoredBranches() { return branchCount; }
+
+    /** Total de registos guardados em todos os ramos (16 bytes cada) */
+    public long getStoredRecords() { return storedRecords; }
+
+    /**
+     * Um passo novo começou (os futuros desta profundidade ficam como ramos alternativos)
+     */
+    void stepStarted() {
+        depth++;
+        if (top != null) onlyRedoLeft = false;
+    }
+
+    /**
+     * O passo atual foi desfeito
+     * @param records Registos desfeitos, do mais recente para o mais antigo
+     * @param count   Número de inteiros usados em {@code records}
+     */
+    void stepUndone(int[] records, int count) {
+        int[] copy = new int[count];
+        System.arraycopy(records, 0, copy, 0, count);
+
+        ArrayUnorderedList<Branch> next = null;
+        if (top != null && top.depth == depth) {
+            next = top.branches;
+            top = top.below;
+        }
+        depth--;
+        if (top == null || top.depth != depth) top = new Level(depth, new ArrayUnorderedList<>(), top);
+        top.branches.addToRear(new Branch(copy, next));
+        branchCount++;
+        storedRecords += copy.length / GameCommand.RECORD_INTS;
+        trim();
+    }
+
+    /**
+     * Entra num ramo: deixa de ser um futuro e os seus futuros passam a ser os da nova profundidade
+     * @param index Ramo (0 = o mais antigo; {@link #getBranchCount()} - 1 = o último desfeito)
+     * @return O ramo, ou null se não existir
+     */
+    Branch enter(int index) {
+        if (index < 0 || index >= getBranchCount()) return null;
+        Branch branch = top.branches.get(index);
+        try {
+            top.branches.remove(branch);
+        } catch (EmptyCollectionException | NoElementFoundException e) {
+            return null;
+        }
+        if (top.branches.isEmpty()) top = top.below;
+        else onlyRedoLeft = false;
+        depth++;
+        if (branch.next != null && !branch.next.isEmpty()) top = new Level(depth, branch.next, top);
+        branchCount--;
+        storedRecords -= branch.getRecordCount();
+        return branch;
+    }
+
+    /**
+     * Descarta ramos abandonados até os ramos caberem no limite de registos
+     */
+    private void trim() {
+        while (storedRecords > maxRecords && top != null && !onlyRedoLeft) {
+            if (top.below != null) {
+                // Futuros da profundidade mais antiga (o fundo da pilha)
+                Level level = top;
+                while (level.below.below != null) level = level.below;
+                forgetAll(level.below.branches);
+                level.below = null;
+            } else {
+                onlyRedoLeft = !dropOldestAlternative(top.branches);
+            }
+        }
+    }
+
+    /**
+     * Segue a sequência do redo e descarta o ramo alternativo mais antigo da primeira profundidade que os tenha
+     * @return false se a sequência não tiver alternativas
+     */
+    private boolean dropOldestAlternative(ArrayUnorderedList<Branch> branches) {
+        while (branches != null && !branches.isEmpty()) {
+            if (branches.size() > 1) {
+                forget(removeOldest(branches));
+                return true;
+            }
+            branches = branches.get(0).next;
+        }
+        return false;
+    }
+
+    private Branch removeOldest(ArrayUnorderedList<Branch> branches) {
+        Branch oldest = branches.get(0);
+        try {
+            branches.remove(oldest);
+        } catch (EmptyCollectionException | NoElementFoundException e) {
+            return null;
+        }
+        return oldest;
+    }
+
+    private void forgetAll(ArrayUnorderedList<Branch> branches) {
+        for (int i = 0; i < branches.size(); i++) forget(branches.get(i));
+    }
+
+    /**
+     * Desconta um ramo descartado, com os seus futuros, das métricas
+     */
+    private void forget(Branch branch) {
+        if (branch == null) return;
+        branchCount--;
+        storedRecords -= branch.getRecordCount();
+        if (branch.next != null) forgetAll(branch.next);
+    }
+}
@@ -0,0 +1,218 @@
+package com.jogogloria.engine;
+
+import com.example.Biblioteca.exceptions.EmptyCollectionException;
+import com.example.Biblioteca.exceptions.NoElementFoundException;
+import com.jogogloria.model.Player;
+import com.jogogloria.model.Riddle;
+import com.jogogloria.model.Room;
+
+import java.util.Random;
+
+/**
+ * Regras de um turno completo, sem interface gráfica.
+ * <p>
+ * Lançar o dado, dar os passos, resolver a sala onde um jogador humano para (enigmas), gastar os
+ * boosts e passar a vez. O {@link GameEngine} trata de cada movimento e dos efeitos das salas; o
+ * resolvedor decide quando o turno acaba. A interface gráfica só chama {@link #rollDice()},
+ * {@link #move(Room)} e {@link #playBotStep()} e mostra o que recebe no {@link Listener};
+ * sem interface, {@link #playGame(int)} joga uma partida inteira de bots de uma vez.
+ * </p>
+ * <p>
+ * O dado usa o {@link Random} recebido. Uma simulação com semente só é repetível se as penalidades
+ * do motor, o {@link RiddleManager} e as estratégias dos bots também tiverem um gerador com semente
+ * (por exemplo o mesmo:
+ * {@link GameEngine#GameEngine(com.jogogloria.model.Labyrinth, boolean, UndoHistory, Random)},
+ * {@link RiddleManager#RiddleManager(String, Random)} e {@link ShortestPathBot#ShortestPathBot(BotDifficulty, Random)}).
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.4
+ */
+public class TurnResolver {
+
+    /**
+     * Quem mostra o jogo: responde pelos jogadores humanos e é avisado do que acontece.
+     * O resolvedor não escreve nada; sem listener o jogo corre em silêncio.
+     */
+    public interface Listener {
+
+        /**
+         * O dado foi lançado para um jogador
+         */
+        void diceRolled(Player player, int dice);
+
+        /**
+         * Pergunta um enigma a um jogador humano
+         * @return A resposta, ou null se não responder
+         */
+        String askRiddle(Player player, Riddle riddle);
+
+        /**
+         * Enigma resolvido (já com o bónus ou a penalidade por aplicar)
+         * @param riddle O enigma, ou null se não houver enigmas carregados
+         */
+        void riddleResolved(Player player, Riddle riddle, boolean correct);
+
+        /**
+         * O jogador gastou um boost e volta a jogar
+         */
+        void extraTurn(Player player);
+    }
+
+    /** Faces do dado */
+    public static final int DICE_FACES = 6;
+
+    private final GameEngine engine;
+    private final RiddleManager riddleManager;
+    private final Random random;
+    private Listener listener;
+
+    // O último passo acabou o turno (a vez passou ou o jogador ganhou um turno extra)
+    private boolean turnOver;
+
+    // O último passo do bot foi um movimento
+    private boolean botMoved;
+
+    /**
+     * @param engine        Motor do jogo
+     * @param riddleManager Enigmas das salas de enigma
+     * @param random        Gerador do dado
+     */
+    public TurnResolver(GameEngine engine, RiddleManager riddleManager, Random random) {
+        this.engine = engine;
+        this.riddleManager = riddleManager;
+        this.random = random;
+    }
+
+    /**
+     * Define quem mostra o jogo (sem listener os humanos nunca respondem aos enigmas)
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Lança o dado para o jogador atual, se ainda não tiver pontos de movimento
+     * @return O valor do dado, ou 0 se não foi lançado
+     */
+    public int rollDice() {
+        Player current = engine.getCurrentPlayer();
+        if (current == null || !engine.isGameRunning() || current.getMovementPoints() > 0) return 0;
+
+        int dice = random.nextInt(DICE_FACES) + 1;
+        engine.setMovementPoints(current, dice);
+        if (listener != null) listener.diceRolled(current, dice);
+        return dice;
+    }
+
+    /**
+     * Move o jogador atual para uma sala vizinha; se ficar sem pontos resolve a sala e o fim do turno
+     * @return true se o jogador se moveu
+     */
+    public boolean move(Room target) throws EmptyCollectionException {
+        Player player = engine.getCurrentPlayer();
+        if (player == null || target == null || player.getMovementPoints() <= 0) return false;
+
+        turnOver = false;
+        if (!engine.tryMove(player, target)) return false;
+        if (player.getMovementPoints() <= 0) endMovement(player, true);
+        return true;
+    }
+
+    /**
+     * Um passo do bot atual: lança o dado se for preciso e move-o pela sua estratégia.
+     * Um bot que não se consegue mover fica com os pontos e tenta outra vez no passo seguinte.
+     * @return false se o jogador atual não for um bot ou o jogo tiver acabado
+     */
+    public boolean playBotStep() throws EmptyCollectionException {
+        Player bot = engine.getCurrentPlayer();
+        if (bot == null || !bot.isBot() || !engine.isGameRunning()) return false;
+
+        turnOver = false;
+        rollDice();
+        botMoved = engine.executeBotTurn();
+        if (bot.getMovementPoints() <= 0) endMovement(bot, botMoved);
+        return true;
+    }
+
+    /**
+     * Joga o turno do bot atual até passar a vez (ou ganhar um turno extra).
+     * Se o bot ficar preso, devolve o controlo com o turno por acabar.
+     * @return false se o jogador atual não for um bot ou o jogo tiver acabado
+     */
+    public boolean playTurn() throws EmptyCollectionException {
+        if (!playBotStep()) return false;
+        while (!turnOver && botMoved && engine.isGameRunning()) playBotStep();
+        return true;
+    }
+
+    /**
+     * Joga turnos até o jogo acabar (todos os jogadores têm de ser bots)
+     * @param maxTurns Limite de turnos (para jogos sem fim ou com um bot preso)
+     * @return Número de turnos jogados
+     */
+    public int playGame(int maxTurns) throws EmptyCollectionException {
+        int turns = 0;
+        while (turns < maxTurns && engine.isGameRunning() && playTurn()) turns++;
+        return turns;
+    }
+
+    /**
+     * O jogador ficou sem pontos: enigma (se um humano parou numa sala de enigma), depois boost ou fim da vez
+     * @param moved Se o último passo foi um movimento (e não uma desistência do bot)
+     */
+    private void endMovement(Player player, boolean moved) {
+        if (!engine.isGameRunning()) return;
+
+        Room room = player.getCurrentRoom();
+        if (moved && !player.isBot() && room != null && room.getType() == Room.RoomType.RIDDLE) {
+            resolveRiddle(player);
+        }
+
+        // O enigma pode ter levado o jogador ao tesouro ou dado pontos outra vez
+        if (!engine.isGameRunning() || player.getMovementPoints() > 0) return;
+
+        turnOver = true;
+        if (player.getBoost() > 0) {
+            player.decrementBoost();
+            if (listener != null) listener.extraTurn(player);
+        } else {
+            engine.nextTurn();
+        }
+    }
+
+    /**
+     * Enigma de um jogador humano, respondido pelo listener.
+     * Certo avança o bónus em direção ao tesouro (e ganha se lá chegar); errado perde turnos.
+     */
+    private void resolveRiddle(Player player) {
+        Riddle riddle;
+        try {
+            riddle = riddleManager.getRandomRiddle();
+        } catch (NoElementFoundException e) {
+            riddle = null;
+        }
+        if (riddle == null) {
+            if (listener != null) listener.riddleResolved(player, null, false);
+            return;
+        }
+
+        String answer = listener != null ? listener.askRiddle(player, riddle) : null;
+        boolean correct = riddle.checkAnswer(answer);
+        player.logEvent(engine.getTurnCount(), "RIDDLE", (correct ? "Acertou o enigma: " : "Errou o enigma: ") + riddle.getId());
+        if (listener != null) listener.riddleResolved(player, riddle, correct);
+
+        if (correct) {
+            // O bónus não resolve os efeitos das salas, mas pode chegar ao tesouro
+            engine.applyAutoMove(player, riddle.getBonus());
+            engine.checkTreasure(player);
+        } else {
+            engine.setSkipTurns(player, player.getSkipTurns() + riddle.getPenalty());
+            engine.setMovementPoints(player, 0); // Garante que o turno acaba
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.jogogloria.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Histórico do undo com memória limitada.
+ * <p>
+ * Os comandos ({@link GameCommand}) são guardados codificados, {@link GameCommand#RECORD_INTS}
+ * inteiros cada, num anel de capacidade fixa com os registos mais recentes. Quando o anel enche:
+ * </p>
+ * <ul>
+ *   <li>com ficheiro de despejo, a metade mais antiga do anel é escrita de uma vez no fim do
+ *       ficheiro (16 bytes por registo) e volta a ser lida, também de uma vez, quando o undo
+ *       esvazia o anel; pode-se recuar até ao início do jogo;</li>
+ *   <li>sem ficheiro, os passos mais antigos são esquecidos (o undo deixa de lá chegar).</li>
+ * </ul>
+ * <p>
+ * A memória ocupada é sempre a do anel, por mais longo que seja o jogo. Os limites e o uso
+ * atual são expostos pelos métodos {@code get*} (métricas).
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+public class UndoHistory implements AutoCloseable {
+
+    private static final int RECORD = GameCommand.RECORD_INTS;
+    private static final int RECORD_BYTES = RECORD * 4;
+
+    private final int capacity;
+    private final boolean spillEnabled;
+
+    // Anel: registo i (0 = mais antigo em memória) em ring[((head + i) % capacity) * RECORD]
+    private final int[] ring;
+    private int head;
+    private int size;
+
+    // Ficheiro de despejo: pilha de registos mais antigos do que os do anel
+    private RandomAccessFile spill;
+    private File spillFile;
+    private long diskRecords;
+    private int diskSteps;
+    private byte[] buffer;
+
+    private int steps;
+    private long droppedSteps;
+    private long spillWrites;
+    private long spillReads;
+
+    /**
+     * @param capacity     Número máximo de registos em memória (mínimo 2)
+     * @param spillEnabled Se os registos mais antigos vão para um ficheiro temporário em vez de serem esquecidos
+     */
+    public UndoHistory(int capacity, boolean spillEnabled) {
+        this.capacity = Math.max(2, capacity);
+        this.spillEnabled = spillEnabled;
+        this.ring = new int[this.capacity * RECORD];
+    }
+
+    /**
+     * Começa um novo passo (registo {@link GameCommand#CHECKPOINT})
+     */
+    public void beginStep() {
+        steps++;
+        push(GameCommand.CHECKPOINT, 0, 0, 0);
+    }
+
+    /**
+     * Guarda um registo no passo atual. Sem passo aberto (antes do primeiro movimento, ou depois de
+     * o passo atual ter sido esquecido por não caber no anel) o registo é ignorado.
+     * @param record Array com o registo a partir de {@code offset}
+     */
+    public void record(int[] record, int offset) {
+        if (steps == 0) return;
+        push(record[offset], record[offset + 1], record[offset + 2], record[offset + 3]);
+    }
+
+    /**
+     * Retira o registo mais recente
+     * @param out Array onde o registo é escrito (a partir da posição 0)
+     * @return false se o histórico estiver vazio
+     */
+    public boolean pop(int[] out) {
+        if (size == 0 && !reload()) return false;
+        size--;
+        int slot = ((head + size) % capacity) * RECORD;
+        System.arraycopy(ring, slot, out, 0, RECORD);
+        if (out[0] == GameCommand.CHECKPOINT) steps--;
+        return true;
+    }
+
+    /**
+     * Esquece todo o histórico
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        diskRecords = 0;
+        diskSteps = 0;
+        steps = 0;
+    }
+
+    /**
+     * Fecha e apaga o ficheiro de despejo (o histórico em disco perde-se)
+     */
+    @Override
+    public void close() {
+        if (spill == null) return;
+        try {
+            spill.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar histórico: " + e.getMessage());
+        }
+        spillFile.delete();
+        spill = null;
+        forgetDisk();
+    }
+
+    // --- Métricas ---
+
+    /** Número de passos que podem ser desfeitos */
+    public int getSteps() { return steps; }
+
+    /** Número máximo de registos em memória */
+    public int getCapacity() { return capacity; }
+
+    /** Registos em memória */
+    public int getMemoryRecords() { return size; }
+
+    /** Memória ocupada pelo anel, em bytes (fixa) */
+    public long getMemoryBytes() { return 4L * ring.length; }
+
+    /** Registos no ficheiro de despejo */
+    public long getDiskRecords() { return diskRecords; }
+
+    /** Bytes em uso no ficheiro de despejo */
+    public long getDiskBytes() { return diskRecords * RECORD_BYTES; }
+
+    /** Passos esquecidos: por falta de espaço sem ficheiro de despejo, ou por erro no ficheiro */
+    public long getDroppedSteps() { return droppedSteps; }
+
+    /** Escritas e leituras de blocos no ficheiro de despejo */
+    public long getSpillWrites() { return spillWrites; }
+    public long getSpillReads() { return spillReads; }
+
+    public boolean isSpillEnabled() { return spillEnabled; }
+
+    // --- Anel ---
+
+    private void push(int type, int a, int b, int c) {
+        if (size == capacity) makeRoom();
+        if (type != GameCommand.CHECKPOINT && steps == 0) return; // o passo atual foi esquecido
+
+        int slot = ((head + size) % capacity) * RECORD;
+        ring[slot] = type;
+        ring[slot + 1] = a;
+        ring[slot + 2] = b;
+        ring[slot + 3] = c;
+        size++;
+    }
+
+    /**
+     * Liberta espaço no anel cheio: despeja a metade mais antiga no ficheiro ou, sem ficheiro
+     * (ou se a escrita falhar), esquece os passos mais antigos
+     */
+    private void makeRoom() {
+        if (spillEnabled && spillOldest(capacity / 2)) return;
+
+        // Esquece registos até ao início do passo seguinte ao mais antigo
+        do {
+            if (ring[head * RECORD] == GameCommand.CHECKPOINT) {
+                steps--;
+                droppedSteps++;
+            }
+            head = (head + 1) % capacity;
+            size--;
+        } while (size > 0 && ring[head * RECORD] != GameCommand.CHECKPOINT);
+    }
+
+    /**
+     * Escreve os {@code count} registos mais antigos do anel no fim do ficheiro
+     * @return false se o ficheiro não puder ser escrito
+     */
+    private boolean spillOldest(int count) {
+        int checkpoints = 0;
+        try {
+            if (spill == null) {
+                spillFile = File.createTempFile("jogogloria-undo", ".bin");
+                spillFile.deleteOnExit();
+                spill = new RandomAccessFile(spillFile, "rw");
+            }
+            byte[] bytes = buffer(count);
+            for (int i = 0; i < count; i++) {
+                int slot = ((head + i) % capacity) * RECORD;
+                for (int k = 0; k < RECORD; k++) putInt(bytes, (i * RECORD + k) * 4, ring[slot + k]);
+                if (ring[slot] == GameCommand.CHECKPOINT) checkpoints++;
+            }
+            spill.seek(diskRecords * RECORD_BYTES);
+            spill.write(bytes, 0, count * RECORD_BYTES);
+        } catch (IOException e) {
+            System.err.println("Erro ao escrever histórico em disco: " + e.getMessage());
+            forgetDisk();
+            return false;
+        }
+        head = (head + count) % capacity;
+        size -= count;
+        diskRecords += count;
+        diskSteps += checkpoints;
+        spillWrites++;
+        return true;
+    }
+
+    /**
+     * Com o anel vazio, lê do fim do ficheiro os registos mais recentes (até meio anel)
+     * @return false se não houver registos em disco ou a leitura falhar
+     */
+    private boolean reload() {
+        if (diskRecords == 0 || spill == null) return false;
+        int count = (int) Math.min(capacity / 2, diskRecords);
+        byte[] bytes = buffer(count);
+        try {
+            spill.seek((diskRecords - count) * RECORD_BYTES);
+            spill.readFully(bytes, 0, count * RECORD_BYTES);
+        } catch (IOException e) {
+            System.err.println("Erro ao ler histórico do disco: " + e.getMessage());
+            forgetDisk();
+            return false;
+        }
+        for (int i = 0; i < count * RECORD; i++) ring[i] = getInt(bytes, i * 4);
+        for (int i = 0; i < count; i++) {
+            if (ring[i * RECORD] == GameCommand.CHECKPOINT) diskSteps--;
+        }
+        head = 0;
+        size = count;
+        diskRecords -= count;
+        spillReads++;
+        return true;
+    }
+
+    /**
+     * Esquece os registos em disco (depois de um erro de escrita ou leitura, ou ao fechar)
+     */
+    private void forgetDisk() {
+        steps -= diskSteps;
+        droppedSteps += diskSteps;
+        diskSteps = 0;
+        diskRecords = 0;
+    }
+
+    private byte[] buffer(int records) {
+        if (buffer == null || buffer.length < records * RECORD_BYTES) buffer = new byte[records * RECORD_BYTES];
+        return buffer;
+    }
+
+    private static void putInt(byte[] bytes, int at, int value) {
+        bytes[at] = (byte) (value >>> 24);
+        bytes[at + 1] = (byte) (value >>> 16);
+        bytes[at + 2] = (byte) (value >>> 8);
+        bytes[at + 3] = (byte) value;
+    }
+
+    private static int getInt(byte[] bytes, int at) {
+        return (bytes[at] << 24) | ((bytes[at + 1] & 0xFF) << 16) | ((bytes[at + 2] & 0xFF) << 8) | (bytes[at + 3] & 0xFF);
+    }
+}
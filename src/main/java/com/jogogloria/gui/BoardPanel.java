@@ -19,7 +19,7 @@ import java.awt.image.BufferedImage;
  * Painel gráfico responsável por desenhar o tabuleiro do jogo.
  *
  * @author Hugo Gonçalves
- * @version 3.0
+ * @version 3.1
  */
 public class BoardPanel extends JPanel {
 
@@ -29,6 +29,16 @@ public class BoardPanel extends JPanel {
     private final int cols;
     private final ImageManager imageManager;
 
+    // Camada de paredes: estado da borda direita e de baixo de cada célula
+    private static final byte EDGE_OPEN = 0;
+    private static final byte EDGE_WALL = 1;
+    private static final byte EDGE_DOOR = 2;
+    private final byte[] rightEdge;
+    private final byte[] downEdge;
+
+    // Época da topologia em que a camada de paredes foi calculada (-1 = por calcular)
+    private long wallsEpoch = -1;
+
     public BoardPanel(Labyrinth labyrinth, ArrayUnorderedList<Player> players, int rows, int cols) {
         this.labyrinth = labyrinth;
         this.players = players;
@@ -36,6 +46,8 @@ public class BoardPanel extends JPanel {
         this.cols = cols;
 
         this.imageManager = new ImageManager();
+        this.rightEdge = new byte[rows * cols];
+        this.downEdge = new byte[rows * cols];
 
         int width = cols * GameConfig.CELL_SIZE;
         int height = rows * GameConfig.CELL_SIZE;
@@ -48,6 +60,11 @@ public class BoardPanel extends JPanel {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
 
+        // 0. Só volta a consultar o grafo se uma porta ou passagem mudou desde o último desenho
+        if (wallsEpoch != labyrinth.getTopologyEpoch()) {
+            rebuildWalls();
+        }
+
         // 1. Desenhar as Salas
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
@@ -96,61 +113,50 @@ public class BoardPanel extends JPanel {
         }
 
         // --- 3. Paredes e Portas ---
-        drawWallsAndDoors(g2, x, y, px, py, size, room.getId());
+        drawWallsAndDoors(g2, x, y, px, py, size);
     }
 
     /**
-     * Desenha as paredes ou portas nas bordas da sala.
-     *
+     * Recalcula a camada de paredes a partir do grafo e guarda a época da topologia.
+     * Sem aresta = parede sólida; aresta trancada = porta; a borda do mapa é sempre parede.
      */
-    private void drawWallsAndDoors(Graphics2D g2, int x, int y, int px, int py, int size, String currentId) {
+    private void rebuildWalls() {
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                Room room = labyrinth.getRoomAt(x, y);
+                int cell = y * cols + x;
+                rightEdge[cell] = room == null ? EDGE_WALL : edgeState(room, labyrinth.getRoomAt(x + 1, y), x + 1 < cols);
+                downEdge[cell] = room == null ? EDGE_WALL : edgeState(room, labyrinth.getRoomAt(x, y + 1), y + 1 < rows);
+            }
+        }
+        wallsEpoch = labyrinth.getTopologyEpoch();
+    }
 
-        // --- Parede à DIREITA ---
-        if (x + 1 < cols) {
-            String rightId = (x + 1) + "-" + y;
-            int wallX = px + size;
+    private byte edgeState(Room room, Room other, boolean insideMap) {
+        if (!insideMap || other == null || !labyrinth.hasConnection(room.getId(), other.getId())) return EDGE_WALL;
+        return labyrinth.isLocked(room.getId(), other.getId()) ? EDGE_DOOR : EDGE_OPEN;
+    }
 
-            try {
-                // Verifica conexão no Grafo
-                boolean connected = labyrinth.graphStructure.isConnected();
+    /**
+     * Desenha as paredes ou portas nas bordas da sala (lidas da camada de paredes).
+     */
+    private void drawWallsAndDoors(Graphics2D g2, int x, int y, int px, int py, int size) {
+        int cell = y * cols + x;
 
-                if (!connected) {
-                    // Sem aresta = Parede Sólida
-                    drawWall(g2, wallX, py, wallX, py + size);
-                }
-                else if (labyrinth.isLocked(currentId, rightId)) {
-                    // Com aresta mas peso alto = Porta Trancada
-                    drawLockedDoor(g2, wallX, py, wallX, py + size);
-                }
-            } catch (Exception e) {
-                // Em caso de erro no grafo, desenha parede por segurança
-                drawWall(g2, wallX, py, wallX, py + size);
-            }
-        } else {
-            // Borda do mapa
-            drawWall(g2, px + size, py, px + size, py + size);
+        // --- Parede à DIREITA ---
+        int wallX = px + size;
+        if (rightEdge[cell] == EDGE_WALL) {
+            drawWall(g2, wallX, py, wallX, py + size);
+        } else if (rightEdge[cell] == EDGE_DOOR) {
+            drawLockedDoor(g2, wallX, py, wallX, py + size);
         }
 
         // --- Parede ABAIXO ---
-        if (y + 1 < rows) {
-            String downId = x + "-" + (y + 1);
-            int wallY = py + size;
-
-            try {
-                boolean connected = labyrinth.graphStructure.isConnected();
-
-                if (!connected) {
-                    drawWall(g2, px, wallY, px + size, wallY);
-                }
-                else if (labyrinth.isLocked(currentId, downId)) {
-                    drawLockedDoor(g2, px, wallY, px + size, wallY);
-                }
-            } catch (Exception e) {
-                drawWall(g2, px, wallY, px + size, wallY);
-            }
-        } else {
-            // Borda do mapa
-            drawWall(g2, px, py + size, px + size, py + size);
+        int wallY = py + size;
+        if (downEdge[cell] == EDGE_WALL) {
+            drawWall(g2, px, wallY, px + size, wallY);
+        } else if (downEdge[cell] == EDGE_DOOR) {
+            drawLockedDoor(g2, px, wallY, px + size, wallY);
         }
     }
 
@@ -1,6 +1,5 @@
 package com.jogogloria.gui;
 
-import com.example.Biblioteca.exceptions.NoElementFoundException;
 import com.example.Biblioteca.exceptions.EmptyCollectionException;
 import com.example.Biblioteca.lists.ArrayUnorderedList;
 import com.example.Biblioteca.lists.ArrayOrderedList;
@@ -9,6 +8,7 @@ import com.example.Biblioteca.iterators.Iterator;
 import com.jogogloria.config.GameConfig;
 import com.jogogloria.engine.GameEngine;
 import com.jogogloria.engine.RiddleManager;
+import com.jogogloria.engine.TurnResolver;
 import com.jogogloria.io.MapLoader;
 import com.jogogloria.io.GameStorage;
 import com.jogogloria.model.*;
@@ -19,12 +19,17 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.Random;
 
 /**
- * Janela principal onde decorre a partida do jogo
+ * Janela principal onde decorre a partida do jogo.
+ * As regras do turno estão no {@link TurnResolver}; a janela só traduz teclas em jogadas,
+ * faz perguntas e mostra o resultado.
  *
  * @author Hugo Gonçalves
- * @version 3.0
+ * @version 3.3
  */
 public class GameWindow extends JFrame implements KeyListener {
 
@@ -32,12 +37,15 @@ public class GameWindow extends JFrame implements KeyListener {
     private final Labyrinth labyrinth;
     private final BoardPanel boardPanel;
     private final JLabel statusLabel;
-    private final RiddleManager riddleManager;
+    private final TurnResolver resolver;
     private final Timer botTimer;
     private final ArrayUnorderedList<Player> allPlayers;
     private final int rows;
     private final int cols;
 
+    // Aviso a mostrar na próxima atualização da barra de estado (ex.: turno extra)
+    private String notice;
+
     /**
      * Cria e inicia a janela de jogo
      * @param labyrinth objeto labyrinth carregado
@@ -60,7 +68,7 @@ public class GameWindow extends JFrame implements KeyListener {
         this.boardPanel = new BoardPanel(labyrinth, allPlayers, rows, cols);
         add(boardPanel, BorderLayout.CENTER);
 
-        this.statusLabel = new JLabel("Bem-vindo! Prime ESPAÇO para rolar o dado. [Z] Voltar atrás, [S] Gravar");
+        this.statusLabel = new JLabel("Bem-vindo! Prime ESPAÇO para rolar o dado. [Z] Voltar atrás, [Y] Refazer, [S] Gravar");
         this.statusLabel.setHorizontalAlignment(SwingConstants.CENTER);
         this.statusLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         add(statusLabel, BorderLayout.SOUTH);
@@ -77,8 +85,48 @@ public class GameWindow extends JFrame implements KeyListener {
             }
         });
 
-        // Inicializa RiddleManager com o caminho configurado
-        this.riddleManager = new RiddleManager(com.jogogloria.config.GameConfig.RIDDLES_FILE);
+        // Fechar a janela também fecha o motor (o histórico em disco é apagado)
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closeGame();
+            }
+        });
+
+        // Regras do turno, com o RiddleManager do caminho configurado (o mesmo gerador para o dado e os enigmas)
+        Random random = new Random();
+        this.resolver = new TurnResolver(engine, new RiddleManager(GameConfig.RIDDLES_FILE, random), random);
+        this.resolver.setListener(new TurnResolver.Listener() {
+            @Override
+            public void diceRolled(Player player, int dice) {
+                if (player.isBot()) notice = player.getName() + " rolou " + dice;
+            }
+
+            @Override
+            public String askRiddle(Player player, Riddle riddle) {
+                return JOptionPane.showInputDialog(GameWindow.this,
+                        "ENIGMA:\n" + riddle.getQuestion(),
+                        "Responde Sabiamente",
+                        JOptionPane.QUESTION_MESSAGE);
+            }
+
+            @Override
+            public void riddleResolved(Player player, Riddle riddle, boolean correct) {
+                if (riddle == null) {
+                    JOptionPane.showMessageDialog(GameWindow.this, "A sala de enigmas está vazia.");
+                } else if (correct) {
+                    JOptionPane.showMessageDialog(GameWindow.this, "Correto! Avanças " + riddle.getBonus() + " casas.");
+                } else {
+                    JOptionPane.showMessageDialog(GameWindow.this, "Errado! A resposta era: " + riddle.getAnswer() +
+                            "\nPerdes a vez.");
+                }
+            }
+
+            @Override
+            public void extraTurn(Player player) {
+                notice = "BOOST! " + player.getName() + " joga novamente!" + (player.isBot() ? "" : " (Espaço)");
+            }
+        });
 
         updateStatus();
     }
@@ -104,7 +152,11 @@ public class GameWindow extends JFrame implements KeyListener {
                 txt += " | Rolar Dado (Espaço)";
             }
 
-            txt += " || [Z] Voltar Atrás  [S] Gravar";
+            txt += " || [Z] Voltar Atrás  [Y] Refazer  [S] Gravar";
+            if (notice != null) {
+                txt = notice + " | " + txt;
+                notice = null;
+            }
             statusLabel.setText(txt);
 
             if (current.isBot()) {
@@ -124,33 +176,13 @@ public class GameWindow extends JFrame implements KeyListener {
             return;
         }
 
-        Player current = engine.getCurrentPlayer();
-        if (current != null && current.isBot()) {
-            if (current.getMovementPoints() <= 0) {
-                int dice = (int)(Math.random() * 6) + 1;
-                current.setMovementPoints(dice);
-                System.out.println("Bot " + current.getName() + " rolou: " + dice);
-            }
-
-            try {
-                engine.executeBotTurn();
-            } catch (EmptyCollectionException e) {
-                e.printStackTrace();
-            }
-
-            boardPanel.repaint();
-
-            if (current.getMovementPoints() <= 0) {
-                // VERIFICA BOOST
-                if (current.getBoost() > 0) {
-                    current.decrementBoost();
-                    System.out.println("Bot tem turno extra!");
-                } else {
-                    engine.nextTurn();
-                }
-            }
-            updateStatus();
+        try {
+            if (!resolver.playBotStep()) return;
+        } catch (EmptyCollectionException e) {
+            e.printStackTrace();
         }
+        boardPanel.repaint();
+        updateStatus();
     }
 
     /**
@@ -168,15 +200,27 @@ public class GameWindow extends JFrame implements KeyListener {
         if (e.getKeyCode() == KeyEvent.VK_Z) {
            boolean success = engine.undo();
            if (success) {
+               notice = "Voltaste atrás";
                boardPanel.repaint();
                updateStatus();
-               System.out.println("Voltaste atrás");
            } else {
                JOptionPane.showMessageDialog(this, "Não podes recuar mais");
            }
            return;
         }
 
+        if (e.getKeyCode() == KeyEvent.VK_Y) {
+           boolean success = engine.redo();
+           if (success) {
+               notice = "Refizeste o passo";
+               boardPanel.repaint();
+               updateStatus();
+           } else {
+               JOptionPane.showMessageDialog(this, "Não há passos para refazer");
+           }
+           return;
+        }
+
         if (!engine.isGameRunning()) return;
 
         Player current = engine.getCurrentPlayer();
@@ -185,8 +229,7 @@ public class GameWindow extends JFrame implements KeyListener {
         // Rolar Dado
         if (current.getMovementPoints() <= 0) {
             if (e.getKeyCode() == KeyEvent.VK_SPACE) {
-                int dice = (int)(Math.random() * 6) + 1;
-                current.setMovementPoints(dice);
+                resolver.rollDice();
                 updateStatus(); // Atualiza texto para mostrar pontos
                 return;
             } else {
@@ -227,98 +270,12 @@ public class GameWindow extends JFrame implements KeyListener {
         Room currentRoom = p.getCurrentRoom();
         if (currentRoom == null) return;
 
-        int targetX = currentRoom.getX() + dx;
-        int targetY = currentRoom.getY() + dy;
-        Room targetRoom = labyrinth.getRoomAt(targetX, targetY);
-
-        if (targetRoom != null) {
-            // Tenta mover (decrementa 1 ponto)
-            boolean success = engine.tryMove(p, targetRoom);
-
-            if (success) {
-                boardPanel.repaint();
-
-                // Se parou na casa (pontos == 0), verifica Riddle
-                if (p.getMovementPoints() <= 0) {
-
-                    if (targetRoom.getType() == Room.RoomType.RIDDLE) {
-                        handleRiddleEvent(p);
-                        // Nota: O handleRiddleEvent pode dar bónus de movimento!
-                        // Se der bónus, p.getMovementPoints() > 0 outra vez.
-                    }
-
-                    // Se AINDA tiver 0 pontos (não ganhou bónus ou já gastou)
-                    if (p.getMovementPoints() <= 0) {
-                        // Verifica Boost (Turno Extra)
-                        if (p.getBoost() > 0) {
-                            p.decrementBoost();
-                            statusLabel.setText("BOOST! " + p.getName() + " joga novamente! (Espaço)");
-                        } else {
-                            engine.nextTurn();
-                        }
-                    }
-                }
-                updateStatus();
-            } else {
-            }
-        }
-    }
-
-    /**
-     * Dispara um enigma
-     * @param player
-     * @throws NoElementFoundException
-     */
-    private void handleRiddleEvent(Player player) throws NoElementFoundException {
-        Riddle riddle = riddleManager.getRandomRiddle();
-
-        if (riddle == null) {
-            JOptionPane.showMessageDialog(this, "A sala de enigmas está vazia.");
-            return;
-        }
+        Room targetRoom = labyrinth.getRoomAt(currentRoom.getX() + dx, currentRoom.getY() + dy);
 
-        if (!player.isBot()) {
-            String resposta = JOptionPane.showInputDialog(this,
-                    "ENIGMA:\n" + riddle.getQuestion(),
-                    "Responde Sabiamente",
-                    JOptionPane.QUESTION_MESSAGE);
-
-            if (riddle.checkAnswer(resposta)) {
-                player.logEvent(1, "RIDDLE", "Acertou o enigma: " + riddle.getId());
-                int bonus = riddle.getBonus();
-                JOptionPane.showMessageDialog(this, "Correto! Avanças " + bonus + " casas.");
-
-                // Aplica Bónus Imediato
-                try {
-                    engine.applyAutoMove(player, bonus);
-                    boardPanel.repaint();
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
-
-            } else {
-                player.logEvent(1, "RIDDLE", "Errou o enigma: " + riddle.getId());
-                int penalty = riddle.getPenalty();
-                JOptionPane.showMessageDialog(this, "Errado! A resposta era: " + riddle.getAnswer() +
-                        "\nPerdes a vez.");
-                player.setSkipTurns(player.getSkipTurns() + penalty);
-                player.setMovementPoints(0); // Garante que turno acaba
-            }
-        } else {
-            // Lógica Bot
-            boolean acertou = Math.random() > 0.5;
-            if (acertou) {
-                player.logEvent(1, "RIDDLE", "Bot acertou o enigma: " + riddle.getId());
-                System.out.println("Bot acertou enigma! Bónus: " + riddle.getBonus());
-                try {
-                    engine.applyAutoMove(player, riddle.getBonus());
-                } catch (Exception e) {}
-            } else {
-                player.logEvent(1, "RIDDLE", "Bot errou o enigma: " + riddle.getId());
-                System.out.println("Bot errou enigma.");
-                player.setSkipTurns(player.getSkipTurns() + riddle.getPenalty());
-                player.setMovementPoints(0);
-            }
+        // Move (decrementa 1 ponto); ao parar, o resolvedor trata do enigma, do boost e da vez
+        if (resolver.move(targetRoom)) {
+            boardPanel.repaint();
+            updateStatus();
         }
     }
 
@@ -366,18 +323,28 @@ public class GameWindow extends JFrame implements KeyListener {
         if (choice == 0) {
             restartGame();
         } else if (choice == 1) {
-            this.dispose();
+            closeGame();
             new MainMenu().setVisible(true);
         } else {
+            closeGame();
             System.exit(0);
         }
     }
 
+    /**
+     * Para os bots, fecha o motor da partida e fecha a janela
+     */
+    private void closeGame() {
+        botTimer.stop();
+        engine.close();
+        this.dispose();
+    }
+
     /**
      * Reinicia a partida com as mesmas configurações
      */
     private void restartGame() {
-        this.dispose();
+        closeGame();
 
         try{
             Labyrinth labyrinth = MapLoader.loadLabyrinth(GameConfig.MAP_FILE);
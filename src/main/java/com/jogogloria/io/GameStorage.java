@@ -19,7 +19,7 @@ import java.io.IOException;
  * Classe que guarda o estado do Jogo em formato JSON
  *
  * @author Hugo Gonçalves
- * @version 1.0
+ * @version 1.1
  */
 public class GameStorage {
 
@@ -34,17 +34,14 @@ public class GameStorage {
         Player current = engine.getCurrentPlayer();
         json.append("  \"currentPlayer\": \"").append(current.getId()).append("\",\n");
 
-        // 2. Alavancas Ativadas (Percorrer salas para encontrar Levers ativas)
+        // 2. Alavancas Ativadas (bits do registo de alavancas do labirinto)
         json.append("  \"activatedLevers\": [");
-        Iterator<Room> roomIt = engine.getLabyrinth().getRoomsIterator();
+        Labyrinth lab = engine.getLabyrinth();
         boolean firstLev = true;
-        while(roomIt.hasNext()) {
-            Room r = roomIt.next();
-            if(r.hasLever() && r.getLever().isActivated()) {
-                if(!firstLev) json.append(", ");
-                json.append("\"").append(r.getLever().getId()).append("\"");
-                firstLev = false;
-            }
+        for (int slot = lab.nextActivatedLever(0); slot != -1; slot = lab.nextActivatedLever(slot + 1)) {
+            if(!firstLev) json.append(", ");
+            json.append("\"").append(lab.getLever(slot).getId()).append("\"");
+            firstLev = false;
         }
         json.append("],\n");
 
@@ -182,19 +179,11 @@ public class GameStorage {
     }
 
     private static void activateLeverById(GameEngine engine, Labyrinth lab, String leverId) {
-        Iterator<Room> it = lab.getRoomsIterator();
-        while (it.hasNext()) {
-            Room r = it.next();
-            if (r.hasLever()) {
-                Lever l = r.getLever();
-                if (l.getId().equals(leverId)) {
-                    // Ativar lógica
-                    l.setActivated(true);
-                    lab.setConnectionLocked(l.getRoomA().getId(), l.getRoomB().getId(), false);
-                    return;
-                }
-            }
-        }
+        Lever l = lab.getLeverById(leverId);
+        if (l == null) return;
+        // Ativar lógica
+        l.setActivated(true);
+        lab.setConnectionLocked(l.getRoomA().getId(), l.getRoomB().getId(), false);
     }
 
     // Leitura básica de ficheiro
@@ -2,19 +2,37 @@ package com.jogogloria.io;
 
 import com.jogogloria.model.Labyrinth;
 import com.jogogloria.model.Lever;
+import com.jogogloria.model.LeverPlan;
+import com.jogogloria.model.MultiFloorLabyrinth;
+import com.jogogloria.model.PathfindingMode;
 import com.jogogloria.model.Room;
 import com.jogogloria.model.Room.RoomType;
+import com.jogogloria.model.TiledLabyrinth;
+import com.jogogloria.utils.SimpleMap;
+import com.jogogloria.utils.TileStore;
 import com.example.Biblioteca.iterators.Iterator;
+import com.example.Biblioteca.lists.ArrayUnorderedList;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 
 /**
  * Responsável pela construção do labirinto a partir de ficheiro de config JSON.
+ * <p>
+ * Cada ficheiro é lido uma única vez: o labirinto construído fica em cache como modelo e cada
+ * chamada a {@link #loadLabyrinth(String)} devolve uma cópia leve para um novo jogo
+ * ({@link Labyrinth#newOverlay()}). Se o ficheiro for alterado no disco (data ou tamanho), é lido
+ * de novo; o {@link MapManager} esquece o modelo de cada mapa que grava.
+ * </p>
+ * <p>
+ * Mapas de vários pisos são lidos com {@link #loadMultiFloorLabyrinth(String)} e ficam em
+ * {@code maps/multifloor/}, fora da lista de mapas do menu.
+ * </p>
  *
  * @author Hugo Gonçalves
- * @version 4.0
+ * @version 4.3
  */
 public class MapLoader {
 
@@ -27,16 +45,92 @@ public class MapLoader {
     private static final int LEVER = 6;
     private static final int EXIT = 9;
 
+    /** Até este número de salas o labirinto pré-calcula a tabela de distâncias de todos os pares */
+    private static final int ALL_PAIRS_MAX_ROOMS = 1024;
+
+    /** A partir deste número de salas o labirinto usa a pesquisa hierárquica por setores */
+    private static final int HIERARCHICAL_MIN_ROOMS = 50_000;
+
+    /** Grau médio abaixo do qual o mapa é tratado como labirinto de corredores (BFS bidirecional) */
+    private static final double CORRIDOR_MAX_DEGREE = 2.5;
+
+    /** Labirintos modelo já carregados, por caminho absoluto do ficheiro */
+    private static final SimpleMap<String, Labyrinth> TEMPLATES = new SimpleMap<>();
+
+    /** Data de modificação e tamanho do ficheiro quando cada modelo foi lido */
+    private static final SimpleMap<String, String> TEMPLATE_VERSIONS = new SimpleMap<>();
+
     /**
-     * Carrega um labirinto completo a partir de um ficheiro JSON
+     * Carrega um labirinto a partir de um ficheiro JSON.
+     * A primeira chamada para cada ficheiro constrói o labirinto modelo; as seguintes só criam a
+     * cópia do jogo, que partilha com o modelo a topologia, o plano das alavancas e os dados de
+     * pesquisa. Pode ser chamado em paralelo por vários jogos.
+     * @return Um labirinto só para este jogo
      */
     public static Labyrinth loadLabyrinth(String jsonFilePath) {
+        File file = new File(jsonFilePath);
+        String key = file.getAbsolutePath();
+        // A data só tem precisão de segundos em muitos sistemas de ficheiros: o tamanho apanha mais alterações
+        String version = file.lastModified() + ":" + file.length();
+
+        synchronized (TEMPLATES) {
+            Labyrinth template = TEMPLATES.get(key);
+            if (template == null || !version.equals(TEMPLATE_VERSIONS.get(key))) {
+                template = buildLabyrinth(jsonFilePath);
+                if (template == null) return new Labyrinth();
+                TEMPLATES.put(key, template);
+                TEMPLATE_VERSIONS.put(key, version);
+            }
+            // Criar a cópia marca os arrays do modelo como partilhados: tem de ser feito com o lock
+            return template.newOverlay();
+        }
+    }
+
+    /**
+     * Esquece os labirintos modelo em cache (os jogos em curso não são afetados)
+     */
+    public static void clearCache() {
+        synchronized (TEMPLATES) {
+            TEMPLATES.clear();
+            TEMPLATE_VERSIONS.clear();
+        }
+    }
+
+    /**
+     * Esquece o labirinto modelo de um ficheiro (chamado quando o mapa é gravado de novo)
+     */
+    static void forgetTemplate(File file) {
+        String key = file.getAbsolutePath();
+        synchronized (TEMPLATES) {
+            // Sem modelo, o próximo loadLabyrinth lê o ficheiro outra vez
+            TEMPLATES.remove(key);
+            TEMPLATE_VERSIONS.remove(key);
+        }
+    }
+
+    /**
+     * Lê o ficheiro e constrói o labirinto modelo, com os dados de pesquisa já calculados
+     * @return O labirinto, ou null se o ficheiro estiver vazio ou for um mapa de vários pisos
+     */
+    private static Labyrinth buildLabyrinth(String jsonFilePath) {
         String jsonContent = readJsonFile(jsonFilePath);
         if (jsonContent.isEmpty()) {
             System.err.println("Erro: Ficheiro JSON vazio.");
-            return new Labyrinth();
+            return null;
+        }
+        if (jsonContent.contains("\"floors\"")) {
+            System.err.println("Erro: " + jsonFilePath + " é um mapa de vários pisos (use loadMultiFloorLabyrinth).");
+            return null;
         }
+        Labyrinth labyrinth = buildFromContent(jsonContent);
+        validateMapConectivity(labyrinth);
+        return labyrinth;
+    }
 
+    /**
+     * Constrói um labirinto a partir do conteúdo JSON de um mapa (ou de um piso)
+     */
+    private static Labyrinth buildFromContent(String jsonContent) {
         int[][] grid = parseGridData(jsonContent);
 
         // 1. Cria Salas e Conexões (Estrutura do Grafo)
@@ -45,35 +139,151 @@ public class MapLoader {
         // 2. Aplica Lógica (Trancas e Alavancas)
         applyLocks(jsonContent, labyrinth);
         applyLevers(jsonContent, labyrinth);
+        labyrinth.planLevers();
+
+        // 3. Pré-calcula os dados de pesquisa adequados ao tamanho do mapa
+        choosePathfindingMode(labyrinth);
+        labyrinth.prepareDistanceFields();
 
         return labyrinth;
     }
 
+    /**
+     * Carrega um labirinto de vários pisos ligados por escadas. Formato:
+     * <pre>
+     * {"floors": [ {"grid": [[...]], "locked": [...], "levers": [...]}, ... ],
+     *  "stairs": [ {"roomA": "3-4@0", "roomB": "3-4@1"}, ... ]}
+     * </pre>
+     * Cada piso tem o formato de um mapa normal; as escadas usam IDs "x-y@piso". O início é o do primeiro piso que o tiver
+     * e o tesouro o do último.
+     * @return O labirinto (sem pisos se o ficheiro estiver vazio)
+     */
+    public static MultiFloorLabyrinth loadMultiFloorLabyrinth(String jsonFilePath) {
+        MultiFloorLabyrinth labyrinth = new MultiFloorLabyrinth();
+        String jsonContent = readJsonFile(jsonFilePath);
+        if (jsonContent.isEmpty()) {
+            System.err.println("Erro: Ficheiro JSON vazio.");
+            return labyrinth;
+        }
+
+        Iterator<String> floors = splitObjects(jsonContent, "floors").iterator();
+        while (floors.hasNext()) {
+            Labyrinth floor = buildFromContent(floors.next());
+            int f = labyrinth.addFloor(floor);
+            if (labyrinth.getStartRoomId() == null && floor.getStartRoomId() != null) {
+                labyrinth.setStartRoom(MultiFloorLabyrinth.globalId(f, floor.getStartRoomId()));
+            }
+            if (floor.getTreasureRoom() != null) {
+                labyrinth.setTreasureRoom(MultiFloorLabyrinth.globalId(f, floor.getTreasureRoom()));
+            }
+        }
+
+        int count = 0;
+        Iterator<String> stairs = splitObjects(jsonContent, "stairs").iterator();
+        while (stairs.hasNext()) {
+            String item = stairs.next();
+            String roomA = extractValue(item, "roomA");
+            String roomB = extractValue(item, "roomB");
+            if (roomA != null && roomB != null && labyrinth.addStairs(roomA, roomB)) count++;
+        }
+        System.out.println("Pisos: " + labyrinth.getFloorCount() + ", escadas: " + count);
+        return labyrinth;
+    }
+
+    /**
+     * Objetos de primeiro nível de um array JSON ({@code "key": [ {...}, {...} ]}),
+     * respeitando arrays e objetos aninhados
+     * @return O texto de cada objeto, com as chavetas
+     */
+    private static ArrayUnorderedList<String> splitObjects(String jsonContent, String key) {
+        ArrayUnorderedList<String> objects = new ArrayUnorderedList<>();
+        int keyIndex = jsonContent.indexOf("\"" + key + "\"");
+        if (keyIndex == -1) return objects;
+        int i = jsonContent.indexOf("[", keyIndex);
+        if (i == -1) return objects;
+
+        int depth = 0, start = -1;
+        for (i++; i < jsonContent.length(); i++) {
+            char c = jsonContent.charAt(i);
+            if (c == '{' || c == '[') {
+                if (depth++ == 0 && c == '{') start = i;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) break; // fim do array
+                if (--depth == 0 && c == '}') objects.addToRear(jsonContent.substring(start, i + 1));
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Cria um labirinto diretamente a partir de uma grelha de códigos, só com as salas e as
+     * ligações: não tem trancas, alavancas nem plano de alavancas. Serve os mapas gerados em
+     * memória pelos testes e pelo {@code Benchmark}; os jogos usam {@link #loadLabyrinth(String)}.
+     * @param grid Grelha com os códigos das salas ({@code grid[y][x]})
+     * @return O labirinto construído
+     */
+    static Labyrinth loadLabyrinth(int[][] grid) {
+        Labyrinth labyrinth = createLabyrinthFromGrid(grid);
+        choosePathfindingMode(labyrinth);
+        return labyrinth;
+    }
+
+    /**
+     * Abre um mapa guardado em blocos no disco ({@link TileStore}), para mapas maiores do que a memória.
+     * @param path     Ficheiro criado com {@link TileStore#create}
+     * @param maxTiles Número máximo de blocos em memória
+     * @return O labirinto, com o ficheiro aberto até {@link TiledLabyrinth#close()}, ou null se não puder ser lido
+     */
+    public static TiledLabyrinth loadTiledLabyrinth(String path, int maxTiles) {
+        try {
+            TileStore store = new TileStore(path, maxTiles);
+            System.out.println("Mapa em blocos: " + store.getWidth() + "x" + store.getHeight()
+                    + " (blocos de " + store.getTileSize() + ", até " + maxTiles + " em memória)");
+            return new TiledLabyrinth(store);
+        } catch (IOException e) {
+            System.err.println("Erro ao abrir mapa em blocos: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Escolhe o algoritmo de pesquisa pelo tamanho do mapa: tabela completa nos mapas pequenos,
+     * pesquisa hierárquica nos muito grandes e, nos restantes, BFS bidirecional nos labirintos
+     * de corredores e A* nos mapas abertos.
+     * Os dados são construídos logo aqui, durante o carregamento.
+     */
+    private static void choosePathfindingMode(Labyrinth labyrinth) {
+        int rooms = labyrinth.getRoomCount();
+        if (rooms <= ALL_PAIRS_MAX_ROOMS) {
+            labyrinth.setPathfindingMode(PathfindingMode.ALL_PAIRS);
+        } else if (rooms >= HIERARCHICAL_MIN_ROOMS) {
+            labyrinth.setPathfindingMode(PathfindingMode.HIERARCHICAL);
+        } else if (2.0 * labyrinth.getConnectionCount() / rooms < CORRIDOR_MAX_DEGREE) {
+            // Em corredores a heurística de Manhattan engana o A*; a BFS bidirecional expande menos
+            labyrinth.setPathfindingMode(PathfindingMode.BIDIRECTIONAL);
+        }
+    }
+
+    /**
+     * Verifica se o tesouro é alcançável e avisa se não for; o mapa carrega na mesma.
+     * Com plano, exige que as alavancas abram mesmo as portas precisas a partir de todas as
+     * entradas; sem plano (mapas grandes demais), ignora as trancas.
+     */
     private static void validateMapConectivity(Labyrinth labyrinth) {
         String start = labyrinth.getStartRoomId();
         String treasure = labyrinth.getTreasureRoom();
 
         if (start == null || treasure == null) {
-            System.out.println("Mapa sem fim ou inicio");
+            System.err.println("Mapa inválido: sem fim ou inicio");
             return;
         }
-        boolean foundTreasure = false;
-
-        try{
-            Iterator<String> it = labyrinth.iteratorBFS(start);
-            while (it.hasNext()) {
-                String room = it.next();
-                if (room.equals(treasure)) {
-                    foundTreasure = true;
-                    break;
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("Erro ao validar" + e.getMessage());
-        }
+        LeverPlan plan = labyrinth.getLeverPlan();
+        boolean foundTreasure = plan != null && plan.isAvailable()
+                ? plan.isSolvable()
+                : labyrinth.isConnected(start, treasure);
 
         if (!foundTreasure) {
-            throw new RuntimeException("Mapa inválido, o tesouro é inalcançável");
+            System.err.println("Mapa inválido, o tesouro é inalcançável");
         } else {
             System.out.println("Validação do Mapa concluida com sucesso");
         }
@@ -217,23 +427,23 @@ public class MapLoader {
      * Cria o grafo de conexões.
      */
     private static Labyrinth createLabyrinthFromGrid(int[][] gridData) {
-        Labyrinth labyrinth = new Labyrinth();
         int rows = gridData.length;
-        if (rows == 0) return labyrinth;
+        if (rows == 0) return new Labyrinth();
         int cols = gridData[0].length;
+        Labyrinth labyrinth = new Labyrinth(cols, rows);
 
-        // FASE 1: Criar todas as Salas (Vértices)
+        // FASE 1: Criar todas as Salas (Vértices) diretamente nos arrays do labirinto
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
                 int code = gridData[y][x];
                 if (code != EMPTY) {
-                    Room room = createRoom(x, y, code);
-                    labyrinth.addRoom(room);
+                    labyrinth.addRoom(x, y, roomTypeOf(code));
                     if (code == START) {
-                        labyrinth.addEntryPoint(room.getId());
-                        labyrinth.setStartRoom(room.getId());
+                        String id = x + "-" + y;
+                        labyrinth.addEntryPoint(id);
+                        labyrinth.setStartRoom(id);
                     }
-                    if (code == EXIT) labyrinth.setTreasureRoom(room.getId());
+                    if (code == EXIT) labyrinth.setTreasureRoom(x + "-" + y);
                 }
             }
         }
@@ -241,44 +451,34 @@ public class MapLoader {
         // FASE 2: Criar Conexões (Arestas)
         for (int y = 0; y < rows; y++) {
             for (int x = 0; x < cols; x++) {
-                Room current = labyrinth.getRoomAt(x, y);
-                if (current == null) continue;
+                int current = labyrinth.getRoomIndexAt(x, y);
+                if (current == -1) continue;
 
                 // Liga com vizinho de CIMA
                 if (y > 0) {
-                    Room up = labyrinth.getRoomAt(x, y - 1);
-                    if (up != null) {
-                        // [REFATORADO] Adiciona conexão ao grafo
-                        labyrinth.addConnection(current, up);
-                    }
+                    int up = labyrinth.getRoomIndexAt(x, y - 1);
+                    if (up != -1) labyrinth.addConnection(current, up);
                 }
 
                 // Liga com vizinho da ESQUERDA
                 if (x > 0) {
-                    Room left = labyrinth.getRoomAt(x - 1, y);
-                    if (left != null) {
-                        // [REFATORADO] Adiciona conexão ao grafo
-                        labyrinth.addConnection(current, left);
-                    }
+                    int left = labyrinth.getRoomIndexAt(x - 1, y);
+                    if (left != -1) labyrinth.addConnection(current, left);
                 }
             }
         }
         return labyrinth;
     }
 
-    private static Room createRoom(int x, int y, int code) {
-        String id = x + "-" + y;
-        RoomType type;
-        String label = "";
+    private static RoomType roomTypeOf(int code) {
         switch (code) {
-            case START:   type = RoomType.START; label = ""; break;
-            case EXIT:    type = RoomType.EXIT; label = ""; break;
-            case RIDDLE:  type = RoomType.RIDDLE; label = ""; break;
-            case PENALTY: type = RoomType.PENALTY; label = ""; break;
-            case BOOST:   type = RoomType.BOOST; label = ""; break;
-            case LEVER:   type = RoomType.LEVER; label = ""; break;
-            default:      type = RoomType.NORMAL; label = ""; break;
+            case START:   return RoomType.START;
+            case EXIT:    return RoomType.EXIT;
+            case RIDDLE:  return RoomType.RIDDLE;
+            case PENALTY: return RoomType.PENALTY;
+            case BOOST:   return RoomType.BOOST;
+            case LEVER:   return RoomType.LEVER;
+            default:      return RoomType.NORMAL;
         }
-        return new Room(id, type, label);
     }
 }
\ No newline at end of file
@@ -11,7 +11,7 @@ import java.io.IOException;
  * para listar mapas, gravar novos mapas em JSON
  *
  * @author Hugo Gonçalves
- * @version 1.0
+ * @version 1.1
  */
 public class MapManager {
 
@@ -107,6 +107,8 @@ public class MapManager {
        } catch (IOException e) {
            System.err.println("Erro ao gravar: " + e.getMessage());
        }
+       // O próximo carregamento lê o ficheiro novo, mesmo que tenha sido gravado no mesmo segundo
+       MapLoader.forgetTemplate(file);
    }
 }
 
@@ -1,64 +1,294 @@
 package com.jogogloria.model;
 
-import com.jogogloria.utils.ExtendedWeightedGraph;
+import com.jogogloria.utils.AllPairsTable;
+import com.jogogloria.utils.DisjointSet;
+import com.jogogloria.utils.DistanceField;
+import com.jogogloria.utils.HierarchicalPathfinder;
+import com.jogogloria.utils.IntMap;
+import com.jogogloria.utils.JumpPointSearch;
+import com.jogogloria.utils.PathCache;
+import com.jogogloria.utils.SparseGraph;
 import com.example.Biblioteca.lists.ArrayUnorderedList;
 import com.example.Biblioteca.exceptions.EmptyCollectionException;
 import com.jogogloria.utils.SimpleMap;
 import com.example.Biblioteca.iterators.Iterator;
 
 /**
- * Labyrinth implementado com Grafo Pesado (WeightedGraph).
+ * Labyrinth implementado com um grafo esparso ({@link SparseGraph}).
+ * <p>
+ * Cada sala recebe um índice inteiro denso; as arestas e o estado de tranca
+ * vivem em arrays primitivos, por isso mapas grandes já não precisam da matriz V×V.
+ * </p>
+ * <p>
+ * Os dados das salas também vivem em arrays paralelos (tipo num {@code byte}, visibilidade num
+ * conjunto de bits, alavancas e etiquetas em tabelas esparsas). Os objetos {@link Room} são vistas
+ * criadas só quando a interface gráfica ou código antigo as pede.
+ * </p>
+ * <p>
+ * As alavancas têm um registo próprio: cada uma recebe uma posição (pela ordem em que é colocada
+ * numa sala), é encontrada pelo ID num mapa e o seu estado é um bit. Guardar, repor ou procurar
+ * alavancas custa o número de alavancas e não o número de salas.
+ * </p>
+ * <p>
+ * O algoritmo das pesquisas ponto-a-ponto é escolhido por labirinto com {@link #setPathfindingMode}.
+ * </p>
+ * <p>
+ * Vários jogos sobre o mesmo mapa usam cópias leves de um labirinto modelo ({@link #newOverlay()}):
+ * a topologia, os tipos e etiquetas das salas, o plano das alavancas e os dados de pesquisa já
+ * calculados são partilhados; cada cópia só tem de seu as trancas, a visibilidade e as alavancas.
+ * O que é partilhado nunca é escrito; quem o altera primeiro copia-o (copy-on-write).
+ * </p>
  *
  * @author Hugo Gonçalves
- * @version 5.0
+ * @version 7.2
  */
 public class Labyrinth {
 
     // --- Constantes de Peso ---
-    private static final double COST_OPEN = 1.0;
-    private static final double COST_LOCKED = 10000.0;
+    private static final double COST_LOCKED = SparseGraph.COST_LOCKED;
 
     // --- Estruturas ---
 
-    // O Teu WeightedGraph
-    public final ExtendedWeightedGraph<String> graphStructure;
+    // Grafo esparso indexado por inteiros
+    private final SparseGraph graph;
 
-    // Mapa auxiliar para guardar os dados das Salas (Room)
+    // Grelha: índice do vértice de cada célula y * cols + x (-1 = vazia), acesso O(1) por coordenadas
+    private final int cols;
+    private final int rows;
+    private int[] cellIndex;
+
+    // Mapa auxiliar para salas cujo ID não corresponde a uma célula da grelha
     private final SimpleMap<String, Room> roomMap;
 
-    //Lista para iterar sobre as salas de forma sequencial
-    private final ArrayUnorderedList<Room> allRooms;
+    // --- Dados das salas em arrays paralelos, indexados pelo vértice (as coordenadas vivem no grafo) ---
+    private byte[] roomTypes;
+    private long[] visibleBits;
+    private final IntMap<Lever> levers;
+    private IntMap<String> labels;
+
+    // Registo das alavancas: objeto e sala de cada posição, posição de cada ID e bits de ativação
+    private Lever[] leverList;
+    private int[] leverRooms;
+    private int leverCount;
+    private SimpleMap<String, Integer> leverSlots;
+    private long[] activatedLevers;
+
+    // Índices das células, tipos, etiquetas e entradas partilhados com outras cópias (copiados antes de mudar)
+    private boolean roomsShared;
+
+    // Objetos Room criados a pedido (vistas) ou recebidos em addRoom(Room); null até serem pedidos
+    private Room[] views;
+
+    // Lista de todas as salas para os iteradores antigos (só é construída na primeira chamada)
+    private ArrayUnorderedList<Room> allRooms;
+
+    private static final Room.RoomType[] ROOM_TYPES = Room.RoomType.values();
 
     // Auxiliares de Jogo
-    private final ArrayUnorderedList<String> entryPoints;
+    private ArrayUnorderedList<String> entryPoints;
     private String startRoomId;
     private String endRoomId;
 
+    // Campos de distâncias até ao tesouro e até à entrada (refeitos quando as trancas mudam)
+    private DistanceField treasureField;
+    private DistanceField startField;
+
+    // Algoritmo das pesquisas ponto-a-ponto
+    private PathfindingMode pathfindingMode = PathfindingMode.ASTAR;
+    private JumpPointSearch jumpPointSearch;
+    private HierarchicalPathfinder hierarchy;
+    private AllPairsTable allPairs;
+
+    // Alcançabilidade: salas ligadas por portas abertas e salas ligadas por qualquer passagem
+    private DisjointSet openSets;
+    private DisjointSet structureSets;
+    private long reachEpoch = -1;
+
+    // Cache LRU dos caminhos ponto-a-ponto (esvaziada quando a época do grafo muda; criada na primeira pesquisa)
+    private PathCache pathCache;
+
+    // Plano das alavancas (calculado no carregamento do mapa)
+    private LeverPlan leverPlan;
+
+    /**
+     * Cria um labirinto sem grelha (todas as salas ficam no mapa auxiliar)
+     */
     public Labyrinth() {
-        this.graphStructure = new ExtendedWeightedGraph<>();
+        this(0, 0);
+    }
+
+    /**
+     * Cria um labirinto com uma grelha de dimensões conhecidas
+     * @param cols Número de colunas (x)
+     * @param rows Número de linhas (y)
+     */
+    public Labyrinth(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.cellIndex = new int[cols * rows];
+        for (int i = 0; i < cellIndex.length; i++) cellIndex[i] = -1;
+        this.graph = new SparseGraph(Math.max(cols * rows, 16));
         this.roomMap = new SimpleMap<>();
-        this.allRooms = new ArrayUnorderedList<>();
+        int capacity = Math.max(cols * rows, 16);
+        this.roomTypes = new byte[capacity];
+        this.visibleBits = new long[(capacity + 63) >>> 6];
+        this.levers = new IntMap<>();
+        this.labels = new IntMap<>();
         this.entryPoints = new ArrayUnorderedList<>();
+        this.leverList = new Lever[4];
+        this.leverRooms = new int[4];
+        this.leverSlots = new SimpleMap<>();
+        this.activatedLevers = new long[1];
+    }
+
+    /**
+     * Cópia para um novo jogo (ver {@link #newOverlay()})
+     */
+    private Labyrinth(Labyrinth shared) {
+        this.graph = shared.graph.overlay();
+        this.cols = shared.cols;
+        this.rows = shared.rows;
+        this.cellIndex = shared.cellIndex;
+        this.roomTypes = shared.roomTypes;
+        this.labels = shared.labels;
+        this.entryPoints = shared.entryPoints;
+        this.roomsShared = true;
+        shared.roomsShared = true;
+        this.visibleBits = shared.visibleBits.clone();
+        this.startRoomId = shared.startRoomId;
+        this.endRoomId = shared.endRoomId;
+
+        // Salas fora da grelha: vistas novas com o mesmo ID
+        this.roomMap = new SimpleMap<>();
+        if (shared.roomMap.size() > 0) {
+            for (int v = 0; v < graph.size(); v++) {
+                Room room = shared.views[v];
+                if (room != null && shared.cellOf(room.getId()) == -1) {
+                    Room view = room.viewIn(this);
+                    views()[v] = view;
+                    roomMap.put(view.getId(), view);
+                }
+            }
+        }
+
+        // Alavancas: objetos novos ligados às vistas desta cópia, nas mesmas posições do registo;
+        // o estado de ativação (de cada jogo) é uma cópia dos bits
+        this.leverCount = shared.leverCount;
+        this.leverRooms = shared.leverRooms.clone();
+        this.activatedLevers = shared.activatedLevers.clone();
+        this.leverList = new Lever[shared.leverList.length];
+        this.leverSlots = new SimpleMap<>(leverCount);
+        this.levers = new IntMap<>(leverCount);
+        for (int slot = 0; slot < leverCount; slot++) {
+            Lever lever = shared.leverList[slot];
+            Lever copy = new Lever(lever.getId(), viewOf(shared, lever.getRoomA()), viewOf(shared, lever.getRoomB()));
+            copy.attach(this, slot);
+            leverList[slot] = copy;
+            leverSlots.put(copy.getId(), slot);
+            levers.put(leverRooms[slot], copy);
+        }
+
+        // Dados de pesquisa já calculados: partilhados até a primeira porta mudar
+        if (shared.treasureField != null) treasureField = new DistanceField(graph, shared.treasureField);
+        if (shared.startField != null) startField = new DistanceField(graph, shared.startField);
+        this.pathfindingMode = shared.pathfindingMode;
+        if (shared.hierarchy != null) hierarchy = new HierarchicalPathfinder(graph, shared.hierarchy);
+        if (shared.allPairs != null) allPairs = new AllPairsTable(graph, shared.allPairs);
+        if (shared.leverPlan != null) leverPlan = shared.leverPlan.forLabyrinth(this);
+    }
+
+    /**
+     * Cria um labirinto para um novo jogo sobre o mesmo mapa.
+     * A cópia começa com as trancas, a visibilidade e as alavancas deste labirinto, mas a partir
+     * daí é independente: abrir portas, revelar salas ou ativar alavancas numa não afeta a outra.
+     * Não copia a topologia nem os dados de pesquisa (só os bits de visibilidade, V / 8 bytes, e as
+     * alavancas), por isso é praticamente instantânea. Cada cópia deve ser usada por uma só thread
+     * de cada vez; cópias diferentes podem ser usadas em paralelo desde que o modelo não seja alterado.
+     * @return A cópia
+     */
+    public Labyrinth newOverlay() {
+        return new Labyrinth(this);
+    }
+
+    /**
+     * Sala equivalente nesta cópia a uma sala do labirinto partilhado
+     */
+    private Room viewOf(Labyrinth shared, Room room) {
+        int index = shared.getRoomIndex(room);
+        return index == -1 ? room : getRoomByIndex(index);
+    }
+
+    /**
+     * Calcula já os campos de distâncias até ao tesouro e até à entrada (em vez de na primeira
+     * consulta), para que as cópias de {@link #newOverlay()} os recebam prontos.
+     */
+    public void prepareDistanceFields() {
+        DistanceField field = fieldFor(endRoomId);
+        if (field != null) field.distance(field.getTarget());
+        field = fieldFor(startRoomId);
+        if (field != null) field.distance(field.getTarget());
     }
 
     /**
      * Adiciona uma sala (Vértice).
+     * O estado da sala (tipo, etiqueta, alavanca, visibilidade) é copiado para os arrays do
+     * labirinto e a sala passa a ser a vista desse índice.
      */
     public void addRoom(Room room) {
         if (room == null) return;
         String id = room.getId();
+        if (indexOf(id) != -1) return;
+
+        ownRooms();
+        int index = graph.addVertex(room.getX(), room.getY());
+        ensureRoomCapacity(index);
+        roomTypes[index] = (byte) room.getType().ordinal();
+        if (room.getLabel() != null && !room.getLabel().isEmpty()) labels.put(index, room.getLabel());
+        Lever lever = room.getLever();
+        setRoomVisible(index, room.isVisible());
 
-        if (!roomMap.containsKey(id)) {
+        room.attach(this, index);
+        if (lever != null) setRoomLever(index, lever);
+        views()[index] = room;
+        int cell = cellOf(id);
+        if (cell != -1) {
+            cellIndex[cell] = index;
+        } else {
             roomMap.put(id, room);
-            graphStructure.addVertex(id);
-            allRooms.addToRear(room);
         }
+        if (allRooms != null) allRooms.addToRear(room);
+        invalidatePathData();
+    }
+
+    /**
+     * Adiciona uma sala da grelha sem criar nenhum objeto {@code Room}
+     * (o objeto só é criado se alguém o pedir, por exemplo a interface gráfica).
+     * @return O índice da sala, ou -1 se as coordenadas estiverem fora da grelha
+     */
+    public int addRoom(int x, int y, Room.RoomType type) {
+        if (x < 0 || y < 0 || x >= cols || y >= rows) return -1;
+        int cell = y * cols + x;
+        if (cellIndex[cell] != -1) return cellIndex[cell];
+
+        ownRooms();
+        int index = graph.addVertex(x, y);
+        ensureRoomCapacity(index);
+        roomTypes[index] = (byte) type.ordinal();
+        cellIndex[cell] = index;
+        if (allRooms != null) allRooms.addToRear(getRoomByIndex(index));
+        invalidatePathData();
+        return index;
     }
 
     /**
-     * Método essencial para o GameEngine percorrer as alavancas
+     * Método essencial para o GameEngine percorrer as alavancas.
+     * Na primeira chamada cria as vistas de todas as salas; nos ciclos quentes usam-se os acessos por índice.
      */
     public Iterator<Room> getRoomsIterator() {
+        if (allRooms == null) {
+            allRooms = new ArrayUnorderedList<>();
+            for (int v = 0; v < graph.size(); v++) allRooms.addToRear(getRoomByIndex(v));
+        }
         return allRooms.iterator();
     }
 
@@ -68,78 +298,791 @@ public class Labyrinth {
      */
     public void addConnection(Room rA, Room rB) {
         if (rA == null || rB == null) return;
+        addConnection(getRoomIndex(rA), getRoomIndex(rB));
+    }
 
-        graphStructure.addEdge(rA.getId(), rB.getId(), COST_OPEN);
+    /**
+     * Adiciona uma conexão aberta entre duas salas dadas pelo índice
+     */
+    public void addConnection(int a, int b) {
+        if (!graph.indexValid(a) || !graph.indexValid(b)) return;
+
+        int edges = graph.getNumEdges();
+        long epoch = graph.getEpoch();
+        graph.addEdge(a, b);
+        if (graph.getNumEdges() != edges) {
+            repairPathData(a, b, SparseGraph.INFINITY, SparseGraph.COST_OPEN);
+            updateReachability(a, b, SparseGraph.INFINITY, SparseGraph.COST_OPEN, epoch);
+        }
     }
 
     /**
-     * Tranca ou destranca uma passagem alterando o PESO da aresta.
+     * Tranca ou destranca uma passagem alterando o estado da aresta.
+     * Tal como no grafo antigo, se a aresta não existir é criada.
+     * Se o estado mudar, a época da topologia avança.
      */
     public void setConnectionLocked(String idA, String idB, boolean locked) {
-        double weight = locked ? COST_LOCKED : COST_OPEN;
-        graphStructure.addEdge(idA, idB, weight);
+        int a = indexOf(idA);
+        int b = indexOf(idB);
+        int edges = graph.getNumEdges();
+        long epoch = graph.getEpoch();
+        int edge = graph.addEdge(a, b);
+        if (edge == -1) return;
+
+        boolean created = graph.getNumEdges() != edges;
+        if (graph.isLocked(edge) != locked || created) {
+            int oldCost = created ? SparseGraph.INFINITY : graph.getEdgeCost(edge);
+            graph.setLocked(edge, locked);
+            repairPathData(a, b, oldCost, graph.getEdgeCost(edge));
+            updateReachability(a, b, oldCost, graph.getEdgeCost(edge), epoch);
+        }
     }
 
     /**
      * Verifica se o movimento é válido.
-     * Agora consulta o PESO da aresta no grafo.
+     * Consulta diretamente a aresta entre as duas salas em O(1), sem pesquisar caminhos.
      */
     public boolean isValidMove(String fromId, String toId) {
-        // 1. Verifica o peso da aresta entre as duas salas vizinhas
-        double weight = graphStructure.shortestPathWeight(fromId, toId);
+        // 1. Procura a aresta direta entre as duas salas vizinhas
+        int edge = graph.findEdge(indexOf(fromId), indexOf(toId));
 
-        // 2. Se for Infinito, não há conexão (Parede)
-        if (weight == Double.POSITIVE_INFINITY) return false;
+        // 2. Sem aresta, não há conexão (Parede)
+        if (edge == -1) return false;
 
-        // 3. Se for >= COST_LOCKED, está trancado
-        if (weight >= COST_LOCKED) return false;
-
-        // 4. Caso contrário (peso 1.0), é válido
-        return true;
+        // 3. Aresta com custo COST_LOCKED está trancada
+        return graph.getEdgeCost(edge) < COST_LOCKED;
     }
 
     /**
      * Verifica se uma conexão está trancada (usado pela GUI para desenhar portas).
      */
     public boolean isLocked(String idA, String idB) {
-        double weight = graphStructure.getEdgeWeight(idA, idB);
-        return weight >= COST_LOCKED && weight != Double.POSITIVE_INFINITY;
+        return graph.isLocked(graph.findEdge(indexOf(idA), indexOf(idB)));
+    }
+
+    /**
+     * Verifica se existe uma aresta (aberta ou trancada) entre duas salas.
+     * Usado pela GUI para decidir onde desenhar paredes.
+     */
+    public boolean hasConnection(String idA, String idB) {
+        return graph.findEdge(indexOf(idA), indexOf(idB)) != -1;
+    }
+
+    // --- Vizinhos sem alocações (índices inteiros) ---
+
+    /**
+     * Índice de uma sala no grafo, para usar com {@link #getNeighborCount} e {@link #getNeighbor}
+     * @return O índice, ou -1 se a sala não pertencer a este labirinto
+     */
+    public int getRoomIndex(Room room) {
+        if (room == null) return -1;
+        int index = room.getIndex();
+        return graph.indexValid(index) && views != null && views[index] == room ? index : -1;
+    }
+
+    /**
+     * Índice de uma sala a partir do ID
+     * @return O índice, ou -1 se a sala não existir
+     */
+    public int getRoomIndex(String id) {
+        return indexOf(id);
+    }
+
+    /**
+     * Índice da sala nas coordenadas indicadas
+     * @return O índice, ou -1 se não houver sala
+     */
+    public int getRoomIndexAt(int x, int y) {
+        if (x >= 0 && y >= 0 && x < cols && y < rows) return cellIndex[y * cols + x];
+        return indexOf(x + "-" + y);
+    }
+
+    /**
+     * Sala com um dado índice (cria a vista na primeira vez que é pedida)
+     */
+    public Room getRoomByIndex(int index) {
+        if (!graph.indexValid(index)) return null;
+        Room[] all = views();
+        if (all[index] == null) all[index] = new Room(this, index, graph.getX(index), graph.getY(index));
+        return all[index];
+    }
+
+    /**
+     * ID de uma sala a partir do índice, sem criar a vista
+     */
+    public String getRoomId(int index) {
+        if (!graph.indexValid(index)) return null;
+        Room view = views != null ? views[index] : null;
+        return view != null ? view.getId() : graph.getX(index) + "-" + graph.getY(index);
+    }
+
+    // --- Estado das salas por índice (arrays compactos) ---
+
+    public Room.RoomType getRoomType(int index) {
+        return ROOM_TYPES[roomTypes[index]];
+    }
+
+    public String getRoomLabel(int index) {
+        String label = labels.get(index);
+        return label != null ? label : "";
+    }
+
+    public Lever getRoomLever(int index) {
+        return levers.get(index);
+    }
+
+    /**
+     * Coloca (ou retira, com null) a alavanca de uma sala e atualiza o registo das alavancas.
+     * Uma alavanca nova numa sala que já tinha uma fica com a posição da anterior.
+     */
+    public void setRoomLever(int index, Lever lever) {
+        Lever old = levers.get(index);
+        if (old == lever) return;
+        levers.put(index, lever);
+
+        int slot = old != null ? old.getSlot() : -1;
+        if (old != null) {
+            leverSlots.remove(old.getId());
+            if (lever == null) {
+                removeLever(slot);
+                return;
+            }
+            // A alavanca antiga deixa de mexer nos bits da posição que passa para a nova
+            old.detach();
+        }
+        if (lever == null) return;
+
+        if (slot == -1) {
+            slot = leverCount++;
+            ensureLeverCapacity(leverCount);
+        }
+        boolean activated = lever.isActivated();
+        leverList[slot] = lever;
+        leverRooms[slot] = index;
+        leverSlots.put(lever.getId(), slot);
+        lever.attach(this, slot);
+        setLeverActivated(slot, activated);
+    }
+
+    // --- Registo das alavancas (por posição, 0 .. getLeverCount() - 1) ---
+
+    /** Número de alavancas registadas */
+    public int getLeverCount() {
+        return leverCount;
+    }
+
+    /** Alavanca numa posição do registo */
+    public Lever getLever(int slot) {
+        return leverList[slot];
+    }
+
+    /**
+     * Procura uma alavanca pelo ID, em O(1)
+     * @return A alavanca, ou null se não existir
+     */
+    public Lever getLeverById(String id) {
+        Integer slot = id == null ? null : leverSlots.get(id);
+        return slot == null ? null : leverList[slot];
+    }
+
+    /** Índice da sala onde está a alavanca de uma posição */
+    public int getLeverRoom(int slot) {
+        return leverRooms[slot];
+    }
+
+    public boolean isLeverActivated(int slot) {
+        return (activatedLevers[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public void setLeverActivated(int slot, boolean activated) {
+        if (activated) activatedLevers[slot >>> 6] |= 1L << slot;
+        else activatedLevers[slot >>> 6] &= ~(1L << slot);
+    }
+
+    /**
+     * Estado de todas as alavancas: o bit {@code i} é a alavanca da posição {@code i}
+     * @return Uma cópia dos bits ({@code (getLeverCount() + 63) / 64} longs)
+     */
+    public long[] getActivatedLevers() {
+        long[] bits = new long[(leverCount + 63) >>> 6];
+        System.arraycopy(activatedLevers, 0, bits, 0, bits.length);
+        return bits;
+    }
+
+    /**
+     * Primeira posição {@code >= from} de uma alavanca ativada
+     * @return A posição, ou -1 se não houver mais alavancas ativadas
+     */
+    public int nextActivatedLever(int from) {
+        int word = from >>> 6;
+        if (from >= leverCount) return -1;
+        long bits = activatedLevers[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return slot < leverCount ? slot : -1;
+            }
+            if (++word >= activatedLevers.length) return -1;
+            bits = activatedLevers[word];
+        }
+    }
+
+    /**
+     * Retira a alavanca de uma posição; a última alavanca passa para essa posição
+     */
+    private void removeLever(int slot) {
+        leverList[slot].detach();
+        int last = --leverCount;
+        if (slot != last) {
+            Lever moved = leverList[last];
+            boolean activated = isLeverActivated(last);
+            leverList[slot] = moved;
+            leverRooms[slot] = leverRooms[last];
+            leverSlots.put(moved.getId(), slot);
+            moved.attach(this, slot);
+            setLeverActivated(slot, activated);
+        }
+        leverList[last] = null;
+        setLeverActivated(last, false);
+    }
+
+    private void ensureLeverCapacity(int count) {
+        if (count > leverList.length) {
+            Lever[] list = new Lever[leverList.length * 2];
+            System.arraycopy(leverList, 0, list, 0, leverList.length);
+            leverList = list;
+            int[] rooms = new int[list.length];
+            System.arraycopy(leverRooms, 0, rooms, 0, leverRooms.length);
+            leverRooms = rooms;
+        }
+        if (count > activatedLevers.length << 6) {
+            long[] bits = new long[activatedLevers.length * 2];
+            System.arraycopy(activatedLevers, 0, bits, 0, activatedLevers.length);
+            activatedLevers = bits;
+        }
+    }
+
+    public boolean isRoomVisible(int index) {
+        return (visibleBits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void setRoomVisible(int index, boolean visible) {
+        if (visible) visibleBits[index >>> 6] |= 1L << index;
+        else visibleBits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Aumenta os arrays das salas para caber o índice indicado
+     */
+    private void ensureRoomCapacity(int index) {
+        if (index < roomTypes.length) return;
+        int capacity = Math.max(roomTypes.length * 2, index + 1);
+        byte[] types = new byte[capacity];
+        System.arraycopy(roomTypes, 0, types, 0, roomTypes.length);
+        roomTypes = types;
+        if (views != null) {
+            Room[] grownViews = new Room[capacity];
+            System.arraycopy(views, 0, grownViews, 0, views.length);
+            views = grownViews;
+        }
+        long[] bits = new long[(capacity + 63) >>> 6];
+        System.arraycopy(visibleBits, 0, bits, 0, visibleBits.length);
+        visibleBits = bits;
+    }
+
+    /**
+     * Array das vistas, criado quando a primeira vista é pedida
+     */
+    private Room[] views() {
+        if (views == null) views = new Room[roomTypes.length];
+        return views;
+    }
+
+    /**
+     * Copia os dados das salas partilhados com outras cópias antes de os alterar
+     */
+    private void ownRooms() {
+        if (!roomsShared) return;
+        cellIndex = cellIndex.clone();
+        roomTypes = roomTypes.clone();
+        IntMap<String> ownLabels = new IntMap<>(labels.size());
+        for (int v : labels.keys()) ownLabels.put(v, labels.get(v));
+        labels = ownLabels;
+        ArrayUnorderedList<String> ownEntries = new ArrayUnorderedList<>();
+        Iterator<String> it = entryPoints.iterator();
+        while (it.hasNext()) ownEntries.addToRear(it.next());
+        entryPoints = ownEntries;
+        roomsShared = false;
+    }
+
+    /**
+     * Número de vizinhos (abertos ou trancados) de uma sala; no máximo 4 numa grelha
+     * @return O número de vizinhos, ou 0 se o índice for inválido
+     */
+    public int getNeighborCount(int index) {
+        return graph.indexValid(index) ? graph.getDegree(index) : 0;
+    }
+
+    /**
+     * Índice do vizinho {@code k} de uma sala ({@code 0 <= k < getNeighborCount(index)})
+     */
+    public int getNeighbor(int index, int k) {
+        return graph.getNeighbor(index, k);
+    }
+
+    /**
+     * Verifica se a passagem para o vizinho {@code k} está aberta (equivalente a {@link #isValidMove})
+     */
+    public boolean isNeighborOpen(int index, int k) {
+        return !graph.isLocked(graph.getEdge(index, k));
     }
 
     //Metodo getNeighbors
 
     /**
-     * Obtém a lista de vizinhos diretos de uma sala.
-     * Agora delega diretamente para a subclasse do grafo.
+     * Obtém a lista de vizinhos diretos de uma sala (ligações abertas ou trancadas).
+     * Cria uma lista nova em cada chamada; nos ciclos do motor e dos bots usa-se
+     * {@link #getNeighborCount} / {@link #getNeighbor}, que não alocam nada.
      */
     public ArrayUnorderedList<String> getNeighbors(String roomId) {
-        // Chama o método que criaste na ExtendedWeightedGraph
-        return graphStructure.getNeighbors(roomId);
+        ArrayUnorderedList<String> result = new ArrayUnorderedList<>();
+        int v = indexOf(roomId);
+        if (!graph.indexValid(v)) return result;
+
+        for (int k = 0; k < graph.getDegree(v); k++) {
+            result.addToRear(getRoomId(graph.getNeighbor(v, k)));
+        }
+        return result;
+    }
+
+    // --- Alcançabilidade ---
+
+    /**
+     * Verifica se é possível ir de uma sala a outra neste momento, só por portas abertas.
+     * Responde em tempo praticamente constante (union-find mantido à medida que as portas abrem).
+     */
+    public boolean canReach(String idA, String idB) {
+        int a = indexOf(idA), b = indexOf(idB);
+        if (a == -1 || b == -1) return false;
+        ensureReachability();
+        return openSets.connected(a, b);
+    }
+
+    /**
+     * Verifica se duas salas estão ligadas por passagens, ignorando as trancas
+     * (ou seja, se as alavancas podem vir a abrir caminho entre elas).
+     */
+    public boolean isConnected(String idA, String idB) {
+        int a = indexOf(idA), b = indexOf(idB);
+        if (a == -1 || b == -1) return false;
+        ensureReachability();
+        return structureSets.connected(a, b);
+    }
+
+    // --- Plano das alavancas ---
+
+    /**
+     * Calcula o plano das alavancas com o estado atual das portas (todas as alavancas por ativar).
+     * Deve ser chamado depois de carregadas as trancas e as alavancas do mapa.
+     * @return O plano calculado
+     */
+    public LeverPlan planLevers() {
+        leverPlan = new LeverPlan(this);
+        return leverPlan;
+    }
+
+    /**
+     * Plano das alavancas calculado no carregamento
+     * @return O plano, ou null se o mapa não foi planeado
+     */
+    public LeverPlan getLeverPlan() {
+        return leverPlan;
+    }
+
+    /**
+     * Atualiza os conjuntos de alcançabilidade depois de uma aresta mudar.
+     * Abrir ou criar passagens só junta conjuntos; voltar a trancar uma porta aberta (undo)
+     * não se consegue desfazer num union-find, por isso os conjuntos ficam desatualizados
+     * e são reconstruídos na próxima consulta.
+     * @param epochBefore Época do grafo antes da alteração
+     */
+    private void updateReachability(int a, int b, int oldCost, int newCost, long epochBefore) {
+        if (reachEpoch != epochBefore) return;
+
+        if (newCost == SparseGraph.COST_OPEN) {
+            openSets.union(a, b);
+            structureSets.union(a, b);
+        } else if (oldCost == SparseGraph.INFINITY) {
+            structureSets.union(a, b);
+        } else {
+            return;
+        }
+        reachEpoch = graph.getEpoch();
+    }
+
+    /**
+     * Reconstrói os conjuntos de alcançabilidade se estiverem desatualizados
+     */
+    private void ensureReachability() {
+        if (reachEpoch == graph.getEpoch()) return;
+
+        int n = graph.size();
+        if (openSets == null || openSets.size() != n) {
+            openSets = new DisjointSet(n);
+            structureSets = new DisjointSet(n);
+        } else {
+            openSets.reset();
+            structureSets.reset();
+        }
+
+        for (int v = 0; v < n; v++) {
+            for (int k = 0; k < graph.getDegree(v); k++) {
+                int w = graph.getNeighbor(v, k);
+                if (w < v) continue;
+                structureSets.union(v, w);
+                if (!graph.isLocked(graph.getEdge(v, k))) openSets.union(v, w);
+            }
+        }
+        reachEpoch = graph.getEpoch();
     }
 
     // --- Pathfinding & Iteradores ---
 
+    /**
+     * Caminho mais curto entre duas salas.
+     * Com a tabela completa é só seguir os próximos passos da tabela; caso contrário, se o destino
+     * for o tesouro ou a entrada, segue o campo de distâncias já calculado.
+     */
     public Iterator<String> getShortestPath(String startId, String targetId) {
-        try {
-            return graphStructure.iteratorShortestPath(startId, targetId);
-        } catch (EmptyCollectionException | IllegalArgumentException e) {
-            return new ArrayUnorderedList<String>().iterator();
+        if (useAllPairs()) {
+            int[] path = allPairs.path(indexOf(startId), indexOf(targetId));
+            if (path.length > 0) return toIdList(path).iterator();
+        }
+        DistanceField field = fieldFor(targetId);
+        if (field != null) {
+            return toIdList(field.pathFrom(indexOf(startId))).iterator();
+        }
+        return toIdList(findPath(indexOf(startId), indexOf(targetId))).iterator();
+    }
+
+    /**
+     * Custo do caminho mais curto entre duas salas (portas trancadas custam {@code COST_LOCKED}).
+     * @return O custo, ou {@link Double#POSITIVE_INFINITY} se não houver caminho
+     */
+    public double shortestPathWeight(String startId, String targetId) {
+        if (useAllPairs()) {
+            int cost = allPairs.distance(indexOf(startId), indexOf(targetId));
+            if (cost != SparseGraph.INFINITY) return cost;
+        }
+        DistanceField field = fieldFor(targetId);
+        int cost;
+        if (field != null) {
+            cost = field.distance(indexOf(startId));
+        } else if (pathfindingMode == PathfindingMode.HIERARCHICAL && hierarchy.ensureBuilt()) {
+            cost = hierarchy.pathCost(indexOf(startId), indexOf(targetId));
+            if (cost == SparseGraph.INFINITY) cost = findPathCost(indexOf(startId), indexOf(targetId));
+        } else {
+            cost = findPathCost(indexOf(startId), indexOf(targetId));
+        }
+        return cost == SparseGraph.INFINITY ? Double.POSITIVE_INFINITY : cost;
+    }
+
+    /**
+     * Primeiro passo do caminho mais curto entre duas salas.
+     * Para o tesouro e para a entrada é apenas uma procura entre os vizinhos no campo de distâncias.
+     * @return O ID da sala seguinte, ou {@code null} se já estiver no destino ou não houver caminho
+     */
+    public String getNextStep(String fromId, String targetId) {
+        int from = indexOf(fromId);
+        if (useAllPairs()) {
+            int next = allPairs.nextStep(from, indexOf(targetId));
+            if (next != -1) return getRoomId(next);
+        }
+        DistanceField field = fieldFor(targetId);
+
+        int next = -1;
+        if (field != null) {
+            next = field.nextStep(from);
+        } else {
+            // No modo hierárquico só o primeiro troço do caminho abstrato é refinado
+            if (pathfindingMode == PathfindingMode.HIERARCHICAL && hierarchy.ensureBuilt()) {
+                next = hierarchy.nextStep(from, indexOf(targetId));
+            }
+            if (next == -1) {
+                int[] path = findPath(from, indexOf(targetId));
+                next = path.length > 1 ? path[1] : -1;
+            }
+        }
+        return next == -1 ? null : getRoomId(next);
+    }
+
+    /**
+     * Escolhe o algoritmo das pesquisas ponto-a-ponto deste labirinto.
+     * No modo hierárquico a abstração por setores é construída logo aqui (ao carregar o mapa).
+     */
+    public void setPathfindingMode(PathfindingMode mode) {
+        if (mode == null) return;
+        this.pathfindingMode = mode;
+        if (mode == PathfindingMode.HIERARCHICAL) {
+            if (hierarchy == null) hierarchy = new HierarchicalPathfinder(graph);
+            hierarchy.ensureBuilt();
+        }
+        if (mode == PathfindingMode.ALL_PAIRS) {
+            if (allPairs == null) allPairs = new AllPairsTable(graph);
+            allPairs.ensureBuilt();
+        }
+    }
+
+    /**
+     * Verifica se as consultas devem ser respondidas pela tabela completa
+     * (modo escolhido e mapa dentro do limite de tamanho da tabela)
+     */
+    private boolean useAllPairs() {
+        return pathfindingMode == PathfindingMode.ALL_PAIRS && allPairs.supports();
+    }
+
+    public PathfindingMode getPathfindingMode() {
+        return pathfindingMode;
+    }
+
+    /**
+     * Caminho ponto-a-ponto, servido pela cache enquanto as portas não mudarem
+     * @return O caminho (partilhado com a cache, não deve ser alterado) ou array vazio
+     */
+    private int[] findPath(int from, int to) {
+        int entry = cachedPath(from, to);
+        return entry == -1 ? new int[0] : pathCache().getPath(entry);
+    }
+
+    /**
+     * Custo do caminho ponto-a-ponto, servido pela cache
+     * @return O custo, ou {@link SparseGraph#INFINITY} se não houver caminho
+     */
+    private int findPathCost(int from, int to) {
+        int entry = cachedPath(from, to);
+        return entry == -1 ? SparseGraph.INFINITY : pathCache().getCost(entry);
+    }
+
+    /**
+     * Procura o par na cache (chave: origem, destino e época do grafo); se faltar, pesquisa e guarda
+     * @return A entrada da cache, ou -1 se algum dos índices for inválido
+     */
+    private int cachedPath(int from, int to) {
+        if (!graph.indexValid(from) || !graph.indexValid(to)) return -1;
+        long epoch = graph.getEpoch();
+        int entry = pathCache().find(from, to, epoch);
+        if (entry == -1) {
+            int[] path = searchPath(from, to);
+            entry = pathCache().put(from, to, epoch, path, pathCost(path));
+        }
+        return entry;
+    }
+
+    /**
+     * Pesquisa ponto-a-ponto com o algoritmo escolhido.
+     * O Jump Point Search, a pesquisa hierárquica e a BFS bidirecional só atravessam portas abertas;
+     * se não encontrarem caminho (ou o mapa não for uma grelha) usa-se o A* com pesos, que pode passar
+     * por portas trancadas.
+     */
+    private int[] searchPath(int from, int to) {
+        if (pathfindingMode == PathfindingMode.JUMP_POINT && graph.isGridLayout()) {
+            if (jumpPointSearch == null) jumpPointSearch = new JumpPointSearch(graph);
+            int[] path = jumpPointSearch.findPath(from, to);
+            if (path.length > 0) return path;
+        }
+        if (pathfindingMode == PathfindingMode.HIERARCHICAL && hierarchy.ensureBuilt()) {
+            int[] path = hierarchy.findPath(from, to);
+            if (path.length > 0) return path;
+        }
+        if (pathfindingMode == PathfindingMode.BIDIRECTIONAL) {
+            return openOrWeightedPath(from, to);
+        }
+        return graph.shortestPath(from, to);
+    }
+
+    /**
+     * Se houver caminho só por portas abertas (union-find), todas as arestas custam {@code COST_OPEN}
+     * e basta a BFS bidirecional; caso contrário, ou se o caminho aberto for tão longo que passar
+     * por uma porta trancada ficasse mais barato, usa-se o A* com pesos.
+     */
+    private int[] openOrWeightedPath(int from, int to) {
+        if (from != -1 && to != -1) {
+            ensureReachability();
+            if (openSets.connected(from, to)) {
+                int[] path = graph.openPath(from, to);
+                if (path.length > 0 && path.length - 1 <= COST_LOCKED) return path;
+            }
+        }
+        return graph.shortestPath(from, to);
+    }
+
+    /**
+     * Soma o custo das arestas de um caminho
+     * @return O custo, ou {@link SparseGraph#INFINITY} se o caminho estiver vazio
+     */
+    private int pathCost(int[] path) {
+        if (path.length == 0) return SparseGraph.INFINITY;
+        int cost = 0;
+        for (int i = 1; i < path.length; i++) {
+            cost += graph.getEdgeCost(graph.findEdge(path[i - 1], path[i]));
         }
+        return cost;
+    }
+
+    /**
+     * Obtém o campo de distâncias para um destino, se for o tesouro ou a entrada
+     * @return O campo, ou {@code null} para outros destinos
+     */
+    private DistanceField fieldFor(String targetId) {
+        if (targetId == null) return null;
+
+        if (targetId.equals(endRoomId)) {
+            int target = indexOf(endRoomId);
+            if (target == -1) return null;
+            if (treasureField == null || treasureField.getTarget() != target) {
+                treasureField = new DistanceField(graph, target);
+            }
+            return treasureField;
+        }
+
+        if (targetId.equals(startRoomId)) {
+            int target = indexOf(startRoomId);
+            if (target == -1) return null;
+            if (startField == null || startField.getTarget() != target) {
+                startField = new DistanceField(graph, target);
+            }
+            return startField;
+        }
+        return null;
+    }
+
+    /**
+     * Repara os campos de distâncias depois de o custo de uma aresta mudar
+     * (só a região afetada pela porta é recalculada)
+     */
+    private void repairPathData(int a, int b, int oldCost, int newCost) {
+        if (treasureField != null) treasureField.edgeChanged(a, b, oldCost, newCost);
+        if (startField != null) startField.edgeChanged(a, b, oldCost, newCost);
+        if (jumpPointSearch != null) jumpPointSearch.edgeChanged(a, b);
+        if (hierarchy != null) hierarchy.edgeChanged(a, b);
+    }
+
+    /**
+     * Descarta os dados de caminhos calculados (foram adicionadas salas)
+     */
+    private void invalidatePathData() {
+        if (treasureField != null) treasureField.invalidate();
+        if (startField != null) startField.invalidate();
     }
 
     public Iterator<String> iteratorBFS(String startId) throws EmptyCollectionException {
-        return graphStructure.iteratorBFS(startId);
+        if (graph.size() == 0) throw new EmptyCollectionException("O labirinto está vazio");
+        return toIdList(graph.breadthFirstOrder(indexOf(startId))).iterator();
+    }
+
+    /**
+     * Converte uma sequência de índices do grafo numa lista de IDs de salas
+     */
+    private ArrayUnorderedList<String> toIdList(int[] indices) {
+        ArrayUnorderedList<String> ids = new ArrayUnorderedList<>();
+        for (int index : indices) {
+            ids.addToRear(getRoomId(index));
+        }
+        return ids;
+    }
+
+    /**
+     * Obtém o índice do vértice de uma sala a partir do ID
+     * @return O índice, ou -1 se a sala não existir
+     */
+    private int indexOf(String id) {
+        if (id == null) return -1;
+        int cell = cellOf(id);
+        if (cell != -1) return cellIndex[cell];
+        Room r = roomMap.get(id);
+        return r == null ? -1 : r.getIndex();
+    }
+
+    /**
+     * Converte um ID no formato "x-y" na posição da célula na grelha, sem criar objetos.
+     * @return {@code y * cols + x}, ou -1 se o ID não estiver no formato ou fora da grelha
+     */
+    private int cellOf(String id) {
+        int length = id.length();
+        int x = 0, y = 0, i = 0;
+
+        if (i == length || !Character.isDigit(id.charAt(i))) return -1;
+        while (i < length && Character.isDigit(id.charAt(i))) {
+            x = x * 10 + (id.charAt(i++) - '0');
+            if (x >= cols) return -1;
+        }
+
+        if (i == length || id.charAt(i++) != '-') return -1;
+
+        if (i == length) return -1;
+        while (i < length) {
+            char c = id.charAt(i++);
+            if (!Character.isDigit(c)) return -1;
+            y = y * 10 + (c - '0');
+            if (y >= rows) return -1;
+        }
+        return y * cols + x;
     }
 
     // --- Getters Simples ---
 
-    public Room getRoom(String id) { return roomMap.get(id); }
-    public Room getRoomAt(int x, int y) { return roomMap.get(x + "-" + y); }
+    /**
+     * Obtém uma sala pelo ID. Para IDs "x-y" dentro da grelha é um acesso direto ao array.
+     */
+    public Room getRoom(String id) {
+        if (id == null) return null;
+        int cell = cellOf(id);
+        if (cell != -1) return getRoomByIndex(cellIndex[cell]);
+        return roomMap.get(id);
+    }
+
+    /**
+     * Obtém a sala nas coordenadas indicadas em O(1)
+     */
+    public Room getRoomAt(int x, int y) {
+        if (x >= 0 && y >= 0 && x < cols && y < rows) return getRoomByIndex(cellIndex[y * cols + x]);
+        return roomMap.get(x + "-" + y);
+    }
+
+    /**
+     * Época da topologia: aumenta sempre que uma sala ou passagem é criada ou que uma porta é
+     * trancada ou destrancada. Caches (caminhos, planos dos bots, paredes desenhadas) guardam a
+     * época em que foram calculadas e só precisam de ser refeitas quando ela muda.
+     */
+    public long getTopologyEpoch() { return graph.getEpoch(); }
+
+    /** Cache dos caminhos ponto-a-ponto (para consultar os contadores de acertos e despejos) */
+    public PathCache getPathCache() { return pathCache(); }
+
+    private PathCache pathCache() {
+        if (pathCache == null) pathCache = new PathCache();
+        return pathCache;
+    }
+
+    /** Número de portas trancadas */
+    public int getLockedDoorCount() { return graph.getLockedCount(); }
+
+    /** Número de salas do labirinto */
+    public int getRoomCount() { return graph.size(); }
+
+    /** Número de ligações (abertas ou trancadas) entre salas */
+    public int getConnectionCount() { return graph.getNumEdges(); }
+
+    public int getCols() { return cols; }
+    public int getRows() { return rows; }
 
     public void setStartRoom(String id) { this.startRoomId = id; }
     public String getStartRoomId() { return startRoomId; }
     public void setTreasureRoom(String id) { this.endRoomId = id; }
     public String getTreasureRoom() { return endRoomId; }
-    public void addEntryPoint(String id) { entryPoints.addToRear(id); }
+    public void addEntryPoint(String id) {
+        ownRooms();
+        entryPoints.addToRear(id);
+    }
     public ArrayUnorderedList<String> getEntryPoints() { return entryPoints; }
 }
\ No newline at end of file
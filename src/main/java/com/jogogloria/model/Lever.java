@@ -6,9 +6,13 @@ package com.jogogloria.model;
  * Como removemos a classe Corridor (Pure Graph), a alavanca agora guarda
  * referências diretas para as duas Salas (Room) cuja conexão (aresta) ela controla.
  * </p>
+ * <p>
+ * Quando é registada num {@link Labyrinth} (ao ser colocada numa sala), o estado de ativação
+ * passa a viver no conjunto de bits das alavancas desse labirinto, na posição que lá recebeu.
+ * </p>
  *
  * @author Hugo Gonçalves
- * @version 3.0
+ * @version 3.1
  */
 public class Lever implements Comparable<Lever> {
 
@@ -20,6 +24,10 @@ public class Lever implements Comparable<Lever> {
 
     private boolean activated;
 
+    // Labirinto onde está registada e a sua posição no registo (null / -1 = solta)
+    private Labyrinth owner;
+    private int slot = -1;
+
     /**
      * Construtor atualizado para receber 3 argumentos.
      * * @param id    Identificador da alavanca.
@@ -38,8 +46,36 @@ public class Lever implements Comparable<Lever> {
     public Room getRoomA() { return roomA; }
     public Room getRoomB() { return roomB; }
 
-    public boolean isActivated() { return activated; }
-    public void setActivated(boolean activated) { this.activated = activated; }
+    public boolean isActivated() {
+        return owner != null ? owner.isLeverActivated(slot) : activated;
+    }
+
+    public void setActivated(boolean activated) {
+        if (owner != null) owner.setLeverActivated(slot, activated);
+        else this.activated = activated;
+    }
+
+    /**
+     * Posição da alavanca no registo do labirinto, ou -1 se não estiver registada
+     */
+    public int getSlot() { return slot; }
+
+    /**
+     * Liga a alavanca a uma posição do registo de um labirinto (o estado passa a viver lá)
+     */
+    void attach(Labyrinth owner, int slot) {
+        this.owner = owner;
+        this.slot = slot;
+    }
+
+    /**
+     * Solta a alavanca do registo, guardando o estado que lá tinha
+     */
+    void detach() {
+        if (owner != null) activated = owner.isLeverActivated(slot);
+        owner = null;
+        slot = -1;
+    }
 
     @Override
     public String toString() {
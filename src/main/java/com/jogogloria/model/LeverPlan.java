@@ -0,0 +1,350 @@
+package com.jogogloria.model;
+
+import com.example.Biblioteca.lists.ArrayUnorderedList;
+import com.example.Biblioteca.iterators.Iterator;
+
+/**
+ * Plano das alavancas de um labirinto, calculado uma vez no carregamento do mapa.
+ * <p>
+ * O estado do jogo para efeitos de caminho é o par (sala, conjunto de alavancas já ativadas),
+ * guardado como {@code sala * 2^L + máscara}. Como no jogo, uma alavanca só dispara quando o
+ * jogador pára na sala dela (acaba lá a jogada) e só nas salas do tipo {@link Room.RoomType#LEVER};
+ * passar pela sala não a ativa. Cada passo entra na sala seguinte sem mexer na máscara ou pára lá
+ * e puxa a alavanca, e uma porta trancada fica aberta assim que alguma das alavancas que a
+ * controlam estiver na máscara. Uma BFS para trás a partir do tesouro (com qualquer máscara) dá a
+ * distância mínima de todos os estados ao tesouro, pelo que o próximo passo ótimo a partir de
+ * qualquer sala e combinação de alavancas se obtém olhando só para os vizinhos da sala.
+ * </p>
+ * <p>
+ * O plano só puxa as alavancas de que precisa. Quem o segue tem de fazer das salas dessas
+ * alavancas paragens ({@link #nextLeverRoom(String)}): as distâncias contam passos, não jogadas.
+ * </p>
+ * <p>
+ * O plano assume que as portas só mudam através das alavancas (como no jogo e no undo).
+ * Mapas com mais de {@link #MAX_LEVERS} alavancas ou mais de {@link #MAX_STATES} estados
+ * não são planeados ({@link #isAvailable()} devolve false) e os bots usam a pesquisa antiga.
+ * </p>
+ * <p>
+ * As tabelas só dependem do mapa, por isso os jogos sobre o mesmo mapa partilham-nas
+ * ({@link #forLabyrinth}); o estado das alavancas é sempre lido do labirinto de cada jogo.
+ * O bit {@code i} da máscara é a alavanca da posição {@code i} do registo do labirinto
+ * ({@link Labyrinth#getLever(int)}).
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.3
+ */
+public class LeverPlan {
+
+    /** Número máximo de alavancas (cada uma ocupa um bit da máscara) */
+    public static final int MAX_LEVERS = 16;
+
+    /** Número máximo de estados (sala × máscara) */
+    public static final int MAX_STATES = 1 << 22;
+
+    /** Distância guardada para estados de onde o tesouro é inalcançável */
+    private static final int UNREACHABLE = -1;
+
+    /** Porta que nunca está trancada */
+    private static final int ALWAYS_OPEN = -1;
+
+    private final Labyrinth labyrinth;
+    private final boolean available;
+
+    private int rooms;
+    private int masks;
+
+    /** Sala da alavanca de cada bit */
+    private int[] leverRooms;
+
+    /** Bit da alavanca de cada sala (0 = sem alavanca) */
+    private int[] leverBit;
+
+    /** Posição das arestas da sala {@code v} em {@link #doorMask} */
+    private int[] edgeOffset;
+
+    /** Por aresta (v, k): {@link #ALWAYS_OPEN} ou a máscara das alavancas que a abrem (0 = nunca abre) */
+    private int[] doorMask;
+
+    /** Passos até ao tesouro de cada estado, ou {@link #UNREACHABLE} */
+    private int[] dist;
+
+    /**
+     * Calcula o plano com o estado atual das portas como estado inicial (todas as alavancas por ativar)
+     */
+    public LeverPlan(Labyrinth labyrinth) {
+        this.labyrinth = labyrinth;
+        this.available = build();
+    }
+
+    /**
+     * Plano de outro labirinto com a mesma topologia (ver {@link #forLabyrinth})
+     */
+    private LeverPlan(LeverPlan shared, Labyrinth labyrinth) {
+        this.labyrinth = labyrinth;
+        this.available = shared.available;
+        this.rooms = shared.rooms;
+        this.masks = shared.masks;
+        this.leverRooms = shared.leverRooms;
+        this.leverBit = shared.leverBit;
+        this.edgeOffset = shared.edgeOffset;
+        this.doorMask = shared.doorMask;
+        this.dist = shared.dist;
+    }
+
+    /**
+     * O mesmo plano para um labirinto que partilha a topologia deste ({@link Labyrinth#newOverlay()}).
+     * As tabelas não são copiadas.
+     * @param labyrinth O labirinto do outro jogo
+     * @return O plano desse labirinto
+     */
+    public LeverPlan forLabyrinth(Labyrinth labyrinth) {
+        return new LeverPlan(this, labyrinth);
+    }
+
+    /**
+     * Indica se o plano foi calculado (mapa com tesouro e dentro dos limites)
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Número de alavancas consideradas pelo plano
+     */
+    public int getLeverCount() {
+        return available ? leverRooms.length : 0;
+    }
+
+    /**
+     * Máscara das alavancas ativadas neste momento
+     */
+    public int currentMask() {
+        int mask = 0;
+        if (!available) return mask;
+        for (int i = 0; i < leverRooms.length; i++) {
+            if (labyrinth.isLeverActivated(i)) mask |= 1 << i;
+        }
+        return mask;
+    }
+
+    /**
+     * Número mínimo de passos até ao tesouro, ativando as alavancas que forem precisas
+     * @param room Índice da sala
+     * @param mask Alavancas já ativadas ({@link #currentMask()})
+     * @return Os passos, ou -1 se o tesouro for inalcançável ou o plano não estiver disponível
+     */
+    public int distance(int room, int mask) {
+        if (!available || room < 0 || room >= rooms) return UNREACHABLE;
+        return dist[room * masks + (mask & (masks - 1))];
+    }
+
+    /**
+     * Próximo passo do plano ótimo a partir de uma sala
+     * @return Índice da sala seguinte, ou -1 se já estiver no tesouro ou não houver plano
+     */
+    public int nextStep(int room, int mask) {
+        int s = step(room, mask);
+        return s == -1 ? -1 : s / masks;
+    }
+
+    /**
+     * Próximo passo ótimo para quem está numa sala, com as alavancas no estado atual
+     * @return ID da sala seguinte, ou null
+     */
+    public String nextStep(String roomId) {
+        int next = nextStep(labyrinth.getRoomIndex(roomId), currentMask());
+        return next == -1 ? null : labyrinth.getRoomId(next);
+    }
+
+    /**
+     * Próxima alavanca a puxar no plano ótimo a partir de uma sala
+     * @return Índice da sala da alavanca (onde é preciso parar), ou -1 se o plano não precisar de mais alavancas
+     */
+    public int nextLeverRoom(int room, int mask) {
+        mask &= masks - 1;
+        for (int s = step(room, mask); s != -1; s = step(room, mask)) {
+            room = s / masks;
+            if (s % masks != mask) return room;
+        }
+        return -1;
+    }
+
+    /**
+     * Sala da próxima alavanca a puxar, com as alavancas no estado atual
+     * @return ID da sala onde é preciso parar, ou null
+     */
+    public String nextLeverRoom(String roomId) {
+        int room = nextLeverRoom(labyrinth.getRoomIndex(roomId), currentMask());
+        return room == -1 ? null : labyrinth.getRoomId(room);
+    }
+
+    /**
+     * Verifica se o tesouro é alcançável a partir de uma sala, com todas as alavancas por ativar
+     */
+    public boolean isSolvable(String roomId) {
+        return distance(labyrinth.getRoomIndex(roomId), 0) != UNREACHABLE;
+    }
+
+    /**
+     * Verifica se o tesouro é alcançável a partir de todos os pontos de entrada do mapa
+     */
+    public boolean isSolvable() {
+        if (!available) return false;
+        Iterator<String> it = labyrinth.getEntryPoints().iterator();
+        while (it.hasNext()) {
+            if (!isSolvable(it.next())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Alavancas a ativar, por ordem, no caminho ótimo desde uma entrada até ao tesouro
+     * @return A lista (vazia se não forem precisas alavancas ou não houver solução)
+     */
+    public ArrayUnorderedList<Lever> getLeverOrder(String entryId) {
+        ArrayUnorderedList<Lever> order = new ArrayUnorderedList<>();
+        int room = labyrinth.getRoomIndex(entryId);
+        int mask = 0;
+
+        for (int s = step(room, mask); s != -1; s = step(room, mask)) {
+            room = s / masks;
+            if (s % masks != mask) order.addToRear(labyrinth.getRoomLever(room));
+            mask = s % masks;
+        }
+        return order;
+    }
+
+    /**
+     * Percurso ótimo completo desde uma entrada até ao tesouro (entrada e tesouro incluídos)
+     * @return IDs das salas, ou lista vazia se não houver solução
+     */
+    public ArrayUnorderedList<String> getRoute(String entryId) {
+        ArrayUnorderedList<String> route = new ArrayUnorderedList<>();
+        int room = labyrinth.getRoomIndex(entryId);
+        if (distance(room, 0) == UNREACHABLE) return route;
+
+        int mask = 0;
+        route.addToRear(entryId);
+        for (int s = step(room, mask); s != -1; s = step(room, mask)) {
+            room = s / masks;
+            mask = s % masks;
+            route.addToRear(labyrinth.getRoomId(room));
+        }
+        return route;
+    }
+
+    /**
+     * Próximo estado do plano ótimo. Prefere passar pela sala seguinte a parar lá para puxar a
+     * alavanca, quando as duas opções ficam à mesma distância.
+     * @return O estado seguinte ({@code sala * 2^L + máscara}), ou -1
+     */
+    private int step(int room, int mask) {
+        int d = distance(room, mask);
+        if (d <= 0) return -1;
+        mask &= masks - 1;
+
+        int pull = -1;
+        for (int k = 0; k < labyrinth.getNeighborCount(room); k++) {
+            if (!isOpen(edgeOffset[room] + k, mask)) continue;
+            int next = labyrinth.getNeighbor(room, k);
+            if (dist[next * masks + mask] == d - 1) return next * masks + mask;
+            int pulled = mask | leverBit[next];
+            if (pull == -1 && pulled != mask && dist[next * masks + pulled] == d - 1) {
+                pull = next * masks + pulled;
+            }
+        }
+        return pull;
+    }
+
+    private boolean isOpen(int edge, int mask) {
+        int door = doorMask[edge];
+        return door == ALWAYS_OPEN || (door & mask) != 0;
+    }
+
+    /**
+     * Recolhe alavancas e portas e corre a BFS para trás a partir do tesouro
+     * @return false se o mapa não tiver tesouro ou exceder os limites
+     */
+    private boolean build() {
+        int treasure = labyrinth.getRoomIndex(labyrinth.getTreasureRoom());
+        rooms = labyrinth.getRoomCount();
+        if (treasure == -1) return false;
+
+        // 1. Alavancas: um bit por posição do registo; fora das salas LEVER nunca disparam
+        int leverCount = labyrinth.getLeverCount();
+        if (leverCount > MAX_LEVERS || (long) rooms << leverCount > MAX_STATES) return false;
+
+        masks = 1 << leverCount;
+        leverRooms = new int[leverCount];
+        leverBit = new int[rooms];
+        for (int i = 0; i < leverCount; i++) {
+            leverRooms[i] = labyrinth.getLeverRoom(i);
+            if (labyrinth.getRoomType(leverRooms[i]) == Room.RoomType.LEVER) {
+                leverBit[leverRooms[i]] = 1 << i;
+            }
+        }
+
+        // 2. Portas: abertas agora ficam sempre abertas; as trancadas abrem com as suas alavancas
+        edgeOffset = new int[rooms + 1];
+        for (int v = 0; v < rooms; v++) edgeOffset[v + 1] = edgeOffset[v] + labyrinth.getNeighborCount(v);
+        doorMask = new int[edgeOffset[rooms]];
+        for (int v = 0; v < rooms; v++) {
+            for (int k = 0; k < labyrinth.getNeighborCount(v); k++) {
+                doorMask[edgeOffset[v] + k] = labyrinth.isNeighborOpen(v, k) ? ALWAYS_OPEN : 0;
+            }
+        }
+        for (int i = 0; i < leverRooms.length; i++) {
+            Lever lever = labyrinth.getLever(i);
+            int a = labyrinth.getRoomIndex(lever.getRoomA());
+            int b = labyrinth.getRoomIndex(lever.getRoomB());
+            addLeverToDoor(a, b, 1 << i);
+            addLeverToDoor(b, a, 1 << i);
+        }
+
+        // 3. BFS para trás: os antecessores de (r', m') são (r, m') (passou por r') e, se m' tem a
+        //    alavanca de r', (r, m' sem ela) (parou em r' e puxou-a); a porta r-r' tem de estar aberta em m
+        int states = rooms * masks;
+        dist = new int[states];
+        for (int s = 0; s < states; s++) dist[s] = UNREACHABLE;
+        int[] queue = new int[states];
+        int head = 0, tail = 0;
+        for (int m = 0; m < masks; m++) {
+            int s = treasure * masks + m;
+            dist[s] = 0;
+            queue[tail++] = s;
+        }
+
+        while (head < tail) {
+            int s = queue[head++];
+            int to = s / masks, m = s % masks;
+            int b = leverBit[to];
+
+            for (int k = 0; k < labyrinth.getNeighborCount(to); k++) {
+                int from = labyrinth.getNeighbor(to, k);
+                // A aresta é simétrica: a máscara de (to, k) é a mesma de (from, k')
+                int edge = edgeOffset[to] + k;
+                tail = relax(from, m, edge, dist[s], queue, tail);
+                if ((m & b) != 0) tail = relax(from, m ^ b, edge, dist[s], queue, tail);
+            }
+        }
+        return true;
+    }
+
+    private int relax(int from, int mask, int edge, int d, int[] queue, int tail) {
+        if (!isOpen(edge, mask)) return tail;
+        int p = from * masks + mask;
+        if (dist[p] != UNREACHABLE) return tail;
+        dist[p] = d + 1;
+        queue[tail++] = p;
+        return tail;
+    }
+
+    private void addLeverToDoor(int a, int b, int bit) {
+        if (a == -1 || b == -1) return;
+        for (int k = 0; k < labyrinth.getNeighborCount(a); k++) {
+            int edge = edgeOffset[a] + k;
+            if (labyrinth.getNeighbor(a, k) == b && doorMask[edge] != ALWAYS_OPEN) doorMask[edge] |= bit;
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package com.jogogloria.model;
+
+import com.jogogloria.utils.IndexedMinHeap;
+import com.jogogloria.utils.SparseGraph;
+import com.example.Biblioteca.lists.ArrayUnorderedList;
+import com.example.Biblioteca.iterators.Iterator;
+
+/**
+ * Labirinto com vários pisos ligados por escadas.
+ * <p>
+ * Cada piso é um {@link Labyrinth} normal (grafo compacto em grelha, com as suas trancas, alavancas
+ * e algoritmo de pesquisa). As escadas formam um grafo de portais pequeno: cada escada liga uma sala
+ * de um piso a uma sala de outro e atravessá-la custa {@link #COST_STAIRS}.
+ * </p>
+ * <p>
+ * A pesquisa entre pisos é hierárquica. Para cada piso guarda-se o custo entre todas as salas com
+ * escadas desse piso, recalculado só quando a época desse piso muda. Uma consulta liga a origem e o
+ * destino às escadas dos seus pisos, corre um Dijkstra no grafo de portais e só depois refina os
+ * troços dentro de cada piso com a pesquisa do próprio piso. A memória e o tempo crescem com o número
+ * de pisos e de escadas, e não com o quadrado do total de salas como numa matriz única.
+ * </p>
+ * <p>
+ * As salas são identificadas por "x-y@piso" (ex.: "3-4@1"); um ID sem piso refere-se ao piso 0.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+public class MultiFloorLabyrinth {
+
+    /** Custo de subir ou descer umas escadas */
+    public static final int COST_STAIRS = SparseGraph.COST_OPEN;
+
+    /** Separador entre o ID da sala no piso e o número do piso */
+    public static final char FLOOR_SEPARATOR = '@';
+
+    private static final int INFINITY = SparseGraph.INFINITY;
+
+    private Labyrinth[] floors = new Labyrinth[4];
+    private int floorCount;
+
+    // Escadas: a escada s liga as pontas 2s e 2s + 1; cada ponta é (piso, índice da sala no piso)
+    private int[] endFloor = new int[8];
+    private int[] endRoom = new int[8];
+    private int stairCount;
+    private boolean stairsShared;
+
+    // Por piso: pontas de escada desse piso e posição de cada ponta nessa lista (refeitos quando há escadas novas)
+    private int[][] floorEnds;
+    private int[] endSlot;
+
+    // Por piso: custos entre as suas pontas (k × k) e época do piso em que foram calculados
+    private int[][] floorCosts;
+    private long[] costsEpoch;
+
+    private String startRoomId;
+    private String treasureRoomId;
+
+    // Buffers da pesquisa no grafo de portais
+    private IndexedMinHeap heap;
+    private int[] dist;
+    private int[] parent;
+    private boolean[] viaStairs;
+    private int[] targetCost;
+    private int[] visitStamp;
+    private int searchStamp;
+    private int lastExpanded;
+
+    /** Ponta de escada por onde o melhor caminho chega ao piso do destino (-1 = caminho direto) */
+    private int bestEnd = -1;
+
+    /**
+     * Cria um labirinto sem pisos
+     */
+    public MultiFloorLabyrinth() {
+    }
+
+    /**
+     * Cópia para um novo jogo (ver {@link #newOverlay()})
+     */
+    private MultiFloorLabyrinth(MultiFloorLabyrinth shared) {
+        this.floorCount = shared.floorCount;
+        this.floors = new Labyrinth[shared.floors.length];
+        for (int f = 0; f < floorCount; f++) floors[f] = shared.floors[f].newOverlay();
+
+        this.endFloor = shared.endFloor;
+        this.endRoom = shared.endRoom;
+        this.stairCount = shared.stairCount;
+        this.stairsShared = true;
+        shared.stairsShared = true;
+
+        this.floorEnds = shared.floorEnds;
+        this.endSlot = shared.endSlot;
+        if (shared.floorCosts != null) {
+            this.floorCosts = shared.floorCosts.clone();
+            this.costsEpoch = shared.costsEpoch.clone();
+        }
+        this.startRoomId = shared.startRoomId;
+        this.treasureRoomId = shared.treasureRoomId;
+    }
+
+    /**
+     * Cria um labirinto para um novo jogo sobre os mesmos pisos e escadas.
+     * Cada piso é copiado com {@link Labyrinth#newOverlay()}; as escadas e as tabelas de custos
+     * já calculadas são partilhadas (as tabelas são substituídas, nunca alteradas).
+     * @return A cópia
+     */
+    public MultiFloorLabyrinth newOverlay() {
+        return new MultiFloorLabyrinth(this);
+    }
+
+    // --- Construção ---
+
+    /**
+     * Acrescenta um piso
+     * @return O número do piso
+     */
+    public int addFloor(Labyrinth floor) {
+        if (floorCount == floors.length) {
+            Labyrinth[] grown = new Labyrinth[floors.length * 2];
+            System.arraycopy(floors, 0, grown, 0, floorCount);
+            floors = grown;
+        }
+        floors[floorCount] = floor;
+        floorEnds = null;
+        return floorCount++;
+    }
+
+    /**
+     * Liga duas salas por umas escadas (em geral de pisos diferentes)
+     * @param roomA ID "x-y@piso" de uma das salas
+     * @param roomB ID "x-y@piso" da outra sala
+     * @return false se alguma das salas não existir ou forem a mesma
+     */
+    public boolean addStairs(String roomA, String roomB) {
+        int fa = floorOf(roomA), fb = floorOf(roomB);
+        if (!floorValid(fa) || !floorValid(fb)) return false;
+        int a = floors[fa].getRoomIndex(localId(roomA));
+        int b = floors[fb].getRoomIndex(localId(roomB));
+        if (a == -1 || b == -1 || (fa == fb && a == b)) return false;
+
+        int end = stairCount * 2;
+        if (stairsShared || end + 2 > endFloor.length) {
+            int capacity = Math.max(endFloor.length, end + 2) * (stairsShared ? 1 : 2);
+            int[] floorsGrown = new int[capacity];
+            int[] roomsGrown = new int[capacity];
+            System.arraycopy(endFloor, 0, floorsGrown, 0, end);
+            System.arraycopy(endRoom, 0, roomsGrown, 0, end);
+            endFloor = floorsGrown;
+            endRoom = roomsGrown;
+            stairsShared = false;
+        }
+        endFloor[end] = fa;
+        endRoom[end] = a;
+        endFloor[end + 1] = fb;
+        endRoom[end + 1] = b;
+        stairCount++;
+        floorEnds = null;
+        return true;
+    }
+
+    // --- Consultas ---
+
+    public Labyrinth getFloor(int floor) {
+        return floorValid(floor) ? floors[floor] : null;
+    }
+
+    public int getFloorCount() { return floorCount; }
+
+    public int getStairCount() { return stairCount; }
+
+    /** Número total de salas (soma de todos os pisos) */
+    public int getRoomCount() {
+        int total = 0;
+        for (int f = 0; f < floorCount; f++) total += floors[f].getRoomCount();
+        return total;
+    }
+
+    /**
+     * Sala a partir do ID "x-y@piso"
+     */
+    public Room getRoom(String id) {
+        int f = floorOf(id);
+        return floorValid(f) ? floors[f].getRoom(localId(id)) : null;
+    }
+
+    /**
+     * Vizinhos de uma sala: os do seu piso e, se tiver escadas, as salas do outro lado
+     * @return IDs "x-y@piso"
+     */
+    public ArrayUnorderedList<String> getNeighbors(String id) {
+        ArrayUnorderedList<String> result = new ArrayUnorderedList<>();
+        int f = floorOf(id);
+        if (!floorValid(f)) return result;
+        Labyrinth floor = floors[f];
+        int room = floor.getRoomIndex(localId(id));
+        if (room == -1) return result;
+
+        for (int k = 0; k < floor.getNeighborCount(room); k++) {
+            result.addToRear(globalId(f, floor.getRoomId(floor.getNeighbor(room, k))));
+        }
+        ensureFloorIndex();
+        for (int e : floorEnds[f]) {
+            if (endRoom[e] == room) result.addToRear(endId(e ^ 1));
+        }
+        return result;
+    }
+
+    /**
+     * Verifica se o movimento é válido: passagem aberta no mesmo piso ou escadas entre as duas salas
+     */
+    public boolean isValidMove(String fromId, String toId) {
+        int fa = floorOf(fromId), fb = floorOf(toId);
+        if (!floorValid(fa) || !floorValid(fb)) return false;
+        if (fa == fb && floors[fa].isValidMove(localId(fromId), localId(toId))) return true;
+
+        int a = floors[fa].getRoomIndex(localId(fromId));
+        int b = floors[fb].getRoomIndex(localId(toId));
+        ensureFloorIndex();
+        for (int e : floorEnds[fa]) {
+            if (endRoom[e] == a && endFloor[e ^ 1] == fb && endRoom[e ^ 1] == b) return true;
+        }
+        return false;
+    }
+
+    // --- Pesquisa ---
+
+    /**
+     * Custo do caminho mais curto entre duas salas, possivelmente em pisos diferentes
+     * @return O custo, ou {@link Double#POSITIVE_INFINITY} se não houver caminho
+     */
+    public double shortestPathWeight(String fromId, String toId) {
+        int cost = search(fromId, toId);
+        return cost == INFINITY ? Double.POSITIVE_INFINITY : cost;
+    }
+
+    /**
+     * Primeiro passo do caminho mais curto. Dentro de um piso só é refinado o primeiro troço.
+     * @return O ID "x-y@piso" da sala seguinte, ou null se já estiver no destino ou não houver caminho
+     */
+    public String getNextStep(String fromId, String toId) {
+        if (search(fromId, toId) == INFINITY) return null;
+
+        int f = floorOf(fromId);
+        String at = localId(fromId);
+        int[] chain = chain();
+        for (int i = 0; i <= chain.length; i++) {
+            if (i < chain.length && viaStairs[chain[i]]) return endId(chain[i]);
+
+            // Troço dentro do piso até à próxima ponta (ou até ao destino)
+            String next = i < chain.length ? floors[f].getRoomId(endRoom[chain[i]]) : localId(toId);
+            if (!next.equals(at)) {
+                String step = floors[f].getNextStep(at, next);
+                return step == null ? null : globalId(f, step);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Caminho mais curto completo, com os troços de cada piso refinados
+     * @return IDs "x-y@piso" (origem e destino incluídos), vazio se não houver caminho
+     */
+    public Iterator<String> getShortestPath(String fromId, String toId) {
+        ArrayUnorderedList<String> path = new ArrayUnorderedList<>();
+        if (search(fromId, toId) == INFINITY) return path.iterator();
+
+        int f = floorOf(fromId);
+        String at = localId(fromId);
+        path.addToRear(globalId(f, at));
+        int[] chain = chain();
+        for (int i = 0; i <= chain.length; i++) {
+            if (i < chain.length && viaStairs[chain[i]]) {
+                f = endFloor[chain[i]];
+                at = floors[f].getRoomId(endRoom[chain[i]]);
+                path.addToRear(globalId(f, at));
+                continue;
+            }
+            String next = i < chain.length ? floors[f].getRoomId(endRoom[chain[i]]) : localId(toId);
+            if (next.equals(at)) continue;
+
+            Iterator<String> leg = floors[f].getShortestPath(at, next);
+            if (leg.hasNext()) leg.next(); // a sala atual já está no caminho
+            while (leg.hasNext()) path.addToRear(globalId(f, leg.next()));
+            at = next;
+        }
+        return path.iterator();
+    }
+
+    /** Número de pontas de escadas expandidas pela última pesquisa (para o benchmark) */
+    public int getLastExpanded() {
+        return lastExpanded;
+    }
+
+    /**
+     * Dijkstra no grafo de portais: a origem liga-se às pontas do seu piso, as pontas do mesmo piso
+     * ligam-se pela tabela do piso, as duas pontas de cada escada ligam-se entre si e as pontas do
+     * piso do destino ligam-se ao destino. A melhor ponta final fica em {@link #bestEnd}.
+     * @return O custo, ou {@link #INFINITY} se não houver caminho
+     */
+    private int search(String fromId, String toId) {
+        bestEnd = -1;
+        int fs = floorOf(fromId), ft = floorOf(toId);
+        if (!floorValid(fs) || !floorValid(ft)) return INFINITY;
+        int from = floors[fs].getRoomIndex(localId(fromId));
+        int to = floors[ft].getRoomIndex(localId(toId));
+        if (from == -1 || to == -1) return INFINITY;
+
+        ensureFloorIndex();
+        prepare();
+        lastExpanded = 0;
+        int best = fs == ft ? leg(fs, from, to) : INFINITY;
+
+        for (int e : floorEnds[ft]) targetCost[e] = leg(ft, endRoom[e], to);
+        for (int e : floorEnds[fs]) relax(-1, e, leg(fs, from, endRoom[e]), false);
+
+        while (!heap.isEmpty() && heap.peekPriority() < best) {
+            int e = heap.pop();
+            lastExpanded++;
+            int d = dist[e];
+            if (endFloor[e] == ft && targetCost[e] != INFINITY && d + targetCost[e] < best) {
+                best = d + targetCost[e];
+                bestEnd = e;
+            }
+
+            relax(e, e ^ 1, d + COST_STAIRS, true);
+
+            int f = endFloor[e];
+            int[] list = floorEnds[f];
+            int[] costs = costsOf(f);
+            int k = list.length, i = endSlot[e];
+            for (int j = 0; j < k; j++) {
+                int cost = costs[i * k + j];
+                if (j != i && cost != INFINITY) relax(e, list[j], d + cost, false);
+            }
+        }
+        heap.clear();
+        return best;
+    }
+
+    private void relax(int from, int e, int cost, boolean stairs) {
+        if (cost == INFINITY || cost < 0) return;
+        if (visitStamp[e] != searchStamp || cost < dist[e]) {
+            visitStamp[e] = searchStamp;
+            dist[e] = cost;
+            parent[e] = from;
+            viaStairs[e] = stairs;
+            heap.push(e, cost);
+        }
+    }
+
+    /**
+     * Pontas do melhor caminho da última pesquisa, pela ordem do percurso
+     */
+    private int[] chain() {
+        int length = 0;
+        for (int e = bestEnd; e != -1; e = parent[e]) length++;
+        int[] chain = new int[length];
+        for (int e = bestEnd; e != -1; e = parent[e]) chain[--length] = e;
+        return chain;
+    }
+
+    /**
+     * Custo entre duas salas do mesmo piso, com a pesquisa do piso
+     */
+    private int leg(int floor, int a, int b) {
+        if (a == b) return 0;
+        Labyrinth labyrinth = floors[floor];
+        double weight = labyrinth.shortestPathWeight(labyrinth.getRoomId(a), labyrinth.getRoomId(b));
+        return weight == Double.POSITIVE_INFINITY ? INFINITY : (int) weight;
+    }
+
+    /**
+     * Tabela de custos entre as pontas de um piso, recalculada se o piso mudou desde a última vez
+     * (é sempre um array novo, por isso as cópias de {@link #newOverlay()} podem partilhá-la)
+     */
+    private int[] costsOf(int floor) {
+        long epoch = floors[floor].getTopologyEpoch();
+        if (floorCosts[floor] != null && costsEpoch[floor] == epoch) return floorCosts[floor];
+
+        int[] list = floorEnds[floor];
+        int k = list.length;
+        int[] costs = new int[k * k];
+        for (int i = 0; i < k; i++) {
+            for (int j = i + 1; j < k; j++) {
+                int cost = leg(floor, endRoom[list[i]], endRoom[list[j]]);
+                costs[i * k + j] = cost;
+                costs[j * k + i] = cost;
+            }
+        }
+        floorCosts[floor] = costs;
+        costsEpoch[floor] = epoch;
+        return costs;
+    }
+
+    /**
+     * Agrupa as pontas de escadas por piso (depois de serem acrescentados pisos ou escadas)
+     */
+    private void ensureFloorIndex() {
+        if (floorEnds != null && floorEnds.length == floorCount) return;
+        int ends = stairCount * 2;
+        int[] count = new int[floorCount];
+        for (int e = 0; e < ends; e++) count[endFloor[e]]++;
+
+        int[][] lists = new int[floorCount][];
+        for (int f = 0; f < floorCount; f++) lists[f] = new int[count[f]];
+        int[] slots = new int[ends];
+        for (int f = 0; f < floorCount; f++) count[f] = 0;
+        for (int e = 0; e < ends; e++) {
+            int f = endFloor[e];
+            slots[e] = count[f];
+            lists[f][count[f]++] = e;
+        }
+        floorEnds = lists;
+        endSlot = slots;
+        floorCosts = new int[floorCount][];
+        costsEpoch = new long[floorCount];
+    }
+
+    /**
+     * Prepara os buffers da pesquisa e avança o carimbo
+     */
+    private void prepare() {
+        int ends = Math.max(stairCount * 2, 1);
+        if (dist == null || dist.length < ends) {
+            heap = new IndexedMinHeap(ends);
+            dist = new int[ends];
+            parent = new int[ends];
+            viaStairs = new boolean[ends];
+            targetCost = new int[ends];
+            visitStamp = new int[ends];
+            searchStamp = 0;
+        }
+        if (++searchStamp == Integer.MAX_VALUE) {
+            for (int i = 0; i < visitStamp.length; i++) visitStamp[i] = 0;
+            searchStamp = 1;
+        }
+    }
+
+    // --- IDs ---
+
+    /**
+     * ID global de uma sala: "x-y@piso"
+     */
+    public static String globalId(int floor, String localId) {
+        return localId + FLOOR_SEPARATOR + floor;
+    }
+
+    /**
+     * Piso de um ID global
+     * @return O piso (0 se o ID não tiver piso), ou -1 se o piso não for um número
+     */
+    public static int floorOf(String id) {
+        if (id == null) return -1;
+        int sep = id.lastIndexOf(FLOOR_SEPARATOR);
+        if (sep == -1) return 0;
+        try {
+            return Integer.parseInt(id, sep + 1, id.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * ID da sala dentro do seu piso ("x-y")
+     */
+    public static String localId(String id) {
+        int sep = id.lastIndexOf(FLOOR_SEPARATOR);
+        return sep == -1 ? id : id.substring(0, sep);
+    }
+
+    private String endId(int end) {
+        return globalId(endFloor[end], floors[endFloor[end]].getRoomId(endRoom[end]));
+    }
+
+    private boolean floorValid(int floor) {
+        return floor >= 0 && floor < floorCount;
+    }
+
+    public void setStartRoom(String id) { this.startRoomId = id; }
+    public String getStartRoomId() { return startRoomId; }
+    public void setTreasureRoom(String id) { this.treasureRoomId = id; }
+    public String getTreasureRoom() { return treasureRoomId; }
+}
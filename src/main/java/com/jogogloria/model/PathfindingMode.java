@@ -0,0 +1,27 @@
+package com.jogogloria.model;
+
+/**
+ * Algoritmo usado pelo {@link Labyrinth} nas pesquisas de caminho ponto-a-ponto
+ * (exceto na tabela completa, os caminhos até ao tesouro e à entrada usam os campos de distâncias)
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+public enum PathfindingMode {
+    ASTAR("A*"), //A* com heurística de Manhattan (funciona em qualquer mapa)
+    BIDIRECTIONAL("BFS bidirecional"), //BFS das duas pontas quando há caminho por portas abertas, indicado para labirintos de corredores
+    JUMP_POINT("Jump Point Search"), //Saltos em linha reta, indicado para grelhas com corredores longos
+    HIERARCHICAL("Hierárquico"), //Setores com entradas pré-calculadas, para mapas muito grandes (caminhos quase ótimos)
+    ALL_PAIRS("Tabela completa"); //Distâncias e próximos passos de todos os pares pré-calculados (mapas pequenos)
+
+    private final String label;
+
+    PathfindingMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -1,10 +1,17 @@
 package com.jogogloria.model;
 
 /**
- * Representa uma sala no mapa de jogo
+ * Representa uma sala no mapa de jogo.
+ * <p>
+ * Uma sala pode ser independente (criada com o construtor público) ou uma vista sobre os arrays
+ * compactos do {@link Labyrinth}: nos mapas carregados da grelha o labirinto guarda o tipo, a
+ * visibilidade e as alavancas em arrays paralelos e só cria objetos {@code Room} quando alguém os pede.
+ * Depois de adicionada a um labirinto, a visibilidade e a alavanca passam a ser lidas e escritas
+ * nesses arrays, por isso a sala e o labirinto nunca ficam dessincronizados.
+ * </p>
  *
  * @author Hugo Gonçalves
- * @version 1.0
+ * @version 2.0
  */
 public class Room implements Comparable<Room> {
 
@@ -15,8 +22,8 @@ public class Room implements Comparable<Room> {
         START, NORMAL, RIDDLE, LEVER, PENALTY, BOOST, EXIT
     }
 
-    /** Identificador único da sala*/
-    private final String id;
+    /** Identificador único da sala (nas vistas é construído na primeira consulta) */
+    private String id;
 
     /** Coordenada X  para desenhar na interface gráfica. */
     private final int x; // Coordenada Visual X
@@ -30,14 +37,17 @@ public class Room implements Comparable<Room> {
     /** Texto ou etiqueta opcional para exibir na sala. */
     private final String label;
 
-    /** Campo genérico para guardar informação adicional se necessário. */
-    private String extraData;
-
     private Lever lever;
 
     /** Novo atributo para a Névoa*/
     private boolean isVisible;
 
+    /** Labirinto que guarda o estado desta sala (null enquanto não for adicionada) */
+    private Labyrinth owner;
+
+    /** Índice denso do vértice no grafo do labirinto (-1 enquanto não for adicionada) */
+    private int index = -1;
+
     /**
      * Cria uma nova sala
      * @param id ID
@@ -51,21 +61,44 @@ public class Room implements Comparable<Room> {
         this.isVisible = false;
 
         // Tenta extrair coordenadas do ID (formato "x-y") para facilitar a GUI
+        int dash = id.indexOf('-');
         int tempX = 0, tempY = 0;
-        try {
-            String[] parts = id.split("-");
-            if (parts.length == 2) {
-                tempX = Integer.parseInt(parts[0]);
-                tempY = Integer.parseInt(parts[1]);
+        if (dash > 0 && id.indexOf('-', dash + 1) == -1) {
+            try {
+                tempX = Integer.parseInt(id, 0, dash, 10);
+                tempY = Integer.parseInt(id, dash + 1, id.length(), 10);
+            } catch (NumberFormatException e) {
+                // Se o ID não for "x-y", fica 0,0 (fallback)
+                tempX = tempY = 0;
             }
-        } catch (NumberFormatException e) {
-            // Se o ID não for "x-y", fica 0,0 (fallback)
         }
         this.x = tempX;
         this.y = tempY;
     }
 
+    /**
+     * Vista sobre a sala {@code index} dos arrays do labirinto
+     */
+    Room(Labyrinth owner, int index, int x, int y) {
+        this.owner = owner;
+        this.index = index;
+        this.x = x;
+        this.y = y;
+        this.type = null;
+        this.label = null;
+    }
+
+    /**
+     * Vista da mesma sala (mesmo índice e ID) noutro labirinto com a mesma topologia
+     */
+    Room viewIn(Labyrinth other) {
+        Room view = new Room(other, index, x, y);
+        view.id = id;
+        return view;
+    }
+
     public String getId() {
+        if (id == null) id = x + "-" + y;
         return id;
     }
 
@@ -80,23 +113,24 @@ public class Room implements Comparable<Room> {
     }
 
     public RoomType getType() {
-        return type;
+        return owner != null ? owner.getRoomType(index) : type;
     }
 
     public String getLabel() {
-        return label;
+        return owner != null ? owner.getRoomLabel(index) : label;
     }
 
     public void setLever(Lever lever) {
-        this.lever = lever;
+        if (owner != null) owner.setRoomLever(index, lever);
+        else this.lever = lever;
     }
 
     public Lever getLever() {
-        return this.lever;
+        return owner != null ? owner.getRoomLever(index) : this.lever;
     }
 
     public boolean hasLever() {
-        return this.lever != null;
+        return getLever() != null;
     }
 
     /**
@@ -104,8 +138,22 @@ public class Room implements Comparable<Room> {
      * @return {@code true} de for alavanca, enigma ou boost
      */
     public boolean isSpecial() {
-        return type == RoomType.RIDDLE || type == RoomType.BOOST ||
-                type == RoomType.PENALTY || type == RoomType.LEVER;
+        RoomType t = getType();
+        return t == RoomType.RIDDLE || t == RoomType.BOOST ||
+                t == RoomType.PENALTY || t == RoomType.LEVER;
+    }
+
+    /** Índice do vértice no grafo do {@link Labyrinth} */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Liga uma sala independente ao labirinto que passa a guardar o seu estado
+     */
+    void attach(Labyrinth owner, int index) {
+        this.owner = owner;
+        this.index = index;
     }
 
     /**
@@ -113,7 +161,7 @@ public class Room implements Comparable<Room> {
      * @return isVisible
      */
     public boolean isVisible() {
-        return isVisible;
+        return owner != null ? owner.isRoomVisible(index) : isVisible;
     }
 
     /**
@@ -121,12 +169,13 @@ public class Room implements Comparable<Room> {
      * @param visible pode ser true ou false
      */
     public void setVisible(boolean visible) {
-        isVisible = visible;
+        if (owner != null) owner.setRoomVisible(index, visible);
+        else isVisible = visible;
     }
 
     @Override
     public String toString() {
-        return "Room [" + id + "] (" + x + "," + y + ") Type: " + type;
+        return "Room [" + getId() + "] (" + x + "," + y + ") Type: " + getType();
     }
 
     /**
@@ -138,4 +187,4 @@ public class Room implements Comparable<Room> {
     public int compareTo(Room o) {
         return 0;
     }
-}
\ No newline at end of file
+}
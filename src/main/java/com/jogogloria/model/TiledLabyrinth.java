@@ -0,0 +1,326 @@
+package com.jogogloria.model;
+
+import com.jogogloria.utils.IntIntMap;
+import com.jogogloria.utils.IntMap;
+import com.jogogloria.utils.SparseGraph;
+import com.jogogloria.utils.TileStore;
+
+import java.io.IOException;
+
+/**
+ * Labirinto em grelha lido de um {@link TileStore}, para mapas maiores do que a memória.
+ * <p>
+ * Ao contrário do {@link Labyrinth}, não constrói grafo nem objetos por sala: as salas são as
+ * células com código diferente de 0 e as passagens ligam salas vizinhas na grelha (como no
+ * {@code MapLoader}). Tudo o que muda durante o jogo é esparso: portas trancadas num mapa de
+ * arestas, visibilidade em bits por bloco (só para os blocos já revelados) e o estado do A*
+ * em mapas de hash limpos a cada pesquisa. A memória ocupada acompanha a zona ativa à volta
+ * dos jogadores, e não o tamanho do mapa.
+ * </p>
+ * <p>
+ * As células são identificadas por {@code y * largura + x}; os IDs "x-y" continuam a funcionar
+ * nos métodos que recebem Strings.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+public class TiledLabyrinth implements AutoCloseable {
+
+    /** Limite de salas expandidas por pesquisa (evita varrer o mapa todo quando não há caminho) */
+    public static final int MAX_EXPANDED = 4_000_000;
+
+    // Direções: 0 = direita, 1 = esquerda, 2 = baixo, 3 = cima
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private final TileStore store;
+    private final int width;
+    private final int height;
+
+    /** Portas trancadas: chave {@code célula * 2 + (0 = direita, 1 = baixo)}, valor 1 (destrancar remove a chave) */
+    private final IntIntMap lockedEdges = new IntIntMap();
+
+    /** Bits de visibilidade por bloco (só existem para os blocos com alguma sala revelada) */
+    private final IntMap<long[]> visibleTiles = new IntMap<>();
+
+    // Estado do A* (esparso e reutilizado)
+    private final IntIntMap gScore = new IntIntMap();
+    private final IntIntMap parent = new IntIntMap();
+    private long[] heap = new long[64];
+    private int heapSize;
+    private int lastExpanded;
+
+    /**
+     * @param store Ficheiro de blocos aberto
+     */
+    public TiledLabyrinth(TileStore store) {
+        this.store = store;
+        this.width = store.getWidth();
+        this.height = store.getHeight();
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public TileStore getTileStore() { return store; }
+
+    /**
+     * Fecha o ficheiro de blocos
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    /** Célula de início, ou -1 */
+    public int getStartCell() { return store.getStartCell(); }
+
+    /** Célula do tesouro, ou -1 */
+    public int getTreasureCell() { return store.getExitCell(); }
+
+    /**
+     * Verifica se existe uma sala nas coordenadas indicadas
+     */
+    public boolean isRoom(int x, int y) {
+        return store.getCell(x, y) != 0;
+    }
+
+    /**
+     * Código da sala (o mesmo da grelha JSON), ou 0 se não houver sala
+     */
+    public int getCellCode(int x, int y) {
+        return store.getCell(x, y);
+    }
+
+    // --- Portas ---
+
+    /**
+     * Tranca ou destranca a passagem entre duas salas vizinhas
+     */
+    public void setConnectionLocked(int cellA, int cellB, boolean locked) {
+        int key = edgeKey(cellA, cellB);
+        if (key == -1) return;
+        if (locked) {
+            lockedEdges.put(key, 1);
+        } else {
+            lockedEdges.remove(key);
+        }
+    }
+
+    public boolean isLocked(int cellA, int cellB) {
+        int key = edgeKey(cellA, cellB);
+        return key != -1 && lockedEdges.get(key, 0) == 1;
+    }
+
+    /**
+     * Verifica se é possível mover de uma sala para uma vizinha (passagem existente e aberta)
+     */
+    public boolean isValidMove(int from, int to) {
+        return edgeKey(from, to) != -1 && isRoom(xOf(from), yOf(from)) && isRoom(xOf(to), yOf(to))
+                && lockedEdges.get(edgeKey(from, to), 0) == 0;
+    }
+
+    public boolean isValidMove(String fromId, String toId) {
+        return isValidMove(cellOf(fromId), cellOf(toId));
+    }
+
+    // --- Névoa ---
+
+    /**
+     * Revela uma sala e as salas vizinhas (passagens abertas ou trancadas), como o
+     * {@code GameEngine.revealArea}. Funciona igual nas fronteiras entre blocos.
+     */
+    public void revealArea(int cell) {
+        int x = xOf(cell), y = yOf(cell);
+        if (!isRoom(x, y)) return;
+        setVisible(x, y);
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DX[d], ny = y + DY[d];
+            if (isRoom(nx, ny)) setVisible(nx, ny);
+        }
+    }
+
+    public boolean isVisible(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        long[] bits = visibleTiles.get(tileOf(x, y));
+        int bit = bitOf(x, y);
+        return bits != null && (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /** Número de blocos com salas reveladas (cada um ocupa {@code lado² / 8} bytes de bits) */
+    public int getVisibleTileCount() {
+        return visibleTiles.size();
+    }
+
+    private void setVisible(int x, int y) {
+        int tile = tileOf(x, y);
+        long[] bits = visibleTiles.get(tile);
+        if (bits == null) {
+            int size = store.getTileSize();
+            bits = new long[(size * size + 63) >>> 6];
+            visibleTiles.put(tile, bits);
+        }
+        int bit = bitOf(x, y);
+        bits[bit >>> 6] |= 1L << bit;
+    }
+
+    // --- Pesquisa ---
+
+    /**
+     * Caminho mais curto entre duas salas (A* com heurística de Manhattan).
+     * Portas trancadas custam {@link SparseGraph#COST_LOCKED}, tal como no {@link Labyrinth}.
+     * @return Células do caminho (origem e destino incluídos), ou array vazio se não houver caminho
+     *         ou a pesquisa exceder {@link #MAX_EXPANDED} salas
+     */
+    public int[] shortestPath(int source, int target) {
+        if (!isRoom(xOf(source), yOf(source)) || !isRoom(xOf(target), yOf(target))) return new int[0];
+        if (search(source, target) == SparseGraph.INFINITY) return new int[0];
+
+        int length = 1;
+        for (int c = target; c != source; c = parent.get(c, source)) length++;
+        int[] path = new int[length];
+        int c = target;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = c;
+            c = parent.get(c, source);
+        }
+        return path;
+    }
+
+    /**
+     * Primeiro passo do caminho mais curto
+     * @return O ID da sala seguinte, ou null se já estiver no destino ou não houver caminho
+     */
+    public String getNextStep(String fromId, String targetId) {
+        int[] path = shortestPath(cellOf(fromId), cellOf(targetId));
+        return path.length > 1 ? idOf(path[1]) : null;
+    }
+
+    /** Número de salas expandidas pela última pesquisa (para o benchmark) */
+    public int getLastExpanded() {
+        return lastExpanded;
+    }
+
+    /**
+     * A* sobre a grelha com estado em mapas de hash; a heap guarda {@code (f << 32) | célula}
+     * e as entradas desatualizadas são ignoradas quando saem.
+     */
+    private int search(int source, int target) {
+        gScore.clear();
+        parent.clear();
+        heapSize = 0;
+        lastExpanded = 0;
+        int tx = xOf(target), ty = yOf(target);
+
+        gScore.put(source, 0);
+        push(manhattan(source, tx, ty), source);
+
+        while (heapSize > 0 && lastExpanded < MAX_EXPANDED) {
+            long top = pop();
+            int v = (int) top;
+            int g = gScore.get(v, SparseGraph.INFINITY);
+            if ((int) (top >>> 32) != g + manhattan(v, tx, ty)) continue; // entrada antiga
+            lastExpanded++;
+            if (v == target) return g;
+
+            int x = xOf(v), y = yOf(v);
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if (!isRoom(nx, ny)) continue;
+                int n = ny * width + nx;
+                int ng = g + (isLocked(v, n) ? SparseGraph.COST_LOCKED : SparseGraph.COST_OPEN);
+                if (ng < gScore.get(n, SparseGraph.INFINITY)) {
+                    gScore.put(n, ng);
+                    parent.put(n, v);
+                    push(ng + manhattan(n, tx, ty), n);
+                }
+            }
+        }
+        return SparseGraph.INFINITY;
+    }
+
+    private void push(int priority, int cell) {
+        if (heapSize == heap.length) {
+            long[] grown = new long[heap.length * 2];
+            System.arraycopy(heap, 0, grown, 0, heapSize);
+            heap = grown;
+        }
+        long entry = ((long) priority << 32) | (cell & 0xFFFFFFFFL);
+        int i = heapSize++;
+        while (i > 0 && heap[(i - 1) >>> 1] > entry) {
+            heap[i] = heap[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        heap[i] = entry;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= last) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0) heap[i] = last;
+        return top;
+    }
+
+    // --- Conversões ---
+
+    public int xOf(int cell) { return cell % width; }
+    public int yOf(int cell) { return cell / width; }
+
+    /**
+     * Converte um ID "x-y" na célula
+     * @return A célula, ou -1 se o ID for inválido ou estiver fora do mapa
+     */
+    public int cellOf(String id) {
+        if (id == null) return -1;
+        int dash = id.indexOf('-');
+        if (dash <= 0) return -1;
+        try {
+            int x = Integer.parseInt(id, 0, dash, 10);
+            int y = Integer.parseInt(id, dash + 1, id.length(), 10);
+            if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+            return y * width + x;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public String idOf(int cell) {
+        return xOf(cell) + "-" + yOf(cell);
+    }
+
+    /**
+     * Chave da aresta entre duas células vizinhas ({@code célula de cima/esquerda * 2 + direção})
+     * @return A chave, ou -1 se as células não forem vizinhas
+     */
+    private int edgeKey(int a, int b) {
+        if (a < 0 || b < 0) return -1;
+        int low = Math.min(a, b), high = Math.max(a, b);
+        if (high - low == 1 && yOf(low) == yOf(high)) return low * 2;
+        if (high - low == width) return low * 2 + 1;
+        return -1;
+    }
+
+    private int manhattan(int cell, int tx, int ty) {
+        return Math.abs(xOf(cell) - tx) + Math.abs(yOf(cell) - ty);
+    }
+
+    private int tileOf(int x, int y) {
+        int size = store.getTileSize();
+        int tilesX = (width + size - 1) / size;
+        return (y / size) * tilesX + x / size;
+    }
+
+    private int bitOf(int x, int y) {
+        int size = store.getTileSize();
+        return (y % size) * size + x % size;
+    }
+}
@@ -0,0 +1,206 @@
+package com.jogogloria.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tabela de distâncias e próximos passos entre todos os pares de vértices.
+ * <p>
+ * Pensada para mapas pequenos e médios (os mapas do jogo têm ~250 salas): a tabela ocupa
+ * {@code 4 * V²} bytes em dois arrays {@code short[]} e responde a qualquer consulta de
+ * distância ou de próximo passo com um acesso ao array. É construída com uma BFS por origem,
+ * repartidas pelas threads de um {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * Só considera arestas abertas. A tabela guarda a época do grafo em que foi calculada;
+ * quando as trancas mudam, a próxima consulta reconstrói-a (uma vez por época, não por porta).
+ * Uma tabela já construída pode ser partilhada com a cópia de um grafo ({@link SparseGraph#overlay()});
+ * a reconstrução escreve então em arrays novos.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+public class AllPairsTable {
+
+    /** Número máximo de vértices suportado (os índices têm de caber num {@code short}) */
+    public static final int MAX_VERTICES = 2048;
+
+    /** Origens processadas por cada tarefa antes de deixar de dividir o trabalho */
+    private static final int SOURCES_PER_TASK = 32;
+
+    /** Valor guardado para pares sem caminho aberto */
+    private static final short NONE = -1;
+
+    private final SparseGraph graph;
+
+    /** Número de vértices da tabela atual */
+    private int n;
+
+    /** Distância de {@code s} a {@code t} em {@code s * n + t} */
+    private short[] dist;
+
+    /** Vértice seguinte no caminho de {@code s} para {@code t} em {@code s * n + t} */
+    private short[] next;
+
+    /** Época do grafo em que a tabela foi construída (-1 = por construir) */
+    private long builtEpoch = -1;
+
+    /** Os arrays são partilhados com outra tabela (não podem ser reescritos) */
+    private boolean tableShared;
+
+    /**
+     * @param graph Grafo sobre o qual a tabela é calculada
+     */
+    public AllPairsTable(SparseGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Cria uma tabela para a cópia de um grafo que partilha os arrays de outra tabela
+     * @param graph Cópia do grafo de {@code shared}, com a mesma época
+     * @param shared Tabela a partilhar
+     */
+    public AllPairsTable(SparseGraph graph, AllPairsTable shared) {
+        this.graph = graph;
+        this.n = shared.n;
+        this.dist = shared.dist;
+        this.next = shared.next;
+        this.builtEpoch = shared.builtEpoch;
+        this.tableShared = true;
+        shared.tableShared = true;
+    }
+
+    /**
+     * Verifica se o grafo é pequeno o suficiente para a tabela
+     */
+    public boolean supports() {
+        return graph.size() <= MAX_VERTICES;
+    }
+
+    /**
+     * Constrói a tabela se ainda não existir ou estiver desatualizada
+     * @return false se o grafo tiver mais de {@link #MAX_VERTICES} vértices
+     */
+    public boolean ensureBuilt() {
+        if (!supports()) return false;
+        if (builtEpoch == graph.getEpoch()) return true;
+
+        int size = graph.size();
+        if (dist == null || dist.length < size * size || tableShared) {
+            dist = new short[size * size];
+            next = new short[size * size];
+            tableShared = false;
+        }
+        n = size;
+        builtEpoch = graph.getEpoch();
+        if (size > 0) ForkJoinPool.commonPool().invoke(new BuildTask(0, size));
+        return true;
+    }
+
+    /**
+     * Distância entre dois vértices só por arestas abertas
+     * @return O número de passos, ou {@link SparseGraph#INFINITY} se não houver caminho aberto
+     */
+    public int distance(int source, int target) {
+        if (!valid(source, target)) return SparseGraph.INFINITY;
+        short d = dist[source * n + target];
+        return d == NONE ? SparseGraph.INFINITY : d;
+    }
+
+    /**
+     * Primeiro passo do caminho entre dois vértices
+     * @return O vértice seguinte, ou -1 se já estiver no destino ou não houver caminho aberto
+     */
+    public int nextStep(int source, int target) {
+        if (!valid(source, target) || source == target) return -1;
+        return next[source * n + target];
+    }
+
+    /**
+     * Caminho completo entre dois vértices, seguindo os próximos passos da tabela
+     * @return Vértices do caminho, ou array vazio se não houver caminho aberto
+     */
+    public int[] path(int source, int target) {
+        int d = distance(source, target);
+        if (d == SparseGraph.INFINITY) return new int[0];
+
+        int[] path = new int[d + 1];
+        path[0] = source;
+        for (int i = 1; i <= d; i++) path[i] = next[path[i - 1] * n + target];
+        return path;
+    }
+
+    /** Memória ocupada pelos dois arrays da tabela, em bytes (para o benchmark) */
+    public long getMemoryBytes() {
+        return dist == null ? 0 : 4L * dist.length;
+    }
+
+    private boolean valid(int source, int target) {
+        return ensureBuilt() && source >= 0 && target >= 0 && source < n && target < n;
+    }
+
+    /**
+     * Divide o intervalo de origens ao meio até ter poucas origens, e depois corre uma BFS por origem.
+     * Cada BFS a partir de {@code s} preenche a coluna {@code s}: a distância de cada {@code t} até
+     * {@code s} e o passo seguinte de {@code t} em direção a {@code s} (o pai na árvore da BFS).
+     * As tarefas escrevem em posições diferentes dos arrays, por isso não precisam de sincronização.
+     */
+    private class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        BuildTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SOURCES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BuildTask(from, mid), new BuildTask(mid, to));
+                return;
+            }
+
+            int[] queue = new int[n];
+            int[] parent = new int[n];
+            int[] level = new int[n];
+            for (int s = from; s < to; s++) {
+                bfs(s, queue, parent, level);
+            }
+        }
+
+        private void bfs(int s, int[] queue, int[] parent, int[] level) {
+            for (int v = 0; v < n; v++) level[v] = -1;
+            int head = 0, tail = 0;
+            queue[tail++] = s;
+            level[s] = 0;
+            parent[s] = s;
+
+            while (head < tail) {
+                int v = queue[head++];
+                for (int k = 0; k < graph.getDegree(v); k++) {
+                    int w = graph.getNeighbor(v, k);
+                    if (level[w] != -1 || graph.isLocked(graph.getEdge(v, k))) continue;
+                    level[w] = level[v] + 1;
+                    parent[w] = v;
+                    queue[tail++] = w;
+                }
+            }
+
+            for (int t = 0; t < n; t++) {
+                int index = t * n + s;
+                if (level[t] == -1) {
+                    dist[index] = NONE;
+                    next[index] = NONE;
+                } else {
+                    dist[index] = (short) level[t];
+                    next[index] = (short) parent[t];
+                }
+            }
+        }
+    }
+}
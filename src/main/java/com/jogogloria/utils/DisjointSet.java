@@ -0,0 +1,91 @@
+package com.jogogloria.utils;
+
+/**
+ * Estrutura union-find (conjuntos disjuntos) sobre elementos de 0 a n - 1.
+ * <p>
+ * Usa união por tamanho e compressão de caminho por "halving", pelo que
+ * {@link #find}, {@link #union} e {@link #connected} têm custo amortizado praticamente constante.
+ * Só sabe juntar conjuntos: para separar (por exemplo, voltar a trancar uma porta) é preciso
+ * reconstruir a estrutura com {@link #reset()}.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+public class DisjointSet {
+
+    /** Pai de cada elemento (a raiz é pai de si própria) */
+    private final int[] parent;
+
+    /** Tamanho do conjunto de cada raiz */
+    private final int[] size;
+
+    /** Número de conjuntos distintos */
+    private int count;
+
+    /**
+     * Cria {@code n} conjuntos, cada um com um só elemento
+     */
+    public DisjointSet(int n) {
+        this.parent = new int[n];
+        this.size = new int[n];
+        reset();
+    }
+
+    /**
+     * Volta a colocar cada elemento no seu próprio conjunto
+     */
+    public void reset() {
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        count = parent.length;
+    }
+
+    /**
+     * Representante do conjunto de um elemento
+     */
+    public int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * Junta os conjuntos de dois elementos
+     * @return true se estavam em conjuntos diferentes
+     */
+    public boolean union(int a, int b) {
+        int ra = find(a), rb = find(b);
+        if (ra == rb) return false;
+        if (size[ra] < size[rb]) {
+            int tmp = ra;
+            ra = rb;
+            rb = tmp;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        count--;
+        return true;
+    }
+
+    /**
+     * Verifica se dois elementos estão no mesmo conjunto
+     */
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+
+    /** Número de conjuntos distintos */
+    public int getCount() {
+        return count;
+    }
+
+    /** Número de elementos */
+    public int size() {
+        return parent.length;
+    }
+}
@@ -0,0 +1,264 @@
+package com.jogogloria.utils;
+
+/**
+ * Campo de distâncias de todos os vértices até um vértice de destino fixo
+ * (por exemplo, o tesouro ou a entrada do labirinto).
+ * <p>
+ * É calculado uma única vez com um Dijkstra a partir do destino (o grafo é não dirigido)
+ * e só volta a ser calculado quando é invalidado, ou seja, quando o estado das trancas muda.
+ * Com o campo pronto, o próximo passo em direção ao destino é apenas uma procura
+ * entre os (no máximo 4) vizinhos pelo que desce a distância.
+ * </p>
+ * <p>
+ * Quando uma alavanca muda o custo de uma aresta, o campo não é deitado fora:
+ * {@link #edgeChanged} repara apenas a região afetada (ao estilo LPA* / Ramalingam-Reps).
+ * Se o custo desce, propaga-se a melhoria a partir da aresta; se sobe, só a subárvore de
+ * caminhos mais curtos que passava pela aresta é reposta e recalculada a partir da sua fronteira.
+ * </p>
+ * <p>
+ * Um campo já calculado pode ser partilhado com a cópia de um grafo ({@link SparseGraph#overlay()}):
+ * os dois usam o mesmo array de distâncias até um deles ter de o alterar.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 2.1
+ */
+public class DistanceField {
+
+    private final SparseGraph graph;
+    private final int target;
+
+    /** Custo de cada vértice até ao destino */
+    private int[] dist;
+
+    /** Indica se o campo corresponde ao estado atual do grafo */
+    private boolean valid;
+
+    /** O array de distâncias é partilhado com outro campo (copiado antes de ser alterado) */
+    private boolean distShared;
+
+    // Estruturas de trabalho da reparação incremental (reutilizadas entre chamadas)
+    private IndexedMinHeap heap;
+    private int[] affected;
+    private int[] mark;
+    private int markStamp;
+    private int lastRepairSize;
+
+    /**
+     * Cria um campo de distâncias (calculado só na primeira consulta)
+     * @param graph O grafo
+     * @param target Índice do vértice de destino
+     */
+    public DistanceField(SparseGraph graph, int target) {
+        this.graph = graph;
+        this.target = target;
+        this.valid = false;
+    }
+
+    /**
+     * Cria um campo para a cópia de um grafo que partilha as distâncias já calculadas de outro campo
+     * @param graph Cópia do grafo de {@code shared}, com o mesmo estado
+     * @param shared Campo a partilhar
+     */
+    public DistanceField(SparseGraph graph, DistanceField shared) {
+        this.graph = graph;
+        this.target = shared.target;
+        this.dist = shared.dist;
+        this.valid = shared.valid;
+        this.distShared = true;
+        shared.distShared = true;
+    }
+
+    /** Índice do vértice de destino */
+    public int getTarget() {
+        return target;
+    }
+
+    /** Marca o campo como desatualizado (recalculado na próxima consulta) */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Custo do caminho mais curto de um vértice até ao destino
+     * @return O custo, ou {@link SparseGraph#INFINITY} se não houver caminho
+     */
+    public int distance(int v) {
+        ensureBuilt();
+        if (!graph.indexValid(v)) return SparseGraph.INFINITY;
+        return dist[v];
+    }
+
+    /**
+     * Próximo vértice no caminho mais curto de {@code v} até ao destino
+     * @return O vizinho que desce a distância, ou -1 se {@code v} for o destino ou não houver caminho
+     */
+    public int nextStep(int v) {
+        ensureBuilt();
+        if (!graph.indexValid(v) || v == target || dist[v] == SparseGraph.INFINITY) return -1;
+
+        for (int k = 0; k < graph.getDegree(v); k++) {
+            int n = graph.getNeighbor(v, k);
+            if (dist[n] != SparseGraph.INFINITY
+                    && dist[n] + graph.getEdgeCost(graph.getEdge(v, k)) == dist[v]) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Caminho mais curto de {@code v} até ao destino, seguindo o campo
+     * @return Vértices do caminho (ambos os extremos incluídos) ou array vazio se não existir
+     */
+    public int[] pathFrom(int v) {
+        ensureBuilt();
+        if (!graph.indexValid(v) || dist[v] == SparseGraph.INFINITY) return new int[0];
+
+        int length = 1;
+        for (int c = v; c != target; c = nextStep(c)) length++;
+
+        int[] path = new int[length];
+        int c = v;
+        for (int i = 0; i < length; i++) {
+            path[i] = c;
+            c = nextStep(c);
+        }
+        return path;
+    }
+
+    /**
+     * Atualiza o campo depois de o custo de uma aresta mudar, reparando só a zona afetada.
+     * O grafo já deve ter o novo custo quando este método é chamado.
+     * @param a Um extremo da aresta
+     * @param b O outro extremo
+     * @param oldCost Custo anterior ({@link SparseGraph#INFINITY} se a aresta não existia)
+     * @param newCost Custo novo
+     */
+    public void edgeChanged(int a, int b, int oldCost, int newCost) {
+        if (!valid) return; // Ainda não foi calculado: será feito de raiz quando for preciso
+        if (dist.length < graph.size()) {
+            valid = false;
+            return;
+        }
+        if (distShared) {
+            dist = dist.clone();
+            distShared = false;
+        }
+        prepareRepair();
+
+        lastRepairSize = 0;
+        if (newCost < oldCost) {
+            relax(a, b, newCost);
+            relax(b, a, newCost);
+            lastRepairSize = propagate();
+        } else if (newCost > oldCost) {
+            increase(a, b, oldCost);
+        }
+    }
+
+    /**
+     * Número de vértices cuja distância foi recalculada na última reparação (para o benchmark)
+     */
+    public int getLastRepairSize() {
+        return lastRepairSize;
+    }
+
+    /**
+     * A aresta ficou mais cara: repõe a subárvore que dependia dela e recalcula-a
+     */
+    private void increase(int a, int b, int oldCost) {
+        int child;
+        if (dist[a] != SparseGraph.INFINITY && dist[b] == dist[a] + oldCost) child = b;
+        else if (dist[b] != SparseGraph.INFINITY && dist[a] == dist[b] + oldCost) child = a;
+        else return; // A aresta não fazia parte de nenhum caminho mais curto
+
+        // 1. Recolhe os descendentes "apertados" do filho (caminhos mais curtos que passavam pela aresta)
+        int count = 0;
+        markStamp++;
+        affected[count++] = child;
+        mark[child] = markStamp;
+        for (int i = 0; i < count; i++) {
+            int v = affected[i];
+            for (int k = 0; k < graph.getDegree(v); k++) {
+                int n = graph.getNeighbor(v, k);
+                if (mark[n] != markStamp && dist[n] != SparseGraph.INFINITY
+                        && dist[n] == dist[v] + graph.getEdgeCost(graph.getEdge(v, k))) {
+                    mark[n] = markStamp;
+                    affected[count++] = n;
+                }
+            }
+        }
+        lastRepairSize = count;
+
+        // 2. Repõe as distâncias afetadas
+        for (int i = 0; i < count; i++) {
+            dist[affected[i]] = SparseGraph.INFINITY;
+        }
+
+        // 3. Semeia a partir dos vizinhos não afetados (que mantêm distâncias corretas)
+        for (int i = 0; i < count; i++) {
+            int v = affected[i];
+            for (int k = 0; k < graph.getDegree(v); k++) {
+                int n = graph.getNeighbor(v, k);
+                if (mark[n] != markStamp) relax(n, v, graph.getEdgeCost(graph.getEdge(v, k)));
+            }
+        }
+
+        // 4. Dijkstra limitado à região reposta
+        propagate();
+    }
+
+    /**
+     * Tenta melhorar a distância de {@code to} passando por {@code from}
+     */
+    private void relax(int from, int to, int cost) {
+        if (dist[from] == SparseGraph.INFINITY) return;
+        int candidate = dist[from] + cost;
+        if (candidate < dist[to]) {
+            dist[to] = candidate;
+            heap.push(to, candidate);
+        }
+    }
+
+    /**
+     * Propaga as melhorias em ordem de distância (só visita vértices cuja distância desce)
+     * @return Número de vértices processados
+     */
+    private int propagate() {
+        int processed = 0;
+        while (!heap.isEmpty()) {
+            int v = heap.pop();
+            processed++;
+            for (int k = 0; k < graph.getDegree(v); k++) {
+                relax(v, graph.getNeighbor(v, k), graph.getEdgeCost(graph.getEdge(v, k)));
+            }
+        }
+        return processed;
+    }
+
+    private void prepareRepair() {
+        int n = graph.size();
+        if (heap == null) {
+            heap = new IndexedMinHeap(n);
+        } else {
+            heap.ensureCapacity(n);
+            heap.clear();
+        }
+        if (affected == null || affected.length < n) {
+            affected = new int[n];
+            mark = new int[n];
+            markStamp = 0;
+        }
+    }
+
+    private void ensureBuilt() {
+        if (valid) return;
+        if (dist == null || dist.length < graph.size() || distShared) {
+            dist = new int[graph.size()];
+            distShared = false;
+        }
+        graph.distancesFrom(target, dist);
+        valid = true;
+    }
+}
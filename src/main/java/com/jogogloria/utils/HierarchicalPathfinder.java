@@ -0,0 +1,606 @@
+package com.jogogloria.utils;
+
+/**
+ * Pesquisa hierárquica de caminhos (estilo HPA*) para grelhas muito grandes.
+ * <p>
+ * A grelha é dividida em setores quadrados de tamanho fixo. Em cada fronteira entre dois
+ * setores, cada troço contínuo de passagens abertas dá origem a uma ou duas transições
+ * (a do meio se o troço for curto, as duas pontas se for longo). As salas das transições são
+ * as entradas de cada setor e, para cada setor, guarda-se o custo entre todas as suas entradas
+ * calculado só com salas desse setor.
+ * </p>
+ * <p>
+ * Uma consulta liga a origem e o destino às entradas dos respetivos setores e pesquisa no
+ * grafo abstrato (entradas + transições), que é muito menor que o grafo original. O caminho
+ * abstrato só é refinado em salas quando é preciso: {@link #nextStep} refina apenas o primeiro
+ * troço. Os caminhos são quase ótimos (podem ter alguns passos a mais que o A*).
+ * </p>
+ * <p>
+ * Tal como o {@link JumpPointSearch}, só atravessa arestas abertas. Quando uma porta muda de
+ * estado, {@link #edgeChanged} recalcula apenas os setores que tocam nessa porta.
+ * </p>
+ * <p>
+ * A abstração de um mapa pode ser partilhada pelas cópias do grafo ({@link SparseGraph#overlay()}):
+ * cada cópia tem os seus buffers de pesquisa e só copia as tabelas dos setores na primeira porta
+ * que mudar.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+public class HierarchicalPathfinder {
+
+    /** Lado dos setores usado por defeito */
+    public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+    /** Troços de fronteira mais curtos que isto têm uma só transição; os outros têm duas */
+    private static final int LONG_RUN = 6;
+
+    private static final int EAST = 0;
+    private static final int SOUTH = 1;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final SparseGraph graph;
+    private final int clusterSize;
+
+    // --- Disposição da grelha ---
+    private int width;
+    private int height;
+    private int clusterCols;
+    private int clusterRows;
+
+    /** Vértice em cada célula ({@code y * width + x}, -1 = sem sala) */
+    private int[] cellVertex;
+
+    /** Setor de cada vértice */
+    private int[] clusterOf;
+
+    /** Época do grafo refletida na abstração (-1 = por construir) e número de vértices e arestas nessa altura */
+    private long builtEpoch = -1;
+    private int builtVertices;
+    private int builtEdges;
+
+    // --- Grafo abstrato ---
+
+    /** Transições escolhidas em cada fronteira ({@code setor * 2 + EAST/SOUTH}), em pares (a, b) */
+    private int[][] borderPairs;
+
+    /** Marca as arestas que são transições */
+    private boolean[] transition;
+
+    /** Entradas de cada setor */
+    private int[][] entrances;
+
+    /** Custo entre as entradas de cada setor ({@code i * k + j}) */
+    private int[][] intraCost;
+
+    /** Posição de cada vértice na lista de entradas do seu setor (-1 se não for entrada) */
+    private int[] entranceSlot;
+
+    // --- Buffers da pesquisa local (BFS dentro de um setor) ---
+    private int[] localDist;
+    private int[] localParent;
+    private int[] localStamp;
+    private int localSearch;
+    private int[] queue;
+    private int queueSize;
+
+    /** As tabelas da abstração são partilhadas com outra instância (copiadas antes de mudar) */
+    private boolean structureShared;
+
+    // --- Buffers da pesquisa abstrata ---
+    private IndexedMinHeap openSet;
+    private int[] gScore;
+    private int[] parent;
+    private int[] visitStamp;
+    private int searchStamp;
+    private int[] sourceCost = EMPTY;
+    private int[] targetCost = EMPTY;
+    private int lastExpanded;
+
+    /**
+     * Cria a pesquisa hierárquica com setores de {@link #DEFAULT_CLUSTER_SIZE}
+     */
+    public HierarchicalPathfinder(SparseGraph graph) {
+        this(graph, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * @param graph Grafo em grelha sobre o qual se pesquisa
+     * @param clusterSize Lado de cada setor (em salas)
+     */
+    public HierarchicalPathfinder(SparseGraph graph, int clusterSize) {
+        this.graph = graph;
+        this.clusterSize = Math.max(clusterSize, 2);
+    }
+
+    /**
+     * Pesquisa sobre a cópia de um grafo que reutiliza a abstração já construída de outra instância
+     * @param graph Cópia do grafo de {@code shared}, com o mesmo estado
+     * @param shared Instância a partilhar
+     */
+    public HierarchicalPathfinder(SparseGraph graph, HierarchicalPathfinder shared) {
+        this.graph = graph;
+        this.clusterSize = shared.clusterSize;
+        this.width = shared.width;
+        this.height = shared.height;
+        this.clusterCols = shared.clusterCols;
+        this.clusterRows = shared.clusterRows;
+        this.cellVertex = shared.cellVertex;
+        this.clusterOf = shared.clusterOf;
+        this.builtEpoch = shared.builtEpoch;
+        this.builtVertices = shared.builtVertices;
+        this.builtEdges = shared.builtEdges;
+        this.borderPairs = shared.borderPairs;
+        this.transition = shared.transition;
+        this.entrances = shared.entrances;
+        this.intraCost = shared.intraCost;
+        this.entranceSlot = shared.entranceSlot;
+        this.queueSize = shared.queueSize;
+        this.structureShared = true;
+        shared.structureShared = true;
+    }
+
+    /**
+     * Constrói a abstração se ainda não existir ou se o grafo mudou sem passar por {@link #edgeChanged}.
+     * Pode ser chamado ao carregar o mapa para não pagar a construção na primeira consulta.
+     * @return false se o grafo não for uma grelha de vizinhança 4
+     */
+    public boolean ensureBuilt() {
+        if (!graph.isGridLayout()) return false;
+        if (graph.getEpoch() != builtEpoch) build();
+        return true;
+    }
+
+    /**
+     * Atualiza a abstração depois de a aresta entre {@code a} e {@code b} mudar de estado.
+     * Se a porta estiver numa fronteira, só os dois setores que ela separa são recalculados;
+     * se for interna, só o seu setor (e um vizinho, se a porta alterar os troços da fronteira).
+     * Se esta não for a única alteração desde a última atualização (ou o grafo ganhou salas ou
+     * arestas), a abstração fica desatualizada e é reconstruída na próxima consulta.
+     */
+    public void edgeChanged(int a, int b) {
+        if (builtEpoch != graph.getEpoch() - 1) return;
+        if (builtVertices != graph.size() || builtEdges != graph.getNumEdges()) return;
+        if (!graph.indexValid(a) || !graph.indexValid(b)) return;
+        builtEpoch = graph.getEpoch();
+        ownStructure();
+
+        int ca = clusterOf[a], cb = clusterOf[b];
+        if (ca != cb) {
+            buildBorder(Math.min(ca, cb), ca % clusterCols != cb % clusterCols ? EAST : SOUTH);
+            buildCluster(ca);
+            buildCluster(cb);
+            return;
+        }
+
+        // Uma porta interna junto à fronteira pode partir ou unir troços de transições
+        int cx = ca % clusterCols, cy = ca / clusterCols;
+        if (buildBorder(ca, EAST)) buildCluster(ca + 1);
+        if (buildBorder(ca, SOUTH)) buildCluster(ca + clusterCols);
+        if (cx > 0 && buildBorder(ca - 1, EAST)) buildCluster(ca - 1);
+        if (cy > 0 && buildBorder(ca - clusterCols, SOUTH)) buildCluster(ca - clusterCols);
+        buildCluster(ca);
+    }
+
+    /**
+     * Caminho completo entre dois vértices (todos os troços refinados)
+     * @return Vértices do caminho, ou array vazio se não houver caminho aberto
+     */
+    public int[] findPath(int source, int target) {
+        int cost = search(source, target);
+        if (cost == SparseGraph.INFINITY) return new int[0];
+
+        int[] path = new int[cost + 1];
+        int i = path.length - 1;
+        path[i] = target;
+        for (int w = target; w != source; w = parent[w]) {
+            int u = parent[w];
+            if (clusterOf[u] != clusterOf[w]) {
+                path[--i] = u;
+                continue;
+            }
+            localBfs(clusterOf[u], u);
+            for (int v = localParent[w]; v != -1; v = localParent[v]) path[--i] = v;
+        }
+        return path;
+    }
+
+    /**
+     * Primeiro passo do caminho entre dois vértices, refinando apenas o primeiro troço abstrato
+     * @return O vértice seguinte, ou -1 se já estiver no destino ou não houver caminho aberto
+     */
+    public int nextStep(int source, int target) {
+        if (source == target || search(source, target) == SparseGraph.INFINITY) return -1;
+
+        int w = target;
+        while (parent[w] != source) w = parent[w];
+        if (clusterOf[source] != clusterOf[w]) return w;
+
+        localBfs(clusterOf[source], source);
+        while (localParent[w] != source) w = localParent[w];
+        return w;
+    }
+
+    /**
+     * Custo do caminho abstrato entre dois vértices (igual ao número de passos do caminho refinado)
+     * @return O custo, ou {@link SparseGraph#INFINITY} se não houver caminho aberto
+     */
+    public int pathCost(int source, int target) {
+        return search(source, target);
+    }
+
+    /** Número de nós abstratos expandidos pela última consulta (para o benchmark) */
+    public int getLastExpanded() {
+        return lastExpanded;
+    }
+
+    /** Número total de entradas no grafo abstrato (para o benchmark) */
+    public int getEntranceCount() {
+        int total = 0;
+        for (int[] list : entrances) total += list.length;
+        return total;
+    }
+
+    // --- Pesquisa abstrata ---
+
+    /**
+     * A* sobre o grafo abstrato, com a origem e o destino ligados às entradas dos seus setores
+     * @return Custo do caminho (a cadeia de nós abstratos fica em {@code parent}) ou INFINITY
+     */
+    private int search(int source, int target) {
+        if (!graph.indexValid(source) || !graph.indexValid(target) || !ensureBuilt()) {
+            return SparseGraph.INFINITY;
+        }
+        if (source == target) return 0;
+
+        int cs = clusterOf[source], ct = clusterOf[target];
+        int direct = SparseGraph.INFINITY;
+
+        // Custos locais da origem e do destino até às entradas dos seus setores
+        localBfs(cs, source);
+        sourceCost = costsToEntrances(cs, sourceCost);
+        if (cs == ct) direct = localDistance(target);
+        localBfs(ct, target);
+        targetCost = costsToEntrances(ct, targetCost);
+
+        IndexedMinHeap heap = prepare();
+        int tx = graph.getX(target), ty = graph.getY(target);
+        lastExpanded = 0;
+
+        visitStamp[source] = searchStamp;
+        gScore[source] = 0;
+        parent[source] = -1;
+        heap.push(source, 0);
+
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            lastExpanded++;
+            if (u == target) {
+                heap.clear();
+                return gScore[u];
+            }
+
+            int g = gScore[u];
+            if (u == source) {
+                int[] list = entrances[cs];
+                for (int i = 0; i < list.length; i++) {
+                    if (sourceCost[i] != SparseGraph.INFINITY) relax(u, list[i], g + sourceCost[i], tx, ty);
+                }
+                if (direct != SparseGraph.INFINITY) relax(u, target, g + direct, tx, ty);
+                if (entranceSlot[u] == -1) continue;
+            }
+
+            int c = clusterOf[u];
+            int[] list = entrances[c];
+            int[] costs = intraCost[c];
+            int k = list.length;
+            int i = entranceSlot[u];
+
+            for (int j = 0; j < k; j++) {
+                int cost = costs[i * k + j];
+                if (j != i && cost != SparseGraph.INFINITY) relax(u, list[j], g + cost, tx, ty);
+            }
+            for (int s = 0; s < graph.getDegree(u); s++) {
+                int edge = graph.getEdge(u, s);
+                if (transition[edge] && !graph.isLocked(edge)) {
+                    relax(u, graph.getNeighbor(u, s), g + SparseGraph.COST_OPEN, tx, ty);
+                }
+            }
+            if (c == ct && targetCost[i] != SparseGraph.INFINITY) {
+                relax(u, target, g + targetCost[i], tx, ty);
+            }
+        }
+        return SparseGraph.INFINITY;
+    }
+
+    private void relax(int from, int v, int g, int tx, int ty) {
+        if (visitStamp[v] != searchStamp || g < gScore[v]) {
+            visitStamp[v] = searchStamp;
+            gScore[v] = g;
+            parent[v] = from;
+            openSet.push(v, g + Math.abs(graph.getX(v) - tx) + Math.abs(graph.getY(v) - ty));
+        }
+    }
+
+    /**
+     * Copia as distâncias da última BFS local para as entradas de um setor
+     */
+    private int[] costsToEntrances(int c, int[] buffer) {
+        int[] list = entrances[c];
+        if (buffer.length < list.length) buffer = new int[list.length];
+        for (int i = 0; i < list.length; i++) buffer[i] = localDistance(list[i]);
+        return buffer;
+    }
+
+    // --- Construção da abstração ---
+
+    private void build() {
+        int vertices = graph.size();
+        width = 0;
+        height = 0;
+        for (int v = 0; v < vertices; v++) {
+            width = Math.max(width, graph.getX(v) + 1);
+            height = Math.max(height, graph.getY(v) + 1);
+        }
+
+        cellVertex = new int[width * height];
+        for (int i = 0; i < cellVertex.length; i++) cellVertex[i] = -1;
+        for (int v = 0; v < vertices; v++) cellVertex[graph.getY(v) * width + graph.getX(v)] = v;
+
+        clusterCols = (width + clusterSize - 1) / clusterSize;
+        clusterRows = (height + clusterSize - 1) / clusterSize;
+        int clusters = clusterCols * clusterRows;
+
+        clusterOf = new int[vertices];
+        int largest = 0;
+        int[] population = new int[clusters];
+        for (int v = 0; v < vertices; v++) {
+            clusterOf[v] = (graph.getY(v) / clusterSize) * clusterCols + graph.getX(v) / clusterSize;
+            largest = Math.max(largest, ++population[clusterOf[v]]);
+        }
+
+        transition = new boolean[graph.getNumEdges()];
+        entranceSlot = new int[vertices];
+        for (int v = 0; v < vertices; v++) entranceSlot[v] = -1;
+        borderPairs = new int[clusters * 2][];
+        entrances = new int[clusters][];
+        intraCost = new int[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            borderPairs[c * 2 + EAST] = EMPTY;
+            borderPairs[c * 2 + SOUTH] = EMPTY;
+            entrances[c] = EMPTY;
+        }
+
+        queueSize = Math.max(largest, 1);
+        allocateLocal(vertices);
+        structureShared = false;
+
+        for (int c = 0; c < clusters; c++) {
+            buildBorder(c, EAST);
+            buildBorder(c, SOUTH);
+        }
+        for (int c = 0; c < clusters; c++) buildCluster(c);
+
+        builtVertices = vertices;
+        builtEdges = graph.getNumEdges();
+        builtEpoch = graph.getEpoch();
+    }
+
+    /**
+     * Escolhe as transições da fronteira a leste ou a sul de um setor.
+     * Um troço continua enquanto a passagem seguinte estiver aberta e as salas dos dois lados
+     * estiverem ligadas às do passo anterior, o que garante que qualquer passagem do troço se
+     * alcança a partir da transição escolhida sem sair dos dois setores.
+     * @return true se as transições escolhidas mudaram
+     */
+    private boolean buildBorder(int c, int dir) {
+        int cx = c % clusterCols, cy = c / clusterCols;
+        int[] old = borderPairs[c * 2 + dir];
+        int[] chosen = EMPTY;
+
+        boolean hasNeighbor = dir == EAST ? cx + 1 < clusterCols : cy + 1 < clusterRows;
+        if (hasNeighbor) {
+            int fixed = (dir == EAST ? cx : cy) * clusterSize + clusterSize - 1;
+            int from = (dir == EAST ? cy : cx) * clusterSize;
+            int to = Math.min(from + clusterSize, dir == EAST ? height : width);
+
+            int[] runEdgeA = new int[to - from];
+            int[] runEdgeB = new int[to - from];
+            int[] picked = new int[(to - from) * 2];
+            int count = 0;
+            int runStart = -1, prevA = -1, prevB = -1;
+
+            for (int i = from; i <= to; i++) {
+                int a = -1, b = -1;
+                if (i < to) {
+                    a = dir == EAST ? cell(fixed, i) : cell(i, fixed);
+                    b = dir == EAST ? cell(fixed + 1, i) : cell(i, fixed + 1);
+                    if (!open(a, b)) a = b = -1;
+                }
+                boolean continues = a != -1 && runStart != -1 && open(prevA, a) && open(prevB, b);
+
+                if (!continues && runStart != -1) {
+                    int end = i - 1 - from, start = runStart - from;
+                    if (end - start + 1 < LONG_RUN) {
+                        int mid = (start + end) / 2;
+                        picked[count++] = runEdgeA[mid];
+                        picked[count++] = runEdgeB[mid];
+                    } else {
+                        picked[count++] = runEdgeA[start];
+                        picked[count++] = runEdgeB[start];
+                        picked[count++] = runEdgeA[end];
+                        picked[count++] = runEdgeB[end];
+                    }
+                    runStart = -1;
+                }
+                if (a != -1) {
+                    if (runStart == -1) runStart = i;
+                    runEdgeA[i - from] = a;
+                    runEdgeB[i - from] = b;
+                }
+                prevA = a;
+                prevB = b;
+            }
+
+            chosen = new int[count];
+            System.arraycopy(picked, 0, chosen, 0, count);
+        }
+
+        for (int i = 0; i < old.length; i += 2) transition[graph.findEdge(old[i], old[i + 1])] = false;
+        for (int i = 0; i < chosen.length; i += 2) transition[graph.findEdge(chosen[i], chosen[i + 1])] = true;
+        borderPairs[c * 2 + dir] = chosen;
+        return !sameContents(old, chosen);
+    }
+
+    /**
+     * Recolhe as entradas de um setor (das suas quatro fronteiras) e recalcula os custos entre elas
+     */
+    private void buildCluster(int c) {
+        for (int v : entrances[c]) entranceSlot[v] = -1;
+
+        int cx = c % clusterCols, cy = c / clusterCols;
+        int[] east = borderPairs[c * 2 + EAST];
+        int[] south = borderPairs[c * 2 + SOUTH];
+        int[] west = cx > 0 ? borderPairs[(c - 1) * 2 + EAST] : EMPTY;
+        int[] north = cy > 0 ? borderPairs[(c - clusterCols) * 2 + SOUTH] : EMPTY;
+
+        int[] list = new int[(east.length + south.length + west.length + north.length) / 2];
+        int k = 0;
+        k = collect(east, 0, list, k);
+        k = collect(south, 0, list, k);
+        k = collect(west, 1, list, k);
+        k = collect(north, 1, list, k);
+        if (k != list.length) {
+            int[] trimmed = new int[k];
+            System.arraycopy(list, 0, trimmed, 0, k);
+            list = trimmed;
+        }
+        entrances[c] = list;
+
+        int[] costs = new int[k * k];
+        for (int i = 0; i < k; i++) {
+            localBfs(c, list[i]);
+            for (int j = 0; j < k; j++) costs[i * k + j] = localDistance(list[j]);
+        }
+        intraCost[c] = costs;
+    }
+
+    /**
+     * Adiciona as salas de um lado dos pares de transições à lista de entradas (sem repetições)
+     */
+    private int collect(int[] pairs, int side, int[] list, int k) {
+        for (int i = side; i < pairs.length; i += 2) {
+            int v = pairs[i];
+            if (entranceSlot[v] == -1) {
+                entranceSlot[v] = k;
+                list[k++] = v;
+            }
+        }
+        return k;
+    }
+
+    // --- Pesquisa local ---
+
+    /**
+     * BFS pelas arestas abertas sem sair do setor {@code c}
+     */
+    private void localBfs(int c, int source) {
+        if (localStamp == null) allocateLocal(builtVertices);
+        if (++localSearch == Integer.MAX_VALUE) {
+            for (int i = 0; i < localStamp.length; i++) localStamp[i] = 0;
+            localSearch = 1;
+        }
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        localStamp[source] = localSearch;
+        localDist[source] = 0;
+        localParent[source] = -1;
+
+        while (head < tail) {
+            int v = queue[head++];
+            for (int k = 0; k < graph.getDegree(v); k++) {
+                int n = graph.getNeighbor(v, k);
+                if (localStamp[n] == localSearch || clusterOf[n] != c || graph.isLocked(graph.getEdge(v, k))) continue;
+                localStamp[n] = localSearch;
+                localDist[n] = localDist[v] + 1;
+                localParent[n] = v;
+                queue[tail++] = n;
+            }
+        }
+    }
+
+    /**
+     * Cria os buffers da BFS local (numa instância partilhada só são criados na primeira consulta)
+     */
+    private void allocateLocal(int vertices) {
+        localDist = new int[vertices];
+        localParent = new int[vertices];
+        localStamp = new int[vertices];
+        localSearch = 0;
+        queue = new int[queueSize];
+    }
+
+    private int localDistance(int v) {
+        return localStamp[v] == localSearch ? localDist[v] : SparseGraph.INFINITY;
+    }
+
+    // --- Auxiliares ---
+
+    private int cell(int x, int y) {
+        return x < width && y < height ? cellVertex[y * width + x] : -1;
+    }
+
+    private boolean open(int a, int b) {
+        if (a == -1 || b == -1) return false;
+        int edge = graph.findEdge(a, b);
+        return edge != -1 && !graph.isLocked(edge);
+    }
+
+    /**
+     * Copia as tabelas que as portas alteram, se forem partilhadas (as listas de cada setor
+     * são substituídas e nunca alteradas, por isso basta copiar os arrays exteriores)
+     */
+    private void ownStructure() {
+        if (!structureShared) return;
+        borderPairs = borderPairs.clone();
+        transition = transition.clone();
+        entrances = entrances.clone();
+        intraCost = intraCost.clone();
+        entranceSlot = entranceSlot.clone();
+        structureShared = false;
+    }
+
+    private static boolean sameContents(int[] a, int[] b) {
+        if (a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Devolve a heap vazia e avança o carimbo da pesquisa abstrata
+     */
+    private IndexedMinHeap prepare() {
+        int capacity = graph.size();
+        if (openSet == null) {
+            openSet = new IndexedMinHeap(capacity);
+        } else {
+            openSet.ensureCapacity(capacity);
+            openSet.clear();
+        }
+        if (gScore == null || gScore.length < capacity) {
+            gScore = new int[capacity];
+            parent = new int[capacity];
+            visitStamp = new int[capacity];
+            searchStamp = 0;
+        }
+        if (++searchStamp == Integer.MAX_VALUE) {
+            for (int i = 0; i < visitStamp.length; i++) visitStamp[i] = 0;
+            searchStamp = 1;
+        }
+        return openSet;
+    }
+}
@@ -0,0 +1,144 @@
+package com.jogogloria.utils;
+
+/**
+ * Heap binária mínima indexada por vértice (índices inteiros de 0 a capacidade - 1).
+ * <p>
+ * Guarda a posição de cada vértice dentro da heap, o que permite diminuir a prioridade
+ * de um vértice já inserido em O(log n) em vez de inserir entradas duplicadas.
+ * Depois de criada não aloca memória: esvaziar a heap só percorre os elementos que lá ficaram.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+public class IndexedMinHeap {
+
+    /** Vértices por ordem de heap */
+    private int[] heap;
+
+    /** Posição de cada vértice na heap (-1 se não estiver na heap) */
+    private int[] position;
+
+    /** Prioridade atual de cada vértice */
+    private int[] priority;
+
+    private int size;
+
+    /**
+     * Cria uma heap para vértices de 0 a {@code capacity - 1}
+     * @param capacity Número de vértices suportados
+     */
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[Math.max(capacity, 1)];
+        this.position = new int[Math.max(capacity, 1)];
+        this.priority = new int[Math.max(capacity, 1)];
+        for (int i = 0; i < position.length; i++) position[i] = -1;
+    }
+
+    /**
+     * Garante espaço para vértices até {@code capacity - 1} (usado quando o grafo cresce)
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= position.length) return;
+        int[] newHeap = new int[capacity];
+        int[] newPosition = new int[capacity];
+        int[] newPriority = new int[capacity];
+        System.arraycopy(heap, 0, newHeap, 0, size);
+        System.arraycopy(position, 0, newPosition, 0, position.length);
+        System.arraycopy(priority, 0, newPriority, 0, priority.length);
+        for (int i = position.length; i < capacity; i++) newPosition[i] = -1;
+        heap = newHeap;
+        position = newPosition;
+        priority = newPriority;
+    }
+
+    /** Verifica se a heap está vazia */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Número de vértices na heap */
+    public int size() {
+        return size;
+    }
+
+    /** Verifica se um vértice está na heap */
+    public boolean contains(int v) {
+        return position[v] != -1;
+    }
+
+    /**
+     * Insere um vértice, ou diminui a sua prioridade se já estiver na heap
+     * (uma prioridade maior do que a atual é ignorada)
+     */
+    public void push(int v, int newPriority) {
+        int i = position[v];
+        if (i == -1) {
+            i = size++;
+            heap[i] = v;
+            position[v] = i;
+        } else if (newPriority >= priority[v]) {
+            return;
+        }
+        priority[v] = newPriority;
+        siftUp(i);
+    }
+
+    /** Prioridade do vértice no topo */
+    public int peekPriority() {
+        return priority[heap[0]];
+    }
+
+    /**
+     * Remove e devolve o vértice com menor prioridade
+     */
+    public int pop() {
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /** Esvazia a heap (custo proporcional aos elementos que ainda lá estão) */
+    public void clear() {
+        for (int i = 0; i < size; i++) position[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        int p = priority[v];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int pv = heap[parent];
+            if (priority[pv] <= p) break;
+            heap[i] = pv;
+            position[pv] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        position[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        int p = priority[v];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && priority[heap[child + 1]] < priority[heap[child]]) child++;
+            int cv = heap[child];
+            if (priority[cv] >= p) break;
+            heap[i] = cv;
+            position[cv] = i;
+            i = child;
+        }
+        heap[i] = v;
+        position[v] = i;
+    }
+}
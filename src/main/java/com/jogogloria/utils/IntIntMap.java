@@ -0,0 +1,164 @@
+package com.jogogloria.utils;
+
+/**
+ * Mapa de inteiros para inteiros, sem objetos por entrada.
+ * Mesma organização do {@link IntMap} (endereçamento aberto, sondagem linear, tabela potência
+ * de dois), mas com os valores num {@code int[]}. Serve para estado esparso indexado por células
+ * de mapas demasiado grandes para arrays densos.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+public class IntIntMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+
+    private int size;
+    private int threshold;
+
+    /**
+     * Construtor padrão
+     */
+    public IntIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize Número esperado de entradas
+     */
+    public IntIntMap(int expectedSize) {
+        allocate(SimpleMap.tableSizeFor((int) (expectedSize / LOAD_FACTOR) + 1));
+    }
+
+    /**
+     * Insere ou substitui o valor associado a uma chave
+     */
+    public void put(int key, int value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Valor associado a uma chave
+     * @param missing Valor devolvido se a chave não existir
+     */
+    public int get(int key, int missing) {
+        int slot = find(key);
+        return slot == -1 ? missing : values[slot];
+    }
+
+    /**
+     * Verifica se o mapa contém uma chave
+     */
+    public boolean containsKey(int key) {
+        return find(key) != -1;
+    }
+
+    /**
+     * Remove uma chave. As entradas seguintes do mesmo grupo recuam para o lugar libertado,
+     * para a sondagem linear continuar a encontrá-las sem marcas de apagado.
+     * @return true se a chave existia
+     */
+    public boolean remove(int key) {
+        int slot = find(key);
+        if (slot == -1) return false;
+
+        int mask = keys.length - 1;
+        int next = (slot + 1) & mask;
+        while (used[next]) {
+            int home = hash(keys[next]) & mask;
+            // A entrada pode ocupar o buraco se a sua posição ideal não estiver entre o buraco e ela
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[slot] = false;
+        size--;
+        return true;
+    }
+
+    /**
+     * Remove todas as entradas, mantendo a capacidade
+     */
+    public void clear() {
+        for (int i = 0; i < used.length; i++) used[i] = false;
+        size = 0;
+    }
+
+    /**
+     * Número de entradas armazenadas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Memória ocupada pelos arrays da tabela, em bytes
+     */
+    public long getMemoryBytes() {
+        return 9L * keys.length;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(newCapacity);
+
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,148 @@
+package com.jogogloria.utils;
+
+/**
+ * Variante do {@link SimpleMap} com chaves inteiras primitivas.
+ * Evita criar objetos {@code Integer} por chave e guarda as chaves num {@code int[]},
+ * com endereçamento aberto e sondagem linear sobre uma tabela de tamanho potência de dois.
+ * @param <V> O tipo de dados do valor (Value) armazenado
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+public class IntMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    /** Chaves guardadas */
+    private int[] keys;
+
+    /** Valores associados a cada posição */
+    private Object[] values;
+
+    /** Marca as posições ocupadas (qualquer inteiro é uma chave válida) */
+    private boolean[] used;
+
+    private int size;
+    private int threshold;
+
+    /**
+     * Construtor padrão
+     */
+    public IntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Cria um mapa com capacidade para um número esperado de entradas sem redimensionar
+     * @param expectedSize Número esperado de entradas
+     */
+    public IntMap(int expectedSize) {
+        allocate(SimpleMap.tableSizeFor((int) (expectedSize / LOAD_FACTOR) + 1));
+    }
+
+    /**
+     * Insere ou substitui o valor associado a uma chave
+     * @param key A chave
+     * @param value O valor
+     */
+    public void put(int key, V value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Recupera o valor associado a uma chave
+     * @return O valor, ou {@code null} se a chave não existir
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = find(key);
+        return slot == -1 ? null : (V) values[slot];
+    }
+
+    /**
+     * Verifica se o mapa contém uma chave
+     */
+    public boolean containsKey(int key) {
+        return find(key) != -1;
+    }
+
+    /**
+     * Número de entradas armazenadas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Chaves armazenadas, pela ordem da tabela
+     * @return Um array novo com {@link #size()} chaves
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int k = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) result[k++] = keys[i];
+        }
+        return result;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(newCapacity);
+
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /**
+     * Mistura os bits da chave (chaves sequenciais ficariam todas seguidas na tabela)
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,272 @@
+package com.jogogloria.utils;
+
+/**
+ * Jump Point Search para grelhas de vizinhança 4 representadas num {@link SparseGraph}.
+ * <p>
+ * Em vez de expandir todas as salas de um corredor, a pesquisa "salta" em linha reta até
+ * encontrar um ponto de decisão (vizinho forçado, o destino ou, nos saltos verticais, uma
+ * sala de onde um salto horizontal encontra um ponto de decisão). Apenas esses pontos entram
+ * na fila do A*, o que elimina os caminhos simétricos dos corredores longos.
+ * </p>
+ * <p>
+ * As paredes são as arestas em falta ou trancadas: só se atravessam arestas abertas.
+ * Se não existir caminho só com portas abertas devolve um array vazio, e quem chama decide
+ * se quer recorrer ao A* com pesos (que atravessa portas trancadas com custo elevado).
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+public class JumpPointSearch {
+
+    // Direções: 0 = direita, 1 = esquerda, 2 = baixo, 3 = cima (a oposta de d é d ^ 1)
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private final SparseGraph graph;
+
+    /**
+     * Vizinho aberto de cada vértice em cada direção ({@code v * 4 + d}, -1 = bloqueado).
+     * Evita percorrer a lista de adjacência a cada passo de um salto.
+     */
+    private int[] links;
+
+    /** Época do grafo refletida em {@code links} (-1 = por construir) e número de vértices nessa altura */
+    private long linkedEpoch = -1;
+    private int linkedVertices;
+
+    // Buffers da pesquisa (reutilizados entre chamadas, tal como no SparseGraph)
+    private IndexedMinHeap openSet;
+    private int[] gScore;
+    private int[] parent;
+    private int[] visitStamp;
+    private int searchStamp;
+    private int lastExpanded;
+
+    /** Destino da pesquisa atual (consultado durante os saltos) */
+    private int target;
+
+    /**
+     * @param graph Grafo em grelha sobre o qual se pesquisa
+     */
+    public JumpPointSearch(SparseGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Caminho mais curto entre dois vértices usando apenas arestas abertas
+     * @return Todos os vértices do caminho (origem e destino incluídos), ou array vazio se não
+     *         houver caminho aberto ou o grafo não for uma grelha de vizinhança 4
+     */
+    public int[] findPath(int source, int target) {
+        if (!graph.indexValid(source) || !graph.indexValid(target) || !graph.isGridLayout()) {
+            return new int[0];
+        }
+        if (search(source, target) == SparseGraph.INFINITY) return new int[0];
+
+        int[] path = new int[gScore[target] + 1];
+        int i = path.length - 1;
+        path[i] = target;
+        for (int v = target; v != source; v = parent[v]) {
+            int d = direction(parent[v], v) ^ 1;
+            int n = v;
+            while (n != parent[v]) {
+                n = step(n, d);
+                path[--i] = n;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Atualiza a tabela de vizinhos depois de a aresta entre {@code a} e {@code b} ser criada,
+     * trancada ou destrancada. Só é possível se essa for a única alteração desde a última
+     * atualização; caso contrário a tabela fica desatualizada e é reconstruída na próxima pesquisa.
+     */
+    public void edgeChanged(int a, int b) {
+        if (linkedEpoch != graph.getEpoch() - 1 || a < 0 || b < 0 || a >= linkedVertices || b >= linkedVertices) return;
+        for (int d = 0; d < 4; d++) {
+            links[a * 4 + d] = scan(a, d);
+            links[b * 4 + d] = scan(b, d);
+        }
+        linkedEpoch = graph.getEpoch();
+    }
+
+    /**
+     * Número de pontos de salto expandidos pela última pesquisa (para o benchmark)
+     */
+    public int getLastExpanded() {
+        return lastExpanded;
+    }
+
+    /**
+     * A* sobre os pontos de salto
+     * @return Custo do caminho (número de passos) ou {@link SparseGraph#INFINITY}
+     */
+    private int search(int source, int target) {
+        IndexedMinHeap heap = prepare();
+        this.target = target;
+        int tx = graph.getX(target), ty = graph.getY(target);
+        lastExpanded = 0;
+
+        visitStamp[source] = searchStamp;
+        gScore[source] = 0;
+        parent[source] = -1;
+        heap.push(source, manhattan(source, tx, ty));
+
+        while (!heap.isEmpty()) {
+            int v = heap.pop();
+            lastExpanded++;
+            if (v == target) {
+                heap.clear();
+                return gScore[v];
+            }
+
+            if (parent[v] == -1) {
+                for (int d = 0; d < 4; d++) expand(v, d, heap, tx, ty);
+            } else {
+                // Vizinhos naturais: continuar em frente e virar para os dois lados (nunca voltar atrás)
+                int d = direction(parent[v], v);
+                expand(v, d, heap, tx, ty);
+                int side = d < 2 ? 2 : 0;
+                expand(v, side, heap, tx, ty);
+                expand(v, side + 1, heap, tx, ty);
+            }
+        }
+        return SparseGraph.INFINITY;
+    }
+
+    /**
+     * Salta a partir de {@code v} na direção {@code d} e coloca o ponto encontrado na fila
+     */
+    private void expand(int v, int d, IndexedMinHeap heap, int tx, int ty) {
+        int jump = d < 2 ? jumpHorizontal(v, d) : jumpVertical(v, d);
+        if (jump == -1) return;
+
+        int ng = gScore[v] + manhattan(jump, graph.getX(v), graph.getY(v));
+        if (visitStamp[jump] != searchStamp || ng < gScore[jump]) {
+            visitStamp[jump] = searchStamp;
+            gScore[jump] = ng;
+            parent[jump] = v;
+            heap.push(jump, ng + manhattan(jump, tx, ty));
+        }
+    }
+
+    /**
+     * Avança na horizontal até ao destino ou a uma sala com vizinho forçado
+     * @return O ponto de salto, ou -1 se o corredor terminar sem nada de interesse
+     */
+    private int jumpHorizontal(int from, int d) {
+        int p = from;
+        int n = step(from, d);
+        while (n != -1) {
+            if (n == target || forced(p, n, d, 2) || forced(p, n, d, 3)) return n;
+            p = n;
+            n = step(n, d);
+        }
+        return -1;
+    }
+
+    /**
+     * Avança na vertical; além dos vizinhos forçados, pára numa sala de onde um
+     * salto horizontal encontra um ponto de salto
+     */
+    private int jumpVertical(int from, int d) {
+        int p = from;
+        int n = step(from, d);
+        while (n != -1) {
+            if (n == target || forced(p, n, d, 0) || forced(p, n, d, 1)) return n;
+            if (jumpHorizontal(n, 0) != -1 || jumpHorizontal(n, 1) != -1) return n;
+            p = n;
+            n = step(n, d);
+        }
+        return -1;
+    }
+
+    /**
+     * Vizinho forçado: a sala ao lado de {@code n} (direção {@code side}) está aberta, mas não se
+     * chega lá com o mesmo custo dando a volta pelo lado de {@code p} (a sala anterior do salto).
+     */
+    private boolean forced(int p, int n, int d, int side) {
+        int nSide = step(n, side);
+        if (nSide == -1) return false;
+        int pSide = step(p, side);
+        return pSide == -1 || step(pSide, d) != nSide;
+    }
+
+    /**
+     * Vizinho de {@code v} na direção {@code d} através de uma aresta aberta
+     * @return O vizinho, ou -1 se houver parede ou porta trancada
+     */
+    private int step(int v, int d) {
+        return links[v * 4 + d];
+    }
+
+    /**
+     * Procura na lista de adjacência o vizinho aberto de {@code v} na direção {@code d}
+     */
+    private int scan(int v, int d) {
+        int nx = graph.getX(v) + DX[d];
+        int ny = graph.getY(v) + DY[d];
+        for (int k = 0; k < graph.getDegree(v); k++) {
+            int n = graph.getNeighbor(v, k);
+            if (graph.getX(n) == nx && graph.getY(n) == ny) {
+                return graph.isLocked(graph.getEdge(v, k)) ? -1 : n;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Direção do segmento reto de {@code from} para {@code to}
+     */
+    private int direction(int from, int to) {
+        int dx = graph.getX(to) - graph.getX(from);
+        if (dx != 0) return dx > 0 ? 0 : 1;
+        return graph.getY(to) > graph.getY(from) ? 2 : 3;
+    }
+
+    private int manhattan(int v, int x, int y) {
+        return Math.abs(graph.getX(v) - x) + Math.abs(graph.getY(v) - y);
+    }
+
+    /**
+     * (Re)constrói a tabela de vizinhos se o grafo mudou desde a última atualização
+     */
+    private void buildLinks() {
+        if (linkedEpoch == graph.getEpoch()) return;
+        int vertices = graph.size();
+
+        if (links == null || links.length < vertices * 4) links = new int[vertices * 4];
+        for (int v = 0; v < vertices; v++) {
+            for (int d = 0; d < 4; d++) links[v * 4 + d] = scan(v, d);
+        }
+        linkedVertices = vertices;
+        linkedEpoch = graph.getEpoch();
+    }
+
+    /**
+     * Devolve a heap vazia e avança o carimbo da pesquisa, acompanhando o crescimento do grafo
+     */
+    private IndexedMinHeap prepare() {
+        buildLinks();
+        int capacity = graph.size();
+        if (openSet == null) {
+            openSet = new IndexedMinHeap(capacity);
+        } else {
+            openSet.ensureCapacity(capacity);
+            openSet.clear();
+        }
+        if (gScore == null || gScore.length < capacity) {
+            gScore = new int[capacity];
+            parent = new int[capacity];
+            visitStamp = new int[capacity];
+            searchStamp = 0;
+        }
+        if (++searchStamp == Integer.MAX_VALUE) {
+            for (int i = 0; i < visitStamp.length; i++) visitStamp[i] = 0;
+            searchStamp = 1;
+        }
+        return openSet;
+    }
+}
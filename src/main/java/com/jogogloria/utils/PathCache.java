@@ -0,0 +1,246 @@
+package com.jogogloria.utils;
+
+/**
+ * Cache LRU de caminhos entre pares de vértices, válida para uma época do grafo.
+ * <p>
+ * A chave é (origem, destino, época). Como a época do {@link SparseGraph} só avança, as entradas
+ * de épocas anteriores nunca voltam a ser úteis: quando chega uma consulta com uma época nova a
+ * cache é esvaziada de uma vez. Dentro da mesma época, uma consulta repetida nunca volta a pesquisar.
+ * </p>
+ * <p>
+ * As entradas vivem em arrays paralelos com uma lista duplamente ligada por índices (a cabeça é a
+ * mais recente) e uma tabela de endereçamento aberto com sondagem linear; remover usa o
+ * deslocamento para trás, por isso não há marcas de apagado. A cache está limitada em número de
+ * entradas e no total de vértices guardados nos caminhos.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+public class PathCache {
+
+    /** Número de entradas por defeito */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** Total de vértices guardados por defeito (4 MB de caminhos) */
+    public static final int DEFAULT_MAX_STORED = 1 << 20;
+
+    private static final int NONE = -1;
+
+    private final int capacity;
+    private final int maxStored;
+
+    // Entradas (arrays paralelos)
+    private final int[] from;
+    private final int[] to;
+    private final int[][] paths;
+    private final int[] costs;
+    private final int[] prev;
+    private final int[] next;
+
+    /** Tabela de dispersão: índice da entrada em cada posição, ou {@link #NONE} */
+    private final int[] table;
+
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    private int stored;
+    private long cacheEpoch = -1;
+
+    // Contadores
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Cria uma cache com os limites por defeito
+     */
+    public PathCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_STORED);
+    }
+
+    /**
+     * @param capacity  Número máximo de caminhos
+     * @param maxStored Número máximo de vértices somados em todos os caminhos
+     */
+    public PathCache(int capacity, int maxStored) {
+        this.capacity = Math.max(1, capacity);
+        this.maxStored = maxStored;
+        this.from = new int[this.capacity];
+        this.to = new int[this.capacity];
+        this.paths = new int[this.capacity][];
+        this.costs = new int[this.capacity];
+        this.prev = new int[this.capacity];
+        this.next = new int[this.capacity];
+        this.table = new int[SimpleMap.tableSizeFor(this.capacity * 2)];
+        for (int i = 0; i < table.length; i++) table[i] = NONE;
+    }
+
+    /**
+     * Procura o caminho de um par na época dada e marca-o como o mais recente
+     * @return O índice da entrada (para {@link #getPath}/{@link #getCost}), ou -1 se não estiver na cache.
+     *         O índice só é válido até ao próximo {@link #put}.
+     */
+    public int find(int source, int target, long epoch) {
+        if (epoch != cacheEpoch) {
+            clear();
+            cacheEpoch = epoch;
+        }
+        int slot = slotOf(source, target);
+        if (slot == NONE) {
+            misses++;
+            return NONE;
+        }
+        int entry = table[slot];
+        hits++;
+        moveToFront(entry);
+        return entry;
+    }
+
+    /**
+     * Guarda o caminho de um par, despejando as entradas menos usadas se for preciso
+     * @param path Caminho (não deve ser alterado depois de guardado; a cache não o copia)
+     * @param cost Custo do caminho
+     * @return O índice da nova entrada
+     */
+    public int put(int source, int target, long epoch, int[] path, int cost) {
+        if (epoch != cacheEpoch) {
+            clear();
+            cacheEpoch = epoch;
+        }
+        int existing = slotOf(source, target);
+        if (existing != NONE) remove(table[existing]);
+
+        while (size > 0 && (size == capacity || stored + path.length > maxStored)) {
+            remove(tail);
+            evictions++;
+        }
+
+        // As entradas ocupam sempre os índices 0..size-1 (remove() move a última para o buraco)
+        int entry = size++;
+        from[entry] = source;
+        to[entry] = target;
+        paths[entry] = path;
+        costs[entry] = cost;
+        stored += path.length;
+        prev[entry] = NONE;
+        next[entry] = head;
+        if (head != NONE) prev[head] = entry;
+        head = entry;
+        if (tail == NONE) tail = entry;
+
+        int mask = table.length - 1;
+        int slot = hash(source, target) & mask;
+        while (table[slot] != NONE) slot = (slot + 1) & mask;
+        table[slot] = entry;
+        return entry;
+    }
+
+    /** Caminho guardado numa entrada */
+    public int[] getPath(int entry) {
+        return paths[entry];
+    }
+
+    /** Custo do caminho guardado numa entrada */
+    public int getCost(int entry) {
+        return costs[entry];
+    }
+
+    /**
+     * Esvazia a cache (os contadores mantêm-se)
+     */
+    public void clear() {
+        for (int i = 0; i < table.length; i++) table[i] = NONE;
+        for (int i = 0; i < size; i++) paths[i] = null;
+        head = tail = NONE;
+        size = 0;
+        stored = 0;
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+
+    /** Número de caminhos guardados */
+    public int size() { return size; }
+
+    /** Total de vértices guardados nos caminhos */
+    public int getStoredVertices() { return stored; }
+
+    // --- Internos ---
+
+    private int slotOf(int source, int target) {
+        int mask = table.length - 1;
+        int slot = hash(source, target) & mask;
+        while (table[slot] != NONE) {
+            int e = table[slot];
+            if (from[e] == source && to[e] == target) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Remove uma entrada da lista e da tabela e move a última entrada para o seu índice
+     */
+    private void remove(int entry) {
+        unlink(entry);
+        deleteSlot(slotOf(from[entry], to[entry]));
+        stored -= paths[entry].length;
+
+        int last = --size;
+        if (entry != last) {
+            // Mover a última entrada para o índice livre, corrigindo a lista e a tabela
+            table[slotOf(from[last], to[last])] = entry;
+            from[entry] = from[last];
+            to[entry] = to[last];
+            paths[entry] = paths[last];
+            costs[entry] = costs[last];
+            prev[entry] = prev[last];
+            next[entry] = next[last];
+            if (prev[entry] != NONE) next[prev[entry]] = entry; else head = entry;
+            if (next[entry] != NONE) prev[next[entry]] = entry; else tail = entry;
+        }
+        paths[last] = null;
+    }
+
+    /**
+     * Apaga uma posição da tabela e desloca para trás as chaves seguintes do mesmo grupo
+     */
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        table[slot] = NONE;
+        int i = (slot + 1) & mask;
+        while (table[i] != NONE) {
+            int e = table[i];
+            int home = hash(from[e], to[e]) & mask;
+            // A entrada pode ocupar o buraco se a sua posição ideal não estiver entre o buraco e i
+            if (((i - home) & mask) >= ((i - slot) & mask)) {
+                table[slot] = e;
+                table[i] = NONE;
+                slot = i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void unlink(int entry) {
+        if (prev[entry] != NONE) next[prev[entry]] = next[entry]; else head = next[entry];
+        if (next[entry] != NONE) prev[next[entry]] = prev[entry]; else tail = prev[entry];
+    }
+
+    private void moveToFront(int entry) {
+        if (entry == head) return;
+        unlink(entry);
+        prev[entry] = NONE;
+        next[entry] = head;
+        if (head != NONE) prev[head] = entry;
+        head = entry;
+        if (tail == NONE) tail = entry;
+    }
+
+    private static int hash(int source, int target) {
+        int h = source * 0x9E3779B9 + target;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,99 +1,94 @@
 package com.jogogloria.utils;
 
-import com.example.Biblioteca.lists.ArrayUnorderedList;
-import com.example.Biblioteca.iterators.Iterator;
-
 /**
  * Implementação simples de HashMap que associa chaves a valores
  * Esta estrutura permite armazenar dois objetos e recuperar rapidamente o valor a partir da chave
- * Utiliza {@link ArrayUnorderedList} para armazenar as entradas, ao contrário de uma HashMap tradicional
- * esta estrutura requer uma iteração linear sobre a lista logo tem complexidade O(n)
+ * Utiliza endereçamento aberto com sondagem linear sobre uma tabela de tamanho potência de dois,
+ * que é redimensionada quando o fator de carga é ultrapassado.
+ * As operações {@code put}, {@code get}, {@code containsKey} e {@code remove} têm custo médio O(1)
  * @param <K> O tipo de dados de chave (Key)
  * @param <V> O tipo de dados do valor (Value) armazenado
  *
  * @author Hugo Gonçalves
- * @version 1.0
+ * @version 2.1
  */
 public class SimpleMap<K, V> {
 
-    /**
-     * Classe interna que representa um par Chave-valor
-     * @param <K> Tipo de chave
-     * @param <V> Tipo de valor
-     */
-    private static class Entry<K, V> implements Comparable<Entry<K, V>> {
-        K key;
-        V value;
-
-        /**
-         * Cria uma nova entrada
-         * @param key Chave única
-         * @param value O valor associado
-         */
-        public Entry(K key, V value) {
-            this.key = key;
-            this.value = value;
-        }
+    /** Capacidade inicial da tabela (potência de dois) */
+    private static final int DEFAULT_CAPACITY = 16;
 
-        /**
-         * Comparação baseada na estrutura
-         * Necessário para a estrutura da interface da biblioteca
-         * @param o Entrada a comparar
-         * @return 0
-         */
-        @Override
-        public int compareTo(Entry<K, V> o) {
-            return 0;
-        }
-    }
+    /** Fração máxima de posições ocupadas antes de duplicar a tabela */
+    private static final float LOAD_FACTOR = 0.7f;
+
+    /** Chaves guardadas (posição {@code null} = livre) */
+    private Object[] keys;
 
-    /** Lista interna que armazena as entradas do mapa */
-    private ArrayUnorderedList<Entry<K, V>> entries;
+    /** Valores associados a cada posição da tabela */
+    private Object[] values;
+
+    /** Número de entradas armazenadas */
+    private int size;
+
+    /** Número de entradas a partir do qual a tabela cresce */
+    private int threshold;
 
     /**
      * Construtor padrão
-     * Inicia o mapa ao criar a lista vazia
+     * Inicia o mapa com uma tabela vazia
      */
     public SimpleMap() {
-        this.entries = new ArrayUnorderedList<>();
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Cria um mapa com capacidade para um número esperado de entradas sem redimensionar
+     * @param expectedSize Número esperado de entradas
+     */
+    public SimpleMap(int expectedSize) {
+        int capacity = tableSizeFor((int) (expectedSize / LOAD_FACTOR) + 1);
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        this.threshold = (int) (capacity * LOAD_FACTOR);
     }
 
     /**
      * Insere um par chave-valor no mapa
      * Se a chave existir, o valor anterior é substituido pelo novo valor
-     * Se a chave não existir, cria uma nova entrada e adiciona-a á lista
-     * @param key A chave a ser inserida ou atualizada
+     * Se a chave não existir, ocupa a primeira posição livre a partir do seu hash
+     * @param key A chave a ser inserida ou atualizada (não pode ser {@code null})
      * @param value O valor a associa à chave
      */
     public void put(K key, V value) {
-        Iterator<Entry<K, V>> it = entries.iterator();
-        while (it.hasNext()) {
-            Entry<K, V> entry = it.next();
+        if (key == null) throw new IllegalArgumentException("A chave não pode ser null");
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
             //Verifica se a chave já existe
-            if (entry.key.equals(key)) {
-                entry.value = value; //Atualiza o valor existente
+            if (keys[slot].equals(key)) {
+                values[slot] = value; //Atualiza o valor existente
                 return;
             }
+            slot = (slot + 1) & mask;
+        }
+
+        //Se não encontrou, ocupa a posição livre
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            resize(keys.length * 2);
         }
-        //Se não encontrou, cria nova entrada
-        Entry<K, V> newEntry = new Entry<>(key, value);
-        entries.addToRear(newEntry);
     }
 
     /**
      * Recupera o valor associado a uma determinada chave
      * @param key A chave cujo valor se pretende obter
-     * @return O valor associado á chave, ou se a chave não existir no mapa
+     * @return O valor associado á chave, ou null se a chave não existir no mapa
      */
+    @SuppressWarnings("unchecked")
     public V get(K key) {
-        Iterator<Entry<K, V>> it = entries.iterator();
-        while (it.hasNext()) {
-            Entry<K, V> entry = it.next();
-            if (entry.key.equals(key)) {
-                return entry.value;
-            }
-        }
-        return null;
+        int slot = find(key);
+        return slot == -1 ? null : (V) values[slot];
     }
 
     /**
@@ -102,7 +97,46 @@ public class SimpleMap<K, V> {
      * @return true se a chave existir, false caso contrário
      */
     public boolean containsKey(K key) {
-        return get(key) != null;
+        return find(key) != -1;
+    }
+
+    /**
+     * Remove uma chave e o seu valor. As entradas seguintes do mesmo grupo recuam para o lugar
+     * libertado, para a sondagem linear continuar a encontrá-las sem marcas de apagado.
+     * @param key A chave a remover
+     * @return true se a chave existia
+     */
+    public boolean remove(K key) {
+        int slot = find(key);
+        if (slot == -1) return false;
+
+        int mask = keys.length - 1;
+        int next = (slot + 1) & mask;
+        while (keys[next] != null) {
+            int home = hash(keys[next]) & mask;
+            // A entrada pode ocupar o buraco se a sua posição ideal não estiver entre o buraco e ela
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[slot] = null;
+        values[slot] = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * Remove todas as entradas, mantendo a capacidade da tabela
+     */
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        size = 0;
     }
 
     /**
@@ -110,6 +144,61 @@ public class SimpleMap<K, V> {
      * @return Tamanho atual do mapa
      */
     public int size() {
-        return entries.size();
+        return size;
+    }
+
+    /**
+     * Procura a posição de uma chave na tabela
+     * @return A posição, ou -1 se a chave não existir
+     */
+    private int find(Object key) {
+        if (key == null) return -1;
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Duplica a tabela e reinsere todas as entradas
+     */
+    private void resize(int newCapacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new Object[newCapacity];
+        values = new Object[newCapacity];
+        threshold = (int) (newCapacity * LOAD_FACTOR);
+
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /**
+     * Espalha os bits altos do hashCode pelos baixos (a tabela só usa os bits baixos)
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Menor potência de dois maior ou igual a {@code n}
+     */
+    static int tableSizeFor(int n) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < n && capacity < (1 << 30)) capacity <<= 1;
+        return capacity;
     }
-}
\ No newline at end of file
+}
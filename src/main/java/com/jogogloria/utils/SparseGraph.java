@@ -0,0 +1,651 @@
+package com.jogogloria.utils;
+
+/**
+ * Grafo esparso não dirigido com vértices indexados por inteiros densos.
+ * <p>
+ * Substitui a matriz de adjacência V×V do {@code WeightedGraph} da biblioteca.
+ * Cada vértice reserva um número fixo de "slots" de vizinhos (4 por defeito, o caso
+ * de uma grelha com vizinhança de 4), guardados em arrays primitivos contínuos.
+ * Cada aresta tem um id próprio e o estado de tranca é guardado num bit por aresta.
+ * A memória cresce com O(V + E) em vez de O(V²).
+ * </p>
+ * <p>
+ * Os caminhos ponto-a-ponto usam A* com a distância de Manhattan sobre as coordenadas
+ * da grelha, pelo que em mapas abertos só é explorado um "corredor" de vértices.
+ * </p>
+ * <p>
+ * Vários jogos sobre o mesmo mapa podem partilhar a topologia com {@link #overlay()}: a cópia
+ * reutiliza os arrays de vizinhos e coordenadas e só copia os bits das trancas (ou a topologia)
+ * na primeira vez que os altera. Cada cópia tem os seus próprios buffers de pesquisa, por isso
+ * cópias diferentes podem pesquisar em threads diferentes.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 2.3
+ */
+public class SparseGraph {
+
+    /** Custo de atravessar uma aresta aberta */
+    public static final int COST_OPEN = 1;
+
+    /** Custo de atravessar uma aresta trancada (mantém a semântica antiga do peso 10000) */
+    public static final int COST_LOCKED = 10000;
+
+    /** Distância usada para vértices inalcançáveis */
+    public static final int INFINITY = Integer.MAX_VALUE;
+
+    /** Número de slots de vizinhos reservado inicialmente por vértice */
+    private static final int DEFAULT_DEGREE = 4;
+
+    private int numVertices;
+    private int numEdges;
+
+    /** Slots reservados por vértice (cresce se algum vértice tiver mais vizinhos) */
+    private int stride;
+
+    /** Número de vizinhos de cada vértice */
+    private int[] degree;
+
+    /** Vizinho guardado em cada slot ({@code v * stride + k}) */
+    private int[] adjTarget;
+
+    /** Id da aresta guardada em cada slot */
+    private int[] adjEdge;
+
+    /** Estado de tranca de cada aresta (um bit por aresta) */
+    private long[] lockBits;
+
+    /** Contador de alterações à topologia (salas, arestas ou trancas); só aumenta */
+    private long epoch;
+
+    /** Coordenadas de cada vértice na grelha (heurística do A*) */
+    private int[] posX;
+    private int[] posY;
+
+    /** Falso se algum vértice foi criado sem coordenadas */
+    private boolean positionsKnown = true;
+
+    /** Falso se alguma aresta liga células que não são vizinhas na grelha */
+    private boolean gridEdgesOnly = true;
+
+    private boolean heuristicEnabled = true;
+
+    // Copy-on-write: os arrays continuam partilhados com outras cópias (overlay) até à primeira escrita
+    private boolean topologyShared;
+    private boolean locksShared;
+
+    // Buffers da pesquisa ponto-a-ponto (reutilizados entre chamadas)
+    private IndexedMinHeap openSet;
+    private int[] gScore;
+    private int[] parent;
+    private int[] visitStamp;
+    private int searchStamp;
+    private int lastExpanded;
+
+    // Buffers extra da BFS bidirecional (o lado da origem usa gScore/parent/visitStamp)
+    private int[] frontQueue;
+    private int[] backQueue;
+    private int[] backDist;
+    private int[] backParent;
+    private int[] backStamp;
+
+    /**
+     * Cria um grafo vazio
+     */
+    public SparseGraph() {
+        this(16);
+    }
+
+    /**
+     * Cria um grafo vazio com capacidade inicial para um número de vértices
+     * @param expectedVertices Número esperado de vértices (evita realocações)
+     */
+    public SparseGraph(int expectedVertices) {
+        int capacity = Math.max(expectedVertices, 1);
+        this.stride = DEFAULT_DEGREE;
+        this.degree = new int[capacity];
+        this.adjTarget = new int[capacity * stride];
+        this.adjEdge = new int[capacity * stride];
+        this.lockBits = new long[(capacity * 2 + 63) >>> 6];
+        this.posX = new int[capacity];
+        this.posY = new int[capacity];
+    }
+
+    /**
+     * Cópia que partilha os arrays deste grafo (ver {@link #overlay()})
+     */
+    private SparseGraph(SparseGraph shared) {
+        this.numVertices = shared.numVertices;
+        this.numEdges = shared.numEdges;
+        this.stride = shared.stride;
+        this.degree = shared.degree;
+        this.adjTarget = shared.adjTarget;
+        this.adjEdge = shared.adjEdge;
+        this.lockBits = shared.lockBits;
+        this.epoch = shared.epoch;
+        this.posX = shared.posX;
+        this.posY = shared.posY;
+        this.positionsKnown = shared.positionsKnown;
+        this.gridEdgesOnly = shared.gridEdgesOnly;
+        this.heuristicEnabled = shared.heuristicEnabled;
+        this.topologyShared = true;
+        this.locksShared = true;
+    }
+
+    /**
+     * Cria uma cópia leve do grafo, com a mesma época, que partilha a topologia e as trancas.
+     * Os arrays partilhados nunca são escritos: o primeiro {@link #setLocked} de qualquer um dos
+     * dois grafos copia os bits das trancas (E / 8 bytes) e adicionar vértices ou arestas copia
+     * a topologia. Os buffers de pesquisa são de cada cópia e só são criados na primeira pesquisa.
+     * @return A cópia
+     */
+    public SparseGraph overlay() {
+        topologyShared = true;
+        locksShared = true;
+        return new SparseGraph(this);
+    }
+
+    /**
+     * Adiciona um novo vértice sem coordenadas (desativa a heurística do A*)
+     * @return O índice denso atribuído ao vértice
+     */
+    public int addVertex() {
+        positionsKnown = false;
+        return addVertex(0, 0);
+    }
+
+    /**
+     * Adiciona um novo vértice numa posição da grelha
+     * @param x Coordenada X
+     * @param y Coordenada Y
+     * @return O índice denso atribuído ao vértice
+     */
+    public int addVertex(int x, int y) {
+        ownTopology();
+        if (numVertices == degree.length) {
+            growVertices(degree.length * 2);
+        }
+        posX[numVertices] = x;
+        posY[numVertices] = y;
+        epoch++;
+        return numVertices++;
+    }
+
+    /**
+     * Adiciona uma aresta aberta entre dois vértices.
+     * Se a aresta já existir, devolve o id existente sem alterar o estado de tranca.
+     * @param a Índice do primeiro vértice
+     * @param b Índice do segundo vértice
+     * @return Id da aresta, ou -1 se os índices forem inválidos
+     */
+    public int addEdge(int a, int b) {
+        if (!indexValid(a) || !indexValid(b) || a == b) return -1;
+
+        int existing = findEdge(a, b);
+        if (existing != -1) return existing;
+        ownTopology();
+        ownLocks();
+
+        int needed = Math.max(degree[a], degree[b]) + 1;
+        if (needed > stride) {
+            growStride(stride * 2);
+        }
+        if (numEdges == lockBits.length << 6) {
+            long[] grown = new long[lockBits.length * 2];
+            System.arraycopy(lockBits, 0, grown, 0, lockBits.length);
+            lockBits = grown;
+        }
+
+        if (Math.abs(posX[a] - posX[b]) + Math.abs(posY[a] - posY[b]) > 1) {
+            gridEdgesOnly = false;
+        }
+
+        int edge = numEdges++;
+        link(a, b, edge);
+        link(b, a, edge);
+        epoch++;
+        return edge;
+    }
+
+    /**
+     * Procura a aresta entre dois vértices (percorre no máximo o grau de {@code a})
+     * @return Id da aresta, ou -1 se não existir
+     */
+    public int findEdge(int a, int b) {
+        if (!indexValid(a) || !indexValid(b)) return -1;
+        int base = a * stride;
+        for (int k = 0; k < degree[a]; k++) {
+            if (adjTarget[base + k] == b) return adjEdge[base + k];
+        }
+        return -1;
+    }
+
+    /** Verifica se uma aresta está trancada */
+    public boolean isLocked(int edge) {
+        return edge >= 0 && edge < numEdges && (lockBits[edge >>> 6] & (1L << edge)) != 0;
+    }
+
+    /**
+     * Tranca ou destranca uma aresta.
+     * A época só avança se o estado mudar de facto.
+     */
+    public void setLocked(int edge, boolean locked) {
+        if (edge < 0 || edge >= numEdges || isLocked(edge) == locked) return;
+        ownLocks();
+        lockBits[edge >>> 6] ^= 1L << edge;
+        epoch++;
+    }
+
+    /** Custo de atravessar uma aresta */
+    public int getEdgeCost(int edge) {
+        return (lockBits[edge >>> 6] & (1L << edge)) != 0 ? COST_LOCKED : COST_OPEN;
+    }
+
+    /** Número de arestas trancadas */
+    public int getLockedCount() {
+        int count = 0;
+        for (long word : lockBits) count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Época da topologia: aumenta sempre que se adiciona uma sala ou aresta ou que uma tranca muda.
+     * Duas leituras iguais garantem que o grafo não mudou entretanto, por isso serve de chave
+     * para caches (caminhos, tabelas, planos dos bots, desenho das paredes).
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /** Número de vizinhos de um vértice */
+    public int getDegree(int v) {
+        return degree[v];
+    }
+
+    /** Vizinho guardado no slot {@code k} do vértice {@code v} */
+    public int getNeighbor(int v, int k) {
+        return adjTarget[v * stride + k];
+    }
+
+    /** Id da aresta guardada no slot {@code k} do vértice {@code v} */
+    public int getEdge(int v, int k) {
+        return adjEdge[v * stride + k];
+    }
+
+    /** Número de vértices */
+    public int size() {
+        return numVertices;
+    }
+
+    /** Número de arestas */
+    public int getNumEdges() {
+        return numEdges;
+    }
+
+    /** Coordenada X do vértice na grelha */
+    public int getX(int v) {
+        return posX[v];
+    }
+
+    /** Coordenada Y do vértice na grelha */
+    public int getY(int v) {
+        return posY[v];
+    }
+
+    /**
+     * Verifica se o grafo é uma grelha de vizinhança 4: todos os vértices têm coordenadas
+     * e todas as arestas ligam células adjacentes.
+     */
+    public boolean isGridLayout() {
+        return positionsKnown && gridEdgesOnly;
+    }
+
+    /** Verifica se um índice corresponde a um vértice existente */
+    public boolean indexValid(int v) {
+        return v >= 0 && v < numVertices;
+    }
+
+    // --- Pesquisa ---
+
+    /**
+     * Caminho de menor custo entre dois vértices (A*).
+     * Arestas trancadas custam {@link #COST_LOCKED}, tal como no grafo antigo.
+     * A heurística é a distância de Manhattan entre as coordenadas dos vértices, que é
+     * admissível enquanto todas as arestas ligarem células vizinhas da grelha;
+     * caso contrário a pesquisa degrada-se num Dijkstra (heurística nula).
+     * @return Vértices do caminho (origem e destino incluídos) ou array vazio se não existir
+     */
+    public int[] shortestPath(int source, int target) {
+        if (!indexValid(source) || !indexValid(target)) return new int[0];
+        if (search(source, target) == INFINITY) return new int[0];
+
+        int length = 1;
+        for (int v = target; v != source; v = parent[v]) length++;
+
+        int[] path = new int[length];
+        int v = target;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = v;
+            v = parent[v];
+        }
+        return path;
+    }
+
+    /**
+     * Caminho mais curto entre dois vértices só por arestas abertas (todas com {@link #COST_OPEN}),
+     * com uma BFS bidirecional: as duas frentes avançam um nível de cada vez, sempre a mais pequena,
+     * e a pesquisa termina no fim do nível em que se encontram. Expande da ordem da raiz quadrada
+     * dos vértices que uma BFS só a partir da origem expandiria.
+     * As frentes são filas de índices em buffers reutilizados; nada é alocado por vértice.
+     * @return Vértices do caminho (origem e destino incluídos) ou array vazio se não houver caminho aberto
+     */
+    public int[] openPath(int source, int target) {
+        if (!indexValid(source) || !indexValid(target)) return new int[0];
+        if (source == target) return new int[] { source };
+        prepareBidirectional();
+        lastExpanded = 0;
+
+        visitStamp[source] = searchStamp;
+        gScore[source] = 0;
+        parent[source] = -1;
+        backStamp[target] = searchStamp;
+        backDist[target] = 0;
+        backParent[target] = -1;
+
+        int fHead = 0, fTail = 0, bHead = 0, bTail = 0;
+        frontQueue[fTail++] = source;
+        backQueue[bTail++] = target;
+
+        // Melhor encontro: aresta (meetFront -> meetBack) entre as duas árvores
+        int best = INFINITY, meetFront = -1, meetBack = -1;
+
+        while (best == INFINITY && fHead < fTail && bHead < bTail) {
+            boolean forward = fTail - fHead <= bTail - bHead;
+            int[] queue = forward ? frontQueue : backQueue;
+            int[] dist = forward ? gScore : backDist;
+            int[] from = forward ? parent : backParent;
+            int[] stamp = forward ? visitStamp : backStamp;
+            int[] otherDist = forward ? backDist : gScore;
+            int[] otherStamp = forward ? backStamp : visitStamp;
+
+            int head = forward ? fHead : bHead;
+            int tail = forward ? fTail : bTail;
+            int levelEnd = tail;
+
+            while (head < levelEnd) {
+                int v = queue[head++];
+                lastExpanded++;
+                int base = v * stride;
+                for (int k = 0; k < degree[v]; k++) {
+                    if (isLocked(adjEdge[base + k])) continue;
+                    int n = adjTarget[base + k];
+                    if (otherStamp[n] == searchStamp && dist[v] + 1 + otherDist[n] < best) {
+                        best = dist[v] + 1 + otherDist[n];
+                        meetFront = forward ? v : n;
+                        meetBack = forward ? n : v;
+                    }
+                    if (stamp[n] != searchStamp) {
+                        stamp[n] = searchStamp;
+                        dist[n] = dist[v] + 1;
+                        from[n] = v;
+                        queue[tail++] = n;
+                    }
+                }
+            }
+
+            if (forward) { fHead = head; fTail = tail; } else { bHead = head; bTail = tail; }
+        }
+        if (best == INFINITY) return new int[0];
+
+        int[] path = new int[best + 1];
+        int i = gScore[meetFront];
+        for (int v = meetFront; v != -1; v = parent[v]) path[i--] = v;
+        i = gScore[meetFront] + 1;
+        for (int v = meetBack; v != -1; v = backParent[v]) path[i++] = v;
+        return path;
+    }
+
+    /**
+     * Custo do caminho mais curto entre dois vértices
+     * @return Custo total, ou {@link #INFINITY} se não existir caminho
+     */
+    public int shortestPathCost(int source, int target) {
+        if (!indexValid(source) || !indexValid(target)) return INFINITY;
+        return search(source, target);
+    }
+
+    /**
+     * Calcula o custo do caminho mais curto de um vértice para todos os outros (Dijkstra).
+     * Como o grafo é não dirigido, serve também como campo de distâncias "para" a origem.
+     * @param source Vértice de origem
+     * @param dist Array de tamanho {@link #size()} preenchido com os custos ({@link #INFINITY} se inalcançável)
+     */
+    public void distancesFrom(int source, int[] dist) {
+        for (int i = 0; i < numVertices; i++) dist[i] = INFINITY;
+        if (!indexValid(source)) return;
+
+        IndexedMinHeap heap = openSet();
+        dist[source] = 0;
+        heap.push(source, 0);
+
+        while (!heap.isEmpty()) {
+            int v = heap.pop();
+            int base = v * stride;
+            for (int k = 0; k < degree[v]; k++) {
+                int n = adjTarget[base + k];
+                int nd = dist[v] + getEdgeCost(adjEdge[base + k]);
+                if (nd < dist[n]) {
+                    dist[n] = nd;
+                    heap.push(n, nd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Percurso em largura a partir de um vértice.
+     * Tal como o iterador BFS da biblioteca, atravessa todas as arestas (abertas ou trancadas).
+     * @return Vértices pela ordem de visita
+     */
+    public int[] breadthFirstOrder(int start) {
+        if (!indexValid(start)) return new int[0];
+
+        int[] queue = new int[numVertices];
+        boolean[] visited = new boolean[numVertices];
+        int head = 0, tail = 0;
+
+        queue[tail++] = start;
+        visited[start] = true;
+
+        while (head < tail) {
+            int v = queue[head++];
+            int base = v * stride;
+            for (int k = 0; k < degree[v]; k++) {
+                int n = adjTarget[base + k];
+                if (!visited[n]) {
+                    visited[n] = true;
+                    queue[tail++] = n;
+                }
+            }
+        }
+
+        int[] order = new int[tail];
+        System.arraycopy(queue, 0, order, 0, tail);
+        return order;
+    }
+
+    /**
+     * Número de vértices expandidos pela última pesquisa ponto-a-ponto (para o benchmark)
+     */
+    public int getLastExpanded() {
+        return lastExpanded;
+    }
+
+    /**
+     * Liga ou desliga a heurística do A* (desligada, a pesquisa é um Dijkstra).
+     * Existe para comparar os dois algoritmos no benchmark.
+     */
+    public void setHeuristicEnabled(boolean enabled) {
+        this.heuristicEnabled = enabled;
+    }
+
+    /**
+     * A* com heap indexada. Os buffers são reutilizados entre pesquisas e um carimbo
+     * por vértice evita reinicializar arrays de tamanho V, por isso cada pesquisa só
+     * toca nos vértices que realmente expande.
+     * @return Custo do caminho (o caminho fica em {@code parent}) ou {@link #INFINITY}
+     */
+    private int search(int source, int target) {
+        IndexedMinHeap heap = openSet();
+        nextStamp();
+        boolean informed = heuristicEnabled && isGridLayout();
+        int tx = posX[target], ty = posY[target];
+        lastExpanded = 0;
+
+        visitStamp[source] = searchStamp;
+        gScore[source] = 0;
+        parent[source] = -1;
+        heap.push(source, informed ? manhattan(source, tx, ty) : 0);
+
+        while (!heap.isEmpty()) {
+            int v = heap.pop();
+            lastExpanded++;
+            if (v == target) {
+                heap.clear();
+                return gScore[v];
+            }
+
+            int g = gScore[v];
+            int base = v * stride;
+            for (int k = 0; k < degree[v]; k++) {
+                int n = adjTarget[base + k];
+                int ng = g + getEdgeCost(adjEdge[base + k]);
+                if (visitStamp[n] != searchStamp || ng < gScore[n]) {
+                    visitStamp[n] = searchStamp;
+                    gScore[n] = ng;
+                    parent[n] = v;
+                    heap.push(n, informed ? ng + manhattan(n, tx, ty) : ng);
+                }
+            }
+        }
+        return INFINITY;
+    }
+
+    private int manhattan(int v, int tx, int ty) {
+        return Math.abs(posX[v] - tx) + Math.abs(posY[v] - ty);
+    }
+
+    /**
+     * Devolve a heap de pesquisa vazia, garantindo que os buffers acompanham o número de vértices
+     */
+    private IndexedMinHeap openSet() {
+        if (openSet == null) {
+            openSet = new IndexedMinHeap(degree.length);
+        } else {
+            openSet.ensureCapacity(degree.length);
+            openSet.clear();
+        }
+        if (gScore == null || gScore.length < degree.length) {
+            gScore = new int[degree.length];
+            parent = new int[degree.length];
+            visitStamp = new int[degree.length];
+            backStamp = null;
+            searchStamp = 0;
+        }
+        return openSet;
+    }
+
+    /**
+     * Prepara os buffers da BFS bidirecional e avança o carimbo partilhado pelas duas frentes
+     */
+    private void prepareBidirectional() {
+        openSet();
+        if (backStamp == null || backStamp.length < degree.length) {
+            frontQueue = new int[degree.length];
+            backQueue = new int[degree.length];
+            backDist = new int[degree.length];
+            backParent = new int[degree.length];
+            backStamp = new int[degree.length];
+        }
+        nextStamp();
+    }
+
+    /**
+     * Avança o carimbo das pesquisas; quando dá a volta, limpa os arrays de carimbos
+     */
+    private void nextStamp() {
+        if (++searchStamp == Integer.MAX_VALUE) {
+            for (int i = 0; i < visitStamp.length; i++) visitStamp[i] = 0;
+            if (backStamp != null) {
+                for (int i = 0; i < backStamp.length; i++) backStamp[i] = 0;
+            }
+            searchStamp = 1;
+        }
+    }
+
+    // --- Gestão interna dos arrays ---
+
+    /**
+     * Copia os arrays da topologia antes da primeira escrita, se forem partilhados
+     */
+    private void ownTopology() {
+        if (!topologyShared) return;
+        degree = degree.clone();
+        adjTarget = adjTarget.clone();
+        adjEdge = adjEdge.clone();
+        posX = posX.clone();
+        posY = posY.clone();
+        topologyShared = false;
+    }
+
+    /**
+     * Copia os bits das trancas antes da primeira escrita, se forem partilhados
+     */
+    private void ownLocks() {
+        if (!locksShared) return;
+        lockBits = lockBits.clone();
+        locksShared = false;
+    }
+
+    private void link(int from, int to, int edge) {
+        int slot = from * stride + degree[from];
+        adjTarget[slot] = to;
+        adjEdge[slot] = edge;
+        degree[from]++;
+    }
+
+    private void growVertices(int capacity) {
+        int[] newDegree = new int[capacity];
+        System.arraycopy(degree, 0, newDegree, 0, numVertices);
+        int[] newTarget = new int[capacity * stride];
+        System.arraycopy(adjTarget, 0, newTarget, 0, numVertices * stride);
+        int[] newEdge = new int[capacity * stride];
+        System.arraycopy(adjEdge, 0, newEdge, 0, numVertices * stride);
+        degree = newDegree;
+        adjTarget = newTarget;
+        adjEdge = newEdge;
+
+        int[] newX = new int[capacity];
+        int[] newY = new int[capacity];
+        System.arraycopy(posX, 0, newX, 0, numVertices);
+        System.arraycopy(posY, 0, newY, 0, numVertices);
+        posX = newX;
+        posY = newY;
+    }
+
+    /**
+     * Aumenta o número de slots por vértice (apenas para grafos que não são grelhas de 4 vizinhos)
+     */
+    private void growStride(int newStride) {
+        int capacity = degree.length;
+        int[] newTarget = new int[capacity * newStride];
+        int[] newEdge = new int[capacity * newStride];
+        for (int v = 0; v < numVertices; v++) {
+            System.arraycopy(adjTarget, v * stride, newTarget, v * newStride, degree[v]);
+            System.arraycopy(adjEdge, v * stride, newEdge, v * newStride, degree[v]);
+        }
+        adjTarget = newTarget;
+        adjEdge = newEdge;
+        stride = newStride;
+    }
+}
@@ -0,0 +1,254 @@
+package com.jogogloria.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Grelha de códigos de salas guardada em disco, dividida em blocos quadrados ("tiles").
+ * <p>
+ * Formato do ficheiro: cabeçalho de 24 bytes (marca, largura, altura, lado do bloco, célula de
+ * início e célula do tesouro) seguido dos blocos por ordem de linhas, cada um com {@code lado²}
+ * bytes (um código por célula, 0 = vazio; os blocos da borda são completados com 0).
+ * </p>
+ * <p>
+ * Os blocos são lidos a pedido para uma cache LRU com um número máximo de blocos, por isso a
+ * memória ocupada depende da zona do mapa em uso e não do tamanho do mapa.
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+public class TileStore implements AutoCloseable {
+
+    /** Gera o código de cada célula ao criar o ficheiro, sem nunca ter a grelha toda em memória */
+    public interface CellGenerator {
+        int codeAt(int x, int y);
+    }
+
+    /** Lado dos blocos por defeito (64 × 64 = 4 KB por bloco) */
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    /** Número máximo de células (as chaves das arestas usam {@code célula * 2 + direção}) */
+    public static final long MAX_CELLS = 1L << 30;
+
+    private static final int MAGIC = 0x47544C31; // "GTL1"
+    private static final int HEADER_BYTES = 24;
+    private static final int NONE = -1;
+
+    private final RandomAccessFile file;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesX;
+    private final int startCell;
+    private final int exitCell;
+
+    // Cache LRU: blocos carregados em posições fixas, com lista duplamente ligada por índices
+    private final int maxTiles;
+    private final byte[][] data;
+    private final int[] tileOfSlot;
+    private final int[] prev;
+    private final int[] next;
+    private final int[] slotOfTile;
+    private int head = NONE;
+    private int tail = NONE;
+    private int resident;
+
+    // Último bloco consultado (as consultas seguidas caem quase sempre no mesmo bloco)
+    private int lastTile = NONE;
+    private byte[] lastData;
+
+    private long tileLoads;
+    private long tileHits;
+    private long evictions;
+
+    /**
+     * Abre um ficheiro de blocos
+     * @param path     Caminho do ficheiro criado por {@link #create}
+     * @param maxTiles Número máximo de blocos em memória
+     * @throws IOException se o ficheiro não existir ou não tiver o formato esperado
+     */
+    public TileStore(String path, int maxTiles) throws IOException {
+        this.file = new RandomAccessFile(path, "r");
+        try {
+            if (file.readInt() != MAGIC) throw new IOException("Ficheiro de blocos inválido: " + path);
+            this.width = file.readInt();
+            this.height = file.readInt();
+            this.tileSize = file.readInt();
+            this.startCell = file.readInt();
+            this.exitCell = file.readInt();
+            if (width <= 0 || height <= 0 || tileSize <= 0) throw new IOException("Cabeçalho de blocos inválido: " + path);
+        } catch (IOException e) {
+            // Ficheiro curto (EOFException) ou cabeçalho errado: não deixa o ficheiro aberto
+            try {
+                file.close();
+            } catch (IOException closing) {
+                e.addSuppressed(closing);
+            }
+            throw e;
+        }
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+
+        this.maxTiles = Math.max(1, maxTiles);
+        this.data = new byte[this.maxTiles][];
+        this.tileOfSlot = new int[this.maxTiles];
+        this.prev = new int[this.maxTiles];
+        this.next = new int[this.maxTiles];
+        this.slotOfTile = new int[tilesX * tilesY];
+        for (int i = 0; i < slotOfTile.length; i++) slotOfTile[i] = NONE;
+    }
+
+    /**
+     * Cria um ficheiro de blocos bloco a bloco a partir de um gerador.
+     * A primeira célula de início (código 1) e de tesouro (código 9) ficam registadas no cabeçalho.
+     * @throws IOException se não for possível escrever o ficheiro
+     */
+    public static void create(String path, int width, int height, int tileSize, CellGenerator generator) throws IOException {
+        if ((long) width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("Mapa demasiado grande: " + width + "x" + height);
+        }
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        int start = NONE, exit = NONE;
+        byte[] tile = new byte[tileSize * tileSize];
+
+        try (RandomAccessFile out = new RandomAccessFile(path, "rw")) {
+            out.setLength(0);
+            out.seek(HEADER_BYTES);
+            for (int ty = 0; ty < tilesY; ty++) {
+                for (int tx = 0; tx < tilesX; tx++) {
+                    for (int dy = 0; dy < tileSize; dy++) {
+                        for (int dx = 0; dx < tileSize; dx++) {
+                            int x = tx * tileSize + dx, y = ty * tileSize + dy;
+                            int code = x < width && y < height ? generator.codeAt(x, y) : 0;
+                            tile[dy * tileSize + dx] = (byte) code;
+                            if (code == 1 && start == NONE) start = y * width + x;
+                            if (code == 9 && exit == NONE) exit = y * width + x;
+                        }
+                    }
+                    out.write(tile);
+                }
+            }
+
+            out.seek(0);
+            out.writeInt(MAGIC);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(tileSize);
+            out.writeInt(start);
+            out.writeInt(exit);
+        }
+    }
+
+    /**
+     * Código da célula nas coordenadas indicadas
+     * @return O código, ou 0 (vazio) fora do mapa
+     * @throws IllegalStateException se a leitura do bloco falhar
+     */
+    public int getCell(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return 0;
+        int tile = (y / tileSize) * tilesX + x / tileSize;
+        byte[] block = tile == lastTile ? lastData : tile(tile);
+        return block[(y % tileSize) * tileSize + x % tileSize];
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getTileSize() { return tileSize; }
+
+    /** Célula de início ({@code y * largura + x}), ou -1 */
+    public int getStartCell() { return startCell; }
+
+    /** Célula do tesouro ({@code y * largura + x}), ou -1 */
+    public int getExitCell() { return exitCell; }
+
+    public long getTileLoads() { return tileLoads; }
+    public long getTileHits() { return tileHits; }
+    public long getEvictions() { return evictions; }
+
+    /** Número de blocos em memória */
+    public int getResidentTiles() { return resident; }
+
+    /** Bytes ocupados pelos blocos em memória */
+    public long getResidentBytes() { return (long) resident * tileSize * tileSize; }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    // --- Cache ---
+
+    private byte[] tile(int tile) {
+        int slot = slotOfTile[tile];
+        if (slot != NONE) {
+            tileHits++;
+            moveToFront(slot);
+        } else {
+            slot = load(tile);
+        }
+        lastTile = tile;
+        lastData = data[slot];
+        return lastData;
+    }
+
+    private int load(int tile) {
+        int slot;
+        if (resident < maxTiles) {
+            slot = resident++;
+            data[slot] = new byte[tileSize * tileSize];
+        } else {
+            // Reutiliza o bloco menos usado (e o seu array)
+            slot = tail;
+            unlink(slot);
+            if (tileOfSlot[slot] != NONE) {
+                slotOfTile[tileOfSlot[slot]] = NONE;
+                evictions++;
+            }
+        }
+        tileOfSlot[slot] = NONE;
+
+        try {
+            file.seek(HEADER_BYTES + (long) tile * tileSize * tileSize);
+            file.readFully(data[slot]);
+        } catch (IOException e) {
+            // A posição fica vazia no fim da lista, para ser a próxima a ser reutilizada
+            linkLast(slot);
+            lastTile = NONE;
+            throw new IllegalStateException("Erro a ler o bloco " + tile, e);
+        }
+        tileLoads++;
+        tileOfSlot[slot] = tile;
+        slotOfTile[tile] = slot;
+        linkFirst(slot);
+        return slot;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] != NONE) next[prev[slot]] = next[slot]; else head = next[slot];
+        if (next[slot] != NONE) prev[next[slot]] = prev[slot]; else tail = prev[slot];
+    }
+
+    private void moveToFront(int slot) {
+        if (slot == head) return;
+        unlink(slot);
+        linkFirst(slot);
+    }
+
+    private void linkFirst(int slot) {
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) prev[head] = slot;
+        head = slot;
+        if (tail == NONE) tail = slot;
+    }
+
+    private void linkLast(int slot) {
+        next[slot] = NONE;
+        prev[slot] = tail;
+        if (tail != NONE) next[tail] = slot;
+        tail = slot;
+        if (head == NONE) head = slot;
+    }
+}
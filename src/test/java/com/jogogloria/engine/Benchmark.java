@@ -0,0 +1,1171 @@
+package com.jogogloria.engine;
+
+import com.jogogloria.config.GameConfig;
+import com.jogogloria.io.MapGenerator;
+import com.jogogloria.io.MapLoader;
+import com.jogogloria.model.Labyrinth;
+import com.jogogloria.model.Lever;
+import com.jogogloria.model.LeverPlan;
+import com.jogogloria.model.MultiFloorLabyrinth;
+import com.jogogloria.model.PathfindingMode;
+import com.jogogloria.model.Player;
+import com.jogogloria.model.Room;
+import com.jogogloria.model.TiledLabyrinth;
+import com.jogogloria.utils.AllPairsTable;
+import com.jogogloria.utils.DistanceField;
+import com.jogogloria.utils.HierarchicalPathfinder;
+import com.jogogloria.utils.IntMap;
+import com.jogogloria.utils.JumpPointSearch;
+import com.jogogloria.utils.ListMap;
+import com.jogogloria.utils.PathCache;
+import com.jogogloria.utils.SimpleMap;
+import com.jogogloria.utils.SparseGraph;
+import com.jogogloria.utils.TileStore;
+import com.example.Biblioteca.exceptions.EmptyCollectionException;
+import com.example.Biblioteca.iterators.Iterator;
+import com.example.Biblioteca.lists.ArrayUnorderedList;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+/**
+ * Ferramenta de linha de comandos para medir o desempenho do labirinto e dos bots.
+ * <p>
+ * Corre sobre os mapas incluídos no jogo e sobre labirintos gerados aleatoriamente.
+ * Só existe nas fontes de teste (não é distribuída com o jogo); a correção dos algoritmos medidos
+ * aqui é verificada pelos testes. Executar com:
+ * {@code mvn test-compile exec:java -Dexec.mainClass=com.jogogloria.engine.Benchmark -Dexec.classpathScope=test}
+ * </p>
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+public class Benchmark {
+
+    private static final String[] BUNDLED_MAPS = {
+            "maps/mapa.json", "maps/templo_esquecido.json", "maps/corrida_explosiva.json"
+    };
+
+    /** Dimensões dos labirintos gerados */
+    private static final int[] GENERATED_SIZES = {50, 100};
+
+    /** Número de entradas usadas no teste dos mapas de hash */
+    private static final int[] MAP_SIZES = {1_000, 100_000, 1_000_000};
+
+    /** O mapa antigo (lista) só é medido até este tamanho: encher custa O(n²) */
+    private static final int LIST_MAP_MAX_SIZE = 100_000;
+
+    /** Procuras medidas no mapa antigo (chaves espalhadas por todo o mapa) */
+    private static final int LIST_MAP_GETS = 2_000;
+
+    /** Dimensões dos labirintos usados no teste de reparação após alavancas */
+    private static final int[] LEVER_SIZES = {100, 300};
+
+    /** Número de alavancas simuladas por labirinto */
+    private static final int LEVER_PULLS = 200;
+
+    /** Dimensão dos labirintos usados para comparar o A* com o Jump Point Search */
+    private static final int JPS_SIZE = 1000;
+
+    /** Número de consultas ponto-a-ponto no teste do Jump Point Search */
+    private static final int JPS_QUERIES = 20;
+
+    /** Número de consultas e de portas alteradas no teste da pesquisa hierárquica */
+    private static final int HPA_QUERIES = 50;
+    private static final int HPA_DOORS = 200;
+
+    /** Lado do mapa em blocos no disco (36 milhões de células) */
+    private static final int TILED_SIZE = 6000;
+
+    /** Blocos em memória no mapa em disco (256 × 4 KB = 1 MB) */
+    private static final int TILED_CACHE = 256;
+
+    /** Lado do labirinto e número de jogos simultâneos no teste dos mapas partilhados */
+    private static final int SHARED_SIZE = 500;
+    private static final int SHARED_GAMES = 64;
+
+    /** Consultas e portas alteradas por jogo no teste dos mapas partilhados */
+    private static final int SHARED_QUERIES = 40;
+    private static final int SHARED_DOORS = 4;
+
+    /** Lado de cada piso e números de pisos no teste dos labirintos de vários pisos */
+    private static final int FLOOR_SIZE = 301;
+    private static final int[] FLOOR_COUNTS = {1, 2, 4, 8, 16};
+
+    /** Escadas entre cada par de pisos seguidos e consultas entre pisos aleatórios */
+    private static final int FLOOR_STAIRS = 4;
+    private static final int FLOOR_QUERIES = 50;
+
+    /** Lado do labirinto, jogadores e passos no teste do histórico do undo */
+    private static final int UNDO_SIZE = 1000;
+    private static final int UNDO_PLAYERS = 8;
+    private static final int UNDO_STEPS = 500_000;
+
+    /** Pontos de ramificação criados no teste dos ramos do undo */
+    private static final int BRANCH_POINTS = 10_000;
+
+    /** Registos em memória do histórico do undo no teste (16 bytes cada) */
+    private static final int UNDO_RECORDS = 65_536;
+
+    // Registo das alavancas: alavancas espalhadas pelo labirinto do undo, repetições da procura em
+    // todas as salas e das operações do registo (muito mais rápidas)
+    private static final int REGISTRY_LEVERS = 64;
+    private static final int REGISTRY_ROUNDS = 20;
+    private static final int REGISTRY_FAST_ROUNDS = 20_000;
+
+    // Partidas sem interface: jogos por mapa, bots por jogo, limite de turnos e registos do undo por jogo
+    private static final int HEADLESS_GAMES = 200;
+    private static final int HEADLESS_BOTS = 4;
+    private static final int HEADLESS_MAX_TURNS = 10_000;
+    private static final int HEADLESS_UNDO_RECORDS = 4096;
+
+    /** Número de jogadas de bot medidas por estratégia */
+    private static final int BOT_SAMPLES = 200;
+
+    /** Saída real (a saída normal é silenciada durante as medições) */
+    private static final PrintStream REPORT = System.out;
+
+    /** Ponto de entrada do Benchmark */
+    public static void main(String[] args) {
+        benchmarkMaps();
+        benchmarkRoomMemory(MapGenerator.generateOpenMap(JPS_SIZE, JPS_SIZE, 0.15, 13L));
+
+        for (String map : BUNDLED_MAPS) {
+            silence();
+            Labyrinth labyrinth = MapLoader.loadLabyrinth(map);
+            restore();
+            runAll(map, labyrinth);
+        }
+
+        for (int size : GENERATED_SIZES) {
+            silence();
+            Labyrinth labyrinth = MapGenerator.toLabyrinth(MapGenerator.generateMaze(size, size, 42L));
+            restore();
+            runAll("gerado " + size + "x" + size, labyrinth);
+        }
+
+        for (int size : LEVER_SIZES) {
+            benchmarkLeverRepair(size);
+            benchmarkAStar(size);
+        }
+
+        benchmarkJumpPoint("labirinto", MapGenerator.generateMaze(JPS_SIZE, JPS_SIZE, 13L));
+        benchmarkJumpPoint("corredores", MapGenerator.generateCorridors(JPS_SIZE, JPS_SIZE, 8, 13L));
+        benchmarkJumpPoint("mapa aberto", MapGenerator.generateOpenMap(JPS_SIZE, JPS_SIZE, 0.15, 13L));
+
+        benchmarkBidirectional("labirinto", MapGenerator.generateMaze(JPS_SIZE, JPS_SIZE, 13L));
+        benchmarkBidirectional("mapa aberto", MapGenerator.generateOpenMap(JPS_SIZE, JPS_SIZE, 0.15, 13L));
+
+        benchmarkHierarchical("labirinto", MapGenerator.generateMaze(JPS_SIZE, JPS_SIZE, 13L));
+        benchmarkHierarchical("mapa aberto", MapGenerator.generateOpenMap(JPS_SIZE, JPS_SIZE, 0.15, 13L));
+
+        benchmarkSharedMaps(MapGenerator.generateMaze(SHARED_SIZE, SHARED_SIZE, 29L));
+        benchmarkFloors();
+        benchmarkUndo(MapGenerator.generateMaze(UNDO_SIZE, UNDO_SIZE, 31L));
+        benchmarkBranches(MapGenerator.generateMaze(UNDO_SIZE, UNDO_SIZE, 31L));
+        benchmarkLeverRegistry(MapGenerator.generateMaze(UNDO_SIZE, UNDO_SIZE, 31L));
+        benchmarkHeadlessGames();
+        benchmarkTiled(TILED_SIZE, TILED_SIZE);
+    }
+
+    /**
+     * Muitos jogos sobre o mesmo mapa: compara carregar o mapa de raiz com criar a cópia de um jogo
+     * a partir do modelo ({@link Labyrinth#newOverlay()}) e mede a memória de cada cópia, antes e
+     * depois de jogar. Os jogos correm em paralelo (uma thread por jogo, com portas a mudar) e os
+     * resultados são comparados com os mesmos jogos corridos um a um.
+     */
+    private static void benchmarkSharedMaps(int[][] grid) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        silence();
+        Labyrinth template = MapGenerator.toLabyrinth(grid);
+        restore();
+        template.prepareDistanceFields();
+        long loadNanos = System.nanoTime() - start;
+        long templateBytes = usedMemory() - before;
+
+        Labyrinth[] games = new Labyrinth[SHARED_GAMES];
+        before = usedMemory();
+        start = System.nanoTime();
+        for (int i = 0; i < games.length; i++) games[i] = template.newOverlay();
+        long overlayNanos = System.nanoTime() - start;
+        long overlayBytes = usedMemory() - before;
+
+        long[] parallel = new long[games.length];
+        Thread[] threads = new Thread[games.length];
+        start = System.nanoTime();
+        for (int i = 0; i < games.length; i++) {
+            final int game = i;
+            threads[i] = new Thread(() -> parallel[game] = playSharedGame(games[game], game));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        long playNanos = System.nanoTime() - start;
+        long playedBytes = usedMemory() - before;
+
+        int same = 0;
+        for (int i = 0; i < games.length; i++) {
+            if (playSharedGame(template.newOverlay(), i) == parallel[i]) same++;
+        }
+
+        // Referência: um jogo com o seu próprio labirinto, como antes
+        before = usedMemory();
+        silence();
+        Labyrinth alone = MapGenerator.toLabyrinth(grid);
+        restore();
+        alone.prepareDistanceFields();
+        playSharedGame(alone, 0);
+        long aloneBytes = usedMemory() - before;
+
+        REPORT.printf("=== Mapas partilhados %dx%d (%d salas, %s, %d jogos) ===%n  carregar de raiz %.0f ms, %.1f MB | cópia por jogo %.3f ms, %.1f KB | depois de jogar %.1f MB/jogo (labirinto próprio: %.1f MB)%n  jogos em paralelo %.0f ms | iguais aos jogos em série: %d/%d%n",
+                grid[0].length, grid.length, template.getRoomCount(), template.getPathfindingMode(), SHARED_GAMES,
+                loadNanos / 1e6, templateBytes / 1048576.0, overlayNanos / 1e6 / SHARED_GAMES,
+                overlayBytes / 1024.0 / SHARED_GAMES, playedBytes / 1048576.0 / SHARED_GAMES, aloneBytes / 1048576.0,
+                playNanos / 1e6, same, SHARED_GAMES);
+    }
+
+    /**
+     * Um jogo no teste dos mapas partilhados: próximos passos para o tesouro e entre salas ao acaso,
+     * com algumas portas trancadas pelo caminho
+     * @return Soma de controlo dos passos devolvidos
+     */
+    private static long playSharedGame(Labyrinth labyrinth, int seed) {
+        Random random = new Random(seed);
+        int rooms = labyrinth.getRoomCount();
+        String treasure = labyrinth.getTreasureRoom();
+        long checksum = 0;
+
+        for (int q = 0; q < SHARED_QUERIES; q++) {
+            if (q % (SHARED_QUERIES / SHARED_DOORS) == 0) {
+                int v = random.nextInt(rooms);
+                if (labyrinth.getNeighborCount(v) > 0) {
+                    int n = labyrinth.getNeighbor(v, random.nextInt(labyrinth.getNeighborCount(v)));
+                    labyrinth.setConnectionLocked(labyrinth.getRoomId(v), labyrinth.getRoomId(n), true);
+                }
+            }
+            String from = labyrinth.getRoomId(random.nextInt(rooms));
+            String target = q % 2 == 0 ? treasure : labyrinth.getRoomId(random.nextInt(rooms));
+            String next = labyrinth.getNextStep(from, target);
+            checksum = checksum * 31 + (next == null ? -1 : labyrinth.getRoomIndex(next));
+        }
+        return checksum;
+    }
+
+    /**
+     * Labirintos de vários pisos ({@link MultiFloorLabyrinth}) com cada vez mais pisos: memória por
+     * piso, tempo de construção e custo das consultas entre pisos (a primeira calcula as tabelas
+     * de custos das escadas; as seguintes só correm o Dijkstra no grafo de portais e refinam os troços).
+     * A memória e o tempo por consulta devem crescer com o número de pisos, não com o seu quadrado.
+     */
+    private static void benchmarkFloors() {
+        REPORT.println("=== Vários pisos " + FLOOR_SIZE + "x" + FLOOR_SIZE + " (" + FLOOR_STAIRS + " escadas entre pisos seguidos) ===");
+        for (int count : FLOOR_COUNTS) {
+            Random random = new Random(count);
+            long before = usedMemory();
+            long t0 = System.nanoTime();
+            silence();
+            MultiFloorLabyrinth labyrinth = new MultiFloorLabyrinth();
+            for (int f = 0; f < count; f++) {
+                labyrinth.addFloor(MapGenerator.toLabyrinth(MapGenerator.generateMaze(FLOOR_SIZE, FLOOR_SIZE, 100L + f)));
+            }
+            restore();
+            // Células com x e y pares são sempre salas nos labirintos gerados
+            int cells = (FLOOR_SIZE + 1) / 2;
+            for (int f = 0; f + 1 < count; f++) {
+                for (int s = 0; s < FLOOR_STAIRS; s++) {
+                    String room = 2 * random.nextInt(cells) + "-" + 2 * random.nextInt(cells);
+                    labyrinth.addStairs(MultiFloorLabyrinth.globalId(f, room), MultiFloorLabyrinth.globalId(f + 1, room));
+                }
+            }
+            double buildMs = (System.nanoTime() - t0) / 1e6;
+            long memory = usedMemory() - before;
+
+            // Do início do primeiro piso ao tesouro do último
+            String start = MultiFloorLabyrinth.globalId(0, labyrinth.getFloor(0).getStartRoomId());
+            String treasure = MultiFloorLabyrinth.globalId(count - 1, labyrinth.getFloor(count - 1).getTreasureRoom());
+            long t1 = System.nanoTime();
+            double weight = labyrinth.shortestPathWeight(start, treasure);
+            double firstMs = (System.nanoTime() - t1) / 1e6;
+
+            long t2 = System.nanoTime();
+            long expanded = 0;
+            for (int q = 0; q < FLOOR_QUERIES; q++) {
+                int from = random.nextInt(count), to = random.nextInt(count);
+                Labyrinth a = labyrinth.getFloor(from), b = labyrinth.getFloor(to);
+                labyrinth.getNextStep(MultiFloorLabyrinth.globalId(from, a.getRoomId(random.nextInt(a.getRoomCount()))),
+                        MultiFloorLabyrinth.globalId(to, b.getRoomId(random.nextInt(b.getRoomCount()))));
+                expanded += labyrinth.getLastExpanded();
+            }
+            double queryMs = (System.nanoTime() - t2) / 1e6 / FLOOR_QUERIES;
+
+            REPORT.printf("  %2d pisos (%d salas): %.1f MB (%.1f MB/piso), construção %.0f ms | início→tesouro custo %.0f em %.1f ms (com tabelas) | consulta %.2f ms, %.1f portas expandidas%n",
+                    count, labyrinth.getRoomCount(), memory / 1e6, memory / 1e6 / count, buildMs,
+                    weight, firstMs, queryMs, (double) expanded / FLOOR_QUERIES);
+        }
+    }
+
+    /**
+     * Histórico do undo num jogo muito longo num mapa grande: joga passos aleatórios com vários
+     * jogadores e desfaz depois todos os passos. Compara o histórico com despejo em disco (chega
+     * sempre ao início) com o histórico só em memória (esquece os passos mais antigos); em ambos a
+     * memória do histórico é a do anel, fixa.
+     */
+    private static void benchmarkUndo(int[][] grid) {
+        silence();
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(grid);
+        restore();
+        REPORT.printf("=== Undo %dx%d (%d salas, %d jogadores, %d passos, anel de %d registos) ===%n",
+                grid[0].length, grid.length, labyrinth.getRoomCount(), UNDO_PLAYERS, UNDO_STEPS, UNDO_RECORDS);
+
+        for (boolean spill : new boolean[]{true, false}) {
+            UndoHistory history = new UndoHistory(UNDO_RECORDS, spill);
+            silence();
+            GameEngine engine = new GameEngine(labyrinth.newOverlay(), true, history);
+            int played = playUndoSteps(engine, engine.getLabyrinth());
+            int depth = engine.getUndoSteps();
+            long diskBytes = history.getDiskBytes();
+
+            long t0 = System.nanoTime();
+            int undone = 0;
+            while (engine.undo()) undone++;
+            double undoUs = (System.nanoTime() - t0) / 1e3 / Math.max(1, undone);
+            engine.close();
+            restore();
+
+            REPORT.printf("  %-10s memória %d KB | disco %.1f MB | profundidade %d de %d passos (%d esquecidos) | %d escritas, %d leituras | desfazer %.2f µs/passo%n",
+                    spill ? "com disco" : "só memória", history.getMemoryBytes() / 1024, diskBytes / 1e6,
+                    depth, played, history.getDroppedSteps(), history.getSpillWrites(), history.getSpillReads(), undoUs);
+        }
+    }
+
+    /**
+     * Ramos do undo ({@link Timeline}): a partir de um jogo longo, volta atrás alguns passos e joga
+     * outros tantos, muitas vezes, criando milhares de pontos de ramificação. Mede a memória dos
+     * ramos guardados (só as diferenças, o caminho comum não é copiado) e o tempo de desfazer e
+     * refazer um passo.
+     */
+    private static void benchmarkBranches(int[][] grid) {
+        silence();
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(grid);
+        GameEngine engine = new GameEngine(labyrinth, true);
+        int played = playUndoSteps(engine, labyrinth);
+        Random random = new Random(37);
+        long before = usedMemory();
+
+        for (int b = 0; b < BRANCH_POINTS; b++) {
+            int back = 1 + random.nextInt(3);
+            for (int i = 0; i < back; i++) engine.undo();
+            playRandomMoves(engine, labyrinth, random, 1 + random.nextInt(3));
+        }
+        long branchMemory = usedMemory() - before;
+        Timeline timeline = engine.getTimeline();
+
+        // Desfaz e refaz os últimos passos do ramo atual
+        int steps = Math.min(engine.getUndoSteps(), 10_000);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < steps; i++) engine.undo();
+        long t1 = System.nanoTime();
+        for (int i = 0; i < steps; i++) engine.redo();
+        long t2 = System.nanoTime();
+        engine.close();
+        restore();
+
+        REPORT.printf("=== Ramos do undo (%d passos jogados, %d pontos de ramificação) ===%n  %d passos guardados em ramos, %d registos | %.0f KB (%.0f B/ramo) | desfazer %.2f µs/passo, refazer %.2f µs/passo%n",
+                played, BRANCH_POINTS, timeline.getStoredBranches(), timeline.getStoredRecords(),
+                branchMemory / 1024.0, (double) branchMemory / Math.max(1, timeline.getStoredBranches()),
+                (t1 - t0) / 1e3 / steps, (t2 - t1) / 1e3 / steps);
+    }
+
+    /**
+     * Guardar e repor o estado das alavancas num mapa grande: percorrer todas as salas à procura de
+     * alavancas (como o save fazia) contra o registo de alavancas do labirinto.
+     */
+    private static void benchmarkLeverRegistry(int[][] grid) {
+        silence();
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(grid);
+        restore();
+        int rooms = labyrinth.getRoomCount();
+        Random random = new Random(41);
+        for (int i = 0; i < REGISTRY_LEVERS; i++) {
+            int v = random.nextInt(rooms);
+            Lever lever = new Lever("R" + i, labyrinth.getRoomByIndex(v), labyrinth.getRoomByIndex((v + 1) % rooms));
+            lever.setActivated(random.nextBoolean());
+            labyrinth.setRoomLever(v, lever);
+        }
+
+        // Alavancas ativadas (o que o save escreve) e procura por ID (o que o load faz por alavanca)
+        long scanned = 0, listed = 0, missing = 0;
+        long t0 = System.nanoTime();
+        for (int r = 0; r < REGISTRY_ROUNDS; r++) {
+            for (int v = 0; v < rooms; v++) {
+                Lever lever = labyrinth.getRoomLever(v);
+                if (lever != null && lever.isActivated()) scanned++;
+            }
+        }
+        long t1 = System.nanoTime();
+        for (int r = 0; r < REGISTRY_FAST_ROUNDS; r++) {
+            for (int s = labyrinth.nextActivatedLever(0); s != -1; s = labyrinth.nextActivatedLever(s + 1)) listed++;
+        }
+        long t2 = System.nanoTime();
+        for (int r = 0; r < REGISTRY_FAST_ROUNDS; r++) {
+            for (int i = 0; i < labyrinth.getLeverCount(); i++) {
+                if (labyrinth.getLeverById(labyrinth.getLever(i).getId()) == null) missing++;
+            }
+        }
+        long t3 = System.nanoTime();
+        for (int r = 0; r < REGISTRY_FAST_ROUNDS; r++) labyrinth.getActivatedLevers();
+        long t4 = System.nanoTime();
+
+        boolean same = missing == 0 && scanned / REGISTRY_ROUNDS == listed / REGISTRY_FAST_ROUNDS;
+        REPORT.printf("=== Registo de alavancas (%d salas, %d alavancas, %d ativadas) ===%n  salas percorridas %.2f ms | registo %.2f µs | %d procuras por ID %.2f µs | cópia dos bits %.3f µs%s%n",
+                rooms, labyrinth.getLeverCount(), listed / REGISTRY_FAST_ROUNDS, (t1 - t0) / 1e6 / REGISTRY_ROUNDS,
+                (t2 - t1) / 1e3 / REGISTRY_FAST_ROUNDS, labyrinth.getLeverCount(), (t3 - t2) / 1e3 / REGISTRY_FAST_ROUNDS,
+                (t4 - t3) / 1e3 / REGISTRY_FAST_ROUNDS, same ? "" : " (ERRO: resultados diferentes)");
+    }
+
+    /**
+     * Partidas completas de bots sem interface ({@link TurnResolver}), com dado, enigmas e bots de
+     * semente fixa (um gerador por jogo), em cada mapa incluído no jogo.
+     */
+    private static void benchmarkHeadlessGames() {
+        REPORT.println("=== Partidas sem interface (" + HEADLESS_BOTS + " bots, " + HEADLESS_GAMES + " jogos por mapa) ===");
+        for (String map : BUNDLED_MAPS) {
+            long nanos = 0, turns = 0;
+            int finished = 0;
+            for (int game = 0; game < HEADLESS_GAMES; game++) {
+                silence();
+                Labyrinth labyrinth = MapLoader.loadLabyrinth(map);
+                Random random = new Random(game);
+                GameEngine engine = new GameEngine(labyrinth, false, new UndoHistory(HEADLESS_UNDO_RECORDS, false), random);
+                RiddleManager riddles = new RiddleManager(GameConfig.RIDDLES_FILE, random);
+                try {
+                    for (int b = 0; b < HEADLESS_BOTS; b++) {
+                        engine.addPlayer(new Player("b" + b, "Bot " + b, new ShortestPathBot(BotDifficulty.MEDIUM, random)));
+                    }
+                    TurnResolver resolver = new TurnResolver(engine, riddles, random);
+                    long start = System.nanoTime();
+                    turns += resolver.playGame(HEADLESS_MAX_TURNS);
+                    nanos += System.nanoTime() - start;
+                } catch (EmptyCollectionException e) {
+                    // não acontece: há sempre jogadores
+                }
+                restore();
+                if (!engine.isGameRunning()) finished++;
+            }
+            REPORT.printf("  %-28s %.1f µs/jogo | %.1f turnos/jogo | %d/%d terminados%n",
+                    map, nanos / 1e3 / HEADLESS_GAMES, (double) turns / HEADLESS_GAMES, finished, HEADLESS_GAMES);
+        }
+    }
+
+    /**
+     * Joga movimentos aleatórios (lança o dado quando for preciso)
+     * @return Número de movimentos feitos (menos se o jogo acabar)
+     */
+    private static int playRandomMoves(GameEngine engine, Labyrinth labyrinth, Random random, int moves) {
+        int m = 0;
+        try {
+            while (m < moves && engine.isGameRunning()) {
+                Player player = engine.getCurrentPlayer();
+                if (player.getMovementPoints() <= 0) engine.setMovementPoints(player, 1 + random.nextInt(6));
+                ArrayUnorderedList<String> neighbors = labyrinth.getNeighbors(player.getCurrentRoom().getId());
+                String target = neighbors.get(random.nextInt(neighbors.size()));
+                if (engine.tryMove(player, labyrinth.getRoom(target))) {
+                    m++;
+                    if (player.getMovementPoints() <= 0) engine.nextTurn();
+                }
+            }
+        } catch (EmptyCollectionException e) {
+            // não acontece: há sempre jogadores
+        }
+        return m;
+    }
+
+    /**
+     * Junta {@link #UNDO_PLAYERS} jogadores e joga {@link #UNDO_STEPS} movimentos aleatórios
+     * @return Número de passos jogados
+     */
+    private static int playUndoSteps(GameEngine engine, Labyrinth labyrinth) {
+        try {
+            for (int i = 0; i < UNDO_PLAYERS; i++) engine.addPlayer(new Player("u" + i, "Jogador " + i));
+        } catch (EmptyCollectionException e) {
+            return 0;
+        }
+        return playRandomMoves(engine, labyrinth, new Random(31), UNDO_STEPS);
+    }
+
+    /**
+     * Relatório de memória das salas: bytes por sala do labirinto carregado (arrays compactos,
+     * grafo e dados de pesquisa incluídos) e quanto custam os objetos {@code Room} quando se
+     * criam as vistas de todas as salas, que era o que acontecia sempre antes dos arrays compactos.
+     */
+    private static void benchmarkRoomMemory(int[][] grid) {
+        long before = usedMemory();
+        silence();
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(grid);
+        restore();
+        long compact = usedMemory();
+
+        // Materializa os objetos Room (com o ID) como faziam a grelha e a lista de salas antigas
+        Iterator<Room> it = labyrinth.getRoomsIterator();
+        while (it.hasNext()) it.next().getId();
+        long withViews = usedMemory();
+
+        int rooms = labyrinth.getRoomCount();
+        REPORT.printf("=== Memória das salas %dx%d (%d salas) ===%n  labirinto compacto %.1f B/sala | objetos Room + IDs +%.1f B/sala (%.1f B/sala no total)%n",
+                grid[0].length, grid.length, rooms,
+                (double) (compact - before) / rooms, (double) (withViews - compact) / rooms,
+                (double) (withViews - before) / rooms);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void runAll(String name, Labyrinth labyrinth) {
+        REPORT.println("=== " + name + " ===");
+        benchmarkMoveValidation(labyrinth);
+        benchmarkAllPairs(labyrinth);
+        benchmarkReachability(labyrinth);
+        benchmarkNeighbors(labyrinth);
+        benchmarkLeverPlan(labyrinth);
+        benchmarkPathCache(labyrinth);
+        benchmarkBotTurns(labyrinth);
+    }
+
+    /**
+     * Repete as mesmas consultas de caminho sem mexer nas portas: a primeira volta pesquisa,
+     * as seguintes devem ser todas servidas pela cache. Nos mapas com tabela completa a cache
+     * não chega a ser usada.
+     */
+    private static void benchmarkPathCache(Labyrinth labyrinth) {
+        if (labyrinth.getPathfindingMode() == PathfindingMode.ALL_PAIRS) return;
+
+        int rooms = labyrinth.getRoomCount();
+        int pairs = 50, rounds = 20;
+        Random random = new Random(23);
+        String[] from = new String[pairs];
+        String[] to = new String[pairs];
+        for (int i = 0; i < pairs; i++) {
+            from[i] = labyrinth.getRoomId(random.nextInt(rooms));
+            to[i] = labyrinth.getRoomId(random.nextInt(rooms));
+        }
+
+        PathCache cache = labyrinth.getPathCache();
+        long hitsBefore = cache.getHits(), missesBefore = cache.getMisses();
+        long coldNanos = 0, warmNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < pairs; i++) labyrinth.getNextStep(from[i], to[i]);
+            if (round == 0) coldNanos += System.nanoTime() - start;
+            else warmNanos += System.nanoTime() - start;
+        }
+
+        REPORT.printf("  cache de caminhos: 1.ª volta %.2f us/consulta | repetidas %.3f us/consulta | acertos %d, falhas %d, despejos %d, %d caminhos (%d salas)%n",
+                coldNanos / 1000.0 / pairs, warmNanos / 1000.0 / pairs / (rounds - 1),
+                cache.getHits() - hitsBefore, cache.getMisses() - missesBefore, cache.getEvictions(),
+                cache.size(), cache.getStoredVertices());
+    }
+
+    /**
+     * Mede a construção do plano das alavancas (só nos mapas com alavancas carregados do JSON)
+     * e uma consulta de próximo passo a partir de cada sala.
+     */
+    private static void benchmarkLeverPlan(Labyrinth labyrinth) {
+        if (labyrinth.getLeverPlan() == null) return;
+
+        long start = System.nanoTime();
+        LeverPlan plan = labyrinth.planLevers();
+        long buildNanos = System.nanoTime() - start;
+        if (!plan.isAvailable()) return;
+
+        int rooms = labyrinth.getRoomCount();
+        int planned = 0;
+        start = System.nanoTime();
+        for (int v = 0; v < rooms; v++) {
+            if (plan.nextStep(v, plan.currentMask()) != -1) planned++;
+        }
+        long queryNanos = System.nanoTime() - start;
+
+        REPORT.printf("  plano de alavancas: %d alavancas, %d estados, construção %.2f ms | próximo passo %.0f ns [%d/%d salas com plano]%n",
+                plan.getLeverCount(), rooms << plan.getLeverCount(), buildNanos / 1e6,
+                (double) queryNanos / rooms, planned, rooms);
+    }
+
+    /**
+     * Compara a contagem de vizinhos abertos com a lista de IDs ({@code getNeighbors} + {@code isValidMove})
+     * e com o cursor por índices, que não aloca nada.
+     */
+    private static void benchmarkNeighbors(Labyrinth labyrinth) {
+        int rooms = labyrinth.getRoomCount();
+        if (rooms == 0) return;
+
+        // Várias rondas para o JIT aquecer; conta a última
+        long oldNanos = 0, newNanos = 0;
+        int openOld = 0, openNew = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            openOld = 0;
+            for (int v = 0; v < rooms; v++) {
+                String id = labyrinth.getRoomId(v);
+                Iterator<String> it = labyrinth.getNeighbors(id).iterator();
+                while (it.hasNext()) {
+                    if (labyrinth.isValidMove(id, it.next())) openOld++;
+                }
+            }
+            oldNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            openNew = 0;
+            for (int v = 0; v < rooms; v++) {
+                for (int k = 0; k < labyrinth.getNeighborCount(v); k++) {
+                    if (labyrinth.isNeighborOpen(v, k)) openNew++;
+                }
+            }
+            newNanos = System.nanoTime() - start;
+        }
+
+        REPORT.printf("  vizinhos: lista de IDs %.1f ns/sala | cursor por índice %.1f ns/sala [%d/%d abertos]%n",
+                (double) oldNanos / rooms, (double) newNanos / rooms, openOld, openNew);
+    }
+
+    /**
+     * Compara o antigo teste de caminho livre (percorrer o caminho mais curto e validar cada passo)
+     * com a consulta ao union-find de salas ligadas por portas abertas.
+     */
+    private static void benchmarkReachability(Labyrinth labyrinth) {
+        ArrayUnorderedList<String> ids = new ArrayUnorderedList<>();
+        Iterator<Room> it = labyrinth.getRoomsIterator();
+        while (it.hasNext()) ids.addToRear(it.next().getId());
+        if (ids.size() == 0) return;
+
+        Random random = new Random(29);
+        int queries = 2000;
+        String[] from = new String[queries];
+        String[] to = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = ids.get(random.nextInt(ids.size()));
+            to[i] = ids.get(random.nextInt(ids.size()));
+        }
+
+        long start = System.nanoTime();
+        int clearOld = 0;
+        for (int i = 0; i < queries; i++) {
+            if (isPathClear(labyrinth, from[i], to[i])) clearOld++;
+        }
+        long oldNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int clearNew = 0;
+        for (int i = 0; i < queries; i++) {
+            if (labyrinth.canReach(from[i], to[i])) clearNew++;
+        }
+        long newNanos = System.nanoTime() - start;
+
+        REPORT.printf("  alcançável: caminho + isValidMove %.2f us/par | union-find %.3f us/par [%d/%d]%n",
+                oldNanos / 1000.0 / queries, newNanos / 1000.0 / queries, clearOld, clearNew);
+    }
+
+    /**
+     * Teste de caminho livre tal como os bots o faziam antes do union-find
+     */
+    private static boolean isPathClear(Labyrinth labyrinth, String start, String target) {
+        Iterator<String> path = labyrinth.getShortestPath(start, target);
+        if (!path.hasNext()) return false;
+
+        String current = path.next();
+        while (path.hasNext()) {
+            String next = path.next();
+            if (!labyrinth.isValidMove(current, next)) return false;
+            current = next;
+        }
+        return true;
+    }
+
+    /**
+     * Compara o A* com a tabela de todos os pares em consultas de distância entre salas aleatórias
+     * (o padrão do {@code CowardBot}). Deixa o labirinto no modo escolhido pelo {@link MapLoader}.
+     */
+    private static void benchmarkAllPairs(Labyrinth labyrinth) {
+        int rooms = labyrinth.getRoomCount();
+        if (rooms == 0 || rooms > AllPairsTable.MAX_VERTICES) return;
+        PathfindingMode original = labyrinth.getPathfindingMode();
+
+        String[] ids = new String[rooms];
+        Iterator<Room> it = labyrinth.getRoomsIterator();
+        for (int i = 0; i < rooms && it.hasNext(); i++) ids[i] = it.next().getId();
+
+        Random random = new Random(23);
+        int queries = 20_000;
+        String[] from = new String[queries];
+        String[] to = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = ids[random.nextInt(rooms)];
+            to[i] = ids[random.nextInt(rooms)];
+        }
+
+        labyrinth.setPathfindingMode(PathfindingMode.ASTAR);
+        long start = System.nanoTime();
+        double astarSum = 0;
+        for (int i = 0; i < queries; i++) astarSum += labyrinth.shortestPathWeight(from[i], to[i]);
+        long astarNanos = System.nanoTime() - start;
+
+        labyrinth.setPathfindingMode(PathfindingMode.ALL_PAIRS);
+
+        // Uma alavanca (trancar e destrancar uma porta) invalida a tabela; a consulta seguinte reconstrói-a
+        Iterator<String> neighbors = labyrinth.getNeighbors(ids[0]).iterator();
+        String door = neighbors.hasNext() ? neighbors.next() : null;
+        long buildNanos = 0;
+        if (door != null) {
+            boolean locked = labyrinth.isLocked(ids[0], door);
+            labyrinth.setConnectionLocked(ids[0], door, !locked);
+            labyrinth.setConnectionLocked(ids[0], door, locked);
+            start = System.nanoTime();
+            labyrinth.shortestPathWeight(ids[0], door);
+            buildNanos = System.nanoTime() - start;
+        }
+
+        start = System.nanoTime();
+        double tableSum = 0;
+        for (int i = 0; i < queries; i++) tableSum += labyrinth.shortestPathWeight(from[i], to[i]);
+        long tableNanos = System.nanoTime() - start;
+
+        labyrinth.setPathfindingMode(original);
+        REPORT.printf("  todos os pares: reconstrução %.2f ms (%d KB) | A* %.2f us/consulta | tabela %.3f us/consulta | iguais: %b%n",
+                buildNanos / 1e6, 4L * rooms * rooms / 1024, astarNanos / 1000.0 / queries,
+                tableNanos / 1000.0 / queries, astarSum == tableSum);
+    }
+
+    /**
+     * Compara a validação de movimentos antiga (caminho mais curto entre vizinhos)
+     * com a consulta direta à aresta.
+     */
+    private static void benchmarkMoveValidation(Labyrinth labyrinth) {
+        ArrayUnorderedList<String> from = new ArrayUnorderedList<>();
+        ArrayUnorderedList<String> to = new ArrayUnorderedList<>();
+
+        Iterator<Room> it = labyrinth.getRoomsIterator();
+        while (it.hasNext() && from.size() < 2000) {
+            String id = it.next().getId();
+            Iterator<String> neighbors = labyrinth.getNeighbors(id).iterator();
+            while (neighbors.hasNext()) {
+                from.addToRear(id);
+                to.addToRear(neighbors.next());
+            }
+        }
+        int pairs = from.size();
+        if (pairs == 0) return;
+
+        long start = System.nanoTime();
+        int validOld = 0;
+        for (int i = 0; i < pairs; i++) {
+            if (labyrinth.shortestPathWeight(from.get(i), to.get(i)) < 10000.0) validOld++;
+        }
+        long oldNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int validNew = 0;
+        for (int i = 0; i < pairs; i++) {
+            if (labyrinth.isValidMove(from.get(i), to.get(i))) validNew++;
+        }
+        long newNanos = System.nanoTime() - start;
+
+        REPORT.printf("  isValidMove: %d pares | caminho mais curto %.2f us/par | aresta direta %.2f us/par (%.1fx) [%d/%d válidos]%n",
+                pairs, oldNanos / 1000.0 / pairs, newNanos / 1000.0 / pairs,
+                (double) oldNanos / Math.max(newNanos, 1), validOld, validNew);
+    }
+
+    /**
+     * Mede o tempo médio de decisão de cada estratégia de bot a partir de salas espalhadas pelo mapa.
+     */
+    private static void benchmarkBotTurns(Labyrinth labyrinth) {
+        if (labyrinth.getTreasureRoom() == null) return;
+
+        ArrayUnorderedList<Room> samples = new ArrayUnorderedList<>();
+        int total = 0;
+        Iterator<Room> count = labyrinth.getRoomsIterator();
+        while (count.hasNext()) { count.next(); total++; }
+        int step = Math.max(1, total / BOT_SAMPLES);
+
+        Iterator<Room> it = labyrinth.getRoomsIterator();
+        int i = 0;
+        while (it.hasNext()) {
+            Room r = it.next();
+            if (i++ % step == 0) samples.addToRear(r);
+        }
+
+        BotStrategy[] strategies = { new ShortestPathBot(BotDifficulty.HARD), new ExplorerBot(), new CowardBot() };
+        for (BotStrategy strategy : strategies) {
+            Player bot = new Player("bench", "Bench", strategy);
+            silence();
+            long start = System.nanoTime();
+            Iterator<Room> sampleIt = samples.iterator();
+            while (sampleIt.hasNext()) {
+                bot.move(sampleIt.next());
+                strategy.nextMove(labyrinth, bot, 6);
+            }
+            long nanos = System.nanoTime() - start;
+            restore();
+            REPORT.printf("  %-16s %.3f ms/jogada (%d jogadas)%n",
+                    strategy.getClass().getSimpleName(), nanos / 1e6 / samples.size(), samples.size());
+        }
+    }
+
+    /**
+     * Mede inserções e pesquisas no {@link SimpleMap} (chaves "x-y") e no {@link IntMap}.
+     */
+    private static void benchmarkMaps() {
+        REPORT.println("=== Mapas de hash ===");
+        for (int size : MAP_SIZES) {
+            String[] keys = new String[size];
+            for (int i = 0; i < size; i++) keys[i] = (i % 1000) + "-" + (i / 1000);
+
+            long start = System.nanoTime();
+            SimpleMap<String, Integer> map = new SimpleMap<>();
+            for (int i = 0; i < size; i++) map.put(keys[i], i);
+            long putNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < size; i++) sum += map.get(keys[i]);
+            long getNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            IntMap<String> intMap = new IntMap<>();
+            for (int i = 0; i < size; i++) intMap.put(i, keys[i]);
+            long intPutNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < size; i++) sum += intMap.get(i).length();
+            long intGetNanos = System.nanoTime() - start;
+
+            String before = "";
+            if (size <= LIST_MAP_MAX_SIZE) {
+                start = System.nanoTime();
+                ListMap<String, Integer> listMap = new ListMap<>();
+                for (int i = 0; i < size; i++) listMap.put(keys[i], i);
+                long listPutNanos = System.nanoTime() - start;
+
+                int gets = Math.min(size, LIST_MAP_GETS);
+                int stride = size / gets;
+                start = System.nanoTime();
+                for (int i = 0; i < gets; i++) sum += listMap.get(keys[i * stride]);
+                long listGetNanos = System.nanoTime() - start;
+                before = String.format("antes (lista) put %.1f ns get %.1f ns | ",
+                        (double) listPutNanos / size, (double) listGetNanos / gets);
+            }
+
+            REPORT.printf("  %,9d entradas | %sSimpleMap put %.1f ns get %.1f ns | IntMap put %.1f ns get %.1f ns (%d)%n",
+                    size, before, (double) putNanos / size, (double) getNanos / size,
+                    (double) intPutNanos / size, (double) intGetNanos / size, sum % 10);
+        }
+    }
+
+    /**
+     * Compara a reparação incremental do campo de distâncias com o recálculo completo
+     * quando portas aleatórias são trancadas e destrancadas.
+     */
+    private static void benchmarkLeverRepair(int size) {
+        SparseGraph graph = MapGenerator.buildGraph(MapGenerator.generateMaze(size, size, 7L));
+
+        int[] edgeA = new int[graph.getNumEdges()];
+        int[] edgeB = new int[graph.getNumEdges()];
+        for (int v = 0; v < graph.size(); v++) {
+            for (int k = 0; k < graph.getDegree(v); k++) {
+                edgeA[graph.getEdge(v, k)] = v;
+                edgeB[graph.getEdge(v, k)] = graph.getNeighbor(v, k);
+            }
+        }
+
+        DistanceField field = new DistanceField(graph, graph.size() - 1);
+        field.distance(0);
+
+        Random random = new Random(3);
+        long repairNanos = 0, rebuildNanos = 0, repaired = 0;
+        for (int i = 0; i < LEVER_PULLS; i++) {
+            int edge = random.nextInt(graph.getNumEdges());
+            int oldCost = graph.getEdgeCost(edge);
+            graph.setLocked(edge, !graph.isLocked(edge));
+
+            long start = System.nanoTime();
+            field.edgeChanged(edgeA[edge], edgeB[edge], oldCost, graph.getEdgeCost(edge));
+            repairNanos += System.nanoTime() - start;
+            repaired += field.getLastRepairSize();
+
+            start = System.nanoTime();
+            new DistanceField(graph, graph.size() - 1).distance(0);
+            rebuildNanos += System.nanoTime() - start;
+        }
+
+        REPORT.printf("=== alavancas %dx%d (%d salas) ===%n  reparação %.1f us/alavanca (%.0f salas) | recálculo %.1f us/alavanca%n",
+                size, size, graph.size(), repairNanos / 1000.0 / LEVER_PULLS, (double) repaired / LEVER_PULLS,
+                rebuildNanos / 1000.0 / LEVER_PULLS);
+    }
+
+    /**
+     * Compara o A* (heurística de Manhattan) com o Dijkstra em pares aleatórios de um mapa aberto.
+     */
+    private static void benchmarkAStar(int size) {
+        SparseGraph graph = MapGenerator.buildGraph(MapGenerator.generateOpenMap(size, size, 0.15, 11L));
+        Random random = new Random(5);
+        int queries = 200;
+        int[] from = new int[queries];
+        int[] to = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = random.nextInt(graph.size());
+            to[i] = random.nextInt(graph.size());
+        }
+
+        long[] nanos = new long[2];
+        long[] expanded = new long[2];
+        long[] cost = new long[2];
+        for (int mode = 0; mode < 2; mode++) {
+            graph.setHeuristicEnabled(mode == 0);
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                int c = graph.shortestPathCost(from[i], to[i]);
+                expanded[mode] += graph.getLastExpanded();
+                if (c != SparseGraph.INFINITY) cost[mode] += c;
+            }
+            nanos[mode] = System.nanoTime() - start;
+        }
+        graph.setHeuristicEnabled(true);
+
+        REPORT.printf("=== A* mapa aberto %dx%d (%d salas) ===%n  A* %.1f us/consulta, %d expandidos | Dijkstra %.1f us/consulta, %d expandidos | custos iguais: %b%n",
+                size, size, graph.size(), nanos[0] / 1000.0 / queries, expanded[0] / queries,
+                nanos[1] / 1000.0 / queries, expanded[1] / queries, cost[0] == cost[1]);
+    }
+
+    /**
+     * Compara o A* com o Jump Point Search em pares aleatórios de salas de uma grelha grande
+     */
+    private static void benchmarkJumpPoint(String name, int[][] grid) {
+        SparseGraph graph = MapGenerator.buildGraph(grid);
+        JumpPointSearch jps = new JumpPointSearch(graph);
+        Random random = new Random(17);
+
+        long astarNanos = 0, jpsNanos = 0, astarExpanded = 0, jpsExpanded = 0;
+        int mismatches = 0;
+        for (int i = 0; i < JPS_QUERIES; i++) {
+            int from = random.nextInt(graph.size());
+            int to = random.nextInt(graph.size());
+
+            long start = System.nanoTime();
+            int[] astarPath = graph.shortestPath(from, to);
+            astarNanos += System.nanoTime() - start;
+            astarExpanded += graph.getLastExpanded();
+
+            start = System.nanoTime();
+            int[] jpsPath = jps.findPath(from, to);
+            jpsNanos += System.nanoTime() - start;
+            jpsExpanded += jps.getLastExpanded();
+
+            if (astarPath.length != jpsPath.length) mismatches++;
+        }
+
+        REPORT.printf("=== JPS %s %dx%d (%d salas) ===%n  A* %.2f ms/consulta, %d expandidos | JPS %.2f ms/consulta, %d pontos de salto | caminhos diferentes: %d%n",
+                name, grid[0].length, grid.length, graph.size(), astarNanos / 1e6 / JPS_QUERIES, astarExpanded / JPS_QUERIES,
+                jpsNanos / 1e6 / JPS_QUERIES, jpsExpanded / JPS_QUERIES, mismatches);
+    }
+
+    /**
+     * Compara, em caminhos só por portas abertas, o A* e o Dijkstra (BFS de um só lado, já que todas
+     * as arestas custam o mesmo) com a BFS bidirecional.
+     */
+    private static void benchmarkBidirectional(String name, int[][] grid) {
+        SparseGraph graph = MapGenerator.buildGraph(grid);
+        Random random = new Random(17);
+        int[] from = new int[JPS_QUERIES];
+        int[] to = new int[JPS_QUERIES];
+        for (int i = 0; i < JPS_QUERIES; i++) {
+            from[i] = random.nextInt(graph.size());
+            to[i] = random.nextInt(graph.size());
+        }
+
+        // 0 = A*, 1 = Dijkstra, 2 = BFS bidirecional
+        long[] nanos = new long[3];
+        long[] expanded = new long[3];
+        int mismatches = 0;
+        for (int i = 0; i < JPS_QUERIES; i++) {
+            int[] costs = new int[3];
+            for (int mode = 0; mode < 3; mode++) {
+                graph.setHeuristicEnabled(mode == 0);
+                long start = System.nanoTime();
+                if (mode < 2) {
+                    costs[mode] = graph.shortestPathCost(from[i], to[i]);
+                } else {
+                    int[] path = graph.openPath(from[i], to[i]);
+                    costs[mode] = path.length == 0 ? SparseGraph.INFINITY : path.length - 1;
+                }
+                nanos[mode] += System.nanoTime() - start;
+                expanded[mode] += graph.getLastExpanded();
+            }
+            if (costs[0] != costs[2] || costs[1] != costs[2]) mismatches++;
+        }
+        graph.setHeuristicEnabled(true);
+
+        REPORT.printf("=== BFS bidirecional %s %dx%d (%d salas) ===%n  A* %.2f ms/consulta, %d expandidos | Dijkstra %.2f ms/consulta, %d expandidos | bidirecional %.2f ms/consulta, %d expandidos | custos diferentes: %d%n",
+                name, grid[0].length, grid.length, graph.size(),
+                nanos[0] / 1e6 / JPS_QUERIES, expanded[0] / JPS_QUERIES,
+                nanos[1] / 1e6 / JPS_QUERIES, expanded[1] / JPS_QUERIES,
+                nanos[2] / 1e6 / JPS_QUERIES, expanded[2] / JPS_QUERIES, mismatches);
+    }
+
+    /**
+     * Mede a pesquisa hierárquica: construção, consultas (comparadas com o A*) e
+     * atualização quando portas aleatórias mudam de estado
+     */
+    private static void benchmarkHierarchical(String name, int[][] grid) {
+        SparseGraph graph = MapGenerator.buildGraph(grid);
+        HierarchicalPathfinder hierarchy = new HierarchicalPathfinder(graph);
+
+        long start = System.nanoTime();
+        hierarchy.ensureBuilt();
+        long buildNanos = System.nanoTime() - start;
+
+        Random random = new Random(19);
+        long astarNanos = 0, pathNanos = 0, stepNanos = 0, astarCost = 0, hpaCost = 0;
+        for (int i = 0; i < HPA_QUERIES; i++) {
+            int from = random.nextInt(graph.size());
+            int to = random.nextInt(graph.size());
+
+            start = System.nanoTime();
+            int cost = graph.shortestPathCost(from, to);
+            astarNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int[] path = hierarchy.findPath(from, to);
+            pathNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            hierarchy.nextStep(from, to);
+            stepNanos += System.nanoTime() - start;
+
+            if (cost < SparseGraph.COST_LOCKED && path.length > 0) {
+                astarCost += cost;
+                hpaCost += path.length - 1;
+            }
+        }
+
+        // Consultas locais (destino a menos de 100 casas), o caso típico de um bot à procura de um boost
+        long localAstarNanos = 0, localNanos = 0;
+        int local = 0;
+        while (local < HPA_QUERIES) {
+            int from = random.nextInt(graph.size());
+            int to = random.nextInt(graph.size());
+            if (Math.abs(graph.getX(from) - graph.getX(to)) + Math.abs(graph.getY(from) - graph.getY(to)) >= 100) continue;
+            local++;
+
+            start = System.nanoTime();
+            graph.shortestPathCost(from, to);
+            localAstarNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            hierarchy.nextStep(from, to);
+            localNanos += System.nanoTime() - start;
+        }
+
+        long doorNanos = 0;
+        for (int i = 0; i < HPA_DOORS; i++) {
+            int v = random.nextInt(graph.size());
+            if (graph.getDegree(v) == 0) continue;
+            int k = random.nextInt(graph.getDegree(v));
+            int edge = graph.getEdge(v, k);
+            graph.setLocked(edge, !graph.isLocked(edge));
+            start = System.nanoTime();
+            hierarchy.edgeChanged(v, graph.getNeighbor(v, k));
+            doorNanos += System.nanoTime() - start;
+        }
+
+        REPORT.printf("=== Hierárquico %s %dx%d (%d salas, %d entradas) ===%n  construção %.0f ms | A* %.2f ms/consulta | caminho %.3f ms | primeiro passo %.3f ms | custo +%.1f%% | porta %.1f us%n  consultas locais: A* %.3f ms | primeiro passo %.3f ms%n",
+                name, grid[0].length, grid.length, graph.size(), hierarchy.getEntranceCount(), buildNanos / 1e6,
+                astarNanos / 1e6 / HPA_QUERIES, pathNanos / 1e6 / HPA_QUERIES, stepNanos / 1e6 / HPA_QUERIES,
+                astarCost == 0 ? 0.0 : 100.0 * (hpaCost - astarCost) / astarCost, doorNanos / 1000.0 / HPA_DOORS,
+                localAstarNanos / 1e6 / HPA_QUERIES, localNanos / 1e6 / HPA_QUERIES);
+    }
+
+    /**
+     * Mapa gerado diretamente para um ficheiro de blocos (sem nunca existir em memória) e aberto com
+     * uma cache pequena. Um "jogador" anda pelo mapa aos saltos curtos, revelando a área à volta de
+     * cada passo, e mede-se o A* entre blocos e a memória ocupada pela cache.
+     */
+    private static void benchmarkTiled(int width, int height) {
+        File file;
+        long createNanos;
+        try {
+            file = File.createTempFile("labirinto", ".tiles");
+            long start = System.nanoTime();
+            TileStore.create(file.getPath(), width, height, TileStore.DEFAULT_TILE_SIZE, (x, y) -> {
+                if (x == 0 && y == 0) return 1;
+                if (x == width - 1 && y == height - 1) return 9;
+                int h = (x * 0x9E3779B9) ^ (y * 0x85EBCA6B);
+                h ^= h >>> 15;
+                return Math.floorMod(h * 0x2C1B3C6D, 100) < 15 ? 0 : 2;
+            });
+            createNanos = System.nanoTime() - start;
+        } catch (IOException e) {
+            REPORT.println("=== Mapa em blocos: erro ao criar o ficheiro: " + e.getMessage());
+            return;
+        }
+
+        silence();
+        TiledLabyrinth labyrinth = MapLoader.loadTiledLabyrinth(file.getPath(), TILED_CACHE);
+        restore();
+        if (labyrinth == null) return;
+
+        Random random = new Random(29);
+        int x = width / 2, y = height / 2;
+        long searchNanos = 0, expanded = 0;
+        int found = 0, steps = 0;
+        for (int i = 0; i < JPS_QUERIES; i++) {
+            int tx = Math.min(width - 1, Math.max(0, x + random.nextInt(801) - 400));
+            int ty = Math.min(height - 1, Math.max(0, y + random.nextInt(801) - 400));
+            if (!labyrinth.isRoom(tx, ty) || !labyrinth.isRoom(x, y)) continue;
+
+            long start = System.nanoTime();
+            int[] path = labyrinth.shortestPath(y * width + x, ty * width + tx);
+            searchNanos += System.nanoTime() - start;
+            expanded += labyrinth.getLastExpanded();
+            if (path.length == 0) continue;
+
+            found++;
+            for (int cell : path) labyrinth.revealArea(cell);
+            steps += path.length - 1;
+            x = tx;
+            y = ty;
+        }
+
+        TileStore store = labyrinth.getTileStore();
+        REPORT.printf("=== Mapa em blocos %dx%d (%,d células, ficheiro %d MB) ===%n  criação %.1f s | A* %.2f ms/consulta, %d expandidos (%d/%d caminhos, %d passos revelados)%n  cache: %d blocos (%d KB) | leituras %d, acertos %d, despejos %d | névoa em %d blocos%n",
+                width, height, (long) width * height, file.length() >> 20, createNanos / 1e9,
+                searchNanos / 1e6 / Math.max(1, found), expanded / Math.max(1, found), found, JPS_QUERIES, steps,
+                store.getResidentTiles(), store.getResidentBytes() >> 10, store.getTileLoads(), store.getTileHits(),
+                store.getEvictions(), labyrinth.getVisibleTileCount());
+
+        try {
+            labyrinth.close();
+        } catch (IOException e) {
+            // O ficheiro temporário é apagado a seguir de qualquer forma
+        }
+        file.delete();
+    }
+
+    private static void silence() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    private static void restore() {
+        System.setOut(REPORT);
+    }
+}
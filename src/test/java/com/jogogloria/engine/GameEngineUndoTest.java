@@ -0,0 +1,209 @@
+package com.jogogloria.engine;
+
+import com.example.Biblioteca.lists.ArrayUnorderedList;
+import com.jogogloria.io.MapLoader;
+import com.jogogloria.model.Labyrinth;
+import com.jogogloria.model.Lever;
+import com.jogogloria.model.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Undo e redo do {@link GameEngine}: desfazer cada passo repõe exatamente o estado de antes do
+ * passo (jogadores, vez, alavancas e portas) e refazer volta a chegar ao mesmo estado, também com
+ * o histórico despejado em disco e depois de um ramo novo.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+class GameEngineUndoTest {
+
+    private static final String[] MAPS = {"maps/templo_esquecido.json", "maps/corrida_explosiva.json"};
+    private static final int PLAYERS = 3;
+    private static final int ACTIONS = 400;
+
+    private GameEngine engine;
+    private Labyrinth labyrinth;
+    private ArrayUnorderedList<Player> players;
+    private Random random;
+
+    @Test
+    void undoRestoresEveryStep() throws Exception {
+        for (int game = 0; game < 10; game++) {
+            start(MAPS[game % MAPS.length], new UndoHistory(4096, false), game);
+            checkRoundTrip();
+        }
+    }
+
+    @Test
+    void undoRestoresEveryStepFromDisk() throws Exception {
+        // Anel de 8 registos: quase todo o histórico passa pelo ficheiro de despejo
+        for (int game = 0; game < 6; game++) {
+            start(MAPS[game % MAPS.length], new UndoHistory(8, true), game);
+            try {
+                checkRoundTrip();
+                assertTrue(engine.getUndoHistory().getSpillWrites() > 0);
+            } finally {
+                engine.close();
+            }
+        }
+    }
+
+    @Test
+    void newBranchKeepsTheUndoneSteps() throws Exception {
+        start(MAPS[0], new UndoHistory(4096, false), 7);
+        play(60);
+        String end = fingerprint();
+
+        int undone = 0;
+        while (undone < 5 && engine.undo()) undone++;
+        String fork = fingerprint();
+        int depth = engine.getTimeline().getDepth();
+        assertEquals(1, engine.getRedoBranches());
+
+        // Joga até gravar pelo menos um passo: abre um segundo futuro
+        while (engine.getTimeline().getDepth() == depth) play(1);
+        String other = fingerprint();
+        int otherSteps = engine.getTimeline().getDepth() - depth;
+        for (int i = 0; i < otherSteps; i++) assertTrue(engine.undo());
+        assertEquals(fork, fingerprint());
+        assertEquals(2, engine.getRedoBranches());
+
+        // Ramo 0: o original
+        assertTrue(engine.redo(0));
+        for (int i = 1; i < undone; i++) assertTrue(engine.redo());
+        assertEquals(end, fingerprint());
+
+        for (int i = 0; i < undone; i++) assertTrue(engine.undo());
+        assertEquals(fork, fingerprint());
+        assertTrue(engine.redo(0));
+        for (int i = 1; i < otherSteps; i++) assertTrue(engine.redo());
+        assertEquals(other, fingerprint());
+    }
+
+    @Test
+    void changesAfterUndoStayInTheCurrentStep() throws Exception {
+        start(MAPS[0], new UndoHistory(4096, false), 11);
+        play(60);
+        assertTrue(engine.undo());
+        int steps = engine.getUndoSteps();
+        int depth = engine.getTimeline().getDepth();
+
+        // Lançar o dado e passar a vez não são movimentos: não abrem passos nem ramos
+        Player current = engine.getCurrentPlayer();
+        engine.setMovementPoints(current, current.getMovementPoints() + 1);
+        engine.nextTurn();
+        assertEquals(steps, engine.getUndoSteps());
+        assertEquals(depth, engine.getTimeline().getDepth());
+        assertEquals(1, engine.getRedoBranches());
+    }
+
+    @Test
+    void abandonedBranchesStayWithinTheHistoryBudget() throws Exception {
+        int capacity = 256;
+        start(MAPS[1], new UndoHistory(capacity, false), 13);
+        play(200);
+        for (int round = 0; round < 300 && engine.isGameRunning(); round++) {
+            int back = 1 + random.nextInt(3);
+            for (int i = 0; i < back; i++) engine.undo();
+            assertTrue(engine.getTimeline().getStoredRecords() <= capacity, "ronda " + round);
+            assertTrue(engine.getRedoBranches() > 0);
+
+            int depth = engine.getTimeline().getDepth();
+            while (engine.isGameRunning() && engine.getTimeline().getDepth() == depth) play(1);
+        }
+    }
+
+    /**
+     * Guarda o estado antes de cada passo, desfaz tudo comparando, e refaz tudo comparando
+     */
+    private void checkRoundTrip() throws Exception {
+        ArrayUnorderedList<String> before = new ArrayUnorderedList<>();
+        for (int i = 0; i < ACTIONS && engine.isGameRunning(); i++) {
+            String state = fingerprint();
+            if (act()) before.addToRear(state);
+        }
+        // As ações sem movimento ficam no passo anterior: refazer um passo chega ao estado de antes do seguinte
+        String end = fingerprint();
+        int steps = before.size();
+        assertEquals(steps, engine.getUndoSteps());
+
+        for (int i = steps - 1; i >= 0; i--) {
+            assertTrue(engine.undo(), "undo " + i);
+            assertEquals(before.get(i), fingerprint(), "undo do passo " + i);
+        }
+        assertFalse(engine.undo());
+
+        for (int i = 0; i < steps; i++) {
+            assertTrue(engine.redo(), "redo " + i);
+            String expected = i == steps - 1 ? end : before.get(i + 1);
+            assertEquals(expected, fingerprint(), "redo do passo " + i);
+        }
+        assertFalse(engine.redo());
+    }
+
+    private void start(String map, UndoHistory history, long seed) throws Exception {
+        random = new Random(seed);
+        labyrinth = MapLoader.loadLabyrinth(map);
+        engine = new GameEngine(labyrinth, false, history);
+        players = new ArrayUnorderedList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            Player player = new Player("p" + i, "P" + i);
+            engine.addPlayer(player);
+            players.addToRear(player);
+        }
+    }
+
+    private void play(int actions) throws Exception {
+        for (int i = 0; i < actions && engine.isGameRunning(); i++) act();
+    }
+
+    /**
+     * Uma ação aleatória: lançar o dado, passar a vez, mudar turnos a saltar ou mover
+     * @return true se foi um movimento (um passo novo no histórico)
+     */
+    private boolean act() throws Exception {
+        Player current = engine.getCurrentPlayer();
+        if (current.getMovementPoints() <= 0) {
+            engine.setMovementPoints(current, 1 + random.nextInt(6));
+            return false;
+        }
+        int op = random.nextInt(20);
+        if (op == 0) {
+            engine.nextTurn();
+            return false;
+        }
+        if (op == 1) {
+            engine.setSkipTurns(players.get(random.nextInt(PLAYERS)), random.nextInt(3));
+            return false;
+        }
+        ArrayUnorderedList<String> neighbors = labyrinth.getNeighbors(current.getCurrentRoom().getId());
+        if (neighbors.isEmpty()) return false;
+        if (!engine.tryMove(current, labyrinth.getRoom(neighbors.get(random.nextInt(neighbors.size()))))) return false;
+        if (current.getMovementPoints() <= 0) engine.nextTurn();
+        return true;
+    }
+
+    /**
+     * Estado visível do jogo: vez, jogadores e alavancas com as suas portas
+     */
+    private String fingerprint() {
+        StringBuilder state = new StringBuilder("vez=").append(engine.getCurrentPlayer().getId()).append(';');
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            state.append(p.getId()).append('@').append(p.getCurrentRoom().getId()).append(',')
+                    .append(p.getMovementPoints()).append(',').append(p.getSkipTurns()).append(';');
+        }
+        for (int slot = 0; slot < labyrinth.getLeverCount(); slot++) {
+            Lever lever = labyrinth.getLever(slot);
+            state.append(lever.getId()).append(lever.isActivated() ? '+' : '-')
+                    .append(labyrinth.isLocked(lever.getRoomA().getId(), lever.getRoomB().getId()) ? 'T' : 'A');
+        }
+        return state.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package com.jogogloria.engine;
+
+import com.jogogloria.config.GameConfig;
+import com.jogogloria.io.MapGenerator;
+import com.jogogloria.model.Labyrinth;
+import com.jogogloria.model.Lever;
+import com.jogogloria.model.LeverPlan;
+import com.jogogloria.model.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bots num corredor com a porta do tesouro trancada: a alavanca só dispara se o bot acabar a
+ * jogada na sala dela, por isso o plano tem de a tratar como paragem.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+class ShortestPathBotTest {
+
+    /**
+     * Corredor 0-0 .. 6-0 com o tesouro em 6-0. A porta 4-0/5-0 abre com a alavanca de 3-0;
+     * a alavanca de 1-0 só abre o beco 5-0/5-1 e não faz falta.
+     */
+    private static final int[][] GRID = {
+            {1, 6, 2, 6, 2, 2, 9},
+            {0, 0, 0, 0, 0, 2, 0}
+    };
+
+    @Test
+    void planPullsOnlyTheLeversItNeeds() {
+        LeverPlan plan = corridor("3-0").getLeverPlan();
+
+        assertTrue(plan.isSolvable());
+        assertEquals(6, plan.distance(0, 0));
+        assertEquals(1, plan.getLeverOrder("0-0").size());
+        assertEquals("B", plan.getLeverOrder("0-0").get(0).getId());
+        assertEquals("3-0", plan.nextLeverRoom("0-0"));
+        assertEquals(7, plan.getRoute("0-0").size());
+    }
+
+    @Test
+    void leverOutsideALeverRoomNeverFires() {
+        assertFalse(corridor("2-0").getLeverPlan().isSolvable());
+    }
+
+    @Test
+    void botStopsOnTheLeverInsteadOfWalkingPastIt() throws Exception {
+        Labyrinth labyrinth = corridor("3-0");
+        GameEngine engine = new GameEngine(labyrinth, false, new UndoHistory(GameConfig.UNDO_MEMORY_RECORDS, false));
+        try {
+            Player bot = new Player("b", "Bot", new ShortestPathBot(BotDifficulty.HARD));
+            engine.addPlayer(bot);
+
+            // A alavanca está a 3 passos: com 5 pontos o bot tem de gastar 2 a sair e voltar
+            engine.setMovementPoints(bot, 5);
+            while (bot.getMovementPoints() > 0) assertTrue(engine.executeBotTurn());
+
+            assertEquals("3-0", bot.getCurrentRoom().getId());
+            assertTrue(labyrinth.getLeverById("B").isActivated());
+            assertFalse(labyrinth.getLeverById("A").isActivated());
+            assertFalse(labyrinth.isLocked("4-0", "5-0"));
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void botReachesTheTreasureBehindTheDoor() throws Exception {
+        for (long seed = 0; seed < 5; seed++) {
+            Random random = new Random(seed);
+            Labyrinth labyrinth = corridor("3-0");
+            GameEngine engine = new GameEngine(labyrinth, false,
+                    new UndoHistory(GameConfig.UNDO_MEMORY_RECORDS, false), random);
+            try {
+                Player bot = new Player("b", "Bot", new ShortestPathBot(BotDifficulty.HARD, random));
+                engine.addPlayer(bot);
+                new TurnResolver(engine, new RiddleManager(GameConfig.RIDDLES_FILE, random), random).playGame(100);
+
+                assertFalse(engine.isGameRunning(), "semente " + seed);
+                assertEquals(labyrinth.getTreasureRoom(), bot.getCurrentRoom().getId(), "semente " + seed);
+                assertTrue(labyrinth.getLeverById("B").isActivated(), "semente " + seed);
+            } finally {
+                engine.close();
+            }
+        }
+    }
+
+    /**
+     * Constrói o corredor com a alavanca B na sala indicada
+     */
+    private static Labyrinth corridor(String leverBRoom) {
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(GRID);
+        labyrinth.setConnectionLocked("4-0", "5-0", true);
+        labyrinth.setConnectionLocked("5-0", "5-1", true);
+        labyrinth.setRoomLever(labyrinth.getRoomIndex("1-0"),
+                new Lever("A", labyrinth.getRoom("5-0"), labyrinth.getRoom("5-1")));
+        labyrinth.setRoomLever(labyrinth.getRoomIndex(leverBRoom),
+                new Lever("B", labyrinth.getRoom("4-0"), labyrinth.getRoom("5-0")));
+        labyrinth.planLevers();
+        return labyrinth;
+    }
+}
@@ -0,0 +1,258 @@
+package com.jogogloria.engine;
+
+import com.jogogloria.config.GameConfig;
+import com.jogogloria.io.MapGenerator;
+import com.jogogloria.io.MapLoader;
+import com.jogogloria.model.Labyrinth;
+import com.jogogloria.model.Player;
+import com.jogogloria.model.Riddle;
+import com.jogogloria.model.Room;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regras do {@link TurnResolver} sem interface: partidas de bots repetíveis com a mesma semente
+ * (no dado, nas penalidades, nos enigmas e nas estratégias) e as regras dos jogadores humanos
+ * (enigmas certos e errados, o bónus que chega ao tesouro, boosts) num corredor com o dado fixo em 1.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.2
+ */
+class TurnResolverTest {
+
+    private static final String MAP = "maps/templo_esquecido.json";
+    private static final int BOTS = 3;
+    private static final int MAX_TURNS = 2_000;
+
+    // Corredor: entrada, normal, enigma, normal, boost, ..., tesouro
+    private static final int[][] CORRIDOR = {{1, 2, 3, 2, 5, 2, 2, 2, 9}};
+
+    /** Dado que sai sempre 1 */
+    private static final Random ONE = new Random() {
+        @Override
+        public int nextInt(int bound) {
+            return 0;
+        }
+    };
+
+    @Test
+    void seededGamesAreRepeatable() throws Exception {
+        for (long seed = 0; seed < 5; seed++) {
+            assertEquals(play(seed), play(seed), "semente " + seed);
+        }
+        assertNotEquals(play(1), play(2));
+    }
+
+    @Test
+    void riddlesMoveOrPenalizeHumans() throws Exception {
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(CORRIDOR);
+        Player first = human("p1", labyrinth.getRoom("1-0"));
+        Player second = human("p2", labyrinth.getRoom("0-0"));
+        GameEngine engine = engine(labyrinth, first, second);
+        try {
+            Answers answers = new Answers(true, false);
+            TurnResolver resolver = resolver(engine, answers);
+            int turns = engine.getTurnCount();
+
+            // Certo: avança o bónus em direção ao tesouro e a vez passa
+            assertEquals(1, resolver.rollDice());
+            assertTrue(resolver.move(labyrinth.getRoom("2-0")));
+            assertNotNull(answers.last);
+            assertEquals(1, answers.resolved);
+            assertEquals(labyrinth.getRoom((2 + answers.last.getBonus()) + "-0"), first.getCurrentRoom());
+            assertEquals(0, first.getSkipTurns());
+            assertSame(second, engine.getCurrentPlayer());
+            assertEquals(turns + 1, engine.getTurnCount());
+
+            resolver.rollDice();
+            assertTrue(resolver.move(labyrinth.getRoom("1-0")));
+            assertSame(first, engine.getCurrentPlayer());
+
+            // Errado: fica na sala, perde os pontos e os turnos do enigma
+            resolver.rollDice();
+            assertTrue(resolver.move(labyrinth.getRoom("2-0")));
+            assertEquals(2, answers.resolved);
+            assertEquals(labyrinth.getRoom("2-0"), first.getCurrentRoom());
+            assertEquals(answers.last.getPenalty(), first.getSkipTurns());
+            assertEquals(0, first.getMovementPoints());
+            assertSame(second, engine.getCurrentPlayer());
+
+            // O turno perdido é gasto quando a vez voltaria ao primeiro jogador
+            resolver.rollDice();
+            assertTrue(resolver.move(labyrinth.getRoom("0-0")));
+            assertEquals(answers.last.getPenalty() - 1, first.getSkipTurns());
+            assertSame(second, engine.getCurrentPlayer());
+            assertEquals(0, answers.extraTurns);
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void riddleBonusCanReachTheTreasure() throws Exception {
+        // O enigma fica mesmo antes do tesouro
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(new int[][]{{1, 2, 3, 9}});
+        Player first = human("p1", labyrinth.getRoom("1-0"));
+        Player second = human("p2", labyrinth.getRoom("0-0"));
+        GameEngine engine = engine(labyrinth, first, second);
+        try {
+            Answers answers = new Answers(true);
+            TurnResolver resolver = resolver(engine, answers);
+            int turns = engine.getTurnCount();
+
+            resolver.rollDice();
+            assertTrue(resolver.move(labyrinth.getRoom("2-0")));
+
+            assertEquals(1, answers.resolved);
+            assertEquals(labyrinth.getRoom("3-0"), first.getCurrentRoom());
+            assertFalse(engine.isGameRunning());
+            // O jogo acabou no turno do vencedor: a vez não passa
+            assertSame(first, engine.getCurrentPlayer());
+            assertEquals(turns, engine.getTurnCount());
+            assertEquals(0, resolver.rollDice());
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void boostGivesAnExtraTurn() throws Exception {
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(CORRIDOR);
+        Player first = human("p1", labyrinth.getRoom("3-0"));
+        Player second = human("p2", labyrinth.getRoom("0-0"));
+        GameEngine engine = engine(labyrinth, first, second);
+        try {
+            Answers answers = new Answers();
+            TurnResolver resolver = resolver(engine, answers);
+            int turns = engine.getTurnCount();
+
+            resolver.rollDice();
+            assertTrue(resolver.move(labyrinth.getRoom("4-0")));
+
+            // O boost é gasto logo: o mesmo jogador lança outra vez
+            assertEquals(1, answers.extraTurns);
+            assertEquals(0, first.getBoost());
+            assertSame(first, engine.getCurrentPlayer());
+            assertEquals(turns, engine.getTurnCount());
+            assertEquals(1, resolver.rollDice());
+
+            // Sem boost, o passo seguinte passa a vez
+            assertTrue(resolver.move(labyrinth.getRoom("5-0")));
+            assertEquals(1, answers.extraTurns);
+            assertSame(second, engine.getCurrentPlayer());
+            assertEquals(turns + 1, engine.getTurnCount());
+        } finally {
+            engine.close();
+        }
+    }
+
+    private static Player human(String id, Room room) {
+        Player player = new Player(id, "Jogador " + id);
+        player.move(room);
+        player.setInitialPosition(room);
+        return player;
+    }
+
+    private static GameEngine engine(Labyrinth labyrinth, Player... players) throws Exception {
+        GameEngine engine = new GameEngine(labyrinth, false,
+                new UndoHistory(GameConfig.UNDO_MEMORY_RECORDS, false), new Random(3L));
+        for (Player player : players) engine.addPlayer(player);
+        return engine;
+    }
+
+    private static TurnResolver resolver(GameEngine engine, Answers answers) {
+        TurnResolver resolver = new TurnResolver(engine, new RiddleManager(GameConfig.RIDDLES_FILE, new Random(5L)), ONE);
+        resolver.setListener(answers);
+        return resolver;
+    }
+
+    /**
+     * Responde aos enigmas pela ordem dada (certo ou errado) e conta o que recebeu
+     */
+    private static final class Answers implements TurnResolver.Listener {
+        private final boolean[] correct;
+        private int asked;
+        int resolved;
+        int extraTurns;
+        Riddle last;
+
+        Answers(boolean... correct) {
+            this.correct = correct;
+        }
+
+        @Override
+        public void diceRolled(Player player, int dice) {
+        }
+
+        @Override
+        public String askRiddle(Player player, Riddle riddle) {
+            return correct[asked++] ? riddle.getAnswer() : "resposta errada";
+        }
+
+        @Override
+        public void riddleResolved(Player player, Riddle riddle, boolean right) {
+            assertEquals(correct[resolved], right);
+            resolved++;
+            last = riddle;
+        }
+
+        @Override
+        public void extraTurn(Player player) {
+            extraTurns++;
+        }
+    }
+
+    /**
+     * Joga uma partida e devolve tudo o que o listener recebeu, os turnos e onde acabou cada bot
+     */
+    private static String play(long seed) throws Exception {
+        Random random = new Random(seed);
+        GameEngine engine = new GameEngine(MapLoader.loadLabyrinth(MAP), false,
+                new UndoHistory(GameConfig.UNDO_MEMORY_RECORDS, false), random);
+        Player[] bots = new Player[BOTS];
+        try {
+            for (int b = 0; b < BOTS; b++) {
+                // EASY: o bot erra de propósito metade das vezes, a estratégia usa muito o gerador
+                bots[b] = new Player("b" + b, "Bot " + b, new ShortestPathBot(BotDifficulty.EASY, random));
+                engine.addPlayer(bots[b]);
+            }
+            TurnResolver resolver = new TurnResolver(engine, new RiddleManager(GameConfig.RIDDLES_FILE, random), random);
+            StringBuilder trace = new StringBuilder();
+            resolver.setListener(new TurnResolver.Listener() {
+                @Override
+                public void diceRolled(Player player, int dice) {
+                    trace.append(player.getId()).append(':').append(dice).append(' ');
+                }
+
+                @Override
+                public String askRiddle(Player player, Riddle riddle) {
+                    return null;
+                }
+
+                @Override
+                public void riddleResolved(Player player, Riddle riddle, boolean correct) {
+                    trace.append(riddle == null ? "-" : riddle.getId()).append(correct ? '+' : 'x').append(' ');
+                }
+
+                @Override
+                public void extraTurn(Player player) {
+                    trace.append("extra ");
+                }
+            });
+
+            trace.append("| turnos ").append(resolver.playGame(MAX_TURNS));
+            for (Player bot : bots) trace.append(' ').append(bot.getCurrentRoom().getId());
+            return trace.toString();
+        } finally {
+            engine.close();
+        }
+    }
+}
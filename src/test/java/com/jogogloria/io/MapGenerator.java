@@ -0,0 +1,152 @@
+package com.jogogloria.io;
+
+import com.jogogloria.model.Labyrinth;
+import com.jogogloria.utils.SparseGraph;
+
+import java.util.Random;
+
+/**
+ * Geradores de mapas para os testes e para o {@code Benchmark}: grelhas de códigos no formato do
+ * {@link MapLoader} (0 = parede, 1 = entrada, 2 = sala normal, 9 = tesouro), sempre iguais para a
+ * mesma semente.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.1
+ */
+public final class MapGenerator {
+
+    private MapGenerator() {}
+
+    /**
+     * Constrói o labirinto de uma grelha gerada, com o algoritmo de pesquisa que o
+     * {@link MapLoader} escolheria. Não tem trancas nem alavancas, nem plano de alavancas.
+     */
+    public static Labyrinth toLabyrinth(int[][] grid) {
+        return MapLoader.loadLabyrinth(grid);
+    }
+
+    /**
+     * Constrói um grafo esparso diretamente a partir de uma grelha de códigos (vizinhança de 4)
+     */
+    public static SparseGraph buildGraph(int[][] grid) {
+        int rows = grid.length, cols = grid[0].length;
+        SparseGraph graph = new SparseGraph(rows * cols);
+        int[] cell = new int[rows * cols];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                cell[y * cols + x] = grid[y][x] != 0 ? graph.addVertex(x, y) : -1;
+            }
+        }
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                int v = cell[y * cols + x];
+                if (v == -1) continue;
+                if (x > 0 && cell[y * cols + x - 1] != -1) graph.addEdge(v, cell[y * cols + x - 1]);
+                if (y > 0 && cell[(y - 1) * cols + x] != -1) graph.addEdge(v, cell[(y - 1) * cols + x]);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Gera um mapa aberto com paredes soltas espalhadas aleatoriamente
+     * @param density Fração de células que são parede
+     */
+    public static int[][] generateOpenMap(int width, int height, double density, long seed) {
+        Random random = new Random(seed);
+        int[][] grid = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid[y][x] = random.nextDouble() < density ? 0 : 2;
+            }
+        }
+        grid[0][0] = 1;
+        grid[height - 1][width - 1] = 9;
+        return grid;
+    }
+
+    /**
+     * Gera um mapa de corredores retos: uma linha horizontal a cada {@code spacing} linhas,
+     * ligadas por alguns corredores verticais em posições aleatórias
+     */
+    public static int[][] generateCorridors(int width, int height, int spacing, long seed) {
+        Random random = new Random(seed);
+        int[][] grid = new int[height][width];
+        int lastRow = 0;
+        for (int y = 0; y < height; y += spacing) {
+            for (int x = 0; x < width; x++) grid[y][x] = 2;
+            if (y > 0) {
+                int links = 1 + random.nextInt(4);
+                for (int i = 0; i < links; i++) {
+                    int x = random.nextInt(width);
+                    for (int k = y - spacing + 1; k < y; k++) grid[k][x] = 2;
+                }
+            }
+            lastRow = y;
+        }
+        grid[0][0] = 1;
+        grid[lastRow][width - 1] = 9;
+        return grid;
+    }
+
+    /**
+     * Gera um labirinto perfeito (DFS aleatório) com alguns atalhos extra.
+     * A entrada fica no canto superior esquerdo e o tesouro no canto oposto.
+     * @param width Largura da grelha
+     * @param height Altura da grelha
+     * @param seed Semente do gerador aleatório
+     * @return Grelha com códigos de sala no formato do {@link MapLoader}
+     */
+    public static int[][] generateMaze(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[][] grid = new int[height][width];
+        int cellsX = (width + 1) / 2;
+        int cellsY = (height + 1) / 2;
+
+        boolean[] visited = new boolean[cellsX * cellsY];
+        int[] stack = new int[cellsX * cellsY];
+        int top = 0;
+        stack[top++] = 0;
+        visited[0] = true;
+        grid[0][0] = 2;
+
+        int[] dx = {1, -1, 0, 0};
+        int[] dy = {0, 0, 1, -1};
+        int[] options = new int[4];
+
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int cx = cell % cellsX, cy = cell / cellsX;
+
+            int n = 0;
+            for (int d = 0; d < 4; d++) {
+                int nx = cx + dx[d], ny = cy + dy[d];
+                if (nx >= 0 && ny >= 0 && nx < cellsX && ny < cellsY && !visited[ny * cellsX + nx]) {
+                    options[n++] = d;
+                }
+            }
+            if (n == 0) {
+                top--;
+                continue;
+            }
+
+            int d = options[random.nextInt(n)];
+            int nx = cx + dx[d], ny = cy + dy[d];
+            visited[ny * cellsX + nx] = true;
+            grid[cy * 2 + dy[d]][cx * 2 + dx[d]] = 2;
+            grid[ny * 2][nx * 2] = 2;
+            stack[top++] = ny * cellsX + nx;
+        }
+
+        // Abre alguns atalhos para existirem caminhos alternativos
+        int shortcuts = (width * height) / 20;
+        for (int s = 0; s < shortcuts; s++) {
+            int x = random.nextInt(width), y = random.nextInt(height);
+            if ((x + y) % 2 == 1) grid[y][x] = 2;
+        }
+
+        grid[0][0] = 1;
+        grid[(cellsY - 1) * 2][(cellsX - 1) * 2] = 9;
+        return grid;
+    }
+}
@@ -0,0 +1,101 @@
+package com.jogogloria.model;
+
+import com.jogogloria.io.MapGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Registo das alavancas do {@link Labyrinth}: trocar ou retirar a alavanca de uma sala solta a
+ * antiga, que guarda o seu estado e deixa de mexer nos bits da posição que passou a outra.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+class LabyrinthLeverTest {
+
+    private Labyrinth labyrinth;
+    private Lever[] levers;
+
+    @BeforeEach
+    void setUp() {
+        labyrinth = MapGenerator.toLabyrinth(MapGenerator.generateMaze(9, 9, 13L));
+        levers = new Lever[3];
+        for (int i = 0; i < levers.length; i++) {
+            levers[i] = new Lever("L" + i, labyrinth.getRoomByIndex(10 + i), labyrinth.getRoomByIndex(11 + i));
+            labyrinth.setRoomLever(i, levers[i]);
+        }
+        levers[0].setActivated(true);
+    }
+
+    @Test
+    void replacedLeverIsDetached() {
+        Lever replacement = new Lever("N", labyrinth.getRoomByIndex(20), labyrinth.getRoomByIndex(21));
+        labyrinth.setRoomLever(0, replacement);
+
+        Lever old = levers[0];
+        assertEquals(-1, old.getSlot());
+        assertTrue(old.isActivated());
+        assertNull(labyrinth.getLeverById("L0"));
+        assertSame(replacement, labyrinth.getLeverById("N"));
+        assertEquals(0, replacement.getSlot());
+        assertEquals(3, labyrinth.getLeverCount());
+        assertFalse(replacement.isActivated());
+
+        // A alavanca antiga já não mexe na posição que agora é da nova
+        old.setActivated(false);
+        old.setActivated(true);
+        assertFalse(labyrinth.isLeverActivated(0));
+        assertFalse(replacement.isActivated());
+        assertEquals(-1, labyrinth.nextActivatedLever(0));
+    }
+
+    @Test
+    void removingALeverMovesTheLastIntoItsSlot() {
+        levers[2].setActivated(true);
+        labyrinth.setRoomLever(0, null);
+
+        Lever removed = levers[0];
+        assertEquals(-1, removed.getSlot());
+        assertTrue(removed.isActivated());
+        assertNull(labyrinth.getLeverById("L0"));
+        assertNull(labyrinth.getRoomLever(0));
+
+        // A última alavanca passa para a posição libertada, com o seu estado e a sua sala
+        assertEquals(2, labyrinth.getLeverCount());
+        assertSame(levers[2], labyrinth.getLever(0));
+        assertEquals(0, levers[2].getSlot());
+        assertEquals(2, labyrinth.getLeverRoom(0));
+        assertSame(levers[2], labyrinth.getLeverById("L2"));
+        assertTrue(levers[2].isActivated());
+        assertSame(levers[1], labyrinth.getLever(1));
+        assertFalse(levers[1].isActivated());
+
+        // A alavanca retirada muda só o seu próprio estado
+        removed.setActivated(false);
+        assertFalse(removed.isActivated());
+        assertTrue(levers[2].isActivated());
+        removed.setActivated(true);
+        assertFalse(levers[1].isActivated());
+        assertEquals(0, labyrinth.nextActivatedLever(0));
+        assertEquals(-1, labyrinth.nextActivatedLever(1));
+    }
+
+    @Test
+    void leverMovedToAnotherRoomKeepsItsState() {
+        labyrinth.setRoomLever(1, null);
+        labyrinth.setRoomLever(5, levers[1]);
+        levers[1].setActivated(true);
+
+        assertSame(levers[1], labyrinth.getLeverById("L1"));
+        assertEquals(5, labyrinth.getLeverRoom(levers[1].getSlot()));
+        assertTrue(labyrinth.isLeverActivated(levers[1].getSlot()));
+        assertTrue(levers[0].isActivated());
+        assertFalse(levers[2].isActivated());
+    }
+}
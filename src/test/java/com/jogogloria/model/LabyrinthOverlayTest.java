@@ -0,0 +1,226 @@
+package com.jogogloria.model;
+
+import com.example.Biblioteca.iterators.Iterator;
+import com.jogogloria.io.MapData;
+import com.jogogloria.io.MapGenerator;
+import com.jogogloria.io.MapLoader;
+import com.jogogloria.io.MapManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cópias de jogo ({@link Labyrinth#newOverlay()}): o que uma muda (trancas, visibilidade,
+ * alavancas, caminhos em cache) não pode aparecer no modelo nem nas outras cópias.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.2
+ */
+class LabyrinthOverlayTest {
+
+    private static final String MAP = "maps/mapa.json";
+    private static final int GAMES = 8;
+
+    private Labyrinth template;
+    private String start;
+    private String treasure;
+    private String doorA;
+    private String doorB;
+
+    @BeforeEach
+    void setUp() {
+        template = MapGenerator.toLabyrinth(MapGenerator.generateMaze(31, 31, 21L));
+        template.prepareDistanceFields();
+        start = template.getStartRoomId();
+        treasure = template.getTreasureRoom();
+
+        // Uma porta do caminho mais curto entre a entrada e o tesouro
+        Iterator<String> path = template.getShortestPath(start, treasure);
+        path.next();
+        doorA = path.next();
+        doorB = path.next();
+    }
+
+    @Test
+    void locksStayInTheirOverlay() {
+        Labyrinth a = template.newOverlay();
+        Labyrinth b = template.newOverlay();
+        double weight = template.shortestPathWeight(start, treasure);
+        assertEquals(weight, a.shortestPathWeight(start, treasure));
+
+        a.setConnectionLocked(doorA, doorB, true);
+
+        assertTrue(a.isLocked(doorA, doorB));
+        assertFalse(b.isLocked(doorA, doorB));
+        assertFalse(template.isLocked(doorA, doorB));
+        assertTrue(a.shortestPathWeight(start, treasure) > weight);
+        assertEquals(weight, b.shortestPathWeight(start, treasure));
+        assertEquals(weight, template.shortestPathWeight(start, treasure));
+        assertEquals(template.getNextStep(doorA, doorB), b.getNextStep(doorA, doorB));
+    }
+
+    @Test
+    void cachedPathsStayInTheirOverlay() {
+        Labyrinth a = template.newOverlay();
+        Labyrinth b = template.newOverlay();
+        for (PathfindingMode mode : PathfindingMode.values()) {
+            a.setPathfindingMode(mode);
+            b.setPathfindingMode(mode);
+            // As duas cópias guardam o par na cache antes de a porta mudar só numa delas
+            double weight = b.shortestPathWeight(doorA, start);
+            assertEquals(weight, a.shortestPathWeight(doorA, start), mode.toString());
+
+            a.setConnectionLocked(doorA, doorB, true);
+            assertEquals(weight, b.shortestPathWeight(doorA, start), mode.toString());
+            a.setConnectionLocked(doorA, doorB, false);
+        }
+    }
+
+    @Test
+    void overlayStartsWithTemplateState() {
+        template.setConnectionLocked(doorA, doorB, true);
+        template.setRoomVisible(0, true);
+
+        Labyrinth copy = template.newOverlay();
+        assertTrue(copy.isLocked(doorA, doorB));
+        assertTrue(copy.isRoomVisible(0));
+        assertEquals(template.shortestPathWeight(start, treasure), copy.shortestPathWeight(start, treasure));
+
+        // Mudar o modelo depois da cópia não a afeta
+        template.setConnectionLocked(doorA, doorB, false);
+        assertTrue(copy.isLocked(doorA, doorB));
+    }
+
+    @Test
+    void visibilityStaysInItsOverlay() {
+        Labyrinth a = template.newOverlay();
+        Labyrinth b = template.newOverlay();
+        int room = template.getRoomIndex(doorA);
+        boolean visible = template.isRoomVisible(room);
+
+        a.setRoomVisible(room, !visible);
+        assertEquals(!visible, a.isRoomVisible(room));
+        assertEquals(visible, b.isRoomVisible(room));
+        assertEquals(visible, template.isRoomVisible(room));
+    }
+
+    @Test
+    void leversStayInTheirOverlay() {
+        int room = template.getRoomIndex(start);
+        Lever lever = new Lever("L1", template.getRoom(doorA), template.getRoom(doorB));
+        template.setRoomLever(room, lever);
+
+        Labyrinth a = template.newOverlay();
+        Labyrinth b = template.newOverlay();
+        Lever leverA = a.getLeverById("L1");
+        assertNotSame(lever, leverA);
+        assertEquals(room, a.getLeverRoom(leverA.getSlot()));
+        assertEquals(a.getRoom(doorA), leverA.getRoomA());
+
+        leverA.setActivated(true);
+        assertTrue(a.isLeverActivated(leverA.getSlot()));
+        assertFalse(b.getLeverById("L1").isActivated());
+        assertFalse(lever.isActivated());
+    }
+
+    @Test
+    void loadedMapsAreIndependentGames() {
+        Labyrinth first = MapLoader.loadLabyrinth(MAP);
+        Labyrinth second = MapLoader.loadLabyrinth(MAP);
+        assertTrue(first.getLeverCount() > 0);
+
+        Lever lever = first.getLever(0);
+        String a = lever.getRoomA().getId(), b = lever.getRoomB().getId();
+        boolean locked = second.isLocked(a, b);
+        lever.setActivated(true);
+        first.setConnectionLocked(a, b, !locked);
+
+        assertFalse(second.getLever(0).isActivated());
+        assertEquals(locked, second.isLocked(a, b));
+    }
+
+    @Test
+    void concurrentLoadsAreIndependentGames() throws Exception {
+        // Uma porta diferente para cada jogo
+        Labyrinth reference = MapLoader.loadLabyrinth(MAP);
+        String[][] doors = new String[GAMES][];
+        boolean[] locked = new boolean[GAMES];
+        for (int v = 0, game = 0; game < GAMES; v++) {
+            for (int k = 0; k < reference.getNeighborCount(v) && game < GAMES; k++) {
+                int n = reference.getNeighbor(v, k);
+                if (n < v) continue;
+                doors[game] = new String[]{reference.getRoomId(v), reference.getRoomId(n)};
+                locked[game] = reference.isLocked(doors[game][0], doors[game][1]);
+                game++;
+            }
+        }
+        String mapStart = reference.getStartRoomId();
+        String mapTreasure = reference.getTreasureRoom();
+
+        for (int round = 0; round < 5; round++) {
+            // Sem modelo em cache: o primeiro jogo constrói-o enquanto os outros esperam por ele
+            if (round % 2 == 0) MapLoader.clearCache();
+            Labyrinth[] games = new Labyrinth[GAMES];
+            double[] weights = new double[GAMES];
+            CountDownLatch ready = new CountDownLatch(1);
+            Thread[] threads = new Thread[GAMES];
+            for (int i = 0; i < GAMES; i++) {
+                final int game = i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        ready.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    Labyrinth labyrinth = MapLoader.loadLabyrinth(MAP);
+                    labyrinth.setConnectionLocked(doors[game][0], doors[game][1], !locked[game]);
+                    weights[game] = labyrinth.shortestPathWeight(mapStart, mapTreasure);
+                    games[game] = labyrinth;
+                });
+                threads[i].start();
+            }
+            ready.countDown();
+            for (Thread thread : threads) thread.join();
+
+            for (int i = 0; i < GAMES; i++) {
+                for (int j = 0; j < GAMES; j++) {
+                    assertEquals(locked[j] ^ (i == j), games[i].isLocked(doors[j][0], doors[j][1]), "jogo " + i + ", porta " + j);
+                }
+                // O mesmo jogo, sozinho
+                Labyrinth alone = MapLoader.loadLabyrinth(MAP);
+                alone.setConnectionLocked(doors[i][0], doors[i][1], !locked[i]);
+                assertEquals(alone.shortestPathWeight(mapStart, mapTreasure), weights[i], "jogo " + i);
+            }
+            Labyrinth fresh = MapLoader.loadLabyrinth(MAP);
+            for (int j = 0; j < GAMES; j++) assertEquals(locked[j], fresh.isLocked(doors[j][0], doors[j][1]));
+        }
+    }
+
+    @Test
+    void resavedMapIsReadAgain() {
+        String name = "teste_cache_" + System.nanoTime();
+        File file = new File("maps", name + ".json");
+        MapData map = new MapData(name, 3, 1);
+        map.grid[0] = new int[]{1, 2, 9};
+        try {
+            MapManager.saveMap(map, name);
+            long saved = file.lastModified();
+            assertEquals(Room.RoomType.NORMAL, MapLoader.loadLabyrinth(file.getPath()).getRoom("1-0").getType());
+
+            // Mesmo tamanho e mesma data: só o MapManager sabe que o ficheiro mudou
+            map.grid[0][1] = 3;
+            MapManager.saveMap(map, name);
+            assertTrue(file.setLastModified(saved));
+            assertEquals(Room.RoomType.RIDDLE, MapLoader.loadLabyrinth(file.getPath()).getRoom("1-0").getType());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.jogogloria.model;
+
+import com.example.Biblioteca.iterators.Iterator;
+import com.example.Biblioteca.lists.ArrayUnorderedList;
+import com.jogogloria.io.MapGenerator;
+import com.jogogloria.utils.SparseGraph;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cada algoritmo de {@link PathfindingMode} comparado com um Dijkstra de referência (custo 1 por
+ * porta aberta e {@link SparseGraph#COST_LOCKED} por porta trancada), em mapas gerados com portas
+ * trancadas ao acaso, antes e depois de as portas mudarem.
+ * O modo hierárquico é quase ótimo: os seus caminhos têm de ser válidos e nunca mais baratos do que
+ * a referência.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+class LabyrinthPathfindingTest {
+
+    private static final int TARGETS = 12;
+    private static final int STARTS = 25;
+    private static final int DOORS = 40;
+
+    @ParameterizedTest
+    @EnumSource(PathfindingMode.class)
+    void mazeMatchesDijkstra(PathfindingMode mode) {
+        check(mode, MapGenerator.generateMaze(41, 41, 3L), 5L);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PathfindingMode.class)
+    void openMapMatchesDijkstra(PathfindingMode mode) {
+        check(mode, MapGenerator.generateOpenMap(36, 36, 0.2, 7L), 11L);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PathfindingMode.class)
+    void corridorsMatchDijkstra(PathfindingMode mode) {
+        check(mode, MapGenerator.generateCorridors(40, 41, 5, 13L), 17L);
+    }
+
+    private static void check(PathfindingMode mode, int[][] grid, long seed) {
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(grid);
+        labyrinth.setPathfindingMode(mode);
+        Rooms rooms = new Rooms(labyrinth);
+        Random random = new Random(seed);
+
+        for (int round = 0; round < 2; round++) {
+            // Portas mudam entre rondas: os dados de pesquisa já calculados têm de ser refeitos
+            rooms.toggleDoors(random);
+
+            for (int t = 0; t < TARGETS; t++) {
+                // O tesouro usa o campo de distâncias; os outros destinos o algoritmo do modo
+                int target = t == 0 ? rooms.indexOf(labyrinth.getTreasureRoom()) : random.nextInt(rooms.size());
+                int[] dist = rooms.dijkstra(target);
+                for (int s = 0; s < STARTS; s++) {
+                    int start = random.nextInt(rooms.size());
+                    if (start != target) checkPair(mode, rooms, start, target, dist);
+                }
+            }
+        }
+    }
+
+    private static void checkPair(PathfindingMode mode, Rooms rooms, int start, int target, int[] dist) {
+        Labyrinth labyrinth = rooms.labyrinth;
+        String startId = rooms.ids[start];
+        String targetId = rooms.ids[target];
+        String pair = mode + " " + startId + " -> " + targetId;
+
+        double weight = labyrinth.shortestPathWeight(startId, targetId);
+        int[] path = rooms.pathOf(startId, targetId);
+        String next = labyrinth.getNextStep(startId, targetId);
+
+        if (dist[start] == SparseGraph.INFINITY) {
+            assertEquals(Double.POSITIVE_INFINITY, weight, pair);
+            assertEquals(0, path.length, pair);
+            assertNull(next, pair);
+            return;
+        }
+
+        assertTrue(path.length >= 2, pair);
+        assertEquals(start, path[0], pair);
+        assertEquals(target, path[path.length - 1], pair);
+        int cost = 0;
+        for (int i = 1; i < path.length; i++) cost += rooms.edgeCost(path[i - 1], path[i], pair);
+
+        int step = rooms.indexOf(next);
+        int stepCost = rooms.edgeCost(start, step, pair);
+
+        if (mode == PathfindingMode.HIERARCHICAL) {
+            assertTrue(weight >= dist[start], pair + ": custo " + weight + " < " + dist[start]);
+            assertTrue(cost >= dist[start], pair);
+            assertTrue(dist[step] != SparseGraph.INFINITY, pair);
+        } else {
+            assertEquals(dist[start], weight, pair);
+            assertEquals(dist[start], cost, pair);
+            assertEquals(dist[start], stepCost + dist[step], pair + ": o primeiro passo não é ótimo");
+        }
+    }
+
+    /**
+     * Salas do labirinto numeradas só para o teste, lidas pela API pública (IDs, vizinhos e trancas)
+     */
+    private static final class Rooms {
+        final Labyrinth labyrinth;
+        final String[] ids;
+        final int[][] neighbors;
+        private final Map<String, Integer> index = new HashMap<>();
+
+        Rooms(Labyrinth labyrinth) {
+            this.labyrinth = labyrinth;
+            Iterator<Room> it = labyrinth.getRoomsIterator();
+            while (it.hasNext()) index.put(it.next().getId(), index.size());
+
+            ids = new String[index.size()];
+            for (Map.Entry<String, Integer> e : index.entrySet()) ids[e.getValue()] = e.getKey();
+            neighbors = new int[ids.length][];
+            for (int v = 0; v < ids.length; v++) {
+                ArrayUnorderedList<String> list = labyrinth.getNeighbors(ids[v]);
+                neighbors[v] = new int[list.size()];
+                for (int k = 0; k < list.size(); k++) neighbors[v][k] = index.get(list.get(k));
+            }
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int indexOf(String id) {
+            return index.get(id);
+        }
+
+        /**
+         * Tranca ou destranca portas ao acaso
+         */
+        void toggleDoors(Random random) {
+            for (int i = 0; i < DOORS; i++) {
+                int v = random.nextInt(ids.length);
+                if (neighbors[v].length == 0) continue;
+                String a = ids[v];
+                String b = ids[neighbors[v][random.nextInt(neighbors[v].length)]];
+                labyrinth.setConnectionLocked(a, b, !labyrinth.isLocked(a, b));
+            }
+        }
+
+        /**
+         * Custo de uma aresta do caminho (falha se as salas não forem vizinhas)
+         */
+        int edgeCost(int a, int b, String pair) {
+            for (int n : neighbors[a]) {
+                if (n == b) return labyrinth.isLocked(ids[a], ids[b]) ? SparseGraph.COST_LOCKED : 1;
+            }
+            throw new AssertionError(pair + ": " + ids[a] + " e " + ids[b] + " não são vizinhas");
+        }
+
+        int[] pathOf(String startId, String targetId) {
+            Iterator<String> it = labyrinth.getShortestPath(startId, targetId);
+            int[] path = new int[ids.length + 1];
+            int length = 0;
+            while (it.hasNext()) path[length++] = indexOf(it.next());
+            return Arrays.copyOf(path, length);
+        }
+
+        /**
+         * Dijkstra de referência, O(V²), sem nenhuma das estruturas do labirinto
+         * @return Custo de cada sala até à origem
+         */
+        int[] dijkstra(int source) {
+            int rooms = ids.length;
+            int[][] cost = new int[rooms][];
+            for (int v = 0; v < rooms; v++) {
+                cost[v] = new int[neighbors[v].length];
+                for (int k = 0; k < neighbors[v].length; k++) {
+                    cost[v][k] = labyrinth.isLocked(ids[v], ids[neighbors[v][k]]) ? SparseGraph.COST_LOCKED : 1;
+                }
+            }
+
+            int[] dist = new int[rooms];
+            boolean[] done = new boolean[rooms];
+            for (int v = 0; v < rooms; v++) dist[v] = SparseGraph.INFINITY;
+            dist[source] = 0;
+
+            while (true) {
+                int u = -1;
+                for (int v = 0; v < rooms; v++) {
+                    if (!done[v] && dist[v] != SparseGraph.INFINITY && (u == -1 || dist[v] < dist[u])) u = v;
+                }
+                if (u == -1) return dist;
+                done[u] = true;
+                for (int k = 0; k < neighbors[u].length; k++) {
+                    int d = dist[u] + cost[u][k];
+                    if (d < dist[neighbors[u][k]]) dist[neighbors[u][k]] = d;
+                }
+            }
+        }
+    }
+}
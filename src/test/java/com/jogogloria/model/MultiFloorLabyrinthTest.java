@@ -0,0 +1,256 @@
+package com.jogogloria.model;
+
+import com.example.Biblioteca.iterators.Iterator;
+import com.example.Biblioteca.lists.ArrayUnorderedList;
+import com.jogogloria.io.MapGenerator;
+import com.jogogloria.utils.SparseGraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pesquisa entre pisos do {@link MultiFloorLabyrinth} comparada com um Dijkstra de referência sobre
+ * {@link MultiFloorLabyrinth#getNeighbors(String)} (custo 1 por porta aberta,
+ * {@link SparseGraph#COST_LOCKED} por porta trancada e {@link MultiFloorLabyrinth#COST_STAIRS} por
+ * escada). As portas de um piso mudam entre rondas, para apanhar tabelas de custos entre escadas
+ * desatualizadas.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+class MultiFloorLabyrinthTest {
+
+    private static final int FLOORS = 3;
+    private static final int STAIRS = 4;
+    private static final int TARGETS = 8;
+    private static final int STARTS = 20;
+    private static final int DOORS = 30;
+
+    private MultiFloorLabyrinth labyrinth;
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        random = new Random(29L);
+        labyrinth = new MultiFloorLabyrinth();
+        labyrinth.addFloor(MapGenerator.toLabyrinth(MapGenerator.generateMaze(21, 21, 31L)));
+        labyrinth.addFloor(MapGenerator.toLabyrinth(MapGenerator.generateOpenMap(16, 16, 0.2, 37L)));
+        labyrinth.addFloor(MapGenerator.toLabyrinth(MapGenerator.generateMaze(21, 21, 41L)));
+
+        for (int f = 0; f + 1 < FLOORS; f++) {
+            for (int s = 0; s < STAIRS; s++) addRandomStairs(labyrinth, f, f + 1);
+        }
+        // Uma escada que salta um piso
+        addRandomStairs(labyrinth, 0, FLOORS - 1);
+    }
+
+    @Test
+    void pathsMatchDijkstra() {
+        Rooms rooms = new Rooms(labyrinth);
+        for (int round = 0; round < 3; round++) {
+            // Só o piso do meio muda: as tabelas dos outros pisos continuam válidas, a dele não
+            if (round > 0) rooms.toggleDoors(1, random);
+            checkRandomPairs(rooms);
+        }
+    }
+
+    @Test
+    void overlayLocksStayInTheirOverlay() {
+        Rooms templateRooms = new Rooms(labyrinth);
+        // As tabelas de custos do modelo já estão calculadas quando a cópia é criada
+        checkRandomPairs(templateRooms);
+
+        MultiFloorLabyrinth overlay = labyrinth.newOverlay();
+        Rooms overlayRooms = new Rooms(overlay);
+        String[] door = overlayRooms.toggleDoors(1, random);
+        boolean locked = labyrinth.getFloor(1).isLocked(door[0], door[1]);
+        overlay.getFloor(1).setConnectionLocked(door[0], door[1], !locked);
+        assertEquals(locked, labyrinth.getFloor(1).isLocked(door[0], door[1]));
+
+        checkRandomPairs(overlayRooms);
+        checkRandomPairs(templateRooms);
+
+        // Escadas novas na cópia também não chegam ao modelo
+        int stairs = labyrinth.getStairCount();
+        String room = MultiFloorLabyrinth.globalId(0, labyrinth.getFloor(0).getRoomId(0));
+        int neighbors = labyrinth.getNeighbors(room).size();
+        assertTrue(overlay.addStairs(room, MultiFloorLabyrinth.globalId(2, labyrinth.getFloor(2).getRoomId(0))));
+        assertEquals(stairs, labyrinth.getStairCount());
+        assertEquals(neighbors, labyrinth.getNeighbors(room).size());
+        checkRandomPairs(templateRooms);
+    }
+
+    @Test
+    void unknownRoomsHaveNoPath() {
+        String known = MultiFloorLabyrinth.globalId(0, labyrinth.getFloor(0).getStartRoomId());
+        assertEquals(Double.POSITIVE_INFINITY, labyrinth.shortestPathWeight(known, "0-0@9"));
+        assertEquals(Double.POSITIVE_INFINITY, labyrinth.shortestPathWeight("0-0@x", known));
+        assertFalse(labyrinth.getShortestPath(known, "999-999@1").hasNext());
+    }
+
+    private void checkRandomPairs(Rooms rooms) {
+        for (int t = 0; t < TARGETS; t++) {
+            int target = random.nextInt(rooms.size());
+            int[] dist = rooms.dijkstra(target);
+            for (int s = 0; s < STARTS; s++) {
+                int start = random.nextInt(rooms.size());
+                if (start != target) checkPair(rooms, start, target, dist);
+            }
+        }
+    }
+
+    private static void checkPair(Rooms rooms, int start, int target, int[] dist) {
+        MultiFloorLabyrinth labyrinth = rooms.labyrinth;
+        String startId = rooms.ids[start];
+        String targetId = rooms.ids[target];
+        String pair = startId + " -> " + targetId;
+
+        double weight = labyrinth.shortestPathWeight(startId, targetId);
+        int[] path = rooms.pathOf(startId, targetId);
+        String next = labyrinth.getNextStep(startId, targetId);
+
+        if (dist[start] == SparseGraph.INFINITY) {
+            assertEquals(Double.POSITIVE_INFINITY, weight, pair);
+            assertEquals(0, path.length, pair);
+            assertNull(next, pair);
+            return;
+        }
+
+        assertEquals(dist[start], weight, pair);
+        assertTrue(path.length >= 2, pair);
+        assertEquals(start, path[0], pair);
+        assertEquals(target, path[path.length - 1], pair);
+        int cost = 0;
+        for (int i = 1; i < path.length; i++) cost += rooms.edgeCost(path[i - 1], path[i], pair);
+        assertEquals(dist[start], cost, pair + ": custo do caminho completo");
+
+        int step = rooms.indexOf(next);
+        assertEquals(dist[start], rooms.edgeCost(start, step, pair) + dist[step], pair + ": o primeiro passo não é ótimo");
+    }
+
+    private void addRandomStairs(MultiFloorLabyrinth target, int floorA, int floorB) {
+        Labyrinth a = target.getFloor(floorA), b = target.getFloor(floorB);
+        String roomA = a.getRoomId(random.nextInt(a.getRoomCount()));
+        String roomB = b.getRoomId(random.nextInt(b.getRoomCount()));
+        assertTrue(target.addStairs(MultiFloorLabyrinth.globalId(floorA, roomA), MultiFloorLabyrinth.globalId(floorB, roomB)));
+    }
+
+    /**
+     * Salas de todos os pisos numeradas só para o teste, lidas pela API pública (IDs, vizinhos e trancas)
+     */
+    private static final class Rooms {
+        final MultiFloorLabyrinth labyrinth;
+        final String[] ids;
+        final int[][] neighbors;
+        private final Map<String, Integer> index = new HashMap<>();
+
+        Rooms(MultiFloorLabyrinth labyrinth) {
+            this.labyrinth = labyrinth;
+            for (int f = 0; f < labyrinth.getFloorCount(); f++) {
+                Iterator<Room> it = labyrinth.getFloor(f).getRoomsIterator();
+                while (it.hasNext()) index.put(MultiFloorLabyrinth.globalId(f, it.next().getId()), index.size());
+            }
+
+            ids = new String[index.size()];
+            for (Map.Entry<String, Integer> e : index.entrySet()) ids[e.getValue()] = e.getKey();
+            neighbors = new int[ids.length][];
+            for (int v = 0; v < ids.length; v++) {
+                ArrayUnorderedList<String> list = labyrinth.getNeighbors(ids[v]);
+                neighbors[v] = new int[list.size()];
+                for (int k = 0; k < list.size(); k++) neighbors[v][k] = index.get(list.get(k));
+            }
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int indexOf(String id) {
+            return index.get(id);
+        }
+
+        /**
+         * Tranca ou destranca portas ao acaso num piso
+         * @return A última porta mudada
+         */
+        String[] toggleDoors(int floor, Random random) {
+            Labyrinth level = labyrinth.getFloor(floor);
+            String[] door = null;
+            for (int i = 0; i < DOORS; i++) {
+                int v = random.nextInt(level.getRoomCount());
+                if (level.getNeighborCount(v) == 0) continue;
+                String a = level.getRoomId(v);
+                String b = level.getRoomId(level.getNeighbor(v, random.nextInt(level.getNeighborCount(v))));
+                level.setConnectionLocked(a, b, !level.isLocked(a, b));
+                door = new String[]{a, b};
+            }
+            return door;
+        }
+
+        /**
+         * Custo de uma aresta do caminho (falha se as salas não forem vizinhas).
+         * No mesmo piso é uma porta; entre pisos são escadas.
+         */
+        int edgeCost(int a, int b, String pair) {
+            for (int n : neighbors[a]) {
+                if (n == b) return cost(a, b);
+            }
+            throw new AssertionError(pair + ": " + ids[a] + " e " + ids[b] + " não são vizinhas");
+        }
+
+        private int cost(int a, int b) {
+            int floor = MultiFloorLabyrinth.floorOf(ids[a]);
+            if (floor != MultiFloorLabyrinth.floorOf(ids[b])) return MultiFloorLabyrinth.COST_STAIRS;
+            boolean locked = labyrinth.getFloor(floor).isLocked(MultiFloorLabyrinth.localId(ids[a]), MultiFloorLabyrinth.localId(ids[b]));
+            return locked ? SparseGraph.COST_LOCKED : SparseGraph.COST_OPEN;
+        }
+
+        int[] pathOf(String startId, String targetId) {
+            Iterator<String> it = labyrinth.getShortestPath(startId, targetId);
+            int[] path = new int[ids.length + 1];
+            int length = 0;
+            while (it.hasNext()) path[length++] = indexOf(it.next());
+            return Arrays.copyOf(path, length);
+        }
+
+        /**
+         * Dijkstra de referência, O(V²), sem nenhuma das estruturas do labirinto
+         * @return Custo de cada sala até à origem
+         */
+        int[] dijkstra(int source) {
+            int rooms = ids.length;
+            int[][] cost = new int[rooms][];
+            for (int v = 0; v < rooms; v++) {
+                cost[v] = new int[neighbors[v].length];
+                for (int k = 0; k < neighbors[v].length; k++) cost[v][k] = cost(v, neighbors[v][k]);
+            }
+
+            int[] dist = new int[rooms];
+            boolean[] done = new boolean[rooms];
+            for (int v = 0; v < rooms; v++) dist[v] = SparseGraph.INFINITY;
+            dist[source] = 0;
+
+            while (true) {
+                int u = -1;
+                for (int v = 0; v < rooms; v++) {
+                    if (!done[v] && dist[v] != SparseGraph.INFINITY && (u == -1 || dist[v] < dist[u])) u = v;
+                }
+                if (u == -1) return dist;
+                done[u] = true;
+                for (int k = 0; k < neighbors[u].length; k++) {
+                    int d = dist[u] + cost[u][k];
+                    if (d < dist[neighbors[u][k]]) dist[neighbors[u][k]] = d;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.jogogloria.model;
+
+import com.jogogloria.io.MapGenerator;
+import com.jogogloria.utils.SparseGraph;
+import com.jogogloria.utils.TileStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TiledLabyrinth} sobre um {@link TileStore} com blocos incompletos na borda e uma cache de
+ * dois blocos, comparado com um {@link Labyrinth} construído a partir da mesma grelha.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+class TiledLabyrinthTest {
+
+    // 37 × 29 com blocos de 8: a última coluna e a última linha de blocos estão incompletas
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 29;
+    private static final int TILE = 8;
+    private static final int MAX_TILES = 2;
+    private static final int QUERIES = 150;
+    private static final int DOORS = 25;
+
+    @TempDir
+    File dir;
+
+    private int[][] grid;
+    private File file;
+    private TiledLabyrinth tiled;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        grid = MapGenerator.generateMaze(WIDTH, HEIGHT, 53L);
+        file = new File(dir, "mapa.tiles");
+        TileStore.create(file.getPath(), WIDTH, HEIGHT, TILE, (x, y) -> grid[y][x]);
+        tiled = new TiledLabyrinth(new TileStore(file.getPath(), MAX_TILES));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        tiled.close();
+    }
+
+    @Test
+    void cellsMatchTheGrid() {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) assertEquals(grid[y][x], tiled.getCellCode(x, y), x + "-" + y);
+        }
+        assertEquals(0, tiled.getCellCode(WIDTH, 0));
+        assertEquals(0, tiled.getCellCode(0, HEIGHT));
+        assertTrue(tiled.getTileStore().getEvictions() > 0);
+        assertTrue(tiled.getTileStore().getResidentTiles() <= MAX_TILES);
+    }
+
+    @Test
+    void pathsMatchLabyrinth() {
+        Labyrinth labyrinth = MapGenerator.toLabyrinth(grid);
+        Random random = new Random(59L);
+
+        for (int round = 0; round < 3; round++) {
+            // Portas mudam nos dois labirintos entre rondas
+            if (round > 0) toggleDoors(labyrinth, random);
+
+            for (int q = 0; q < QUERIES; q++) {
+                String from = labyrinth.getRoomId(random.nextInt(labyrinth.getRoomCount()));
+                String to = labyrinth.getRoomId(random.nextInt(labyrinth.getRoomCount()));
+                String pair = from + " -> " + to;
+
+                int[] path = tiled.shortestPath(tiled.cellOf(from), tiled.cellOf(to));
+                assertEquals(tiled.cellOf(from), path[0], pair);
+                assertEquals(tiled.cellOf(to), path[path.length - 1], pair);
+                int cost = 0;
+                for (int i = 1; i < path.length; i++) {
+                    String a = tiled.idOf(path[i - 1]), b = tiled.idOf(path[i]);
+                    assertTrue(labyrinth.hasConnection(a, b), pair + ": " + a + " e " + b + " não são vizinhas");
+                    cost += tiled.isLocked(path[i - 1], path[i]) ? SparseGraph.COST_LOCKED : SparseGraph.COST_OPEN;
+                }
+                assertEquals(labyrinth.shortestPathWeight(from, to), cost, pair);
+            }
+        }
+        assertTrue(tiled.getTileStore().getEvictions() > 0);
+    }
+
+    @Test
+    void revealAreaCrossesTileBorders() {
+        // Uma sala na última coluna de um bloco com vizinha no bloco da direita
+        int x = -1, y = -1;
+        for (int cy = 0; cy < HEIGHT && x == -1; cy++) {
+            for (int cx = TILE - 1; cx + 1 < WIDTH; cx += TILE) {
+                if (grid[cy][cx] != 0 && grid[cy][cx + 1] != 0) {
+                    x = cx;
+                    y = cy;
+                    break;
+                }
+            }
+        }
+        assertTrue(x != -1, "a grelha não tem passagens entre blocos");
+        assertFalse(tiled.isVisible(x + 1, y));
+
+        tiled.revealArea(y * WIDTH + x);
+
+        assertTrue(tiled.isVisible(x, y));
+        assertTrue(tiled.isVisible(x + 1, y));
+        assertEquals(2, tiled.getVisibleTileCount());
+    }
+
+    @Test
+    void truncatedHeaderIsRejected() throws IOException {
+        File broken = new File(dir, "curto.tiles");
+        Files.write(broken.toPath(), new byte[]{0x47, 0x54, 0x4C, 0x31, 0, 0});
+        assertThrows(IOException.class, () -> new TileStore(broken.getPath(), MAX_TILES));
+        assertTrue(broken.delete());
+    }
+
+    @Test
+    void failedReadKeepsTheCacheSlot() throws IOException {
+        TileStore store = tiled.getTileStore();
+        byte[] original = Files.readAllBytes(file.toPath());
+        assertEquals(grid[0][0], store.getCell(0, 0));
+
+        // Só fica o cabeçalho e o primeiro bloco: ler o segundo falha
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(24 + TILE * TILE);
+        }
+        assertThrows(IllegalStateException.class, () -> store.getCell(TILE, 0));
+        Files.write(file.toPath(), original);
+
+        // A posição da leitura falhada é reutilizada: o primeiro bloco continua em memória
+        assertEquals(grid[0][2 * TILE], store.getCell(2 * TILE, 0));
+        long loads = store.getTileLoads();
+        assertEquals(grid[0][1], store.getCell(1, 0));
+        assertEquals(grid[0][2 * TILE + 1], store.getCell(2 * TILE + 1, 0));
+        assertEquals(loads, store.getTileLoads());
+        assertEquals(0, store.getEvictions());
+    }
+
+    private void toggleDoors(Labyrinth labyrinth, Random random) {
+        for (int i = 0; i < DOORS; i++) {
+            int v = random.nextInt(labyrinth.getRoomCount());
+            if (labyrinth.getNeighborCount(v) == 0) continue;
+            String a = labyrinth.getRoomId(v);
+            String b = labyrinth.getRoomId(labyrinth.getNeighbor(v, random.nextInt(labyrinth.getNeighborCount(v))));
+            boolean locked = !labyrinth.isLocked(a, b);
+            labyrinth.setConnectionLocked(a, b, locked);
+            tiled.setConnectionLocked(tiled.cellOf(a), tiled.cellOf(b), locked);
+        }
+    }
+}
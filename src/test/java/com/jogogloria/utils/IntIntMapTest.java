@@ -0,0 +1,46 @@
+package com.jogogloria.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Inserções e remoções ao acaso no {@link IntIntMap}, comparadas com um {@link HashMap}: depois de
+ * remover, as chaves que ficam no mesmo grupo de sondagem continuam a ser encontradas.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+class IntIntMapTest {
+
+    @Test
+    void removeKeepsTheOtherKeys() {
+        Random random = new Random(3);
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> reference = new HashMap<>();
+
+        // Poucas chaves diferentes: muitas colisões e remoções de chaves que existem
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key) != null, map.remove(key), "remove " + key);
+            } else {
+                map.put(key, i);
+                reference.put(key, i);
+            }
+            assertEquals(reference.size(), map.size());
+        }
+        for (int key = 0; key < 2_000; key++) {
+            assertEquals(reference.getOrDefault(key, -1), map.get(key, -1), "chave " + key);
+        }
+
+        for (int key : reference.keySet()) map.remove(key);
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(0));
+    }
+}
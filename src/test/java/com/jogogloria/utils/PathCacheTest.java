@@ -0,0 +1,177 @@
+package com.jogogloria.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link PathCache} comparada com um {@link LinkedHashMap} por ordem de acesso: as mesmas entradas
+ * despejadas pela mesma ordem, os dois limites (entradas e vértices guardados), os mesmos
+ * contadores e a cache vazia sempre que a época muda.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+class PathCacheTest {
+
+    private static final int CAPACITY = 32;
+    private static final int MAX_STORED = 240;
+
+    @Test
+    void evictsTheLeastRecentlyUsed() {
+        PathCache cache = new PathCache(3, 1000);
+        cache.put(1, 2, 0, new int[]{1, 2}, 1);
+        cache.put(2, 3, 0, new int[]{2, 3}, 1);
+        cache.put(3, 4, 0, new int[]{3, 4}, 1);
+        assertTrue(cache.find(1, 2, 0) != -1);
+
+        // (2, 3) é agora a menos usada
+        cache.put(4, 5, 0, new int[]{4, 5}, 1);
+        assertEquals(-1, cache.find(2, 3, 0));
+        assertTrue(cache.find(1, 2, 0) != -1);
+        assertTrue(cache.find(3, 4, 0) != -1);
+        assertTrue(cache.find(4, 5, 0) != -1);
+        assertEquals(1, cache.getEvictions());
+
+        // Guardar um par que já existe substitui-o sem despejar nada
+        cache.put(3, 4, 0, new int[]{3, 9, 4}, 2);
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getCost(cache.find(3, 4, 0)));
+    }
+
+    @Test
+    void storedVerticesAreBounded() {
+        PathCache cache = new PathCache(100, 10);
+        cache.put(0, 1, 0, new int[4], 4);
+        cache.put(0, 2, 0, new int[4], 4);
+        assertEquals(8, cache.getStoredVertices());
+
+        // 8 + 4 > 10: a mais antiga sai, mesmo com lugares livres
+        cache.put(0, 3, 0, new int[4], 4);
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getStoredVertices());
+        assertEquals(-1, cache.find(0, 1, 0));
+
+        // Um caminho maior do que o limite fica sozinho
+        cache.put(0, 4, 0, new int[12], 12);
+        assertEquals(1, cache.size());
+        assertEquals(12, cache.getStoredVertices());
+        assertEquals(3, cache.getEvictions());
+    }
+
+    @Test
+    void newEpochEmptiesTheCache() {
+        PathCache cache = new PathCache(8, 100);
+        for (int i = 0; i < 5; i++) cache.put(i, i + 1, 3, new int[]{i, i + 1}, 1);
+        assertEquals(5, cache.size());
+
+        assertEquals(-1, cache.find(0, 1, 4));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getStoredVertices());
+        for (int i = 0; i < 5; i++) assertEquals(-1, cache.find(i, i + 1, 4));
+        // Esvaziar por mudar de época não conta como despejo
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void matchesLinkedHashMap() {
+        Random random = new Random(7);
+        PathCache cache = new PathCache(CAPACITY, MAX_STORED);
+        Model model = new Model();
+        long epoch = 0;
+
+        for (int op = 0; op < 200_000; op++) {
+            // Poucos pares: muitas colisões na tabela, muitos acertos e muitos despejos
+            int source = random.nextInt(24), target = random.nextInt(24);
+            if (random.nextInt(2_000) == 0) epoch++;
+            String at = "operação " + op;
+
+            if (random.nextBoolean()) {
+                int entry = cache.find(source, target, epoch);
+                int[] expected = model.find(source, target, epoch);
+                assertEquals(expected == null, entry == -1, at);
+                if (expected != null) {
+                    assertArrayEquals(expected, cache.getPath(entry), at);
+                    assertEquals(expected.length * 3, cache.getCost(entry), at);
+                }
+            } else {
+                int[] path = new int[1 + random.nextInt(30)];
+                path[0] = source;
+                path[path.length - 1] = target;
+                for (int i = 1; i < path.length - 1; i++) path[i] = random.nextInt(1000);
+                int entry = cache.put(source, target, epoch, path, path.length * 3);
+                model.put(source, target, epoch, path);
+                assertArrayEquals(path, cache.getPath(entry), at);
+            }
+
+            assertEquals(model.paths.size(), cache.size(), at);
+            assertEquals(model.stored, cache.getStoredVertices(), at);
+            assertTrue(cache.size() <= CAPACITY, at);
+            assertTrue(cache.size() == 1 || cache.getStoredVertices() <= MAX_STORED, at);
+        }
+
+        assertEquals(model.hits, cache.getHits());
+        assertEquals(model.misses, cache.getMisses());
+        assertEquals(model.evictions, cache.getEvictions());
+        assertTrue(model.evictions > 0 && model.hits > 0);
+
+        // Todas as entradas que ficaram continuam a ser encontradas
+        for (Map.Entry<Long, int[]> e : model.paths.entrySet()) {
+            int source = (int) (e.getKey() >>> 32), target = (int) (long) e.getKey();
+            assertArrayEquals(e.getValue(), cache.getPath(cache.find(source, target, epoch)));
+        }
+    }
+
+    /**
+     * Referência: as mesmas regras sobre um LinkedHashMap por ordem de acesso (a primeira entrada é a menos usada)
+     */
+    private static final class Model {
+        final LinkedHashMap<Long, int[]> paths = new LinkedHashMap<>(16, 0.75f, true);
+        long epoch = -1;
+        int stored;
+        long hits;
+        long misses;
+        long evictions;
+
+        int[] find(int source, int target, long queryEpoch) {
+            checkEpoch(queryEpoch);
+            int[] path = paths.get(key(source, target));
+            if (path == null) misses++; else hits++;
+            return path;
+        }
+
+        void put(int source, int target, long queryEpoch, int[] path) {
+            checkEpoch(queryEpoch);
+            int[] old = paths.remove(key(source, target));
+            if (old != null) stored -= old.length;
+            while (!paths.isEmpty() && (paths.size() == CAPACITY || stored + path.length > MAX_STORED)) {
+                Iterator<int[]> eldest = paths.values().iterator();
+                stored -= eldest.next().length;
+                eldest.remove();
+                evictions++;
+            }
+            paths.put(key(source, target), path);
+            stored += path.length;
+        }
+
+        private void checkEpoch(long queryEpoch) {
+            if (queryEpoch != epoch) {
+                paths.clear();
+                stored = 0;
+                epoch = queryEpoch;
+            }
+        }
+
+        private static long key(int source, int target) {
+            return ((long) source << 32) | (target & 0xFFFFFFFFL);
+        }
+    }
+}
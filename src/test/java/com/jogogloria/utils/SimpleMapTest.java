@@ -0,0 +1,50 @@
+package com.jogogloria.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Inserções e remoções ao acaso no {@link SimpleMap}, comparadas com um {@link HashMap}: depois de
+ * remover, as chaves que ficam no mesmo grupo de sondagem continuam a ser encontradas.
+ *
+ * @author Hugo Gonçalves
+ * @version 1.0
+ */
+class SimpleMapTest {
+
+    @Test
+    void removeKeepsTheOtherKeys() {
+        Random random = new Random(5);
+        SimpleMap<String, Integer> map = new SimpleMap<>();
+        Map<String, Integer> reference = new HashMap<>();
+
+        // Poucas chaves diferentes: muitas colisões e remoções de chaves que existem
+        for (int i = 0; i < 200_000; i++) {
+            String key = "k" + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key) != null, map.remove(key), "remove " + key);
+            } else {
+                map.put(key, i);
+                reference.put(key, i);
+            }
+            assertEquals(reference.size(), map.size());
+        }
+        for (int k = 0; k < 2_000; k++) {
+            String key = "k" + k;
+            assertEquals(reference.get(key), map.get(key), "chave " + key);
+            assertEquals(reference.containsKey(key), map.containsKey(key), "chave " + key);
+        }
+
+        for (String key : reference.keySet()) map.remove(key);
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey("k0"));
+        assertNull(map.get("k0"));
+    }
+}